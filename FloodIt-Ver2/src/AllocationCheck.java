@@ -0,0 +1,103 @@
+import java.lang.management.ManagementFactory;
+import javalib.worldimages.Posn;
+import model.FloodItModel;
+import model.IModel;
+import model.Status;
+import userinterface.WorldUI;
+
+/**
+ * Checks that the game loop allocates nothing while idle and little per move (no window). Takes
+ * "[size] [numColors] [numMoves]", 14 x 14 with 6 colors and 60 moves by default. The bytes come
+ * from the allocation counter of the thread that ticks the view, so the check needs a JVM whose
+ * ThreadMXBean counts them (HotSpot does). A tick with no click waiting must allocate nothing, and
+ * a move, from its click to the tick its flood ends, at most MOVE_BUDGET_BYTES; anything else
+ * fails the check with an exception.
+ */
+public class AllocationCheck {
+
+  // a move publishes a snapshot or two, and allocates nothing per cell it floods
+  private static final long MOVE_BUDGET_BYTES = 4096;
+  private static final int CELL_SIZE = 20;
+  private static final int WARMUP_TICKS = 20000;
+  private static final int IDLE_TICKS = 1000;
+
+  public static void main(String[] args) {
+    int size = args.length >= 1 ? Integer.parseInt(args[0]) : 14;
+    int numColors = args.length >= 2 ? Integer.parseInt(args[1]) : 6;
+    int numMoves = args.length >= 3 ? Integer.parseInt(args[2]) : 60;
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    if (!threads.isThreadAllocatedMemorySupported()) {
+      throw new IllegalStateException("this JVM doesn't count allocated bytes!");
+    }
+    threads.setThreadAllocatedMemoryEnabled(true);
+    long thread = Thread.currentThread().getId();
+
+    IModel model = new FloodItModel();
+    model.setSeed(3);
+    model.startGame(size, numColors, numMoves + 1);
+    WorldUI view = new WorldUI(model, CELL_SIZE, size * CELL_SIZE, size * CELL_SIZE + 100);
+    // the first ticks and the first move load and initialize classes, which allocates
+    click(view, 1);
+    for (int i = 0; i < WARMUP_TICKS; i++) {
+      view.onTick();
+    }
+
+    long idle = idleBytes(view, threads, thread);
+    System.out.printf("%d idle ticks: %d bytes%n", IDLE_TICKS, idle);
+    long most = 0;
+    long total = 0;
+    int played = 0;
+    for (int move = 0; move < numMoves && !model.allFlooded(); move++) {
+      long before = threads.getThreadAllocatedBytes(thread);
+      click(view, move);
+      do {
+        view.onTick();
+      } while (model.getStatus() == Status.FLOODING);
+      long bytes = threads.getThreadAllocatedBytes(thread) - before;
+      most = Math.max(most, bytes);
+      total += bytes;
+      played++;
+    }
+    System.out.printf("%d moves: %d bytes each on average, %d at most%n", played,
+        played == 0 ? 0 : total / played, most);
+    long idleAfter = idleBytes(view, threads, thread);
+    System.out.printf("%d idle ticks after the moves: %d bytes%n", IDLE_TICKS, idleAfter);
+
+    if (idle != 0 || idleAfter != 0) {
+      throw new IllegalStateException("idle ticks allocate!");
+    }
+    if (most > MOVE_BUDGET_BYTES) {
+      throw new IllegalStateException("a move allocates more than " + MOVE_BUDGET_BYTES
+          + " bytes!");
+    }
+  }
+
+  /**
+   * Clicks a cell of the board, walking the board diagonally so that the clicks vary in color.
+   *
+   * @param view the view
+   * @param move the number of the move
+   */
+  private static void click(WorldUI view, int move) {
+    int cell = CELL_SIZE / 2;
+    view.onMouseClicked(new Posn(CELL_SIZE * (move % 5) + cell, CELL_SIZE * (move % 7) + cell));
+  }
+
+  /**
+   * Counts the bytes the current thread allocates over IDLE_TICKS ticks with no click waiting.
+   *
+   * @param view    the view
+   * @param threads the thread bean
+   * @param thread  the id of the current thread
+   * @return the number of bytes
+   */
+  private static long idleBytes(WorldUI view, com.sun.management.ThreadMXBean threads,
+      long thread) {
+    long before = threads.getThreadAllocatedBytes(thread);
+    for (int i = 0; i < IDLE_TICKS; i++) {
+      view.onTick();
+    }
+    return threads.getThreadAllocatedBytes(thread) - before;
+  }
+}
@@ -0,0 +1,39 @@
+import analytics.Analytics;
+import analytics.BoardStats;
+import analytics.Summary;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Brings the analytics of a replay log up to date (see Analytics) and prints them. Takes the log
+ * written by Main, the checkpoint file to keep between runs and, optionally, the most cells a
+ * board may have for the clicks it was won in to be compared with the fewest possible.
+ */
+public class AnalyticsMain {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.out.println("usage: AnalyticsMain log checkpoint [maxSolvedCells]");
+      return;
+    }
+    int maxSolvedCells = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+    long start = System.nanoTime();
+    Summary summary = new Analytics(Runtime.getRuntime().availableProcessors(), maxSolvedCells)
+        .update(Paths.get(args[0]), Paths.get(args[1]));
+    System.out.printf("%d games, %d boards, updated in %.1f s%n", summary.getGames(),
+        summary.getBoards(), (System.nanoTime() - start) / 1e9);
+    for (BoardStats stats : summary.getGroups()) {
+      System.out.printf("%dx%d, %d colors: %d boards, %.1f%% won, %d lost, clicks to win "
+              + "mean %.1f median %d p90 %d, %.0f s median play", stats.getNumRows(),
+          stats.getNumCols(), stats.getNumColors(), stats.getBoards(),
+          100 * stats.getWinRate(), stats.getLosses(), stats.getClicks().getMean(),
+          stats.getClicks().getQuantile(0.5), stats.getClicks().getQuantile(0.9),
+          stats.getMillis().getQuantile(0.5) / 1000);
+      if (stats.getSolved() > 0) {
+        System.out.printf(", %d solved, %d unwinnable, %.2f clicks over the fewest on average",
+            stats.getSolved(), stats.getUnwinnable(), stats.getGaps().getMean());
+      }
+      System.out.println();
+    }
+  }
+}
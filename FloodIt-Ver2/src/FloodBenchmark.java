@@ -0,0 +1,109 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import model.DenseGrid;
+import model.IFloodEngine;
+import model.ParallelFlood;
+import model.RunFlood;
+import model.RunLengthGrid;
+import model.SequentialFlood;
+
+/**
+ * Times the flood engines on a large seeded board (no window). Takes "[size] [numColors]
+ * [numMoves]", 4096 x 4096 with 3 colors and 8 moves by default. The board is dominated by one
+ * color so the flooded region quickly spans most of it. Every move is flooded to the
+ * end, wave by wave, with the sequential engine and with the parallel engine on 1, 4, 16 and 32
+ * threads, and each parallel run is checked against the sequential result. Last, the moves are
+ * replayed on run-length storage, starting from the board the first move leaves behind.
+ */
+public class FloodBenchmark {
+
+  public static void main(String[] args) {
+    int size = args.length >= 1 ? Integer.parseInt(args[0]) : 4096;
+    int numColors = Math.max(2, args.length >= 2 ? Integer.parseInt(args[1]) : 3);
+    int numMoves = args.length >= 3 ? Integer.parseInt(args[2]) : 8;
+    byte[] board = new byte[size * size];
+    SplittableRandom random = new SplittableRandom(0);
+    // color 0 covers 65% of the board, above the percolation threshold, so the region spans
+    // most of the board after the first moves and every later move floods millions of cells
+    for (int i = 0; i < board.length; i++) {
+      board[i] = (byte) (random.nextDouble() < 0.65 ? 0 : 1 + random.nextInt(numColors - 1));
+    }
+
+    byte[] expected = board.clone();
+    long start = System.nanoTime();
+    int waves = play(new SequentialFlood(new DenseGrid(size, size, expected)), expected[0],
+        numColors, numMoves);
+    long sequential = System.nanoTime() - start;
+    System.out.printf("%dx%d, %d colors, %d moves, %d waves%n", size, size, numColors, numMoves,
+        waves);
+    System.out.printf("sequential: %8.1f ms%n", sequential / 1e6);
+
+    long oneThread = 0;
+    for (int threads : new int[]{1, 4, 16, 32}) {
+      byte[] colors = board.clone();
+      start = System.nanoTime();
+      play(new ParallelFlood(new DenseGrid(size, size, colors), threads), colors[0], numColors,
+          numMoves);
+      long elapsed = System.nanoTime() - start;
+      if (threads == 1) {
+        oneThread = elapsed;
+      }
+      if (!Arrays.equals(colors, expected)) {
+        throw new IllegalStateException("parallel flood on " + threads
+            + " threads differs from the sequential flood!");
+      }
+      System.out.printf("%2d threads: %8.1f ms, speedup %.2fx%n", threads, elapsed / 1e6,
+          (double) oneThread / elapsed);
+    }
+
+    DenseGrid afterFirst = new DenseGrid(size, size, board.clone());
+    play(new SequentialFlood(afterFirst), board[0], numColors, 1);
+    RunLengthGrid runs = new RunLengthGrid(afterFirst);
+    start = System.nanoTime();
+    int runWaves = play(new RunFlood(runs), board[0], numColors, numMoves, 1);
+    long elapsed = System.nanoTime() - start;
+    for (int i = 0; i < expected.length; i++) {
+      if (runs.get(i / size, i % size) != expected[i]) {
+        throw new IllegalStateException("run-length flood differs from the sequential flood!");
+      }
+    }
+    System.out.printf("run-length: %8.1f ms, %d waves, %d KB instead of %d KB%n",
+        elapsed / 1e6, runWaves, runs.sizeInBytes() >> 10, afterFirst.sizeInBytes() >> 10);
+  }
+
+  /**
+   * Plays a fixed sequence of moves, cycling through the colors other than the corner's.
+   *
+   * @param engine    the flood engine, bound to the board
+   * @param corner    the color of the corner before the first move
+   * @param numColors the number of colors
+   * @param numMoves  the number of moves
+   * @return the total number of waves
+   */
+  private static int play(IFloodEngine engine, int corner, int numColors, int numMoves) {
+    return play(engine, corner, numColors, numMoves, 0);
+  }
+
+  /**
+   * Plays the moves of the fixed sequence from the given one on.
+   *
+   * @param engine    the flood engine, bound to the board
+   * @param corner    the color of the corner before the first move of the sequence
+   * @param numColors the number of colors
+   * @param numMoves  the number of moves in the sequence
+   * @param firstMove the first move played
+   * @return the total number of waves
+   */
+  private static int play(IFloodEngine engine, int corner, int numColors, int numMoves,
+      int firstMove) {
+    int waves = 0;
+    for (int move = firstMove; move < numMoves; move++) {
+      int chosen = (corner + 1 + move % Math.max(1, numColors - 1)) % numColors;
+      engine.reset();
+      do {
+        waves++;
+      } while (!engine.wave(chosen));
+    }
+    return waves;
+  }
+}
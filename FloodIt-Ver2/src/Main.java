@@ -1,5 +1,14 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.Locale;
+import leaderboard.Leaderboard;
+import leaderboard.ScoreKeepingModel;
+import model.Difficulty;
 import model.FloodItModel;
 import model.IModel;
+import replay.RecordingModel;
+import replay.ReplayWriter;
 import userinterface.WorldUI;
 
 /**
@@ -7,10 +16,36 @@ import userinterface.WorldUI;
  */
 public class Main {
 
-  public static void main(String[] args) {
-    // game default
+  public static void main(String[] args) throws IOException {
+    // game default; a file as the first argument records the games played to it, a directory as
+    // the second keeps the scores of the boards won in it, and easy, medium or hard as the third
+    // draws every board of that difficulty
+    Difficulty difficulty = args.length > 2
+        ? Difficulty.valueOf(args[2].toUpperCase(Locale.ROOT)) : null;
     IModel game = new FloodItModel();
-    game.startGame(10, 8, 30);
+    if (args.length > 1) {
+      Leaderboard leaderboard = new Leaderboard(Paths.get(args[1]));
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          leaderboard.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }));
+      game = new ScoreKeepingModel(game, leaderboard, System.getProperty("user.name"));
+    }
+    if (args.length > 0) {
+      ReplayWriter writer = new ReplayWriter(Paths.get(args[0]));
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          writer.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }));
+      game = new RecordingModel(game, writer);
+    }
+    game.startGame(10, 10, 8, 30, difficulty);
     WorldUI view = new WorldUI(game);
     view.bigBang(300, 330, 0.01);
   }
@@ -0,0 +1,129 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import model.BoardSnapshot;
+import model.FloodItModel;
+import model.IModel;
+import model.Status;
+import model.Topology;
+import replay.RecordingModel;
+import replay.ReplayReader;
+import replay.ReplayWriter;
+import replay.Replayer;
+
+/**
+ * Checks that replay logs play back exactly (no window). Takes "[numGames] [seed]", 150 games
+ * from seed 1 by default. Each game is played on a RecordingModel the way the window plays it,
+ * with clicks, restarts and new boards made at random points of a move, including while the move
+ * is still flooding and while a flood budget cut a wave short. The log is then replayed, and
+ * every game must end with the same colors in every cell, the same clicks and the same status as
+ * the game that was recorded; anything else fails the check with an exception.
+ */
+public class ReplayCheck {
+
+  private static final int MAX_ACTIONS = 40;
+
+  public static void main(String[] args) throws IOException {
+    int numGames = args.length >= 1 ? Integer.parseInt(args[0]) : 150;
+    long seed = args.length >= 2 ? Long.parseLong(args[1]) : 1;
+    Random random = new Random(seed);
+    Path file = Files.createTempFile("replay-check", ".log");
+    try {
+      Files.delete(file);
+      List<String> recorded = new ArrayList<>();
+      try (ReplayWriter writer = new ReplayWriter(file)) {
+        for (int game = 0; game < numGames; game++) {
+          recorded.add(play(random, writer));
+        }
+      }
+      int played = 0;
+      int differ = 0;
+      try (ReplayReader reader = new ReplayReader(file)) {
+        Replayer replayer = new Replayer(reader, 1);
+        for (IModel model = replayer.nextGame(); model != null; model = replayer.nextGame()) {
+          if (played >= recorded.size() || !describe(model).equals(recorded.get(played))) {
+            differ++;
+          }
+          played++;
+        }
+      }
+      System.out.printf("%d games recorded, %d replayed, %d replayed differently%n", numGames,
+          played, differ);
+      if (played != numGames || differ != 0) {
+        throw new IllegalStateException("replayed games differ from the recorded ones!");
+      }
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  /**
+   * Plays a random game on a recording model and floods its last move to the end, as the replay
+   * of it does.
+   *
+   * @param random the source of the game's settings and actions
+   * @param writer the log to record to
+   * @return the description of how the game ended (see describe)
+   */
+  private static String play(Random random, ReplayWriter writer) {
+    Topology topology = Topology.values()[random.nextInt(Topology.values().length)];
+    IModel model = new RecordingModel(new FloodItModel(1, topology), writer);
+    model.setSeed(random.nextLong());
+    model.startGame(2 + random.nextInt(13), 2 + random.nextInt(13), 3 + random.nextInt(4), 25);
+    int actions = random.nextInt(MAX_ACTIONS);
+    for (int action = 0; action < actions; action++) {
+      int kind = random.nextInt(10);
+      if (kind == 0) {
+        model.generateCells();
+      } else if (kind == 1) {
+        model.initializeGame(3 + random.nextInt(4));
+      } else if (model.getCurNumClicks() < model.getMaxNumClicks() && !model.winGame()) {
+        BoardSnapshot board = model.getSnapshot();
+        int row = random.nextInt(board.getNumRows());
+        int col = random.nextInt(board.getNumCols());
+        model.setClickedCell(board.getColorIndex(row, col), row, col);
+        model.updateClickCount();
+        model.getFloodedCells().clear();
+        model.setStatus(Status.FLOODING);
+      }
+      // the next action comes after a few frames, or before the move floods to its end
+      int frames = random.nextInt(6);
+      for (int frame = 0; frame < frames && model.getStatus() == Status.FLOODING; frame++) {
+        model.findMatchingNeighborsForAllCells();
+        if (random.nextBoolean()) {
+          model.floodCells();
+        } else {
+          model.floodCells(1);
+        }
+      }
+    }
+    while (model.getStatus() == Status.FLOODING) {
+      model.findMatchingNeighborsForAllCells();
+      model.floodCells();
+    }
+    return describe(model);
+  }
+
+  /**
+   * Describes the state a game is in: its status, its clicks and the color of every cell.
+   *
+   * @param model the model of the game
+   * @return the description
+   */
+  private static String describe(IModel model) {
+    BoardSnapshot board = model.getSnapshot();
+    StringBuilder description = new StringBuilder();
+    description.append(model.getStatus()).append(' ').append(model.getCurNumClicks()).append(' ')
+        .append(board.getProvidedColors()).append(' ');
+    for (int row = 0; row < board.getNumRows(); row++) {
+      for (int col = 0; col < board.getNumCols(); col++) {
+        description.append((char) ('0' + board.getColorIndex(row, col)));
+      }
+      description.append('/');
+    }
+    return description.toString();
+  }
+}
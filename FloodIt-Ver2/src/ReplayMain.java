@@ -0,0 +1,31 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import model.IModel;
+import replay.ReplayReader;
+import replay.Replayer;
+
+/**
+ * Plays the games of a replay log again (no window) and prints how each one ended. Takes the log
+ * written by Main.
+ */
+public class ReplayMain {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.out.println("usage: ReplayMain file");
+      return;
+    }
+    try (ReplayReader reader = new ReplayReader(Paths.get(args[0]))) {
+      Replayer replayer = new Replayer(reader, 1);
+      int game = 0;
+      for (IModel model = replayer.nextGame(); model != null; model = replayer.nextGame()) {
+        game++;
+        System.out.printf("game %d: %dx%d, %d colors, %d of %d clicks, %s, %d cells flooded%n",
+            game, model.getNumRows(), model.getNumCols(), model.getProvidedColors().size(),
+            model.getCurNumClicks(), model.getMaxNumClicks(),
+            model.winGame() ? "won" : model.allFlooded() ? "flooded too late" : "not flooded",
+            model.getSnapshot().getFloodedCount());
+      }
+    }
+  }
+}
@@ -0,0 +1,277 @@
+package analytics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import model.FloodSolver;
+import model.IModel;
+import model.Status;
+import model.TranspositionTable;
+import replay.ReplayReader;
+import replay.ReplayRecord;
+import replay.Replayer;
+
+/**
+ * Keeps a Summary of the games in a replay log up to date. Every run reads only what was
+ * appended since the last one: the summary and the place it got to are kept in a checkpoint file
+ * (see Checkpoint), and a run replays the games from there on and adds them to it.
+ *
+ * <p>A run splits the new part of the log into chunks of BLOCKS_PER_CHUNK blocks, which are read
+ * and replayed in parallel, one reader and one summary per chunk, and merges the summaries. A
+ * chunk plays the games that start in it, reading on into the next chunk for the end of its last
+ * one. The last game of the log may still be going, so a board of it only counts once it is won or
+ * out of clicks; the checkpoint points at that game, and the next run replays it from its start
+ * without counting the boards counted already.
+ *
+ * <p>Replaying a board takes tens of microseconds, so a run over hundreds of millions of games
+ * takes minutes on a few cores. Working out the fewest clicks of a board takes milliseconds
+ * instead, so it is only done for boards of at most maxSolvedCells cells.
+ */
+public class Analytics {
+
+  public static final int BLOCKS_PER_CHUNK = 16;
+  private static final int TABLE_CAPACITY = 1 << 16;
+
+  private final int numThreads;
+  private final int maxSolvedCells;
+
+  /**
+   * Constructs an analytics stage.
+   *
+   * @param numThreads     the number of threads chunks are replayed on
+   * @param maxSolvedCells the most cells a board may have for its fewest clicks to be worked out,
+   *                       0 to solve none
+   * @throws IllegalArgumentException if the number of threads is not positive or the number of
+   *                                  cells is negative
+   */
+  public Analytics(int numThreads, int maxSolvedCells) throws IllegalArgumentException {
+    if (numThreads <= 0 || maxSolvedCells < 0) {
+      throw new IllegalArgumentException("invalid analytics arguments!");
+    }
+    this.numThreads = numThreads;
+    this.maxSolvedCells = maxSolvedCells;
+  }
+
+  /**
+   * Adds the games appended to a log since the last run to the summary in a checkpoint file.
+   *
+   * @param log        the replay log
+   * @param checkpoint the checkpoint file, created if it doesn't exist
+   * @return the summary of every game counted so far
+   * @throws IOException              if the log or checkpoint can't be read or written, or is
+   *                                  corrupt
+   * @throws IllegalArgumentException if either path is null
+   */
+  public Summary update(Path log, Path checkpoint) throws IOException, IllegalArgumentException {
+    if (log == null || checkpoint == null) {
+      throw new IllegalArgumentException("log and checkpoint can't be null!");
+    }
+    Checkpoint last = Checkpoint.load(checkpoint);
+    long[] offsets = ReplayReader.blockOffsets(log, last.offset);
+    int numChunks = (offsets.length - 1 + BLOCKS_PER_CHUNK - 1) / BLOCKS_PER_CHUNK;
+    if (numChunks == 0) {
+      return last.summary;
+    }
+    ForkJoinPool pool = new ForkJoinPool(this.numThreads);
+    Chunk result;
+    try {
+      result = pool.submit(() -> IntStream.range(0, numChunks).parallel()
+          .mapToObj(chunk -> this.play(log, offsets, chunk, last))
+          .reduce(Chunk::then).get()).get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      throw new IllegalStateException("analytics failed!", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("analytics was interrupted!", e);
+    } finally {
+      pool.shutdown();
+    }
+    Summary summary = last.summary;
+    summary.merge(result.summary);
+    Checkpoint next = result.pendingOffset < 0
+        ? new Checkpoint(summary, offsets[offsets.length - 1], 0, 0)
+        : new Checkpoint(summary, result.pendingOffset, result.pendingIndex,
+            result.pendingBoards);
+    next.save(checkpoint);
+    return summary;
+  }
+
+  /**
+   * Plays the games that start in a chunk of the log.
+   *
+   * @param log    the log
+   * @param offsets the offsets of the blocks to read, and where the last one ends
+   * @param chunk  the index of the chunk
+   * @param last   the checkpoint the run started from
+   * @return the summary of the chunk's games, and the game that may still change if it is one
+   * @throws UncheckedIOException if the log can't be read or is corrupt
+   */
+  private Chunk play(Path log, long[] offsets, int chunk, Checkpoint last) {
+    int numBlocks = offsets.length - 1;
+    long from = offsets[chunk * BLOCKS_PER_CHUNK];
+    int end = (chunk + 1) * BLOCKS_PER_CHUNK;
+    long to = end < numBlocks ? offsets[end] : Long.MAX_VALUE;
+    Chunk result = new Chunk();
+    TranspositionTable table = this.maxSolvedCells == 0 ? null
+        : new TranspositionTable(TABLE_CAPACITY);
+    try (ReplayReader reader = new ReplayReader(log, from)) {
+      long block = from;
+      int starts = 0;
+      ReplayRecord record = reader.next();
+      while (record != null) {
+        if (reader.getBlockOffset() != block) {
+          block = reader.getBlockOffset();
+          starts = 0;
+        }
+        if (record.getType() != ReplayRecord.Type.START) {
+          // the end of a game that started in the chunk before
+          record = reader.next();
+          continue;
+        }
+        if (block >= to) {
+          break;
+        }
+        int index = starts++;
+        boolean resumed = chunk == 0 && block == from && index == last.startIndex;
+        if (chunk == 0 && block == from && index < last.startIndex) {
+          record = reader.next();
+          continue;
+        }
+        record = this.playGame(record, reader, block, index, resumed ? last.boards : 0, table,
+            result);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return result;
+  }
+
+  /**
+   * Plays a game and counts its boards.
+   *
+   * @param start   the game's start record
+   * @param reader  the log, positioned after the start
+   * @param block   the offset of the block the game starts in
+   * @param index   the number of games that start before it in that block
+   * @param counted the number of its boards counted by earlier runs
+   * @param table   the table to solve boards with, or null if none are solved
+   * @param result  where to count the boards
+   * @return the start of the next game, or null at the end of the log
+   * @throws IOException if the log can't be read, is corrupt or doesn't fit the game
+   */
+  private ReplayRecord playGame(ReplayRecord start, ReplayReader reader, long block, int index,
+      int counted, TranspositionTable table, Chunk result) throws IOException {
+    IModel model = Replayer.start(start, 1);
+    int board = 0;
+    long begun = start.getTimestamp();
+    long clicked = begun;
+    int optimal = board < counted ? -1 : this.solve(model, table);
+    ReplayRecord record = reader.next();
+    for (; record != null && record.getType() != ReplayRecord.Type.START;
+        record = reader.next()) {
+      Replayer.catchUp(model, record);
+      if (record.getType() == ReplayRecord.Type.CLICK) {
+        Replayer.call(model, record);
+        clicked = record.getTimestamp();
+        continue;
+      }
+      // a restart or a new board ends the board, as far as its last move got
+      if (board >= counted) {
+        count(model, board, optimal, clicked - begun, result.summary);
+      }
+      Replayer.call(model, record);
+      board++;
+      begun = record.getTimestamp();
+      clicked = begun;
+      optimal = board < counted ? -1 : this.solve(model, table);
+    }
+    Replayer.finish(model);
+    boolean over = model.winGame() || model.getCurNumClicks() >= model.getMaxNumClicks();
+    if (board >= counted && (record != null || over)) {
+      count(model, board, optimal, clicked - begun, result.summary);
+      board++;
+    }
+    if (record == null) {
+      result.pendingOffset = block;
+      result.pendingIndex = index;
+      result.pendingBoards = Math.max(board, counted);
+    }
+    return record;
+  }
+
+  /**
+   * Works out the fewest clicks that flood a model's board, if it is small enough.
+   *
+   * @param model the model, at the start of the board
+   * @param table the table to solve with, or null if none are solved
+   * @return the fewest clicks, BoardStats.UNWINNABLE if it takes more than the clicks allowed, or
+   *         -1 if the board wasn't solved
+   */
+  private int solve(IModel model, TranspositionTable table) {
+    int maxNumClicks = model.getMaxNumClicks();
+    if (table == null || model.getStatus() == Status.FLOODING
+        || (long) model.getNumRows() * model.getNumCols() > this.maxSolvedCells) {
+      return -1;
+    }
+    int[] moves = new FloodSolver(model.whatIf(), table)
+        .solve(Math.min(maxNumClicks, FloodSolver.MAX_MOVES));
+    if (moves != null) {
+      return moves.length;
+    }
+    return maxNumClicks <= FloodSolver.MAX_MOVES ? BoardStats.UNWINNABLE : -1;
+  }
+
+  /**
+   * Counts a board as it stands, and its game with its first board.
+   *
+   * @param model   the model
+   * @param board   the index of the board in its game
+   * @param optimal the board's fewest clicks, as solve found them
+   * @param millis  how long the board was played
+   * @param summary where to count it
+   */
+  private static void count(IModel model, int board, int optimal, long millis,
+      Summary summary) {
+    if (board == 0) {
+      summary.countGame();
+    }
+    boolean won = model.winGame();
+    boolean lost = !won && model.getCurNumClicks() >= model.getMaxNumClicks();
+    summary.stats(model.getNumRows(), model.getNumCols(), model.getProvidedColors().size())
+        .add(won, lost, model.getCurNumClicks(), optimal, Math.max(0, millis));
+  }
+
+  /**
+   * What a chunk came to: the summary of its games and, if the last game of the log starts in
+   * it, where that game starts and how many of its boards are counted.
+   */
+  private static final class Chunk {
+
+    private final Summary summary = new Summary();
+    private long pendingOffset = -1;
+    private int pendingIndex;
+    private int pendingBoards;
+
+    /**
+     * Merges the result of the chunk after this one into this one.
+     *
+     * @param later the result of the later chunk
+     * @return this result
+     */
+    private Chunk then(Chunk later) {
+      this.summary.merge(later.summary);
+      if (later.pendingOffset >= 0) {
+        this.pendingOffset = later.pendingOffset;
+        this.pendingIndex = later.pendingIndex;
+        this.pendingBoards = later.pendingBoards;
+      }
+      return this;
+    }
+  }
+}
@@ -0,0 +1,282 @@
+package analytics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * What the boards of one size and number of colors came to: how many were won, lost or left
+ * unfinished, the clicks the won ones took and how many more that was than the fewest possible,
+ * and how long they were played. Stats of the same kind of board merge, so they can be gathered
+ * in parallel and kept between runs.
+ */
+public final class BoardStats {
+
+  public static final int UNWINNABLE = Integer.MAX_VALUE;
+
+  private final int numRows;
+  private final int numCols;
+  private final int numColors;
+  private long boards;
+  private long wins;
+  private long losses;
+  private long solved;
+  private long unwinnable;
+  private final Histogram clicks;
+  private final Histogram gaps;
+  private final QuantileSketch millis;
+
+  /**
+   * Constructs empty stats for a kind of board.
+   *
+   * @param numRows   the number of rows
+   * @param numCols   the number of columns
+   * @param numColors the number of colors
+   * @throws IllegalArgumentException if any number is not positive
+   */
+  public BoardStats(int numRows, int numCols, int numColors) throws IllegalArgumentException {
+    if (numRows <= 0 || numCols <= 0 || numColors <= 0) {
+      throw new IllegalArgumentException("invalid board stats arguments!");
+    }
+    this.numRows = numRows;
+    this.numCols = numCols;
+    this.numColors = numColors;
+    this.clicks = new Histogram();
+    this.gaps = new Histogram();
+    this.millis = new QuantileSketch();
+  }
+
+  /**
+   * Counts a board that was played.
+   *
+   * @param won     whether it was flooded within the clicks allowed
+   * @param lost    whether it used up its clicks without being flooded
+   * @param clicks  the clicks it took
+   * @param optimal the fewest clicks that flood it, UNWINNABLE if it can't be flooded within the
+   *                clicks allowed, or -1 if it wasn't solved
+   * @param millis  how long it was played
+   * @throws IllegalArgumentException if the board is both won and lost, or a number is negative
+   *                                  other than an optimal of -1
+   */
+  public void add(boolean won, boolean lost, int clicks, int optimal, long millis)
+      throws IllegalArgumentException {
+    if ((won && lost) || clicks < 0 || optimal < -1 || millis < 0) {
+      throw new IllegalArgumentException("invalid board arguments!");
+    }
+    this.boards++;
+    this.millis.add(millis);
+    if (optimal >= 0) {
+      this.solved++;
+    }
+    if (optimal == UNWINNABLE) {
+      this.unwinnable++;
+    }
+    if (lost) {
+      this.losses++;
+    }
+    if (won) {
+      this.wins++;
+      this.clicks.add(clicks);
+      if (optimal >= 0 && optimal != UNWINNABLE) {
+        // cutting a move short never floods more, so no won board beats the fewest clicks
+        this.gaps.add(clicks - optimal);
+      }
+    }
+  }
+
+  /**
+   * Adds another's counts to these stats.
+   *
+   * @param other the stats, of the same kind of board
+   * @throws IllegalArgumentException if the stats are null or of another kind of board
+   */
+  public void merge(BoardStats other) throws IllegalArgumentException {
+    if (other == null || other.key() != this.key()) {
+      throw new IllegalArgumentException("stats must be of the same kind of board!");
+    }
+    this.boards += other.boards;
+    this.wins += other.wins;
+    this.losses += other.losses;
+    this.solved += other.solved;
+    this.unwinnable += other.unwinnable;
+    this.clicks.merge(other.clicks);
+    this.gaps.merge(other.gaps);
+    this.millis.merge(other.millis);
+  }
+
+  /**
+   * Gets the number of rows of the boards.
+   *
+   * @return the number of rows
+   */
+  public int getNumRows() {
+    return this.numRows;
+  }
+
+  /**
+   * Gets the number of columns of the boards.
+   *
+   * @return the number of columns
+   */
+  public int getNumCols() {
+    return this.numCols;
+  }
+
+  /**
+   * Gets the number of colors of the boards.
+   *
+   * @return the number of colors
+   */
+  public int getNumColors() {
+    return this.numColors;
+  }
+
+  /**
+   * Gets the number of boards played.
+   *
+   * @return the number of boards
+   */
+  public long getBoards() {
+    return this.boards;
+  }
+
+  /**
+   * Gets the number of boards won.
+   *
+   * @return the number of wins
+   */
+  public long getWins() {
+    return this.wins;
+  }
+
+  /**
+   * Gets the number of boards lost by using up the clicks.
+   *
+   * @return the number of losses
+   */
+  public long getLosses() {
+    return this.losses;
+  }
+
+  /**
+   * Gets the share of boards won.
+   *
+   * @return the win rate, or 0 if no boards were played
+   */
+  public double getWinRate() {
+    return this.boards == 0 ? 0 : (double) this.wins / this.boards;
+  }
+
+  /**
+   * Gets the number of boards whose fewest clicks were worked out.
+   *
+   * @return the number of boards solved
+   */
+  public long getSolved() {
+    return this.solved;
+  }
+
+  /**
+   * Gets the number of boards that couldn't have been won, of those solved.
+   *
+   * @return the number of boards
+   */
+  public long getUnwinnable() {
+    return this.unwinnable;
+  }
+
+  /**
+   * Gets the clicks won boards took.
+   *
+   * @return the live histogram
+   */
+  public Histogram getClicks() {
+    return this.clicks;
+  }
+
+  /**
+   * Gets how many clicks more than the fewest possible won boards took, of those solved.
+   *
+   * @return the live histogram
+   */
+  public Histogram getGaps() {
+    return this.gaps;
+  }
+
+  /**
+   * Gets how long boards were played, in milliseconds from the start of the board to its last
+   * click.
+   *
+   * @return the live sketch
+   */
+  public QuantileSketch getMillis() {
+    return this.millis;
+  }
+
+  /**
+   * Gets the key the kind of board is grouped by.
+   *
+   * @return the key, ordered by rows, then columns, then colors
+   */
+  long key() {
+    return key(this.numRows, this.numCols, this.numColors);
+  }
+
+  /**
+   * Gets the key a kind of board is grouped by.
+   *
+   * @param numRows   the number of rows
+   * @param numCols   the number of columns
+   * @param numColors the number of colors
+   * @return the key, ordered by rows, then columns, then colors
+   */
+  static long key(int numRows, int numCols, int numColors) {
+    return (long) numRows << 42 | (long) numCols << 21 | numColors;
+  }
+
+  /**
+   * Writes the stats.
+   *
+   * @param out where to write them
+   * @throws IOException if they can't be written
+   */
+  void write(DataOutput out) throws IOException {
+    out.writeInt(this.numRows);
+    out.writeInt(this.numCols);
+    out.writeInt(this.numColors);
+    out.writeLong(this.boards);
+    out.writeLong(this.wins);
+    out.writeLong(this.losses);
+    out.writeLong(this.solved);
+    out.writeLong(this.unwinnable);
+    this.clicks.write(out);
+    this.gaps.write(out);
+    this.millis.write(out);
+  }
+
+  /**
+   * Reads stats that write wrote.
+   *
+   * @param in where to read them from
+   * @return the stats
+   * @throws IOException if they can't be read or are malformed
+   */
+  static BoardStats read(DataInput in) throws IOException {
+    int numRows = in.readInt();
+    int numCols = in.readInt();
+    int numColors = in.readInt();
+    if (numRows <= 0 || numCols <= 0 || numColors <= 0) {
+      throw new IOException("malformed board stats!");
+    }
+    BoardStats stats = new BoardStats(numRows, numCols, numColors);
+    stats.boards = in.readLong();
+    stats.wins = in.readLong();
+    stats.losses = in.readLong();
+    stats.solved = in.readLong();
+    stats.unwinnable = in.readLong();
+    stats.clicks.merge(Histogram.read(in));
+    stats.gaps.merge(Histogram.read(in));
+    stats.millis.merge(QuantileSketch.read(in));
+    return stats;
+  }
+}
@@ -0,0 +1,88 @@
+package analytics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * How far the analytics of a log got: the summary of the games counted and where the first game
+ * that may still change starts. That game is the startIndex-th game to start in the block at
+ * offset, and its first boards boards are counted already. A checkpoint file is replaced in one
+ * step, so a run that dies leaves the last one whole.
+ */
+final class Checkpoint {
+
+  private static final int MAGIC = 0x46494143;
+  private static final int VERSION = 1;
+
+  final Summary summary;
+  final long offset;
+  final int startIndex;
+  final int boards;
+
+  /**
+   * Constructs a checkpoint.
+   *
+   * @param summary    the summary of the games counted
+   * @param offset     the offset of the block the next game starts in, 0 for the first block
+   * @param startIndex the number of games that start before it in that block
+   * @param boards     the number of its boards counted
+   */
+  Checkpoint(Summary summary, long offset, int startIndex, int boards) {
+    this.summary = summary;
+    this.offset = offset;
+    this.startIndex = startIndex;
+    this.boards = boards;
+  }
+
+  /**
+   * Reads a checkpoint.
+   *
+   * @param file the checkpoint file
+   * @return the checkpoint, or one at the start of the log if the file doesn't exist
+   * @throws IOException if the file can't be read or is not a checkpoint
+   */
+  static Checkpoint load(Path file) throws IOException {
+    if (!Files.exists(file)) {
+      return new Checkpoint(new Summary(), 0, 0, 0);
+    }
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("not an analytics checkpoint!");
+      }
+      long offset = in.readLong();
+      int startIndex = in.readInt();
+      int boards = in.readInt();
+      if (offset < 0 || startIndex < 0 || boards < 0) {
+        throw new IOException("not an analytics checkpoint!");
+      }
+      return new Checkpoint(Summary.read(in), offset, startIndex, boards);
+    }
+  }
+
+  /**
+   * Writes the checkpoint, replacing the file in one step.
+   *
+   * @param file the checkpoint file
+   * @throws IOException if the file can't be written
+   */
+  void save(Path file) throws IOException {
+    Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(temp)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(this.offset);
+      out.writeInt(this.startIndex);
+      out.writeInt(this.boards);
+      this.summary.write(out);
+    }
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+}
@@ -0,0 +1,135 @@
+package analytics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The stats of recorded games, grouped by the size and number of colors of their boards (see
+ * BoardStats). A game counts once, and each board played in it counts, including the ones the
+ * player restarted or drew anew. Summaries of different parts of a log merge into the summary of
+ * the whole.
+ */
+public final class Summary {
+
+  private final Map<Long, BoardStats> groups;
+  private long games;
+
+  /**
+   * Constructs an empty summary.
+   */
+  public Summary() {
+    this.groups = new TreeMap<>();
+  }
+
+  /**
+   * Gets the stats of a kind of board, adding empty ones if it hasn't been played yet.
+   *
+   * @param numRows   the number of rows
+   * @param numCols   the number of columns
+   * @param numColors the number of colors
+   * @return the live stats
+   * @throws IllegalArgumentException if any number is not positive
+   */
+  public BoardStats stats(int numRows, int numCols, int numColors)
+      throws IllegalArgumentException {
+    if (numRows <= 0 || numCols <= 0 || numColors <= 0) {
+      throw new IllegalArgumentException("invalid board stats arguments!");
+    }
+    return this.groups.computeIfAbsent(BoardStats.key(numRows, numCols, numColors),
+        key -> new BoardStats(numRows, numCols, numColors));
+  }
+
+  /**
+   * Counts a game.
+   */
+  public void countGame() {
+    this.games++;
+  }
+
+  /**
+   * Adds another summary's stats to this one.
+   *
+   * @param other the summary
+   * @throws IllegalArgumentException if the summary is null
+   */
+  public void merge(Summary other) throws IllegalArgumentException {
+    if (other == null) {
+      throw new IllegalArgumentException("summary can't be null!");
+    }
+    for (BoardStats stats : other.groups.values()) {
+      this.stats(stats.getNumRows(), stats.getNumCols(), stats.getNumColors()).merge(stats);
+    }
+    this.games += other.games;
+  }
+
+  /**
+   * Gets the number of games.
+   *
+   * @return the number of games
+   */
+  public long getGames() {
+    return this.games;
+  }
+
+  /**
+   * Gets the number of boards played in all games.
+   *
+   * @return the number of boards
+   */
+  public long getBoards() {
+    long boards = 0;
+    for (BoardStats stats : this.groups.values()) {
+      boards += stats.getBoards();
+    }
+    return boards;
+  }
+
+  /**
+   * Gets the stats of every kind of board played.
+   *
+   * @return an unmodifiable view of the stats, by rows, then columns, then colors
+   */
+  public Collection<BoardStats> getGroups() {
+    return Collections.unmodifiableCollection(this.groups.values());
+  }
+
+  /**
+   * Writes the summary.
+   *
+   * @param out where to write it
+   * @throws IOException if it can't be written
+   */
+  void write(DataOutput out) throws IOException {
+    out.writeLong(this.games);
+    out.writeInt(this.groups.size());
+    for (BoardStats stats : this.groups.values()) {
+      stats.write(out);
+    }
+  }
+
+  /**
+   * Reads a summary that write wrote.
+   *
+   * @param in where to read it from
+   * @return the summary
+   * @throws IOException if it can't be read or is malformed
+   */
+  static Summary read(DataInput in) throws IOException {
+    Summary summary = new Summary();
+    summary.games = in.readLong();
+    int size = in.readInt();
+    if (size < 0) {
+      throw new IOException("malformed summary!");
+    }
+    for (int i = 0; i < size; i++) {
+      BoardStats stats = BoardStats.read(in);
+      summary.groups.put(stats.key(), stats);
+    }
+    return summary;
+  }
+}
@@ -0,0 +1,233 @@
+package leaderboard;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A player's result in a configuration of the game: the clicks they won a board in, with the time
+ * they did. Fewer clicks rank higher, and of equal scores the earlier one; a player's best score
+ * is the highest ranked of theirs. Scores are immutable.
+ */
+public final class Score implements Comparable<Score> {
+
+  public static final int MAX_NAME_LENGTH = 256;
+
+  private final String configuration;
+  private final String player;
+  private final int score;
+  private final long timestamp;
+
+  /**
+   * Constructs a score.
+   *
+   * @param configuration the configuration it was played in
+   * @param player        the player
+   * @param score         the score, lower being better
+   * @param timestamp     the time it was made, in milliseconds since the epoch
+   * @throws IllegalArgumentException if a name is null, empty, longer than MAX_NAME_LENGTH or
+   *                                  holds a NUL character, or the score is negative
+   */
+  public Score(String configuration, String player, int score, long timestamp)
+      throws IllegalArgumentException {
+    if (!validName(configuration) || !validName(player) || score < 0) {
+      throw new IllegalArgumentException("invalid score arguments!");
+    }
+    this.configuration = configuration;
+    this.player = player;
+    this.score = score;
+    this.timestamp = timestamp;
+  }
+
+  /**
+   * Checks a configuration or player name.
+   *
+   * @param name the name
+   * @return true if it can be stored, otherwise false
+   */
+  static boolean validName(String name) {
+    return name != null && !name.isEmpty() && name.length() <= MAX_NAME_LENGTH
+        && name.indexOf('\0') < 0;
+  }
+
+  /**
+   * Gets the configuration the score was played in.
+   *
+   * @return the configuration
+   */
+  public String getConfiguration() {
+    return this.configuration;
+  }
+
+  /**
+   * Gets the player.
+   *
+   * @return the player
+   */
+  public String getPlayer() {
+    return this.player;
+  }
+
+  /**
+   * Gets the score.
+   *
+   * @return the score, lower being better
+   */
+  public int getScore() {
+    return this.score;
+  }
+
+  /**
+   * Gets the time the score was made.
+   *
+   * @return the time in milliseconds since the epoch
+   */
+  public long getTimestamp() {
+    return this.timestamp;
+  }
+
+  /**
+   * Gets the key scores are stored under: scores sort by configuration, then player, and a
+   * configuration's scores are the keys from start(configuration) to end(configuration).
+   *
+   * @return the key
+   */
+  String key() {
+    return key(this.configuration, this.player);
+  }
+
+  /**
+   * Gets the key of a player's scores in a configuration.
+   *
+   * @param configuration the configuration
+   * @param player        the player
+   * @return the key
+   */
+  static String key(String configuration, String player) {
+    return configuration + '\0' + player;
+  }
+
+  /**
+   * Gets the lowest key of a configuration's scores.
+   *
+   * @param configuration the configuration
+   * @return the key
+   */
+  static String start(String configuration) {
+    return configuration + '\0';
+  }
+
+  /**
+   * Gets the key right after a configuration's scores.
+   *
+   * @param configuration the configuration
+   * @return the key
+   */
+  static String end(String configuration) {
+    return configuration + '\1';
+  }
+
+  /**
+   * Picks the better of two scores of the same player.
+   *
+   * @param a a score
+   * @param b another score
+   * @return the one that ranks higher
+   */
+  static Score better(Score a, Score b) {
+    return b.compareTo(a) < 0 ? b : a;
+  }
+
+  @Override
+  public int compareTo(Score other) {
+    int order = Integer.compare(this.score, other.score);
+    if (order == 0) {
+      order = Long.compare(this.timestamp, other.timestamp);
+    }
+    if (order == 0) {
+      order = this.player.compareTo(other.player);
+    }
+    return order == 0 ? this.configuration.compareTo(other.configuration) : order;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof Score)) {
+      return false;
+    }
+    Score that = (Score) other;
+    return this.compareTo(that) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    return (this.key().hashCode() * 31 + this.score) * 31 + Long.hashCode(this.timestamp);
+  }
+
+  @Override
+  public String toString() {
+    return this.player + " " + this.score + " in " + this.configuration;
+  }
+
+  /**
+   * Writes the score.
+   *
+   * @param out where to write it
+   * @return the number of bytes written
+   * @throws IOException if it can't be written
+   */
+  int write(DataOutput out) throws IOException {
+    int length = writeString(out, this.configuration) + writeString(out, this.player);
+    out.writeInt(this.score);
+    out.writeLong(this.timestamp);
+    return length + Integer.BYTES + Long.BYTES;
+  }
+
+  /**
+   * Reads a score that write wrote.
+   *
+   * @param in where to read it from
+   * @return the score
+   * @throws IOException if it can't be read or is malformed
+   */
+  static Score read(DataInput in) throws IOException {
+    String configuration = readString(in);
+    String player = readString(in);
+    int score = in.readInt();
+    long timestamp = in.readLong();
+    try {
+      return new Score(configuration, player, score, timestamp);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("malformed score!", e);
+    }
+  }
+
+  /**
+   * Writes a string as its length and UTF-8 bytes.
+   *
+   * @param out    where to write it
+   * @param string the string, of at most 65535 bytes
+   * @return the number of bytes written
+   * @throws IOException if it can't be written
+   */
+  static int writeString(DataOutput out, String string) throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    out.writeShort(bytes.length);
+    out.write(bytes);
+    return Short.BYTES + bytes.length;
+  }
+
+  /**
+   * Reads a string that writeString wrote.
+   *
+   * @param in where to read it from
+   * @return the string
+   * @throws IOException if it can't be read
+   */
+  static String readString(DataInput in) throws IOException {
+    byte[] bytes = new byte[in.readUnsignedShort()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,232 @@
+package leaderboard;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.concurrent.Flow;
+import model.BoardSnapshot;
+import model.Difficulty;
+import model.ICell;
+import model.IModel;
+import model.ITopology;
+import model.ModelEvent;
+import model.MoveEvaluator;
+import model.Status;
+
+/**
+ * A model that passes every call on to another model and submits the number of clicks a board
+ * was won in to a leaderboard, once per board. Boards count as the same configuration when they
+ * have the same topology, size, colors, clicks allowed and difficulty (see configuration).
+ */
+public class ScoreKeepingModel implements IModel {
+
+  private final IModel model;
+  private final Leaderboard leaderboard;
+  private final String player;
+  private Difficulty difficulty;
+  // whether the board in play was won and submitted already
+  private boolean submitted;
+
+  /**
+   * Constructs a model that keeps the scores of another.
+   *
+   * @param model       the model that plays the game
+   * @param leaderboard the leaderboard to submit to
+   * @param player      the name of the player
+   * @throws IllegalArgumentException if an argument is null or the player's name is invalid (see
+   *                                  Score)
+   */
+  public ScoreKeepingModel(IModel model, Leaderboard leaderboard, String player)
+      throws IllegalArgumentException {
+    if (model == null || leaderboard == null || !Score.validName(player)) {
+      throw new IllegalArgumentException("invalid score keeping arguments!");
+    }
+    this.model = model;
+    this.leaderboard = leaderboard;
+    this.player = player;
+  }
+
+  /**
+   * Gets the configuration the board in play counts for.
+   *
+   * @return the configuration, such as "FOUR 14x14, 6 colors, 25 clicks, HARD"
+   * @throws IllegalStateException if the game has not started
+   */
+  public String configuration() throws IllegalStateException {
+    return String.format("%s %dx%d, %d colors, %d clicks%s", this.model.getTopology(),
+        this.model.getNumRows(), this.model.getNumCols(), this.model.getProvidedColors().size(),
+        this.model.getMaxNumClicks(), this.difficulty == null ? "" : ", " + this.difficulty);
+  }
+
+  @Override
+  public void setSeed(long seed) {
+    this.model.setSeed(seed);
+  }
+
+  @Override
+  public void startGame(int dimensions, int numColors, int maxNumClicks)
+      throws IllegalArgumentException {
+    this.startGame(dimensions, dimensions, numColors, maxNumClicks, null);
+  }
+
+  @Override
+  public void startGame(int numRows, int numCols, int numColors, int maxNumClicks)
+      throws IllegalArgumentException {
+    this.startGame(numRows, numCols, numColors, maxNumClicks, null);
+  }
+
+  @Override
+  public void startGame(int numRows, int numCols, int numColors, int maxNumClicks,
+      Difficulty difficulty) throws IllegalArgumentException, IllegalStateException {
+    this.model.startGame(numRows, numCols, numColors, maxNumClicks, difficulty);
+    this.difficulty = difficulty;
+    this.submitted = false;
+  }
+
+  @Override
+  public void initializeGame(int numColors) throws IllegalStateException {
+    this.model.initializeGame(numColors);
+    this.submitted = false;
+  }
+
+  @Override
+  public void generateCells() throws IllegalStateException {
+    this.model.generateCells();
+    this.submitted = false;
+  }
+
+  @Override
+  public void floodCells() throws IllegalStateException {
+    boolean flooding = this.model.getStatus() == Status.FLOODING;
+    this.model.floodCells();
+    this.checkWin(flooding);
+  }
+
+  @Override
+  public boolean floodCells(long budgetNanos) throws IllegalArgumentException,
+      IllegalStateException {
+    boolean flooding = this.model.getStatus() == Status.FLOODING;
+    boolean ended = this.model.floodCells(budgetNanos);
+    this.checkWin(flooding);
+    return ended;
+  }
+
+  /**
+   * Submits the score once a flood wins the board.
+   *
+   * @param flooding whether the game was flooding before the flood
+   */
+  private void checkWin(boolean flooding) {
+    // a board is won when the move that floods it ends within the clicks allowed
+    if (flooding && !this.submitted && this.model.getStatus() != Status.FLOODING
+        && this.model.winGame()) {
+      this.submitted = true;
+      this.leaderboard.submit(this.configuration(), this.player, this.model.getCurNumClicks());
+    }
+  }
+
+  @Override
+  public void findMatchingNeighborsForAllCells() throws IllegalStateException {
+    this.model.findMatchingNeighborsForAllCells();
+  }
+
+  @Override
+  public void setClickedCell(ICell cell) throws IllegalArgumentException, IllegalStateException {
+    this.model.setClickedCell(cell);
+  }
+
+  @Override
+  public void setClickedCell(int colorIndex, int row, int col) throws IllegalArgumentException,
+      IllegalStateException {
+    this.model.setClickedCell(colorIndex, row, col);
+  }
+
+  @Override
+  public MoveEvaluator whatIf() throws IllegalStateException {
+    return this.model.whatIf();
+  }
+
+  @Override
+  public List<List<ICell>> getBoard() throws IllegalStateException {
+    return this.model.getBoard();
+  }
+
+  @Override
+  public List<ICell> getFloodedCells() throws IllegalStateException {
+    return this.model.getFloodedCells();
+  }
+
+  @Override
+  public void updateClickCount() throws IllegalStateException {
+    this.model.updateClickCount();
+  }
+
+  @Override
+  public void setStatus(Status status) throws IllegalArgumentException, IllegalStateException {
+    this.model.setStatus(status);
+  }
+
+  @Override
+  public int getDimensions() throws IllegalStateException {
+    return this.model.getDimensions();
+  }
+
+  @Override
+  public int getNumRows() throws IllegalStateException {
+    return this.model.getNumRows();
+  }
+
+  @Override
+  public int getNumCols() throws IllegalStateException {
+    return this.model.getNumCols();
+  }
+
+  @Override
+  public ITopology getTopology() {
+    return this.model.getTopology();
+  }
+
+  @Override
+  public BoardSnapshot getSnapshot() throws IllegalStateException {
+    return this.model.getSnapshot();
+  }
+
+  @Override
+  public Flow.Publisher<ModelEvent> getEvents() {
+    return this.model.getEvents();
+  }
+
+  @Override
+  public List<Color> getProvidedColors() throws IllegalStateException {
+    return this.model.getProvidedColors();
+  }
+
+  @Override
+  public int getMaxNumClicks() throws IllegalStateException {
+    return this.model.getMaxNumClicks();
+  }
+
+  @Override
+  public int getCurNumClicks() throws IllegalStateException {
+    return this.model.getCurNumClicks();
+  }
+
+  @Override
+  public ICell getClickedCell() throws IllegalStateException {
+    return this.model.getClickedCell();
+  }
+
+  @Override
+  public Status getStatus() throws IllegalStateException {
+    return this.model.getStatus();
+  }
+
+  @Override
+  public boolean allFlooded() throws IllegalStateException {
+    return this.model.allFlooded();
+  }
+
+  @Override
+  public boolean winGame() throws IllegalStateException {
+    return this.model.winGame();
+  }
+}
@@ -0,0 +1,75 @@
+package leaderboard;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The best scores of the best players of a configuration, at most capacity of them, best first,
+ * one per player. Offering it scores in any order keeps it exactly the top of all of them: a
+ * player's better score replaces their worse one, and a score that doesn't rank among the top is
+ * dropped, since none of the same player's worse scores could rank there either.
+ */
+final class TopList {
+
+  private final int capacity;
+  private final List<Score> scores;
+
+  /**
+   * Constructs an empty list.
+   *
+   * @param capacity the most scores it keeps
+   */
+  TopList(int capacity) {
+    this.capacity = capacity;
+    this.scores = new ArrayList<>();
+  }
+
+  /**
+   * Offers the list a score.
+   *
+   * @param score the score
+   * @return true if the list changed, otherwise false
+   */
+  boolean offer(Score score) {
+    for (int i = 0; i < this.scores.size(); i++) {
+      if (this.scores.get(i).getPlayer().equals(score.getPlayer())) {
+        if (this.scores.get(i).compareTo(score) <= 0) {
+          return false;
+        }
+        this.scores.remove(i);
+        break;
+      }
+    }
+    if (this.scores.size() == this.capacity
+        && score.compareTo(this.scores.get(this.capacity - 1)) >= 0) {
+      return false;
+    }
+    int at = Collections.binarySearch(this.scores, score);
+    this.scores.add(at < 0 ? -at - 1 : at, score);
+    if (this.scores.size() > this.capacity) {
+      this.scores.remove(this.capacity);
+    }
+    return true;
+  }
+
+  /**
+   * Gets the best scores.
+   *
+   * @param count the most scores to get
+   * @return an unmodifiable copy of the first count scores
+   */
+  List<Score> first(int count) {
+    return Collections.unmodifiableList(
+        new ArrayList<>(this.scores.subList(0, Math.min(count, this.scores.size()))));
+  }
+
+  /**
+   * Gets all the scores.
+   *
+   * @return the live scores, best first
+   */
+  List<Score> scores() {
+    return this.scores;
+  }
+}
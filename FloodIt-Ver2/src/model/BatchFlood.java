@@ -0,0 +1,453 @@
+package model;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Plays many boards of one size at once, for simulations that run the same policy on thousands of
+ * boards. Instead of a model and its object graph per board, every field of the boards lives in
+ * one array over all of them: the colors of board b take the cells b * cells to (b + 1) * cells of
+ * one byte array, its region the matching words of one bitset, its flooded count one slot of an
+ * int array, and so on. A call to play applies one move per board in a single pass over the
+ * arrays.
+ *
+ * <p>All boards share one size, so the neighbors of every cell are worked out once, as a flat
+ * list, when the batch is built. Each board keeps its border, the cells outside the region that
+ * touch it, as a list. A move only floods from the border cells of the chosen color, so it costs
+ * time proportional to the border and the cells it adds, never the whole board.
+ *
+ * <p>The boards are split into ranges of BOARDS_PER_TASK that are played on a fork-join pool when
+ * there is more than one thread; boards never share state, so the result is the same either way.
+ * A batch is meant to be driven from one thread.
+ */
+public class BatchFlood {
+
+  public static final long MAX_TOTAL_CELLS = 1L << 26;
+  public static final int MAX_BOARD_CELLS = 1 << 16;
+  private static final int BOARDS_PER_TASK = 256;
+
+  private final int numBoards;
+  private final int width;
+  private final int cells;
+  private final int words;
+  private final int numColors;
+  private final int maxNumClicks;
+  // the neighbors of cell c are neighborCells[firstNeighbor[c]] up to firstNeighbor[c + 1]
+  private final int[] firstNeighbor;
+  private final int[] neighborCells;
+  private final ForkJoinPool pool;
+  private final byte[] colors;
+  private final long[] region;
+  // membership of the border lists, stale for cells that have joined the region since
+  private final long[] bordering;
+  private final int[] border;
+  private final int[] borderSize;
+  private final int[] flooded;
+  private final int[] clicks;
+  private final byte[] regionColor;
+
+  /**
+   * Constructs a batch of boards, all of one color until they are filled or set.
+   *
+   * @param numBoards    the number of boards
+   * @param numRows      the number of rows of every board
+   * @param numCols      the number of columns of every board
+   * @param numColors    the number of colors, at most 127
+   * @param topology     the boards' topology
+   * @param maxNumClicks the number of clicks allowed to win a board
+   * @param numThreads   the number of threads moves are played on
+   * @throws IllegalArgumentException if any number is not positive or out of range, the topology
+   *                                  is null, a board has more than MAX_BOARD_CELLS cells or the
+   *                                  boards have more than MAX_TOTAL_CELLS cells in total
+   */
+  public BatchFlood(int numBoards, int numRows, int numCols, int numColors, ITopology topology,
+      int maxNumClicks, int numThreads) throws IllegalArgumentException {
+    if (numBoards <= 0 || numRows <= 0 || numCols <= 0 || numColors <= 0 || numColors > 127
+        || topology == null || maxNumClicks <= 0 || numThreads <= 0
+        || (long) numRows * numCols > MAX_BOARD_CELLS
+        || (long) numBoards * numRows * numCols > MAX_TOTAL_CELLS) {
+      throw new IllegalArgumentException("invalid batch flood arguments!");
+    }
+    this.numBoards = numBoards;
+    this.width = numCols;
+    this.cells = numRows * numCols;
+    this.words = (this.cells + 63) >>> 6;
+    this.numColors = numColors;
+    this.maxNumClicks = maxNumClicks;
+    NeighborTable neighbors = topology.neighborTable(numCols, numRows);
+    this.firstNeighbor = new int[this.cells + 1];
+    this.neighborCells = new int[this.cells * neighbors.maxDegree()];
+    int size = 0;
+    for (int cell = 0; cell < this.cells; cell++) {
+      this.firstNeighbor[cell] = size;
+      int type = neighbors.classOf(cell / numCols, cell % numCols);
+      for (int k = neighbors.start(type); k < neighbors.end(type); k++) {
+        this.neighborCells[size++] = cell + neighbors.offset(k);
+      }
+    }
+    this.firstNeighbor[this.cells] = size;
+    this.pool = numThreads > 1 ? Pools.withThreads(numThreads) : null;
+    this.colors = new byte[numBoards * this.cells];
+    this.region = new long[numBoards * this.words];
+    this.bordering = new long[numBoards * this.words];
+    this.border = new int[numBoards * this.cells];
+    this.borderSize = new int[numBoards];
+    this.flooded = new int[numBoards];
+    this.clicks = new int[numBoards];
+    this.regionColor = new byte[numBoards];
+    // every board is one color, so its region is the whole board
+    Arrays.fill(this.region, -1L);
+    Arrays.fill(this.flooded, this.cells);
+  }
+
+  /**
+   * Gets the number of boards.
+   *
+   * @return the number of boards
+   */
+  public int getNumBoards() {
+    return this.numBoards;
+  }
+
+  /**
+   * Fills every board with uniformly random colors and restarts it. Board b is drawn from its own
+   * generator, seeded from the seed and b, so a board doesn't depend on how many others there are.
+   *
+   * @param seed the seed
+   */
+  public void fill(long seed) {
+    int[] stack = new int[this.cells];
+    for (int board = 0; board < this.numBoards; board++) {
+      SplittableRandom random = new SplittableRandom(ComponentGraph.cellKey(seed + board));
+      int base = board * this.cells;
+      for (int cell = 0; cell < this.cells; cell++) {
+        this.colors[base + cell] = (byte) random.nextInt(this.numColors);
+      }
+      this.restart(board, stack);
+    }
+  }
+
+  /**
+   * Copies a grid's colors into a board and restarts it.
+   *
+   * @param board the board
+   * @param grid  the grid, of the batch's size
+   * @throws IllegalArgumentException if the board doesn't exist, the grid is null or of another
+   *                                  size, or has a color out of range
+   */
+  public void setBoard(int board, IGrid grid) throws IllegalArgumentException {
+    this.checkBoard(board);
+    if (grid == null || grid.getWidth() != this.width
+        || grid.getHeight() != this.cells / this.width) {
+      throw new IllegalArgumentException("grid does not fit the batch!");
+    }
+    int base = board * this.cells;
+    for (int cell = 0; cell < this.cells; cell++) {
+      int color = grid.get(cell / this.width, cell % this.width);
+      if (color < 0 || color >= this.numColors) {
+        throw new IllegalArgumentException("grid has an invalid color!");
+      }
+      this.colors[base + cell] = (byte) color;
+    }
+    this.restart(board, new int[this.cells]);
+  }
+
+  /**
+   * Plays one move on every board. A board that is over or whose move is negative is left alone;
+   * on the others the move counts as a click, even if it is the region's color already.
+   *
+   * @param moves the color to play on each board, or -1 to skip a board
+   * @throws IllegalArgumentException if there isn't one move per board or a move is not a color
+   */
+  public void play(int[] moves) throws IllegalArgumentException {
+    if (moves == null || moves.length != this.numBoards) {
+      throw new IllegalArgumentException("there must be one move per board!");
+    }
+    for (int move : moves) {
+      if (move >= this.numColors) {
+        throw new IllegalArgumentException("invalid move color!");
+      }
+    }
+    if (this.pool == null || this.numBoards <= BOARDS_PER_TASK) {
+      this.playRange(moves, 0, this.numBoards);
+    } else {
+      this.pool.invoke(new PlayTask(moves, 0, this.numBoards));
+    }
+  }
+
+  /**
+   * Gets the color of a board's region.
+   *
+   * @param board the board
+   * @return the color
+   * @throws IllegalArgumentException if the board doesn't exist
+   */
+  public int getRegionColor(int board) throws IllegalArgumentException {
+    this.checkBoard(board);
+    return this.regionColor[board];
+  }
+
+  /**
+   * Gets the number of cells a board's region holds.
+   *
+   * @param board the board
+   * @return the flooded count
+   * @throws IllegalArgumentException if the board doesn't exist
+   */
+  public int getFloodedCount(int board) throws IllegalArgumentException {
+    this.checkBoard(board);
+    return this.flooded[board];
+  }
+
+  /**
+   * Gets the flooded count of every board.
+   *
+   * @return a copy of the flooded counts, by board
+   */
+  public int[] getFloodedCounts() {
+    return this.flooded.clone();
+  }
+
+  /**
+   * Gets the number of clicks played on a board.
+   *
+   * @param board the board
+   * @return the number of clicks
+   * @throws IllegalArgumentException if the board doesn't exist
+   */
+  public int getNumClicks(int board) throws IllegalArgumentException {
+    this.checkBoard(board);
+    return this.clicks[board];
+  }
+
+  /**
+   * Checks whether a board was flooded within the clicks allowed.
+   *
+   * @param board the board
+   * @return true if the board is won, otherwise false
+   * @throws IllegalArgumentException if the board doesn't exist
+   */
+  public boolean isWon(int board) throws IllegalArgumentException {
+    this.checkBoard(board);
+    return this.flooded[board] == this.cells && this.clicks[board] <= this.maxNumClicks;
+  }
+
+  /**
+   * Gets the win flag of every board.
+   *
+   * @return whether each board is won, by board
+   */
+  public boolean[] getWins() {
+    boolean[] wins = new boolean[this.numBoards];
+    for (int board = 0; board < this.numBoards; board++) {
+      wins[board] = this.flooded[board] == this.cells && this.clicks[board] <= this.maxNumClicks;
+    }
+    return wins;
+  }
+
+  /**
+   * Checks whether a board is over: flooded, or out of clicks.
+   *
+   * @param board the board
+   * @return true if the board is over, otherwise false
+   * @throws IllegalArgumentException if the board doesn't exist
+   */
+  public boolean isOver(int board) throws IllegalArgumentException {
+    this.checkBoard(board);
+    return this.over(board);
+  }
+
+  /**
+   * Counts the boards that are over.
+   *
+   * @return the number of boards that are flooded or out of clicks
+   */
+  public int getNumOver() {
+    int count = 0;
+    for (int board = 0; board < this.numBoards; board++) {
+      if (this.over(board)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Checks whether a board is flooded or out of clicks.
+   *
+   * @param board the board
+   * @return true if the board is over, otherwise false
+   */
+  private boolean over(int board) {
+    return this.flooded[board] == this.cells || this.clicks[board] >= this.maxNumClicks;
+  }
+
+  /**
+   * Ensures a board exists.
+   *
+   * @param board the board
+   * @throws IllegalArgumentException if the board doesn't exist
+   */
+  private void checkBoard(int board) throws IllegalArgumentException {
+    if (board < 0 || board >= this.numBoards) {
+      throw new IllegalArgumentException("invalid board index!");
+    }
+  }
+
+  /**
+   * Plays the moves of a range of boards.
+   *
+   * @param moves the move of every board
+   * @param from  the first board
+   * @param to    one past the last board
+   */
+  private void playRange(int[] moves, int from, int to) {
+    int[] stack = new int[this.cells];
+    for (int board = from; board < to; board++) {
+      int color = moves[board];
+      if (color < 0 || this.over(board)) {
+        continue;
+      }
+      this.clicks[board]++;
+      if (color != this.regionColor[board]) {
+        this.flood(board, color, stack);
+      }
+    }
+  }
+
+  /**
+   * Empties a board's region and border and floods the component of its top-left cell.
+   *
+   * @param board the board
+   * @param stack scratch space for the flood
+   */
+  private void restart(int board, int[] stack) {
+    int bits = board * this.words;
+    for (int w = bits; w < bits + this.words; w++) {
+      this.region[w] = 0;
+      this.bordering[w] = 0;
+    }
+    this.borderSize[board] = 0;
+    this.clicks[board] = 0;
+    int color = this.colors[board * this.cells];
+    this.regionColor[board] = (byte) color;
+    this.region[bits] = 1L;
+    stack[0] = 0;
+    this.flooded[board] = 1 + this.spread(board, color, stack, 1);
+  }
+
+  /**
+   * Recolors a board's region and adds every cell of the color that borders it.
+   *
+   * @param board the board
+   * @param color the chosen color
+   * @param stack scratch space for the flood
+   */
+  private void flood(int board, int color, int[] stack) {
+    byte[] colors = this.colors;
+    long[] region = this.region;
+    int base = board * this.cells;
+    int bits = board * this.words;
+    int list = board * this.cells;
+    int[] border = this.border;
+    int end = list + this.borderSize[board];
+    int kept = list;
+    int top = 0;
+    // border cells of the color join the region, the others stay, in one pass
+    for (int i = list; i < end; i++) {
+      int cell = border[i];
+      if (colors[base + cell] == color) {
+        region[bits + (cell >>> 6)] |= 1L << cell;
+        stack[top++] = cell;
+      } else {
+        border[kept++] = cell;
+      }
+    }
+    this.borderSize[board] = kept - list;
+    this.flooded[board] += top + this.spread(board, color, stack, top);
+    this.regionColor[board] = (byte) color;
+  }
+
+  /**
+   * Floods outward from the cells on the stack, which are already in the region: neighbors of
+   * the color join the region and the others join the border.
+   *
+   * @param board the board
+   * @param color the color that joins the region
+   * @param stack the stack of cells to flood from
+   * @param top   the number of cells on the stack
+   * @return the number of cells that joined the region
+   */
+  private int spread(int board, int color, int[] stack, int top) {
+    byte[] colors = this.colors;
+    long[] region = this.region;
+    long[] bordering = this.bordering;
+    int[] firstNeighbor = this.firstNeighbor;
+    int[] neighborCells = this.neighborCells;
+    int[] border = this.border;
+    int base = board * this.cells;
+    int bits = board * this.words;
+    int list = board * this.cells;
+    int size = this.borderSize[board];
+    int added = 0;
+    while (top > 0) {
+      int cell = stack[--top];
+      for (int k = firstNeighbor[cell]; k < firstNeighbor[cell + 1]; k++) {
+        int neighbor = neighborCells[k];
+        int word = bits + (neighbor >>> 6);
+        long bit = 1L << neighbor;
+        if ((region[word] & bit) != 0) {
+          continue;
+        }
+        if (colors[base + neighbor] == color) {
+          region[word] |= bit;
+          stack[top++] = neighbor;
+          added++;
+        } else if ((bordering[word] & bit) == 0) {
+          bordering[word] |= bit;
+          border[list + size++] = neighbor;
+        }
+      }
+    }
+    this.borderSize[board] = size;
+    return added;
+  }
+
+  /**
+   * Plays the moves of a range of boards, splitting the range until it is small enough to play in
+   * one go.
+   */
+  private class PlayTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] moves;
+    private final int from;
+    private final int to;
+
+    /**
+     * Constructs a task over the boards from (inclusive) to (exclusive).
+     *
+     * @param moves the move of every board
+     * @param from  the first board
+     * @param to    one past the last board
+     */
+    PlayTask(int[] moves, int from, int to) {
+      this.moves = moves;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from <= BOARDS_PER_TASK) {
+        BatchFlood.this.playRange(this.moves, this.from, this.to);
+        return;
+      }
+      int mid = (this.from + this.to) >>> 1;
+      invokeAll(new PlayTask(this.moves, this.from, mid), new PlayTask(this.moves, mid, this.to));
+    }
+  }
+}
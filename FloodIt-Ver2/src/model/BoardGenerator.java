@@ -0,0 +1,246 @@
+package model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Generates boards of a requested difficulty by sampling uniformly random boards and rating them
+ * with a DifficultyEstimator until one lands in the band. A board's difficulty score is its rank
+ * among CALIBRATION_BOARDS random boards of the same size, colors and topology (see Difficulty),
+ * which are drawn from a fixed seed, rated the first time a generator is asked for a board of
+ * that kind and kept. Candidates are sampled in batches of BATCH_SIZE and rated in parallel. Of
+ * the candidates of a batch that land in the band, the one closest to the middle of the band wins
+ * (ratings are estimates, so that one is the least likely to belong to a neighboring band), and
+ * the board only depends on the arguments, not on the number of threads or which thread finished
+ * first; a replayed game gets the board it was played on.
+ *
+ * <p>Every band holds a third of random boards, so the first batch nearly always has a candidate
+ * in it, and a 14 x 14 board of six colors takes a few milliseconds on a few threads once its kind
+ * is rated. A search that finds none in MAX_CANDIDATES candidates says so rather than handing back
+ * a board outside the band.
+ */
+public class BoardGenerator {
+
+  public static final int MAX_CANDIDATES = 64;
+  public static final int CALIBRATION_BOARDS = 64;
+  // a divisor of MAX_CANDIDATES; a third of a batch lands in a band on average
+  private static final int BATCH_SIZE = 8;
+  private static final long CALIBRATION_SEED = 0x5DEECE66DL;
+
+  private final DifficultyEstimator estimator;
+  private final ForkJoinPool pool;
+  // per kind of board, the mean moves of its calibration boards, sorted
+  private final Map<List<Object>, double[]> calibrations;
+
+  /**
+   * Constructs a generator that rates candidates on a thread per processor, on a pool of its own
+   * (see Pools).
+   *
+   * @param estimator the estimator candidates are rated with; each candidate's playouts run on one
+   *                  thread
+   * @throws IllegalArgumentException if the estimator is null
+   */
+  public BoardGenerator(DifficultyEstimator estimator) throws IllegalArgumentException {
+    this(estimator, Pools.forGenerating());
+  }
+
+  /**
+   * Constructs a generator.
+   *
+   * @param estimator  the estimator candidates are rated with; each candidate's playouts run on
+   *                   one thread
+   * @param numThreads the number of threads candidates are rated on
+   * @throws IllegalArgumentException if the estimator is null or the number of threads is not
+   *                                  positive
+   */
+  public BoardGenerator(DifficultyEstimator estimator, int numThreads)
+      throws IllegalArgumentException {
+    this(estimator, numThreads > 0 ? Pools.withThreads(numThreads) : null);
+  }
+
+  /**
+   * Constructs a generator that rates candidates on a pool.
+   *
+   * @param estimator the estimator candidates are rated with
+   * @param pool      the pool
+   * @throws IllegalArgumentException if the estimator or pool is null
+   */
+  private BoardGenerator(DifficultyEstimator estimator, ForkJoinPool pool)
+      throws IllegalArgumentException {
+    if (estimator == null || pool == null) {
+      throw new IllegalArgumentException("invalid board generator arguments!");
+    }
+    this.estimator = estimator;
+    this.pool = pool;
+    this.calibrations = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Generates a board of the requested difficulty.
+   *
+   * @param numRows    the number of rows
+   * @param numCols    the number of columns
+   * @param numColors  the number of colors
+   * @param topology   the board's topology
+   * @param difficulty the requested difficulty
+   * @param seed       the seed candidates and playouts are drawn from
+   * @return the board, or nothing if no candidate landed in the band
+   * @throws IllegalArgumentException if any number is not positive, the topology or difficulty is
+   *                                  null or the board has more than 2^20 cells
+   */
+  public Optional<DenseGrid> generate(int numRows, int numCols, int numColors,
+      ITopology topology, Difficulty difficulty, long seed) throws IllegalArgumentException {
+    if (numRows <= 0 || numCols <= 0 || numColors <= 0 || topology == null || difficulty == null
+        || (long) numRows * numCols > ComponentGraph.MAX_CELLS) {
+      throw new IllegalArgumentException("invalid board generator arguments!");
+    }
+    NeighborTable neighbors = topology.neighborTable(numCols, numRows);
+    double[] calibration = this.calibration(topology, neighbors, numColors);
+    DenseGrid[] boards = new DenseGrid[BATCH_SIZE];
+    double[] moves = new double[BATCH_SIZE];
+    for (int first = 0; first < MAX_CANDIDATES; first += BATCH_SIZE) {
+      this.pool.invoke(new BatchTask(neighbors, numColors, seed, first, boards, moves, 0,
+          BATCH_SIZE));
+      DenseGrid central = null;
+      double centralDistance = Double.MAX_VALUE;
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        double score = rank(calibration, moves[i]);
+        if (difficulty.contains(score) && Math.abs(score - difficulty.center()) < centralDistance) {
+          central = boards[i];
+          centralDistance = Math.abs(score - difficulty.center());
+        }
+      }
+      if (central != null) {
+        return Optional.of(central);
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Gets the calibration of a kind of board, rating its calibration boards the first time.
+   *
+   * @param topology  the board's topology
+   * @param neighbors the neighbor table, for the board's size
+   * @param numColors the number of colors
+   * @return the mean moves of the calibration boards, sorted
+   */
+  private double[] calibration(ITopology topology, NeighborTable neighbors, int numColors) {
+    List<Object> kind = Arrays.asList(topology, neighbors.getHeight(), neighbors.getWidth(),
+        numColors);
+    double[] moves = this.calibrations.get(kind);
+    if (moves == null) {
+      moves = new double[CALIBRATION_BOARDS];
+      this.pool.invoke(new BatchTask(neighbors, numColors, CALIBRATION_SEED, 0, null, moves, 0,
+          CALIBRATION_BOARDS));
+      Arrays.sort(moves);
+      this.calibrations.putIfAbsent(kind, moves);
+    }
+    return moves;
+  }
+
+  /**
+   * Rates a board by its rank among the calibration boards of its kind: the share of them that
+   * take fewer moves, counting those that take as many as half, and kept strictly between 0 and 1.
+   *
+   * @param calibration the mean moves of the calibration boards
+   * @param moves       the mean moves of the board
+   * @return the difficulty score
+   */
+  private static double rank(double[] calibration, double moves) {
+    int fewer = 0;
+    int same = 0;
+    for (double other : calibration) {
+      if (other < moves) {
+        fewer++;
+      } else if (other == moves) {
+        same++;
+      }
+    }
+    return (fewer + same / 2.0 + 0.5) / (calibration.length + 1);
+  }
+
+  /**
+   * Draws a uniformly random board.
+   *
+   * @param neighbors the neighbor table, for the board's size
+   * @param numColors the number of colors
+   * @param seed      the candidate's seed
+   * @return the board
+   */
+  private static DenseGrid randomBoard(NeighborTable neighbors, int numColors, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    byte[] colors = new byte[neighbors.getWidth() * neighbors.getHeight()];
+    for (int i = 0; i < colors.length; i++) {
+      colors[i] = (byte) random.nextInt(numColors);
+    }
+    return new DenseGrid(neighbors.getWidth(), neighbors.getHeight(), colors);
+  }
+
+  /**
+   * Draws and rates a range of the candidates of a batch, splitting the range until it is a
+   * single candidate.
+   */
+  private class BatchTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final NeighborTable neighbors;
+    private final int numColors;
+    private final long seed;
+    private final int first;
+    private final DenseGrid[] boards;
+    private final double[] moves;
+    private final int from;
+    private final int to;
+
+    /**
+     * Constructs a task over the candidates from (inclusive) to (exclusive) of a batch.
+     *
+     * @param neighbors the neighbor table
+     * @param numColors the number of colors
+     * @param seed      the generator's seed
+     * @param first     the number of the batch's first candidate
+     * @param boards    where the batch's boards go, or null if they aren't kept
+     * @param moves     where the mean moves of the batch's boards go
+     * @param from      the first candidate within the batch
+     * @param to        one past the last candidate within the batch
+     */
+    BatchTask(NeighborTable neighbors, int numColors, long seed, int first, DenseGrid[] boards,
+        double[] moves, int from, int to) {
+      this.neighbors = neighbors;
+      this.numColors = numColors;
+      this.seed = seed;
+      this.first = first;
+      this.boards = boards;
+      this.moves = moves;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from > 1) {
+        int mid = (this.from + this.to) >>> 1;
+        invokeAll(new BatchTask(this.neighbors, this.numColors, this.seed, this.first,
+                this.boards, this.moves, this.from, mid),
+            new BatchTask(this.neighbors, this.numColors, this.seed, this.first, this.boards,
+                this.moves, mid, this.to));
+        return;
+      }
+      long candidate = ComponentGraph.cellKey(this.seed + this.first + this.from);
+      DenseGrid board = randomBoard(this.neighbors, this.numColors, candidate);
+      if (this.boards != null) {
+        this.boards[this.from] = board;
+      }
+      this.moves[this.from] = BoardGenerator.this.estimator.meanMoves(
+          new ComponentGraph(board, this.neighbors, this.numColors), candidate, false);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package model;
+
+import java.awt.Color;
+import java.util.List;
+
+/**
+ * Represents the state of a game at one point in time. A snapshot never changes: the model
+ * publishes a new one, with a higher version, after every change to the game, and only between
+ * waves, so a snapshot never shows a wave half applied. Any number of threads (renderers,
+ * spectators, metrics) can read snapshots without locking and without holding up the model.
+ *
+ * <p>Consecutive snapshots share the parts of the board that didn't change between them (see
+ * IGrid.snapshot), so publishing one costs time and memory in proportion to what changed.
+ */
+public final class BoardSnapshot {
+
+  private final long version;
+  private final IGridSnapshot colors;
+  private final List<Color> providedColors;
+  private final long floodedCount;
+  private final int curNumClicks;
+  private final int maxNumClicks;
+  private final Status status;
+
+  /**
+   * Constructs a snapshot.
+   *
+   * @param version        the version, higher than that of every earlier snapshot
+   * @param colors         the colors of the board
+   * @param providedColors the provided colors, never changed after this
+   * @param floodedCount   the number of cells in the flooded region
+   * @param curNumClicks   the current number of clicks
+   * @param maxNumClicks   the maximum number of clicks
+   * @param status         the playing status
+   */
+  BoardSnapshot(long version, IGridSnapshot colors, List<Color> providedColors,
+      long floodedCount, int curNumClicks, int maxNumClicks, Status status) {
+    this.version = version;
+    this.colors = colors;
+    this.providedColors = providedColors;
+    this.floodedCount = floodedCount;
+    this.curNumClicks = curNumClicks;
+    this.maxNumClicks = maxNumClicks;
+    this.status = status;
+  }
+
+  /**
+   * Gets the version of the snapshot. Every snapshot of a model has a higher version than the
+   * ones published before it.
+   *
+   * @return the version
+   */
+  public long getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Gets the number of rows of the board.
+   *
+   * @return the number of rows
+   */
+  public int getNumRows() {
+    return this.colors.getHeight();
+  }
+
+  /**
+   * Gets the number of columns of the board.
+   *
+   * @return the number of columns
+   */
+  public int getNumCols() {
+    return this.colors.getWidth();
+  }
+
+  /**
+   * Gets the index of a cell's color among the provided colors.
+   *
+   * @param row the cell's row
+   * @param col the cell's column
+   * @return the color index
+   * @throws IllegalArgumentException if the cell is not on the board
+   */
+  public int getColorIndex(int row, int col) throws IllegalArgumentException {
+    if (row < 0 || row >= this.colors.getHeight() || col < 0 || col >= this.colors.getWidth()) {
+      throw new IllegalArgumentException("cell is not on the board!");
+    }
+    return this.colors.get(row, col);
+  }
+
+  /**
+   * Gets the color of a cell.
+   *
+   * @param row the cell's row
+   * @param col the cell's column
+   * @return the color
+   * @throws IllegalArgumentException if the cell is not on the board
+   */
+  public Color getColor(int row, int col) throws IllegalArgumentException {
+    return this.providedColors.get(this.getColorIndex(row, col));
+  }
+
+  /**
+   * Gets the provided colors.
+   *
+   * @return an unmodifiable list of the provided colors
+   */
+  public List<Color> getProvidedColors() {
+    return this.providedColors;
+  }
+
+  /**
+   * Gets the number of cells in the flooded region.
+   *
+   * @return the region size
+   */
+  public long getFloodedCount() {
+    return this.floodedCount;
+  }
+
+  /**
+   * Gets the current number of clicks.
+   *
+   * @return the current number of clicks
+   */
+  public int getCurNumClicks() {
+    return this.curNumClicks;
+  }
+
+  /**
+   * Gets the maximum number of clicks allowed to win.
+   *
+   * @return the maximum number of clicks
+   */
+  public int getMaxNumClicks() {
+    return this.maxNumClicks;
+  }
+
+  /**
+   * Gets the playing status.
+   *
+   * @return the status
+   */
+  public Status getStatus() {
+    return this.status;
+  }
+}
@@ -3,7 +3,6 @@ package model;
 import java.awt.Color;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 
 /**
  * Represents a single square location in the game grid.
@@ -113,14 +112,12 @@ public class Cell implements ICell {
     if (!(object instanceof ICell)) {
       return false;
     }
-    return ((ICell) object).getCol() == this.getCol()
-        && ((ICell) object).hasSameColor(this)
-        && ((ICell) object).getRow() == this.getRow()
-        && ((ICell) object).getMatchingNeighbors().equals(this.getMatchingNeighbors());
+    return ((ICell) object).getRow() == this.getRow()
+        && ((ICell) object).getCol() == this.getCol();
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(this.toString());
+    return ICell.hash(this.row, this.col);
   }
 }
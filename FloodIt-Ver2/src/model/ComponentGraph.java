@@ -0,0 +1,157 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A board reduced to its components: the maximal connected groups of cells of one color, with
+ * their colors, sizes and which components touch. Two components of the same color never touch,
+ * so a move adds exactly the components of the chosen color that border the region. Sets of
+ * components are bitsets of words longs.
+ *
+ * <p>Every component also has a Zobrist key, the xor of random keys of its cells, and the board a
+ * key of its own, so the hash of a flooded region is the board key xor the keys of the region's
+ * components and can be updated with the components each move adds.
+ *
+ * <p>A graph is immutable once built.
+ */
+class ComponentGraph {
+
+  static final long MAX_CELLS = 1L << 20;
+
+  final int numColors;
+  final int numComponents;
+  final int words;
+  final int[] colors;
+  final int[] sizes;
+  final int[][] adjacent;
+  final long[] keys;
+  // the components of each color, as bitsets
+  final long[][] colorMasks;
+  // the component of the top left corner, where the region starts
+  final int start;
+  final long boardKey;
+
+  /**
+   * Reduces a board to its components.
+   *
+   * @param base      the board, only read while the graph is built
+   * @param neighbors the board's neighbor table
+   * @param numColors the number of colors
+   * @throws IllegalArgumentException if the board or neighbor table is null, their sizes don't
+   *                                  match, the number of colors is not positive or the board has
+   *                                  more than MAX_CELLS cells
+   */
+  ComponentGraph(IGrid base, NeighborTable neighbors, int numColors)
+      throws IllegalArgumentException {
+    if (base == null || neighbors == null || numColors <= 0
+        || base.getWidth() != neighbors.getWidth() || base.getHeight() != neighbors.getHeight()
+        || (long) base.getWidth() * base.getHeight() > MAX_CELLS) {
+      throw new IllegalArgumentException("invalid component graph arguments!");
+    }
+    this.numColors = numColors;
+    int width = base.getWidth();
+    int cells = width * base.getHeight();
+    int[] labels = new int[cells];
+    Arrays.fill(labels, -1);
+    int[] queue = new int[cells];
+    int[] colors = new int[cells];
+    int[] sizes = new int[cells];
+    long[] componentKeys = new long[cells];
+    long boardKey = width;
+    int count = 0;
+    for (int cell = 0; cell < cells; cell++) {
+      int color = base.get(cell / width, cell % width);
+      boardKey = boardKey * 31 + color;
+      if (labels[cell] >= 0) {
+        continue;
+      }
+      labels[cell] = count;
+      colors[count] = color;
+      int size = 0;
+      queue[size++] = cell;
+      for (int i = 0; i < size; i++) {
+        int current = queue[i];
+        componentKeys[count] ^= cellKey(current);
+        int row = current / width;
+        int type = neighbors.classOf(row, current - row * width);
+        for (int k = neighbors.start(type); k < neighbors.end(type); k++) {
+          int neighbor = current + neighbors.offset(k);
+          if (labels[neighbor] < 0 && base.get(neighbor / width, neighbor % width) == color) {
+            labels[neighbor] = count;
+            queue[size++] = neighbor;
+          }
+        }
+      }
+      sizes[count] = size;
+      count++;
+    }
+    this.numComponents = count;
+    this.words = (count + 63) >>> 6;
+    this.colors = Arrays.copyOf(colors, count);
+    this.sizes = Arrays.copyOf(sizes, count);
+    this.keys = Arrays.copyOf(componentKeys, count);
+    this.adjacent = this.buildAdjacency(labels, neighbors, width);
+    this.colorMasks = new long[numColors][this.words];
+    for (int component = 0; component < count; component++) {
+      this.colorMasks[this.colors[component]][component >>> 6] |= 1L << component;
+    }
+    this.start = labels[0];
+    this.boardKey = cellKey(boardKey);
+  }
+
+  /**
+   * Lists every pair of touching components once per direction.
+   *
+   * @param labels    the component of every cell
+   * @param neighbors the neighbor table
+   * @param width     the board's width
+   * @return the components bordering each component
+   */
+  private int[][] buildAdjacency(int[] labels, NeighborTable neighbors, int width) {
+    MoveEvaluator.LongList edges = new MoveEvaluator.LongList();
+    for (int cell = 0; cell < labels.length; cell++) {
+      int row = cell / width;
+      int type = neighbors.classOf(row, cell - row * width);
+      for (int k = neighbors.start(type); k < neighbors.end(type); k++) {
+        int other = labels[cell + neighbors.offset(k)];
+        if (other != labels[cell]) {
+          edges.add((long) labels[cell] << 32 | other);
+        }
+      }
+    }
+    long[] sorted = edges.toArray();
+    Arrays.sort(sorted);
+    int[] degrees = new int[this.numComponents];
+    for (int i = 0; i < sorted.length; i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        degrees[(int) (sorted[i] >>> 32)]++;
+      }
+    }
+    int[][] adjacent = new int[this.numComponents][];
+    for (int component = 0; component < this.numComponents; component++) {
+      adjacent[component] = new int[degrees[component]];
+      degrees[component] = 0;
+    }
+    for (int i = 0; i < sorted.length; i++) {
+      if (i == 0 || sorted[i] != sorted[i - 1]) {
+        int from = (int) (sorted[i] >>> 32);
+        adjacent[from][degrees[from]++] = (int) sorted[i];
+      }
+    }
+    return adjacent;
+  }
+
+  /**
+   * Gets the Zobrist key of a cell, a hash of its index, so no table of keys is kept.
+   *
+   * @param cell the cell index
+   * @return the key
+   */
+  static long cellKey(long cell) {
+    // the finalizer of SplittableRandom
+    long z = (cell + 1) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+}
@@ -0,0 +1,287 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A grid that stores one byte per cell, row by row. Reads and writes are a single array access,
+ * which suits random boards where colors change from cell to cell.
+ *
+ * <p>For snapshots the cells are split into chunks of CHUNK_CELLS consecutive cells, and the
+ * chunks into pages of PAGE_CHUNKS. Every write flags its chunk and its page; a snapshot copies
+ * the flagged chunks and the pages holding them, and shares all other chunks and pages with the
+ * snapshot before it. Chunks are small because a wave recolors a thin frontier that can wind
+ * across the whole board.
+ */
+public class DenseGrid implements IGrid {
+
+  private static final int CHUNK_SHIFT = 8;
+  private static final int CHUNK_CELLS = 1 << CHUNK_SHIFT;
+  private static final int PAGE_SHIFT = 8;
+  private static final int PAGE_CHUNKS = 1 << PAGE_SHIFT;
+
+  private final int width;
+  private final int height;
+  private final byte[] colors;
+  // one flag per chunk and per page; threads flooding in parallel only ever set flags, so races
+  // between them are harmless
+  private final boolean[] dirtyChunks;
+  private final boolean[] dirtyPages;
+  private byte[][][] lastPages;
+
+  /**
+   * Constructs a grid with every cell in color 0.
+   *
+   * @param width  the number of columns
+   * @param height the number of rows
+   * @throws IllegalArgumentException if either size is not positive or the grid is too large
+   */
+  public DenseGrid(int width, int height) throws IllegalArgumentException {
+    this(width, height, newColors(width, height));
+  }
+
+  /**
+   * Constructs a grid over an existing color array, which the grid then owns.
+   *
+   * @param width  the number of columns
+   * @param height the number of rows
+   * @param colors the colors, row by row
+   * @throws IllegalArgumentException if the sizes are invalid or don't match the array
+   */
+  public DenseGrid(int width, int height, byte[] colors) throws IllegalArgumentException {
+    if (width <= 0 || height <= 0 || colors == null || (long) width * height != colors.length) {
+      throw new IllegalArgumentException("invalid grid arguments!");
+    }
+    this.width = width;
+    this.height = height;
+    this.colors = colors;
+    int numChunks = (colors.length + CHUNK_CELLS - 1) >>> CHUNK_SHIFT;
+    this.dirtyChunks = new boolean[numChunks];
+    Arrays.fill(this.dirtyChunks, true);
+    this.lastPages = new byte[(numChunks + PAGE_CHUNKS - 1) >>> PAGE_SHIFT][][];
+    this.dirtyPages = new boolean[this.lastPages.length];
+    Arrays.fill(this.dirtyPages, true);
+    for (int page = 0; page < this.lastPages.length; page++) {
+      this.lastPages[page] = new byte[Math.min(PAGE_CHUNKS, numChunks - (page << PAGE_SHIFT))][];
+    }
+  }
+
+  /**
+   * Constructs a dense copy of another grid.
+   *
+   * @param source the grid to copy
+   * @throws IllegalArgumentException if the source is null or too large
+   */
+  public DenseGrid(IGrid source) throws IllegalArgumentException {
+    this(nonNull(source).getWidth(), source.getHeight());
+    for (int row = 0; row < this.height; row++) {
+      for (int col = 0; col < this.width; col++) {
+        this.colors[row * this.width + col] = (byte) source.get(row, col);
+      }
+    }
+  }
+
+  /**
+   * Guards the copy constructor against null before it is dereferenced.
+   *
+   * @param source the given grid
+   * @return the grid
+   * @throws IllegalArgumentException if the grid is null
+   */
+  private static IGrid nonNull(IGrid source) throws IllegalArgumentException {
+    if (source == null) {
+      throw new IllegalArgumentException("grid can't be null!");
+    }
+    return source;
+  }
+
+  /**
+   * Allocates the color array for a grid.
+   *
+   * @param width  the number of columns
+   * @param height the number of rows
+   * @return the color array
+   * @throws IllegalArgumentException if either size is not positive or the grid is too large
+   */
+  private static byte[] newColors(int width, int height) throws IllegalArgumentException {
+    if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE - 64) {
+      throw new IllegalArgumentException("invalid grid size!");
+    }
+    return new byte[width * height];
+  }
+
+  /**
+   * Gets the backing array, for flood engines that walk it directly.
+   *
+   * @return the colors, row by row
+   */
+  byte[] colors() {
+    return this.colors;
+  }
+
+  /**
+   * Records that a cell was written, for flood engines that write the backing array directly.
+   * Threads may call this concurrently.
+   *
+   * @param cell the cell's index
+   */
+  void touch(int cell) {
+    this.dirtyChunks[cell >>> CHUNK_SHIFT] = true;
+    this.dirtyPages[cell >>> (CHUNK_SHIFT + PAGE_SHIFT)] = true;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int get(int row, int col) {
+    return this.colors[row * this.width + col];
+  }
+
+  @Override
+  public void set(int row, int col, int color) {
+    int cell = row * this.width + col;
+    this.colors[cell] = (byte) color;
+    this.touch(cell);
+  }
+
+  @Override
+  public boolean isUniform() {
+    byte first = this.colors[0];
+    for (byte color : this.colors) {
+      if (color != first) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public long countRuns() {
+    long runs = 0;
+    for (int row = 0; row < this.height; row++) {
+      runs += this.countRuns(row);
+    }
+    return runs;
+  }
+
+  /**
+   * Counts the runs of one row.
+   *
+   * @param row the row
+   * @return the number of runs
+   */
+  int countRuns(int row) {
+    int base = row * this.width;
+    int runs = 1;
+    for (int col = 1; col < this.width; col++) {
+      if (this.colors[base + col] != this.colors[base + col - 1]) {
+        runs++;
+      }
+    }
+    return runs;
+  }
+
+  @Override
+  public long sizeInBytes() {
+    return this.colors.length;
+  }
+
+  @Override
+  public IGridSnapshot snapshot() {
+    byte[][][] pages = this.lastPages.clone();
+    for (int page = 0; page < pages.length; page++) {
+      if (!this.dirtyPages[page]) {
+        continue;
+      }
+      this.dirtyPages[page] = false;
+      pages[page] = pages[page].clone();
+      int first = page << PAGE_SHIFT;
+      for (int i = 0; i < pages[page].length; i++) {
+        if (!this.dirtyChunks[first + i]) {
+          continue;
+        }
+        int from = (first + i) << CHUNK_SHIFT;
+        pages[page][i] = Arrays.copyOfRange(this.colors, from,
+            Math.min(this.colors.length, from + CHUNK_CELLS));
+        this.dirtyChunks[first + i] = false;
+      }
+    }
+    this.lastPages = pages;
+    return new Snapshot(this.width, this.height, pages);
+  }
+
+  /**
+   * An immutable copy of a dense grid, as pages of chunks.
+   */
+  private static class Snapshot implements IGridSnapshot {
+
+    private final int width;
+    private final int height;
+    private final byte[][][] pages;
+
+    /**
+     * Constructs a snapshot.
+     *
+     * @param width  the number of columns
+     * @param height the number of rows
+     * @param pages  the pages, never changed after this
+     */
+    Snapshot(int width, int height, byte[][][] pages) {
+      this.width = width;
+      this.height = height;
+      this.pages = pages;
+    }
+
+    @Override
+    public int getWidth() {
+      return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+      return this.height;
+    }
+
+    @Override
+    public int get(int row, int col) {
+      int cell = row * this.width + col;
+      int chunk = cell >>> CHUNK_SHIFT;
+      return this.pages[chunk >>> PAGE_SHIFT][chunk & (PAGE_CHUNKS - 1)][cell & (CHUNK_CELLS - 1)];
+    }
+    @Override
+    public void diff(IGridSnapshot earlier, CellChanges changes)
+        throws IllegalArgumentException {
+      IGridSnapshot.checkDiff(this, earlier, changes);
+      if (!(earlier instanceof Snapshot)) {
+        IGridSnapshot.super.diff(earlier, changes);
+        return;
+      }
+      byte[][][] before = ((Snapshot) earlier).pages;
+      for (int page = 0; page < this.pages.length; page++) {
+        if (this.pages[page] == before[page]) {
+          continue;
+        }
+        for (int i = 0; i < this.pages[page].length; i++) {
+          byte[] chunk = this.pages[page][i];
+          byte[] old = before[page][i];
+          if (chunk == old) {
+            continue;
+          }
+          long first = (long) ((page << PAGE_SHIFT) + i) << CHUNK_SHIFT;
+          for (int cell = 0; cell < chunk.length; cell++) {
+            if (chunk[cell] != old[cell]) {
+              changes.changed(first + cell, chunk[cell]);
+            }
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package model;
+
+/**
+ * Difficulty represents the bands puzzles are offered in. A board's difficulty score (see
+ * BoardGenerator) is its rank among uniformly random boards of the same size, colors and
+ * topology, rated by the number of moves playouts of average play take on average to flood them
+ * (see DifficultyEstimator): the share of those boards that take fewer moves, between 0 and 1.
+ * Easy boards are the easiest third, medium boards the middle third and hard boards the hardest
+ * third, so every band is reachable at any settings; the clicks allowed don't enter the rating,
+ * they set how hard the game is as a whole.
+ */
+public enum Difficulty {
+  EASY(0, 1.0 / 3), MEDIUM(1.0 / 3, 2.0 / 3), HARD(2.0 / 3, 1);
+
+  private final double min;
+  private final double max;
+
+  /**
+   * Constructs a band of scores.
+   *
+   * @param min the lowest score of the band (exclusive)
+   * @param max the highest score of the band (inclusive)
+   */
+  Difficulty(double min, double max) {
+    this.min = min;
+    this.max = max;
+  }
+
+  /**
+   * Checks whether a score lies in the band.
+   *
+   * @param score the difficulty score
+   * @return true if the score is in the band, otherwise false
+   */
+  public boolean contains(double score) {
+    return score > this.min && score <= this.max;
+  }
+
+  /**
+   * Gets the middle of the band.
+   *
+   * @return the score in the middle
+   */
+  public double center() {
+    return (this.min + this.max) / 2;
+  }
+
+  /**
+   * Measures how far a score lies outside the band.
+   *
+   * @param score the difficulty score
+   * @return 0 if the score is in the band, otherwise its distance to the band
+   */
+  public double distance(double score) {
+    return this.contains(score) ? 0 : score <= this.min ? this.min - score : score - this.max;
+  }
+}
@@ -0,0 +1,248 @@
+package model;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Estimates how hard a board is by playing it to the end many times. Each playout plays greedily,
+ * taking the color that floods the most cells, except that with probability randomness it takes a
+ * random color that floods anything at all instead, like a player who doesn't always see the best
+ * move. Boards are rated by the mean number of moves the playouts take (see Difficulty); score
+ * gives it as a fraction of the clicks allowed, how much of them average play uses.
+ *
+ * <p>Playouts run on the board's ComponentGraph, where a move is a few bitset operations, and are
+ * spread over a fork-join pool. Every playout draws from its own generator, seeded from the seed
+ * given and the playout's number, so an estimate only depends on its arguments, not on how the
+ * playouts were scheduled.
+ */
+public class DifficultyEstimator {
+
+  public static final int DEFAULT_PLAYOUTS = 64;
+  public static final double DEFAULT_RANDOMNESS = 0.2;
+  private static final int PLAYOUTS_PER_TASK = 8;
+
+  private final int numPlayouts;
+  private final double randomness;
+  private final ForkJoinPool pool;
+
+  /**
+   * Constructs an estimator.
+   *
+   * @param numPlayouts the number of playouts per board
+   * @param randomness  the probability that a playout takes a random move instead of the greedy
+   *                    one, between 0 and 1
+   * @param numThreads  the number of threads the playouts of a board run on
+   * @throws IllegalArgumentException if the number of playouts or threads is not positive or the
+   *                                  randomness is not between 0 and 1
+   */
+  public DifficultyEstimator(int numPlayouts, double randomness, int numThreads)
+      throws IllegalArgumentException {
+    if (numPlayouts <= 0 || !(randomness >= 0 && randomness <= 1) || numThreads <= 0) {
+      throw new IllegalArgumentException("invalid difficulty estimator arguments!");
+    }
+    this.numPlayouts = numPlayouts;
+    this.randomness = randomness;
+    this.pool = numThreads > 1 ? Pools.withThreads(numThreads) : null;
+  }
+
+  /**
+   * Estimates the number of moves a board takes to flood.
+   *
+   * @param board     the board
+   * @param neighbors the board's neighbor table
+   * @param numColors the number of colors
+   * @param seed      the seed of the playouts
+   * @return the mean number of moves of the playouts
+   * @throws IllegalArgumentException if the board or table is null, their sizes don't match, the
+   *                                  number of colors is not positive or the board has more than
+   *                                  2^20 cells
+   */
+  public double estimateMoves(IGrid board, NeighborTable neighbors, int numColors, long seed)
+      throws IllegalArgumentException {
+    return this.meanMoves(new ComponentGraph(board, neighbors, numColors), seed, true);
+  }
+
+  /**
+   * Scores a board: the mean number of moves of the playouts over the clicks allowed.
+   *
+   * @param board        the board
+   * @param neighbors    the board's neighbor table
+   * @param numColors    the number of colors
+   * @param maxNumClicks the number of clicks allowed
+   * @param seed         the seed of the playouts
+   * @return the difficulty score
+   * @throws IllegalArgumentException if the board or table is null, their sizes don't match, the
+   *                                  number of colors or clicks is not positive or the board has
+   *                                  more than 2^20 cells
+   */
+  public double score(IGrid board, NeighborTable neighbors, int numColors, int maxNumClicks,
+      long seed) throws IllegalArgumentException {
+    if (maxNumClicks <= 0) {
+      throw new IllegalArgumentException("number of clicks must be positive!");
+    }
+    return this.estimateMoves(board, neighbors, numColors, seed) / maxNumClicks;
+  }
+
+  /**
+   * Runs the playouts on a board.
+   *
+   * @param graph    the board's components
+   * @param seed     the seed of the playouts
+   * @param parallel whether to spread the playouts over the pool
+   * @return the mean number of moves
+   */
+  double meanMoves(ComponentGraph graph, long seed, boolean parallel) {
+    long total = parallel && this.pool != null
+        ? this.pool.invoke(new PlayoutTask(graph, seed, 0, this.numPlayouts))
+        : this.playouts(graph, seed, 0, this.numPlayouts);
+    return (double) total / this.numPlayouts;
+  }
+
+  /**
+   * Runs a range of playouts one after the other.
+   *
+   * @param graph the board's components
+   * @param seed  the seed of the playouts
+   * @param from  the first playout
+   * @param to    one past the last playout
+   * @return the total number of moves
+   */
+  private long playouts(ComponentGraph graph, long seed, int from, int to) {
+    long[] region = new long[graph.words];
+    long[] border = new long[graph.words];
+    long[] gains = new long[graph.numColors];
+    long total = 0;
+    for (int i = from; i < to; i++) {
+      SplittableRandom random = new SplittableRandom(seed + i * 0x9E3779B97F4A7C15L);
+      total += this.playout(graph, random, region, border, gains);
+    }
+    return total;
+  }
+
+  /**
+   * Plays a board to the end.
+   *
+   * @param graph  the board's components
+   * @param random the playout's generator
+   * @param region scratch space for the flooded components
+   * @param border scratch space for the components bordering them
+   * @param gains  scratch space for the cells each color would flood
+   * @return the number of moves
+   */
+  private int playout(ComponentGraph graph, SplittableRandom random, long[] region,
+      long[] border, long[] gains) {
+    Arrays.fill(region, 0);
+    Arrays.fill(border, 0);
+    region[graph.start >>> 6] |= 1L << graph.start;
+    for (int component : graph.adjacent[graph.start]) {
+      border[component >>> 6] |= 1L << component;
+    }
+    int moves = 0;
+    while (true) {
+      Arrays.fill(gains, 0);
+      boolean flooded = true;
+      for (int w = 0; w < graph.words; w++) {
+        for (long bits = border[w]; bits != 0; bits &= bits - 1) {
+          int component = (w << 6) + Long.numberOfTrailingZeros(bits);
+          gains[graph.colors[component]] += graph.sizes[component];
+          flooded = false;
+        }
+      }
+      if (flooded) {
+        return moves;
+      }
+      int color = random.nextDouble() < this.randomness ? randomMove(gains, random)
+          : greedyMove(gains);
+      long[] mask = graph.colorMasks[color];
+      for (int w = 0; w < graph.words; w++) {
+        long gained = border[w] & mask[w];
+        region[w] |= gained;
+        border[w] &= ~gained;
+        for (long bits = gained; bits != 0; bits &= bits - 1) {
+          for (int neighbor : graph.adjacent[(w << 6) + Long.numberOfTrailingZeros(bits)]) {
+            if ((region[neighbor >>> 6] & (1L << neighbor)) == 0) {
+              border[neighbor >>> 6] |= 1L << neighbor;
+            }
+          }
+        }
+      }
+      moves++;
+    }
+  }
+
+  /**
+   * Picks the color that floods the most cells, the lowest one on a tie.
+   *
+   * @param gains the cells each color would flood
+   * @return the color
+   */
+  private static int greedyMove(long[] gains) {
+    int best = 0;
+    for (int color = 1; color < gains.length; color++) {
+      if (gains[color] > gains[best]) {
+        best = color;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Picks a random color among those that flood anything.
+   *
+   * @param gains  the cells each color would flood
+   * @param random the generator
+   * @return the color
+   */
+  private static int randomMove(long[] gains, SplittableRandom random) {
+    int choice = -1;
+    int seen = 0;
+    for (int color = 0; color < gains.length; color++) {
+      if (gains[color] > 0 && random.nextInt(++seen) == 0) {
+        choice = color;
+      }
+    }
+    return choice;
+  }
+
+  /**
+   * Runs a range of playouts, splitting it until it is small enough to run in one go.
+   */
+  private class PlayoutTask extends RecursiveTask<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ComponentGraph graph;
+    private final long seed;
+    private final int from;
+    private final int to;
+
+    /**
+     * Constructs a task over the playouts from (inclusive) to (exclusive).
+     *
+     * @param graph the board's components
+     * @param seed  the seed of the playouts
+     * @param from  the first playout
+     * @param to    one past the last playout
+     */
+    PlayoutTask(ComponentGraph graph, long seed, int from, int to) {
+      this.graph = graph;
+      this.seed = seed;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Long compute() {
+      if (this.to - this.from <= PLAYOUTS_PER_TASK) {
+        return DifficultyEstimator.this.playouts(this.graph, this.seed, this.from, this.to);
+      }
+      int mid = (this.from + this.to) >>> 1;
+      PlayoutTask left = new PlayoutTask(this.graph, this.seed, this.from, mid);
+      left.fork();
+      long right = new PlayoutTask(this.graph, this.seed, mid, this.to).compute();
+      return left.join() + right;
+    }
+  }
+}
@@ -1,52 +1,209 @@
 package model;
 
 import java.awt.Color;
-import java.awt.Point;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.BiPredicate;
 
 /**
- * Represents a model for the game Flood-It.
+ * Represents a model for the game Flood-It. Cell colors are kept in a grid (as indices into the
+ * provided colors) and the flooded region is kept by a flood engine; the ICell lists handed out by
+ * getBoard and getFloodedCells are views over that state. Boards can be rectangular. A new board
+ * is stored densely, one byte per cell, unless it has more than TILED_CELLS cells, in which case it
+ * is a TiledGrid whose off-heap tiles are only materialized when the flood reaches them. Whenever
+ * a move's flood ends on a dense board the model checks how many runs of one color the rows have,
+ * and switches to run-length storage once that takes a quarter of the memory or less (and back
+ * again once it would take more than half). Run-length and tiled storage only support the
+ * four-neighbor topology; boards of other topologies always stay dense.
+ *
+ * <p>The model is meant to be changed from one thread. After every change it publishes a
+ * BoardSnapshot through a volatile field, so other threads can read consistent states of the game
+ * through getSnapshot without locking. Waves are only published between waves, and within a move
+ * at most once every PUBLISH_INTERVAL_NANOS: a wave recolors a frontier that can be spread over
+ * the whole board, so copying it after every wave would cost as much as the wave itself. The
+ * wave that ends a move is always published.
+ *
+ * <p>The window floods against a time budget per frame (see floodCells(long)): a wave too big
+ * for one frame is cut short and carries on in the next, and any other change to the game first
+ * finishes it, so the game ends up exactly as if every wave had run in one go.
+ *
+ * <p>Every publication is also announced to the subscribers of getEvents as change events (see
+ * ModelEvent): the cells recolored since the last snapshot, found by comparing the two snapshots
+ * (see IGridSnapshot.diff) in batches of up to RECOLOR_BATCH, and the changes to the status and
+ * the number of clicks. Events are only made while someone subscribes, and each subscriber has
+ * room for EVENT_BUFFER of them.
+ *
+ * <p>Every move is reported to Flight Recorder as a floodit.Move event (see MoveEvent).
  */
 public class FloodItModel implements IModel {
 
+  public static final long TILED_CELLS = 1L << 28;
+  public static final int EVENT_BUFFER = 256;
+  public static final int RECOLOR_BATCH = 4096;
+  private static final int STORAGE_SAMPLE_ROWS = 64;
+  private static final long CELL_VIEW_CACHE_CELLS = 1L << 24;
+  private static final long PUBLISH_INTERVAL_NANOS = 10_000_000L;
+  // boards of a difficulty come from one generator, so each kind of board is rated once
+  private static final BoardGenerator GENERATOR = new BoardGenerator(new DifficultyEstimator(
+      DifficultyEstimator.DEFAULT_PLAYOUTS, DifficultyEstimator.DEFAULT_RANDOMNESS, 1));
+  // events a subscriber has no room for are dropped for it, never retried
+  private static final BiPredicate<Flow.Subscriber<? super ModelEvent>, ModelEvent> DROP =
+      (subscriber, event) -> false;
+
   private final List<List<ICell>> board;
   private final ICell clickedCell;
   private final List<ICell> floodedCells;
-  private ICell leftCornerCell;
-  private int dimensions;
+  private final int floodThreads;
+  private final ITopology topology;
+  private final Random random;
+  private final SubmissionPublisher<ModelEvent> events;
+  private final IGridSnapshot.CellChanges recolored;
+  // the cell clicked last, kept as plain values behind clickedCell: its coordinates, -1 until a
+  // cell is clicked, its color and the index of that color among the provided ones, or -1
+  private int clickedRow;
+  private int clickedCol;
+  private int clickedRgb;
+  private int clickedColor;
+  // the color of the wave a budget cut short, or -1 if there is none
+  private int waveColor;
+  private IFloodEngine engine;
+  private IGrid grid;
+  private NeighborTable neighbors;
+  // built on the first what-if request and dropped whenever the board changes
+  private MoveEvaluator evaluator;
+  private ICell[] cellViews;
+  private int numRows;
+  private int numCols;
   private List<Color> providedColors;
   private int maxNumClicks;
   private int curNumClicks;
+  // the band new boards are generated in, or null for uniformly random boards
+  private Difficulty difficulty;
   private Status status;
+  // the move in progress, or null, and the size of the flooded region when the last one ended
+  private MoveEvent move;
+  private long regionSize;
+  // the last published state; the grid snapshot is reused while no colors changed
+  private volatile BoardSnapshot snapshot;
+  private IGridSnapshot gridSnapshot;
+  private boolean colorsChanged;
+  private long lastPublished;
+  private List<Color> snapshotColors;
+  private long version;
+  // whether the board has a single color, which is worked out again only once it isn't known;
+  // whether a move's flood is under way; and per color, where to look for a cell of another color
+  // once a move in that color ends (every cell before it had the color when the pointer passed it)
+  private boolean flooded;
+  private boolean floodedKnown;
+  private boolean midMove;
+  private long[] otherColorFrom;
+  // change events: what the last ones said, and the recolored cells of the batch being filled
+  private boolean boardChanged;
+  private Status announcedStatus;
+  private int announcedClicks;
+  private long sequence;
+  private long[] batchCells;
+  private byte[] batchColors;
+  private int batchSize;
 
   /**
    * Default constructor to create a new game.
    */
   public FloodItModel() {
-    this.dimensions = -1;
+    this(1);
+  }
+
+  /**
+   * Constructor to create a new game that floods with the given number of threads. With more than
+   * one thread each wave runs level-synchronously on a fork-join pool (see ParallelFlood), which
+   * pays off for boards of thousands of rows; the result is the same either way.
+   *
+   * @param floodThreads the number of threads used to flood
+   * @throws IllegalArgumentException if the number of threads is not positive
+   */
+  public FloodItModel(int floodThreads) throws IllegalArgumentException {
+    this(floodThreads, Topology.FOUR);
+  }
+
+  /**
+   * Constructor to create a new game on a board of the given topology that floods with the given
+   * number of threads.
+   *
+   * @param floodThreads the number of threads used to flood
+   * @param topology     the board's topology
+   * @throws IllegalArgumentException if the number of threads is not positive or the topology is
+   *                                  null
+   */
+  public FloodItModel(int floodThreads, ITopology topology) throws IllegalArgumentException {
+    if (floodThreads <= 0) {
+      throw new IllegalArgumentException("number of flood threads must be positive!");
+    }
+    if (topology == null) {
+      throw new IllegalArgumentException("topology can't be null!");
+    }
+    this.floodThreads = floodThreads;
+    this.topology = topology;
+    this.random = new Random();
+    this.numRows = -1;
+    this.numCols = -1;
     this.providedColors = new ArrayList<>();
     this.maxNumClicks = -1;
     this.curNumClicks = -1;
-    this.board = new ArrayList<>();
-    this.leftCornerCell = new Cell();
-    this.clickedCell = new Cell();
-    this.floodedCells = new ArrayList<>();
+    this.board = new BoardView();
+    this.clickedCell = new ClickedCellView();
+    this.clickedRow = -1;
+    this.clickedCol = -1;
+    this.clickedRgb = Color.WHITE.getRGB();
+    this.clickedColor = -1;
+    this.floodedCells = new FloodedCellsView();
     this.status = Status.NOTSTARTED;
+    this.events = new SubmissionPublisher<>(ForkJoinPool.commonPool(), EVENT_BUFFER);
+    this.recolored = this::recolored;
+    this.announcedStatus = Status.NOTSTARTED;
+  }
+
+  @Override
+  public void setSeed(long seed) {
+    this.random.setSeed(seed);
   }
 
   @Override
   public void startGame(int dimensions, int numColors, int maxNumClicks)
       throws IllegalArgumentException {
-    if (dimensions <= 0 || numColors <= 0 || numColors > 10 || maxNumClicks <= 0) {
+    this.startGame(dimensions, dimensions, numColors, maxNumClicks);
+  }
+
+  @Override
+  public void startGame(int numRows, int numCols, int numColors, int maxNumClicks)
+      throws IllegalArgumentException {
+    this.startGame(numRows, numCols, numColors, maxNumClicks, null);
+  }
+
+  @Override
+  public void startGame(int numRows, int numCols, int numColors, int maxNumClicks,
+      Difficulty difficulty) throws IllegalArgumentException, IllegalStateException {
+    if (numRows <= 0 || numCols <= 0 || numColors <= 0 || numColors > 10 || maxNumClicks <= 0) {
       throw new IllegalArgumentException("invalid start-game arguments!");
     }
+    if (this.topology != Topology.FOUR && (long) numRows * numCols > TILED_CELLS) {
+      throw new IllegalArgumentException("board is too large for its topology!");
+    }
+    if (difficulty != null && (long) numRows * numCols > ComponentGraph.MAX_CELLS) {
+      throw new IllegalArgumentException("board is too large to generate by difficulty!");
+    }
     this.status = Status.NOTFLOODING;
-    this.dimensions = dimensions;
-    this.initializeGame(numColors);
+    this.numRows = numRows;
+    this.numCols = numCols;
     this.maxNumClicks = maxNumClicks;
+    this.difficulty = difficulty;
+    this.initializeGame(numColors);
   }
 
   @Override
@@ -54,10 +211,58 @@ public class FloodItModel implements IModel {
     this.didNotStartException();
     this.status = Status.NOTFLOODING;
     this.providedColors = this.selectColors(numColors);
+    this.clickedColor = this.colorIndex(this.clickedRgb);
+    this.snapshotColors = Collections.unmodifiableList(new ArrayList<>(this.providedColors));
     this.curNumClicks = 0;
-    this.board.clear();
+    this.cellViews = null;
     this.generateCells();
-    this.leftCornerCell = this.board.get(0).get(0);
+  }
+
+  /**
+   * Creates the flood engine that suits the current grid.
+   *
+   * @return the flood engine
+   */
+  private IFloodEngine newEngine() {
+    if (this.grid instanceof RunLengthGrid) {
+      return new RunFlood((RunLengthGrid) this.grid);
+    }
+    if (this.grid instanceof TiledGrid) {
+      return new TiledFlood((TiledGrid) this.grid);
+    }
+    DenseGrid dense = (DenseGrid) this.grid;
+    return this.floodThreads > 1 ? new ParallelFlood(dense, this.neighbors, this.floodThreads)
+        : new SequentialFlood(dense, this.neighbors);
+  }
+
+  /**
+   * Switches between dense and run-length storage when the other one pays off. Dense grids are
+   * judged by the runs of a sample of rows, so the check stays cheap on huge boards. Tiled grids
+   * keep their tiles.
+   */
+  private void chooseStorage() {
+    long denseSize = (long) this.numRows * this.numCols;
+    if (this.topology != Topology.FOUR) {
+      return;
+    }
+    if (this.grid instanceof DenseGrid) {
+      DenseGrid dense = (DenseGrid) this.grid;
+      int step = Math.max(1, this.numRows / STORAGE_SAMPLE_ROWS);
+      long sampledRuns = 0;
+      int sampledRows = 0;
+      for (int row = 0; row < this.numRows; row += step) {
+        sampledRuns += dense.countRuns(row);
+        sampledRows++;
+      }
+      long runs = sampledRuns * this.numRows / sampledRows;
+      if (RunLengthGrid.estimateSize(this.numRows, runs) * 4 <= denseSize) {
+        this.grid = new RunLengthGrid(dense);
+        this.engine = this.newEngine();
+      }
+    } else if (this.grid instanceof RunLengthGrid && this.grid.sizeInBytes() * 2 > denseSize) {
+      this.grid = new DenseGrid(this.grid);
+      this.engine = this.newEngine();
+    }
   }
 
   /**
@@ -81,7 +286,7 @@ public class FloodItModel implements IModel {
     List<Color> colorBank = new ArrayList<>(Arrays
         .asList(Color.BLACK, Color.MAGENTA, Color.BLUE, Color.CYAN, Color.GREEN, Color.PINK,
             Color.GRAY, Color.ORANGE, Color.RED, Color.YELLOW));
-    Collections.shuffle(colorBank);
+    Collections.shuffle(colorBank, this.random);
     List<Color> list = new ArrayList<>();
     for (int i = 0; i < num; i++) {
       list.add(colorBank.get(i));
@@ -89,97 +294,228 @@ public class FloodItModel implements IModel {
     return list;
   }
 
-  /**
-   * Picks a random color out of the given colors.
-   *
-   * @return a random color
-   */
-  private Color pickRandomColor() {
-    List<Color> copyColors = new ArrayList<>(this.providedColors);
-    Collections.shuffle(copyColors);
-    return copyColors.get(0);
-  }
-
   @Override
   public void generateCells() throws IllegalStateException {
     this.didNotStartException();
-    for (int row = 0; row < this.dimensions; row++) {
-      List<ICell> rowlist = new ArrayList<>();
-      for (int col = 0; col < this.dimensions; col++) {
-        rowlist.add(new Cell(this.pickRandomColor(), row, col));
+    this.neighbors = this.topology.neighborTable(this.numCols, this.numRows);
+    if ((long) this.numRows * this.numCols > TILED_CELLS) {
+      this.grid = new TiledGrid(this.numCols, this.numRows, this.providedColors.size(),
+          this.random.nextLong());
+    } else if (this.difficulty != null) {
+      this.grid = GENERATOR.generate(this.numRows, this.numCols, this.providedColors.size(),
+          this.topology, this.difficulty, this.random.nextLong())
+          .orElseThrow(() -> new IllegalStateException("no board of the difficulty was found!"));
+    } else {
+      byte[] colors = new byte[this.numRows * this.numCols];
+      for (int i = 0; i < colors.length; i++) {
+        colors[i] = (byte) this.random.nextInt(this.providedColors.size());
       }
-      this.board.add(rowlist);
+      this.grid = new DenseGrid(this.numCols, this.numRows, colors);
     }
+    this.engine = this.newEngine();
+    this.evaluator = null;
+    this.colorsChanged = true;
+    this.waveColor = -1;
+    this.move = null;
+    this.regionSize = 0;
+    this.boardChanged = true;
+    this.floodedKnown = false;
+    this.midMove = false;
+    this.otherColorFrom = new long[this.providedColors.size()];
+    this.publish();
   }
 
   @Override
   public void floodCells() throws IllegalStateException {
     this.didNotStartException();
-    Color chosenColor = this.clickedCell.getColor();
-    this.floodedCells.add(this.leftCornerCell);
-    List<ICell> floodedCellsCopy = new ArrayList<>(this.floodedCells);
-    this.floodIteration(chosenColor, floodedCellsCopy);
-    this.resetFloodingStatus();
+    this.flood(false, 0);
+  }
+
+  @Override
+  public boolean floodCells(long budgetNanos) throws IllegalArgumentException,
+      IllegalStateException {
+    this.didNotStartException();
+    if (budgetNanos < 0) {
+      throw new IllegalArgumentException("flood budget can't be negative!");
+    }
+    return this.flood(true, System.nanoTime() + budgetNanos);
   }
 
   /**
-   * Floods the cells in the given list by changing their color and checks to see if the neighbors
-   * of those cells can also be flooded.
+   * Runs the wave a budget cut short, or a new one, until it ends or, if timed, the deadline
+   * passes.
    *
-   * @param chosenColor     the chosen color that the flooded cells are changing to
-   * @param curFloodedCells the current list of cells that are being flooded
+   * @param timed    whether to stop at the deadline
+   * @param deadline the System.nanoTime() value to stop at
+   * @return true if the wave ended or nothing was clicked yet, false if the deadline cut it short
    */
-  private void floodIteration(Color chosenColor, List<ICell> curFloodedCells) {
-    for (ICell cell : curFloodedCells) {
-      if (!cell.getColor().toString().equals(chosenColor.toString())) {
-        cell.setColor(chosenColor);
-      }
-      for (ICell neighbor : cell.getMatchingNeighbors()) {
-        if (!this.floodedCells.contains(neighbor)) {
-          this.floodedCells.add(neighbor);
-        }
-      }
+  private boolean flood(boolean timed, long deadline) {
+    int chosen = this.waveColor >= 0 ? this.waveColor : this.clickedColor;
+    // nothing was clicked yet
+    if (chosen < 0) {
+      return true;
+    }
+    this.evaluator = null;
+    this.colorsChanged = true;
+    IFloodEngine.Progress progress;
+    if (timed) {
+      progress = this.engine.waveUntil(chosen, deadline);
+    } else {
+      progress = this.engine.wave(chosen) ? IFloodEngine.Progress.MOVE_ENDED
+          : IFloodEngine.Progress.WAVE_ENDED;
     }
+    // until the move is over some region cells have the chosen color and some don't
+    this.midMove = progress != IFloodEngine.Progress.MOVE_ENDED;
+    this.flooded = !this.midMove && this.floodedAfterMove(chosen);
+    this.floodedKnown = true;
+    if (progress == IFloodEngine.Progress.CUT) {
+      // the grid is halfway through a wave, which snapshots never show
+      this.waveColor = chosen;
+      return false;
+    }
+    this.waveColor = -1;
+    if (this.move != null) {
+      this.move.waves++;
+    }
+    if (progress == IFloodEngine.Progress.MOVE_ENDED) {
+      this.status = Status.NOTFLOODING;
+      this.endMove(true);
+      this.chooseStorage();
+      this.publish();
+    } else if (System.nanoTime() - this.lastPublished >= PUBLISH_INTERVAL_NANOS) {
+      this.publish();
+    }
+    return true;
   }
 
   /**
-   * Resets the status to NotFlooding after a round of flooding is finished.
+   * Checks whether a move's flood left the board in one color, which it did if the region covers
+   * the board and otherwise unless a cell outside it has another color. Region cells all have the
+   * chosen color now. A cell that had the chosen color when a move in that color ended has it
+   * again when the next one ends, since it was either in the region, which later moves only grow,
+   * or outside it, where colors never change. So the search for a cell of another color carries
+   * on where the last one in the same color stopped, and over a game looks at each cell at most
+   * once per color. Edits and moves cut short void this, and start the searches over.
+   *
+   * @param chosen the color of the move
+   * @return true if the board has a single color, otherwise false
    */
-  private void resetFloodingStatus() {
-    if (this.allSameColor(this.floodedCells)) {
-      this.status = Status.NOTFLOODING;
+  private boolean floodedAfterMove(int chosen) {
+    long cells = (long) this.numRows * this.numCols;
+    if (this.engine.size() == cells) {
+      return true;
+    }
+    long cell = this.otherColorFrom[chosen];
+    while (cell < cells
+        && this.grid.get((int) (cell / this.numCols), (int) (cell % this.numCols)) == chosen) {
+      cell++;
     }
+    this.otherColorFrom[chosen] = cell;
+    return cell == cells;
   }
 
   /**
-   * Checks whether all the cells in the provided list have the same color.
+   * Forgets where the searches for a cell of another color got to, after a change that may have
+   * given cells they passed another color (see floodedAfterMove).
+   */
+  private void restartFloodedSearches() {
+    Arrays.fill(this.otherColorFrom, 0);
+  }
+
+  /**
+   * Finishes the wave a budget cut short, if there is one, before the game is changed otherwise.
+   */
+  private void finishWave() {
+    if (this.waveColor >= 0) {
+      this.flood(false, 0);
+    }
+  }
+
+  /**
+   * Publishes the current state of the game as a new snapshot.
+   */
+  private void publish() {
+    IGridSnapshot before = this.gridSnapshot;
+    if (this.colorsChanged) {
+      this.gridSnapshot = this.grid.snapshot();
+      this.colorsChanged = false;
+    }
+    this.lastPublished = System.nanoTime();
+    this.version++;
+    this.snapshot = new BoardSnapshot(this.version, this.gridSnapshot, this.snapshotColors,
+        this.engine.size(), this.curNumClicks, this.maxNumClicks, this.status);
+    this.announce(before);
+  }
+
+  /**
+   * Announces what changed in the snapshot just published to the subscribers of getEvents.
    *
-   * @param list the given list of cells
-   * @return true if all the cells in the list have the same color, otherwise false
+   * @param before the grid snapshot of the publication before
    */
-  private boolean allSameColor(List<ICell> list) {
-    Color chosenColor = this.leftCornerCell.getColor();
-    for (ICell c : list) {
-      if (!c.getColor().toString().equals(chosenColor.toString())) {
-        return false;
+  private void announce(IGridSnapshot before) {
+    boolean subscribed = this.events.hasSubscribers();
+    if (this.boardChanged) {
+      this.boardChanged = false;
+      if (subscribed) {
+        this.events.offer(ModelEvent.board(this.sequence++, this.version), DROP);
       }
+    } else if (subscribed && before != this.gridSnapshot) {
+      this.gridSnapshot.diff(before, this.recolored);
+      this.sendBatch();
+    }
+    if (this.status != this.announcedStatus) {
+      this.announcedStatus = this.status;
+      if (subscribed) {
+        this.events.offer(ModelEvent.status(this.sequence++, this.version, this.status), DROP);
+      }
+    }
+    if (this.curNumClicks != this.announcedClicks) {
+      this.announcedClicks = this.curNumClicks;
+      if (subscribed) {
+        this.events.offer(ModelEvent.clicks(this.sequence++, this.version, this.curNumClicks),
+            DROP);
+      }
+    }
+  }
+
+  /**
+   * Adds a recolored cell to the batch being filled, sending the batch once it is full.
+   *
+   * @param cell  the cell index
+   * @param color the new color
+   */
+  private void recolored(long cell, int color) {
+    if (this.batchCells == null) {
+      this.batchCells = new long[RECOLOR_BATCH];
+      this.batchColors = new byte[RECOLOR_BATCH];
+    }
+    this.batchCells[this.batchSize] = cell;
+    this.batchColors[this.batchSize] = (byte) color;
+    if (++this.batchSize == RECOLOR_BATCH) {
+      this.sendBatch();
+    }
+  }
+
+  /**
+   * Sends the recolored cells of the batch being filled, if there are any.
+   */
+  private void sendBatch() {
+    if (this.batchSize > 0) {
+      this.events.offer(ModelEvent.recolor(this.sequence++, this.version, this.batchCells,
+          this.batchColors, this.batchSize), DROP);
+      this.batchSize = 0;
     }
-    return true;
   }
 
   @Override
   public boolean allFlooded() throws IllegalStateException {
     this.didNotStartException();
-    Color chosenColor = this.leftCornerCell.getColor();
-    for (int row = 0; row < this.dimensions; row++) {
-      for (int col = 0; col < this.dimensions; col++) {
-        Color cellColor = this.board.get(row).get(col).getColor();
-        if (!cellColor.toString().equals(chosenColor.toString())) {
-          return false;
-        }
-      }
+    // floods keep this up to date, so the grid is only scanned after other changes
+    if (!this.floodedKnown) {
+      this.flooded = this.grid.isUniform();
+      this.floodedKnown = true;
     }
-    return true;
+    return this.flooded;
   }
 
   /**
@@ -191,73 +527,49 @@ public class FloodItModel implements IModel {
    * @return true if the cell's coordinates are valid, otherwise false
    */
   private boolean cellExists(int row, int col) {
-    return row >= 0 && row < this.dimensions && col >= 0 && col < this.dimensions;
-  }
-
-  /**
-   * Creates a list of all the valid/existing cells that are neighbors to a certain cell.
-   *
-   * @param potentialNeighborPoints an array of points representing the potential top, left, bottom,
-   *                                right neighbor locations of a cell
-   * @return a list of valid neighbors
-   */
-  private List<ICell> createNeighborList(Point[] potentialNeighborPoints) {
-    List<ICell> list = new ArrayList<>();
-    for (Point p : potentialNeighborPoints) {
-      if (this.cellExists(p.y, p.x)) {
-        list.add(this.board.get(p.y).get(p.x));
-      }
-    }
-    return list;
+    return row >= 0 && row < this.numRows && col >= 0 && col < this.numCols;
   }
 
   @Override
   public void findMatchingNeighborsForAllCells() throws IllegalStateException {
+    // only checks that the game started: matching neighbors are derived from the current colors
+    // whenever a cell's getMatchingNeighbors is asked for, so there is nothing to precompute
     this.didNotStartException();
-    for (int row = 0; row < this.dimensions; row++) {
-      for (int col = 0; col < this.dimensions; col++) {
-        Point[] potentialNeighborPoints = this.createPotentialNeighborPoints(row, col);
-        // find all valid neighbors to current cell
-        List<ICell> neighborList = this.createNeighborList(potentialNeighborPoints);
-        ICell currentCell = this.board.get(row).get(col);
-        // check if neighbors have same color as current cell
-        this.filterNeighborsWithSameColor(currentCell, neighborList);
-      }
-    }
   }
 
   /**
-   * Creates an array of all the 4 possible locations of a cell's neighbors.
+   * Gets the view of a cell. Views are kept, so asking twice gives the same view, on boards of up
+   * to CELL_VIEW_CACHE_CELLS cells; on bigger ones a new view is made each time.
    *
-   * @param row the possible row number of the neighbor
-   * @param col the possible column number of the neighbor
-   * @return an array of the 4 possible neighbor locations
+   * @param row the cell's row
+   * @param col the cell's column
+   * @return the cell view
    */
-  private Point[] createPotentialNeighborPoints(int row, int col) {
-    // top
-    Point top = new Point(col, row + 1);
-    // left
-    Point left = new Point(col - 1, row);
-    // bottom
-    Point bottom = new Point(col, row - 1);
-    // right
-    Point right = new Point(col + 1, row);
-    return new Point[]{top, left, bottom, right};
+  private ICell cellView(int row, int col) {
+    long cells = (long) this.numRows * this.numCols;
+    if (cells > CELL_VIEW_CACHE_CELLS) {
+      return new CellView(row, col);
+    }
+    if (this.cellViews == null) {
+      this.cellViews = new ICell[(int) cells];
+    }
+    int index = row * this.numCols + col;
+    if (this.cellViews[index] == null) {
+      this.cellViews[index] = new CellView(row, col);
+    }
+    return this.cellViews[index];
   }
 
-  /**
-   * Adds neighboring cells to the current cell's list of matching neighbors if they have same color
-   * as the current cell.
-   *
-   * @param currentCell  the current cell
-   * @param neighborList the list of the current cell's neighbors
-   */
-  private void filterNeighborsWithSameColor(ICell currentCell, List<ICell> neighborList) {
-    for (ICell c : neighborList) {
-      if (currentCell.hasSameColor(c)) {
-        currentCell.addMatchingNeighbor(c);
-      }
+  @Override
+  public MoveEvaluator whatIf() throws IllegalStateException {
+    this.didNotStartException();
+    if (this.status == Status.FLOODING) {
+      throw new IllegalStateException("can't evaluate moves while the board is flooding!");
     }
+    if (this.evaluator == null) {
+      this.evaluator = new MoveEvaluator(this.grid, this.neighbors, this.providedColors.size());
+    }
+    return this.evaluator;
   }
 
   @Override
@@ -269,7 +581,39 @@ public class FloodItModel implements IModel {
   @Override
   public void updateClickCount() throws IllegalStateException {
     this.didNotStartException();
+    this.finishWave();
+    this.endMove(false);
     this.curNumClicks += 1;
+    this.move = new MoveEvent();
+    this.move.begin();
+    this.move.color = this.clickedColor;
+    this.publish();
+  }
+
+  /**
+   * Ends the move in progress, if any, and commits its event if a recording wants it.
+   *
+   * @param completed whether the move flooded to its end, rather than being cut short by a click
+   */
+  private void endMove(boolean completed) {
+    MoveEvent move = this.move;
+    if (move == null) {
+      return;
+    }
+    this.move = null;
+    move.end();
+    long size = this.engine.size();
+    if (move.shouldCommit()) {
+      move.numRows = this.numRows;
+      move.numCols = this.numCols;
+      move.numColors = this.providedColors.size();
+      move.topology = this.topology.toString();
+      move.click = this.curNumClicks;
+      move.cellsAbsorbed = size - this.regionSize;
+      move.completed = completed;
+      move.commit();
+    }
+    this.regionSize = size;
   }
 
   @Override
@@ -281,7 +625,27 @@ public class FloodItModel implements IModel {
   @Override
   public int getDimensions() throws IllegalStateException {
     this.didNotStartException();
-    return this.dimensions;
+    if (this.numRows != this.numCols) {
+      throw new IllegalStateException("board is not square!");
+    }
+    return this.numRows;
+  }
+
+  @Override
+  public int getNumRows() throws IllegalStateException {
+    this.didNotStartException();
+    return this.numRows;
+  }
+
+  @Override
+  public int getNumCols() throws IllegalStateException {
+    this.didNotStartException();
+    return this.numCols;
+  }
+
+  @Override
+  public ITopology getTopology() {
+    return this.topology;
   }
 
   @Override
@@ -317,6 +681,34 @@ public class FloodItModel implements IModel {
     this.clickedCell.setCell(cell);
   }
 
+  @Override
+  public void setClickedCell(int colorIndex, int row, int col) throws IllegalArgumentException,
+      IllegalStateException {
+    this.didNotStartException();
+    if (colorIndex < 0 || colorIndex >= this.providedColors.size()) {
+      throw new IllegalArgumentException("color is not one of the provided colors!");
+    }
+    this.clickedColor = colorIndex;
+    this.clickedRgb = this.providedColors.get(colorIndex).getRGB();
+    this.clickedRow = row;
+    this.clickedCol = col;
+  }
+
+  /**
+   * Finds a color among the provided colors.
+   *
+   * @param rgb the color's ARGB value
+   * @return the index of the color, or -1 if it is not provided
+   */
+  private int colorIndex(int rgb) {
+    for (int i = 0; i < this.providedColors.size(); i++) {
+      if (this.providedColors.get(i).getRGB() == rgb) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
   @Override
   public Status getStatus() throws IllegalStateException {
     this.didNotStartException();
@@ -329,7 +721,23 @@ public class FloodItModel implements IModel {
     if (status == null) {
       throw new IllegalArgumentException("status can't be null!");
     }
+    this.finishWave();
     this.status = status;
+    this.publish();
+  }
+
+  @Override
+  public Flow.Publisher<ModelEvent> getEvents() {
+    return this.events;
+  }
+
+  @Override
+  public BoardSnapshot getSnapshot() throws IllegalStateException {
+    BoardSnapshot snapshot = this.snapshot;
+    if (snapshot == null) {
+      throw new IllegalStateException("game did not start yet!");
+    }
+    return snapshot;
   }
 
   @Override
@@ -337,4 +745,303 @@ public class FloodItModel implements IModel {
     this.didNotStartException();
     return this.floodedCells;
   }
+
+  /**
+   * The board as rows of cell views.
+   */
+  private class BoardView extends AbstractList<List<ICell>> {
+
+    @Override
+    public List<ICell> get(int row) {
+      if (row < 0 || row >= FloodItModel.this.numRows) {
+        throw new IndexOutOfBoundsException("invalid row index!");
+      }
+      return new AbstractList<ICell>() {
+        @Override
+        public ICell get(int col) {
+          if (col < 0 || col >= FloodItModel.this.numCols) {
+            throw new IndexOutOfBoundsException("invalid column index!");
+          }
+          return FloodItModel.this.cellView(row, col);
+        }
+
+        @Override
+        public int size() {
+          return Math.max(FloodItModel.this.numCols, 0);
+        }
+      };
+    }
+
+    @Override
+    public int size() {
+      return Math.max(FloodItModel.this.numRows, 0);
+    }
+  }
+
+  /**
+   * The flooded region as cell views. Clearing it starts the next move's flood from the corner. A
+   * region of more than Integer.MAX_VALUE cells reports that many.
+   */
+  private class FloodedCellsView extends AbstractList<ICell> {
+
+    @Override
+    public ICell get(int index) {
+      if (FloodItModel.this.engine == null || index < 0
+          || index >= FloodItModel.this.engine.size()) {
+        throw new IndexOutOfBoundsException("invalid flooded cell index!");
+      }
+      long cell = FloodItModel.this.engine.cellAt(index);
+      int numCols = FloodItModel.this.numCols;
+      return FloodItModel.this.cellView((int) (cell / numCols), (int) (cell % numCols));
+    }
+
+    @Override
+    public int size() {
+      return FloodItModel.this.engine == null ? 0
+          : (int) Math.min(FloodItModel.this.engine.size(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean contains(Object object) {
+      if (!(object instanceof ICell) || FloodItModel.this.engine == null) {
+        return false;
+      }
+      ICell cell = (ICell) object;
+      return FloodItModel.this.cellExists(cell.getRow(), cell.getCol())
+          && FloodItModel.this.engine.contains(
+          (long) cell.getRow() * FloodItModel.this.numCols + cell.getCol());
+    }
+
+    @Override
+    public void clear() {
+      if (FloodItModel.this.engine != null) {
+        FloodItModel.this.finishWave();
+        if (FloodItModel.this.midMove) {
+          // the cut move leaves region cells in its old color that the next region may miss
+          FloodItModel.this.midMove = false;
+          FloodItModel.this.restartFloodedSearches();
+        }
+        FloodItModel.this.engine.reset();
+        FloodItModel.this.publish();
+      }
+    }
+  }
+
+  /**
+   * A cell of the board, backed by the model's grid.
+   */
+  private class CellView implements ICell {
+
+    private final int row;
+    private final int col;
+
+    /**
+     * Constructs the view of a cell.
+     *
+     * @param row the cell's row
+     * @param col the cell's column
+     */
+    CellView(int row, int col) {
+      this.row = row;
+      this.col = col;
+    }
+
+    @Override
+    public Color getColor() {
+      return FloodItModel.this.providedColors.get(FloodItModel.this.grid.get(this.row, this.col));
+    }
+
+    @Override
+    public void setColor(Color color) throws IllegalArgumentException {
+      if (color == null) {
+        throw new IllegalArgumentException("given color can't be null!");
+      }
+      int colorIndex = FloodItModel.this.providedColors.indexOf(color);
+      if (colorIndex < 0) {
+        throw new IllegalArgumentException("color is not one of the provided colors!");
+      }
+      FloodItModel.this.finishWave();
+      FloodItModel.this.grid.set(this.row, this.col, colorIndex);
+      FloodItModel.this.evaluator = null;
+      FloodItModel.this.colorsChanged = true;
+      FloodItModel.this.floodedKnown = false;
+      FloodItModel.this.restartFloodedSearches();
+      FloodItModel.this.publish();
+    }
+
+    /**
+     * Copies the color of the given cell; a board cell keeps its position.
+     *
+     * @param cell the given cell
+     * @throws IllegalArgumentException if the given cell is null or its color is not provided
+     */
+    @Override
+    public void setCell(ICell cell) throws IllegalArgumentException {
+      if (cell == null) {
+        throw new IllegalArgumentException("given cell can't be null!");
+      }
+      this.setColor(cell.getColor());
+    }
+
+    @Override
+    public boolean hasSameColor(ICell cell) throws IllegalArgumentException {
+      if (cell == null) {
+        throw new IllegalArgumentException("cell can't be null!");
+      }
+      return this.getColor().toString().equals(cell.getColor().toString());
+    }
+
+    @Override
+    public List<ICell> getMatchingNeighbors() {
+      List<ICell> neighbors = new ArrayList<>();
+      IGrid grid = FloodItModel.this.grid;
+      NeighborTable table = FloodItModel.this.neighbors;
+      int numCols = FloodItModel.this.numCols;
+      int color = grid.get(this.row, this.col);
+      long cell = (long) this.row * numCols + this.col;
+      int type = table.classOf(this.row, this.col);
+      for (int k = table.start(type); k < table.end(type); k++) {
+        long neighbor = cell + table.offset(k);
+        int row = (int) (neighbor / numCols);
+        int col = (int) (neighbor % numCols);
+        if (grid.get(row, col) == color) {
+          neighbors.add(FloodItModel.this.cellView(row, col));
+        }
+      }
+      return neighbors;
+    }
+
+    /**
+     * Refuses to add a matching neighbor: a board cell's matching neighbors are derived from the
+     * current colors.
+     *
+     * @param cell the given cell
+     * @throws IllegalArgumentException      if the given cell is null
+     * @throws UnsupportedOperationException always otherwise
+     */
+    @Override
+    public void addMatchingNeighbor(ICell cell) throws IllegalArgumentException,
+        UnsupportedOperationException {
+      if (cell == null) {
+        throw new IllegalArgumentException("cell can't be null!");
+      }
+      throw new UnsupportedOperationException("board cells derive their matching neighbors!");
+    }
+
+    @Override
+    public int getRow() {
+      return this.row;
+    }
+
+    @Override
+    public int getCol() {
+      return this.col;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (this == object) {
+        return true;
+      }
+      if (!(object instanceof ICell)) {
+        return false;
+      }
+      ICell cell = (ICell) object;
+      return cell.getRow() == this.row && cell.getCol() == this.col;
+    }
+
+    @Override
+    public int hashCode() {
+      return ICell.hash(this.row, this.col);
+    }
+  }
+
+  /**
+   * The cell clicked last, backed by the model's clicked-cell fields.
+   */
+  private class ClickedCellView implements ICell {
+
+    @Override
+    public Color getColor() {
+      int color = FloodItModel.this.clickedColor;
+      return color >= 0 ? FloodItModel.this.providedColors.get(color)
+          : new Color(FloodItModel.this.clickedRgb, true);
+    }
+
+    @Override
+    public void setColor(Color color) throws IllegalArgumentException {
+      if (color == null) {
+        throw new IllegalArgumentException("given color can't be null!");
+      }
+      FloodItModel.this.clickedRgb = color.getRGB();
+      FloodItModel.this.clickedColor = FloodItModel.this.colorIndex(color.getRGB());
+    }
+
+    @Override
+    public void setCell(ICell cell) throws IllegalArgumentException {
+      if (cell == null) {
+        throw new IllegalArgumentException("given cell can't be null!");
+      }
+      this.setColor(cell.getColor());
+      FloodItModel.this.clickedRow = cell.getRow();
+      FloodItModel.this.clickedCol = cell.getCol();
+    }
+
+    @Override
+    public boolean hasSameColor(ICell cell) throws IllegalArgumentException {
+      if (cell == null) {
+        throw new IllegalArgumentException("cell can't be null!");
+      }
+      return this.getColor().toString().equals(cell.getColor().toString());
+    }
+
+    @Override
+    public List<ICell> getMatchingNeighbors() {
+      return Collections.emptyList();
+    }
+
+    /**
+     * Refuses to add a matching neighbor: the clicked cell is not part of the board, so it has
+     * none.
+     *
+     * @param cell the given cell
+     * @throws IllegalArgumentException      if the given cell is null
+     * @throws UnsupportedOperationException always otherwise
+     */
+    @Override
+    public void addMatchingNeighbor(ICell cell) throws IllegalArgumentException,
+        UnsupportedOperationException {
+      if (cell == null) {
+        throw new IllegalArgumentException("cell can't be null!");
+      }
+      throw new UnsupportedOperationException("the clicked cell has no matching neighbors!");
+    }
+
+    @Override
+    public int getRow() {
+      return FloodItModel.this.clickedRow;
+    }
+
+    @Override
+    public int getCol() {
+      return FloodItModel.this.clickedCol;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+      if (this == object) {
+        return true;
+      }
+      if (!(object instanceof ICell)) {
+        return false;
+      }
+      ICell cell = (ICell) object;
+      return cell.getRow() == this.getRow() && cell.getCol() == this.getCol();
+    }
+
+    @Override
+    public int hashCode() {
+      return ICell.hash(this.getRow(), this.getCol());
+    }
+  }
 }
\ No newline at end of file
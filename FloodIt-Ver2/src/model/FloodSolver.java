@@ -0,0 +1,380 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Finds the shortest sequence of moves that floods a board. The board is first reduced to its
+ * components (maximal connected groups of cells of one color) and the components' adjacency; a
+ * move then adds every component of the chosen color that borders the region, and since two
+ * components of the same color never touch, nothing else. The region's color doesn't matter for
+ * the moves still needed, so a state of the search is just the set of flooded components.
+ *
+ * <p>The search is iterative deepening A*. Its lower bound is the larger of the number of colors
+ * left outside the region and the number of steps the farthest component is away from it. A move
+ * that takes in every remaining component of its color is always played right away, since some
+ * shortest solution plays it next.
+ *
+ * <p>Many move orders reach the same region, so states are hashed the Zobrist way (see
+ * ComponentGraph), updated with the components each move adds. Whenever the search proves a state
+ * can't be solved within the moves left, it stores that bound in a TranspositionTable, and every
+ * later path to the state is cut off at once.
+ *
+ * <p>A solver is meant for one thread; solvers on several threads can share a table. A solve
+ * looks at its thread's interrupt flag every INTERRUPT_NODES states, and gives up once it is set.
+ * It can also be given a budget of states, for callers that would rather have no answer than wait
+ * for one: some boards of a couple of hundred cells already take minutes.
+ */
+public class FloodSolver {
+
+  public static final int MAX_MOVES = 255;
+  private static final int INTERRUPT_NODES = 1 << 12;
+
+  private final int numColors;
+  private final int numComponents;
+  private final int words;
+  private final int[][] adjacent;
+  private final long[] keys;
+  // the components of each color, as bitsets
+  private final long[][] colorMasks;
+  private final int start;
+  private final long startHash;
+  private final TranspositionTable table;
+  // the region and the components bordering it after each move of the current path
+  private long[][] flooded;
+  private long[][] border;
+  private long[] seen;
+  private long[] layer;
+  private long[] next;
+  private int[] path;
+  private long nodes;
+  // the most states the current solve may look at, and whether it looked at that many
+  private long maxNodes;
+  private boolean exhausted;
+
+  /**
+   * Constructs a solver for the current state of a board, as a MoveEvaluator captured it.
+   *
+   * @param evaluator the evaluator of the board
+   * @param table     the table to remember states in, or null to search without one
+   * @throws IllegalArgumentException if the evaluator is null or the board is too large
+   */
+  public FloodSolver(MoveEvaluator evaluator, TranspositionTable table)
+      throws IllegalArgumentException {
+    this(evaluator == null ? null : evaluator.base(),
+        evaluator == null ? null : evaluator.neighbors(),
+        evaluator == null ? 0 : evaluator.getNumColors(), table);
+  }
+
+  /**
+   * Constructs a solver for a board.
+   *
+   * @param base      the board, only read while the solver is built
+   * @param neighbors the board's neighbor table
+   * @param numColors the number of colors
+   * @param table     the table to remember states in, or null to search without one
+   * @throws IllegalArgumentException if the board or neighbor table is null, their sizes don't
+   *                                  match, the number of colors is not positive or the board has
+   *                                  more than 2^20 cells
+   */
+  public FloodSolver(IGrid base, NeighborTable neighbors, int numColors, TranspositionTable table)
+      throws IllegalArgumentException {
+    ComponentGraph graph = new ComponentGraph(base, neighbors, numColors);
+    this.numColors = numColors;
+    this.numComponents = graph.numComponents;
+    this.words = graph.words;
+    this.adjacent = graph.adjacent;
+    this.keys = graph.keys;
+    this.colorMasks = graph.colorMasks;
+    this.start = graph.start;
+    this.startHash = graph.boardKey ^ graph.keys[graph.start];
+    this.table = table;
+  }
+
+  /**
+   * Gets the number of components the board was reduced to.
+   *
+   * @return the number of components
+   */
+  public int getNumComponents() {
+    return this.numComponents;
+  }
+
+  /**
+   * Gets the number of states the last call to solve looked at.
+   *
+   * @return the number of nodes
+   */
+  public long getNodeCount() {
+    return this.nodes;
+  }
+
+  /**
+   * Checks whether the last call to solve gave up because it looked at as many states as it was
+   * allowed to.
+   *
+   * @return true if the node budget ran out, otherwise false
+   */
+  public boolean isExhausted() {
+    return this.exhausted;
+  }
+
+  /**
+   * Finds a shortest sequence of moves that floods the board.
+   *
+   * @param maxMoves the most moves a solution may take
+   * @return the color of each move, empty if the board is flooded already, or null if it can't be
+   *         flooded within maxMoves
+   * @throws IllegalArgumentException if maxMoves is negative or more than MAX_MOVES
+   * @throws CancellationException    if the thread is interrupted while solving
+   */
+  public int[] solve(int maxMoves) throws IllegalArgumentException, CancellationException {
+    return this.solve(maxMoves, Long.MAX_VALUE);
+  }
+
+  /**
+   * Finds a shortest sequence of moves that floods the board, looking at no more than the given
+   * number of states. What the search learned before the budget ran out stays in the table, so a
+   * later solve of the same board picks up some of the work.
+   *
+   * @param maxMoves the most moves a solution may take
+   * @param maxNodes the most states to look at
+   * @return the color of each move, empty if the board is flooded already, or null if it can't be
+   *         flooded within maxMoves or the budget ran out first (see isExhausted)
+   * @throws IllegalArgumentException if maxMoves is negative or more than MAX_MOVES, or maxNodes
+   *                                  is not positive
+   * @throws CancellationException    if the thread is interrupted while solving
+   */
+  public int[] solve(int maxMoves, long maxNodes) throws IllegalArgumentException,
+      CancellationException {
+    if (maxMoves < 0 || maxMoves > MAX_MOVES) {
+      throw new IllegalArgumentException("invalid maximum number of moves!");
+    }
+    if (maxNodes <= 0) {
+      throw new IllegalArgumentException("node budget must be positive!");
+    }
+    if (this.table != null) {
+      this.table.newSearch();
+    }
+    this.nodes = 0;
+    this.maxNodes = maxNodes;
+    this.exhausted = false;
+    this.flooded = new long[maxMoves + 1][this.words];
+    this.border = new long[maxMoves + 1][this.words];
+    this.seen = new long[this.words];
+    this.layer = new long[this.words];
+    this.next = new long[this.words];
+    this.path = new int[maxMoves];
+    this.flooded[0][this.start >>> 6] |= 1L << this.start;
+    for (int component : this.adjacent[this.start]) {
+      this.border[0][component >>> 6] |= 1L << component;
+    }
+    for (int bound = this.lowerBound(0); bound <= maxMoves; bound++) {
+      int moves = this.search(0, bound, this.startHash);
+      if (moves >= 0) {
+        return Arrays.copyOf(this.path, moves);
+      }
+      if (this.exhausted) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Searches the state after the given number of moves for a solution within the bound.
+   *
+   * @param depth the number of moves played so far
+   * @param bound the most moves the whole solution may take
+   * @param hash  the state's hash
+   * @return the length of the solution found, or -1 if there is none within the bound or the
+   *         node budget ran out
+   * @throws CancellationException if the thread is interrupted
+   */
+  private int search(int depth, int bound, long hash) throws CancellationException {
+    this.nodes++;
+    if ((this.nodes & (INTERRUPT_NODES - 1)) == 0 && Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("solve was interrupted!");
+    }
+    if (this.nodes > this.maxNodes) {
+      this.exhausted = true;
+      return -1;
+    }
+    long[] region = this.flooded[depth];
+    long[] bordering = this.border[depth];
+    if (isEmpty(bordering)) {
+      return depth;
+    }
+    int estimate = this.lowerBound(depth);
+    if (depth + estimate > bound) {
+      return -1;
+    }
+    int preferred = TranspositionTable.NONE;
+    if (this.table != null) {
+      long data = this.table.probe(hash);
+      if (data != TranspositionTable.NONE) {
+        if (depth + TranspositionTable.boundOf(data) > bound) {
+          return -1;
+        }
+        int move = TranspositionTable.moveOf(data);
+        preferred = move < this.numColors ? move : TranspositionTable.NONE;
+      }
+    }
+    int forced = this.completingMove(region, bordering);
+    int best = TranspositionTable.NONE;
+    for (int i = -1; i < this.numColors; i++) {
+      int color = forced >= 0 ? (i < 0 ? forced : -1) : (i < 0 ? preferred : i);
+      if (color < 0 || (i >= 0 && color == preferred)
+          || !intersects(bordering, this.colorMasks[color])) {
+        continue;
+      }
+      long nextHash = this.play(depth, color, hash);
+      this.path[depth] = color;
+      int moves = this.search(depth + 1, bound, nextHash);
+      // an unfinished search proves nothing, so it stores no bound either
+      if (moves >= 0 || this.exhausted) {
+        return moves;
+      }
+      if (best < 0) {
+        best = color;
+      }
+    }
+    if (this.table != null) {
+      // no solution within bound - depth moves, so at least one more is needed
+      this.table.store(hash, bound - depth, bound - depth + 1, best);
+    }
+    return -1;
+  }
+
+  /**
+   * Plays a move from the state after the given number of moves into the next state.
+   *
+   * @param depth the number of moves played so far
+   * @param color the color of the move
+   * @param hash  the state's hash
+   * @return the hash of the next state
+   */
+  private long play(int depth, int color, long hash) {
+    long[] region = this.flooded[depth + 1];
+    long[] bordering = this.border[depth + 1];
+    long[] mask = this.colorMasks[color];
+    for (int w = 0; w < this.words; w++) {
+      long gained = this.border[depth][w] & mask[w];
+      region[w] = this.flooded[depth][w] | gained;
+      bordering[w] = this.border[depth][w] & ~gained;
+    }
+    for (int w = 0; w < this.words; w++) {
+      for (long bits = this.border[depth][w] & mask[w]; bits != 0; bits &= bits - 1) {
+        int component = (w << 6) + Long.numberOfTrailingZeros(bits);
+        hash ^= this.keys[component];
+        for (int neighbor : this.adjacent[component]) {
+          if ((region[neighbor >>> 6] & (1L << neighbor)) == 0) {
+            bordering[neighbor >>> 6] |= 1L << neighbor;
+          }
+        }
+      }
+    }
+    return hash;
+  }
+
+  /**
+   * Finds a color whose remaining components all border the region.
+   *
+   * @param region    the flooded components
+   * @param bordering the components bordering them
+   * @return the color, or -1 if there is none
+   */
+  private int completingMove(long[] region, long[] bordering) {
+    for (int color = 0; color < this.numColors; color++) {
+      long[] mask = this.colorMasks[color];
+      boolean left = false;
+      boolean complete = true;
+      for (int w = 0; w < this.words && complete; w++) {
+        long remaining = mask[w] & ~region[w];
+        left |= remaining != 0;
+        complete = (remaining & ~bordering[w]) == 0;
+      }
+      if (left && complete) {
+        return color;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Gets a lower bound on the moves a state still needs: the larger of the number of colors left
+   * outside the region and the number of layers, each bordering the one before, it takes to
+   * reach every component from the region.
+   *
+   * @param depth the number of moves played so far
+   * @return the lower bound
+   */
+  private int lowerBound(int depth) {
+    long[] region = this.flooded[depth];
+    int colorsLeft = 0;
+    for (long[] mask : this.colorMasks) {
+      for (int w = 0; w < this.words; w++) {
+        if ((mask[w] & ~region[w]) != 0) {
+          colorsLeft++;
+          break;
+        }
+      }
+    }
+    long[] seen = this.seen;
+    long[] layer = this.layer;
+    long[] next = this.next;
+    int layers = 0;
+    for (int w = 0; w < this.words; w++) {
+      layer[w] = this.border[depth][w];
+      seen[w] = region[w] | layer[w];
+    }
+    while (!isEmpty(layer)) {
+      layers++;
+      Arrays.fill(next, 0);
+      for (int w = 0; w < this.words; w++) {
+        for (long bits = layer[w]; bits != 0; bits &= bits - 1) {
+          for (int neighbor : this.adjacent[(w << 6) + Long.numberOfTrailingZeros(bits)]) {
+            next[neighbor >>> 6] |= 1L << neighbor;
+          }
+        }
+      }
+      for (int w = 0; w < this.words; w++) {
+        next[w] &= ~seen[w];
+        seen[w] |= next[w];
+        layer[w] = next[w];
+      }
+    }
+    return Math.max(colorsLeft, layers);
+  }
+
+  /**
+   * Checks whether a bitset is empty.
+   *
+   * @param bits the bitset
+   * @return true if no bit is set, otherwise false
+   */
+  private static boolean isEmpty(long[] bits) {
+    for (long word : bits) {
+      if (word != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Checks whether two bitsets share a bit.
+   *
+   * @param first  the first bitset
+   * @param second the second bitset
+   * @return true if some bit is set in both, otherwise false
+   */
+  private static boolean intersects(long[] first, long[] second) {
+    for (int w = 0; w < first.length; w++) {
+      if ((first[w] & second[w]) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -4,10 +4,23 @@ import java.awt.Color;
 import java.util.List;
 
 /**
- * Represents all the public functionalities that a Cell has.
+ * Represents all the public functionalities that a Cell has. A cell is identified by its
+ * coordinates: cells are equal when they are at the same row and column, whatever their colors,
+ * and hash as hash(row, col) does.
  */
 public interface ICell {
 
+  /**
+   * Computes the hash code of the cell at the given coordinates.
+   *
+   * @param row the cell's row
+   * @param col the cell's column
+   * @return the hash code
+   */
+  static int hash(int row, int col) {
+    return 31 * row + col;
+  }
+
   /**
    * Retrieves the cell's color.
    *
@@ -49,12 +62,15 @@ public interface ICell {
   List<ICell> getMatchingNeighbors();
 
   /**
-   * Adds a cell to this cell's list of matching neighbors.
+   * Adds a cell to this cell's list of matching neighbors. Cells whose matching neighbors are
+   * derived from the colors of a board, like the cells of FloodItModel, don't support it.
    *
    * @param cell the given cell we are adding to our list
-   * @throws IllegalArgumentException if the given cell is null
+   * @throws IllegalArgumentException      if the given cell is null
+   * @throws UnsupportedOperationException if the cell's matching neighbors are derived
    */
-  void addMatchingNeighbor(ICell cell) throws IllegalArgumentException;
+  void addMatchingNeighbor(ICell cell) throws IllegalArgumentException,
+      UnsupportedOperationException;
 
   /**
    * Gets the row number of this cell.
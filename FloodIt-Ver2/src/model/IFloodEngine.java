@@ -0,0 +1,82 @@
+package model;
+
+/**
+ * Represents the flooded region of a board and the rule that grows it, one wave at a time. An
+ * engine is bound to the grid it floods. Cells are addressed by their index row * width + col
+ * (a long, since tiled boards can have more cells than an int can count), and colors are indices
+ * into the provided colors.
+ *
+ * <p>A wave recolors the region to the chosen color and adds every neighbor that had the same
+ * color as a region cell when the wave began, exactly like one round of FloodItModel.floodCells
+ * (RunFlood adds whole stretches of a row at once, see there). The flood of a move is over once a
+ * wave leaves every region cell in the chosen color.
+ *
+ * <p>A wave can also be run in slices against a deadline (see waveUntil), so that a wave over a
+ * huge region doesn't hold up the thread that runs it for longer than it can spare.
+ */
+public interface IFloodEngine {
+
+  /**
+   * How far a call to waveUntil got.
+   */
+  enum Progress {
+    // the deadline passed before the wave ended; the next call carries on with it
+    CUT,
+    // the wave ended, and some region cells still don't have the chosen color
+    WAVE_ENDED,
+    // the wave ended with every region cell in the chosen color, which ends the move
+    MOVE_ENDED
+  }
+
+  /**
+   * Runs one wave of the flood, starting the region at the top left corner if it is empty.
+   *
+   * @param chosen the chosen color
+   * @return true if every region cell has the chosen color after the wave, otherwise false
+   */
+  boolean wave(int chosen);
+
+  /**
+   * Runs the wave that a deadline cut short, or a new one, until it ends or System.nanoTime()
+   * reaches the deadline. A wave that is cut short carries on with the next call to this method
+   * or to wave, which must pass the same color, and ends exactly as it would have in one go. A
+   * call always makes some progress, however early the deadline. Engines that can't split waves
+   * run whole ones.
+   *
+   * @param chosen   the chosen color
+   * @param deadline the System.nanoTime() value to stop at
+   * @return how far the wave got
+   */
+  default Progress waveUntil(int chosen, long deadline) {
+    return this.wave(chosen) ? Progress.MOVE_ENDED : Progress.WAVE_ENDED;
+  }
+
+  /**
+   * Empties the region, so the next wave starts a new move from the corner.
+   */
+  void reset();
+
+  /**
+   * Gets the number of cells in the region.
+   *
+   * @return the region size
+   */
+  long size();
+
+  /**
+   * Gets a region cell.
+   *
+   * @param index the position of the cell in the region, between 0 and size() - 1
+   * @return the cell index
+   * @throws IllegalArgumentException if the position is invalid
+   */
+  long cellAt(long index) throws IllegalArgumentException;
+
+  /**
+   * Checks whether a cell is in the region.
+   *
+   * @param cell the cell index
+   * @return true if the cell is in the region, otherwise false
+   */
+  boolean contains(long cell);
+}
@@ -0,0 +1,70 @@
+package model;
+
+/**
+ * Represents the colors of a rectangular board, as indices into the provided colors. Rows and
+ * columns are not range-checked on the hot paths; callers stay inside getHeight() x getWidth().
+ */
+public interface IGrid {
+
+  /**
+   * Gets the number of columns.
+   *
+   * @return the width
+   */
+  int getWidth();
+
+  /**
+   * Gets the number of rows.
+   *
+   * @return the height
+   */
+  int getHeight();
+
+  /**
+   * Gets the color of a cell.
+   *
+   * @param row the row
+   * @param col the column
+   * @return the color index
+   */
+  int get(int row, int col);
+
+  /**
+   * Sets the color of a cell.
+   *
+   * @param row   the row
+   * @param col   the column
+   * @param color the color index
+   */
+  void set(int row, int col, int color);
+
+  /**
+   * Checks whether every cell has the same color.
+   *
+   * @return true if the grid has a single color, otherwise false
+   */
+  boolean isUniform();
+
+  /**
+   * Counts the runs of the grid: maximal stretches of one color within a row.
+   *
+   * @return the number of runs
+   */
+  long countRuns();
+
+  /**
+   * Estimates the memory the grid's colors take up.
+   *
+   * @return the approximate size in bytes
+   */
+  long sizeInBytes();
+
+  /**
+   * Takes an immutable copy of the grid's colors. Every part of the grid that hasn't changed since
+   * the previous snapshot is shared with that snapshot, so a snapshot costs time and memory in
+   * proportion to what changed. Only the thread that writes the grid may take snapshots.
+   *
+   * @return the snapshot
+   */
+  IGridSnapshot snapshot();
+}
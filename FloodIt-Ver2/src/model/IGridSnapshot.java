@@ -0,0 +1,85 @@
+package model;
+
+/**
+ * Represents an immutable copy of a grid's colors, as taken by IGrid.snapshot. Snapshots never
+ * change, so any number of threads can read them while the grid goes on changing.
+ */
+public interface IGridSnapshot {
+
+  /**
+   * Gets the number of columns.
+   *
+   * @return the width
+   */
+  int getWidth();
+
+  /**
+   * Gets the number of rows.
+   *
+   * @return the height
+   */
+  int getHeight();
+
+  /**
+   * Gets the color of a cell.
+   *
+   * @param row the row
+   * @param col the column
+   * @return the color index
+   */
+  int get(int row, int col);
+
+  /**
+   * Reports every cell whose color differs from its color in an earlier snapshot of a grid of the
+   * same size. Snapshots of the same grid skip the parts they share, so comparing consecutive
+   * snapshots costs time in proportion to what changed between them; snapshots of different
+   * grids are compared cell by cell.
+   *
+   * @param earlier the earlier snapshot
+   * @param changes receives the index (row * width + col) and new color of every changed cell,
+   *                in no particular order
+   * @throws IllegalArgumentException if either argument is null or the sizes differ
+   */
+  default void diff(IGridSnapshot earlier, CellChanges changes) throws IllegalArgumentException {
+    checkDiff(this, earlier, changes);
+    for (int row = 0; row < this.getHeight(); row++) {
+      for (int col = 0; col < this.getWidth(); col++) {
+        int color = this.get(row, col);
+        if (color != earlier.get(row, col)) {
+          changes.changed((long) row * this.getWidth() + col, color);
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks the arguments of diff.
+   *
+   * @param later   the later snapshot
+   * @param earlier the earlier snapshot
+   * @param changes the receiver of the changes
+   * @throws IllegalArgumentException if an argument is null or the sizes differ
+   */
+  static void checkDiff(IGridSnapshot later, IGridSnapshot earlier, CellChanges changes)
+      throws IllegalArgumentException {
+    if (earlier == null || changes == null || earlier.getWidth() != later.getWidth()
+        || earlier.getHeight() != later.getHeight()) {
+      throw new IllegalArgumentException("invalid snapshot diff arguments!");
+    }
+  }
+
+  /**
+   * Receives the cells diff finds changed.
+   */
+  @FunctionalInterface
+  interface CellChanges {
+
+    /**
+     * Receives a changed cell.
+     *
+     * @param cell  the cell index
+     * @param color the cell's color in the later snapshot
+     */
+    void changed(long cell, int color);
+  }
+}
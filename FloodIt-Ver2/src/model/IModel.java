@@ -7,6 +7,15 @@ import java.util.List;
  */
 public interface IModel extends IViewModel {
 
+  /**
+   * Seeds the generator the colors and boards of the games that follow are drawn from. Two models
+   * seeded alike and then sent the same calls play the same games, which is what replays rely
+   * on. This may be called at any time, even before the game starts.
+   *
+   * @param seed the seed
+   */
+  void setSeed(long seed);
+
   /**
    * Starts the Flood-It game. This must be called before any other method in our model.
    *
@@ -17,6 +26,39 @@ public interface IModel extends IViewModel {
    */
   void startGame(int dimensions, int numColors, int maxNumClicks) throws IllegalArgumentException;
 
+  /**
+   * Starts the Flood-It game on a rectangular board. This, or the square version, must be called
+   * before any other method in our model. Implementations may keep very large boards in tiles
+   * that are only loaded when touched, so a board can be larger than the heap.
+   *
+   * @param numRows      the number of rows of the grid
+   * @param numCols      the number of columns of the grid
+   * @param numColors    the number of colors permitted in the game board
+   * @param maxNumClicks the maximum number of clicks allowed to win the game
+   * @throws IllegalArgumentException if any of the arguments are invalid
+   */
+  void startGame(int numRows, int numCols, int numColors, int maxNumClicks)
+      throws IllegalArgumentException;
+
+  /**
+   * Starts the Flood-It game on a rectangular board of the given difficulty. Boards are sampled
+   * until playouts of average play rank them in the difficulty's band among random boards of the
+   * same size, colors and topology (see Difficulty). Every band holds a third of those boards, so
+   * a sample lands in it within a few tries; one that doesn't within a bounded number of tries
+   * fails the call rather than playing a board of another difficulty.
+   *
+   * @param numRows      the number of rows of the grid
+   * @param numCols      the number of columns of the grid
+   * @param numColors    the number of colors permitted in the game board
+   * @param maxNumClicks the maximum number of clicks allowed to win the game
+   * @param difficulty   the difficulty of the boards, or null for uniformly random boards
+   * @throws IllegalArgumentException if any of the arguments are invalid or the board is too
+   *                                  large to rate
+   * @throws IllegalStateException    if no board of the difficulty was found
+   */
+  void startGame(int numRows, int numCols, int numColors, int maxNumClicks,
+      Difficulty difficulty) throws IllegalArgumentException, IllegalStateException;
+
   /**
    * Initializes the game; sets up the game parameters for the beginning of the game.
    *
@@ -26,9 +68,10 @@ public interface IModel extends IViewModel {
   void initializeGame(int numColors) throws IllegalStateException;
 
   /**
-   * Generates all the cells that create the game board.
+   * Generates all the cells that create the game board, of the game's difficulty if it has one.
    *
-   * @throws IllegalStateException if the game has not started yet
+   * @throws IllegalStateException if the game has not started yet or no board of the game's
+   *                               difficulty was found
    */
   void generateCells() throws IllegalStateException;
 
@@ -42,9 +85,23 @@ public interface IModel extends IViewModel {
    */
   void floodCells() throws IllegalStateException;
 
+  /**
+   * Floods like floodCells, but for at most about the given time: a wave that takes longer is cut
+   * short and carries on with the next call to either method. The game ends up exactly as if the
+   * wave had run in one go; any other change to the game finishes the wave first.
+   *
+   * @param budgetNanos the time to flood for, in nanoseconds
+   * @return true if a wave ended (or nothing was clicked yet), false if the wave was cut short
+   * @throws IllegalArgumentException if the budget is negative
+   * @throws IllegalStateException    if the game has not started yet
+   */
+  boolean floodCells(long budgetNanos) throws IllegalArgumentException, IllegalStateException;
+
   /**
    * Finds all the matching neighbors for every cell in the grid (aka neighbors have same color as
-   * cell).
+   * cell). Implementations may derive matching neighbors from the current colors on demand, in
+   * which case there is nothing to precompute and the call only checks that the game started;
+   * FloodItModel does so, and its cells' getMatchingNeighbors is always up to date.
    *
    * @throws IllegalStateException if the game has not started yet
    */
@@ -60,7 +117,31 @@ public interface IModel extends IViewModel {
   void setClickedCell(ICell cell) throws IllegalArgumentException, IllegalStateException;
 
   /**
-   * Gets the game board/grid as a double list of cells.
+   * Sets the clicked cell from its color index and coordinates, for callers that keep clicks as
+   * plain values rather than cells.
+   *
+   * @param colorIndex the index of the cell's color among the provided colors
+   * @param row        the row of the cell
+   * @param col        the column of the cell
+   * @throws IllegalArgumentException if the color index is not one of the provided colors
+   * @throws IllegalStateException    if the game has not started yet
+   */
+  void setClickedCell(int colorIndex, int row, int col) throws IllegalArgumentException,
+      IllegalStateException;
+
+  /**
+   * Gets an evaluator that tries moves on the board as it is now without changing it, for
+   * solvers, hints and computer players. Overlays made from the evaluator can run on many threads
+   * at once, but the evaluator stops describing the board as soon as it is flooded or changed.
+   *
+   * @return the move evaluator
+   * @throws IllegalStateException if the game has not started yet or the board is flooding
+   */
+  MoveEvaluator whatIf() throws IllegalStateException;
+
+  /**
+   * Gets the game board/grid as a double list of cells. The cells are live views of the board,
+   * so only the thread that plays the game may use them; other threads read getSnapshot instead.
    *
    * @return the game board
    * @throws IllegalStateException if the game has not started yet
@@ -68,7 +149,8 @@ public interface IModel extends IViewModel {
   List<List<ICell>> getBoard() throws IllegalStateException;
 
   /**
-   * Gets the list of currently flooded cells.
+   * Gets the list of currently flooded cells. Clearing the list starts the next flood from the top
+   * left corner.
    *
    * @return the list of currently flooded cells
    * @throws IllegalStateException if the game has not started yet
@@ -0,0 +1,41 @@
+package model;
+
+/**
+ * Represents the shape of a board: which cells are neighbors of which. A topology describes the
+ * neighbors of a cell by their coordinates, and turns that into a NeighborTable of flat index
+ * offsets once per board size, which is what the flood engines walk.
+ */
+public interface ITopology {
+
+  /**
+   * Finds the neighbors of a cell, in the order floods visit them.
+   *
+   * @param row    the cell's row
+   * @param col    the cell's column
+   * @param width  the number of columns of the board
+   * @param height the number of rows of the board
+   * @return the neighbors as (row, col) pairs, one after the other; neighbors outside the board
+   *         are left out
+   */
+  int[] neighbors(int row, int col, int width, int height);
+
+  /**
+   * Gets how far a row is shifted to the right when drawn, as a fraction of a cell.
+   *
+   * @param row the row
+   * @return the shift, 0 for rows that line up with the grid
+   */
+  double rowShift(int row);
+
+  /**
+   * Builds the neighbor table of a board of the given size.
+   *
+   * @param width  the number of columns
+   * @param height the number of rows
+   * @return the neighbor table
+   * @throws IllegalArgumentException if either size is not positive
+   */
+  default NeighborTable neighborTable(int width, int height) throws IllegalArgumentException {
+    return new NeighborTable(this, width, height);
+  }
+}
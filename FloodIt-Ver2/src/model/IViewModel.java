@@ -2,6 +2,7 @@ package model;
 
 import java.awt.Color;
 import java.util.List;
+import java.util.concurrent.Flow;
 
 /**
  * Represents the public features that we can observe (and can't mutate) from our model.
@@ -12,10 +13,52 @@ public interface IViewModel {
    * Gets the dimension size of the square board (size X size).
    *
    * @return the size of the grid dimension
-   * @throws IllegalStateException if the game has not started yet
+   * @throws IllegalStateException if the game has not started yet or the board is not square
    */
   int getDimensions() throws IllegalStateException;
 
+  /**
+   * Gets the number of rows of the board.
+   *
+   * @return the number of rows
+   * @throws IllegalStateException if the game has not started yet
+   */
+  int getNumRows() throws IllegalStateException;
+
+  /**
+   * Gets the number of columns of the board.
+   *
+   * @return the number of columns
+   * @throws IllegalStateException if the game has not started yet
+   */
+  int getNumCols() throws IllegalStateException;
+
+  /**
+   * Gets the topology of the board, which tells which cells are neighbors.
+   *
+   * @return the topology
+   */
+  ITopology getTopology();
+
+  /**
+   * Gets the latest published snapshot of the game. Unlike every other method here, this one may
+   * be called from any thread while the game is being played; it never blocks, and the snapshot
+   * never changes afterwards.
+   *
+   * @return the latest snapshot
+   * @throws IllegalStateException if the game has not started yet
+   */
+  BoardSnapshot getSnapshot() throws IllegalStateException;
+
+  /**
+   * Gets the publisher of the game's changes (see ModelEvent). Like getSnapshot, it may be used
+   * from any thread; subscribers are called on threads of their own, never the game's, and a
+   * subscriber that falls too far behind misses events rather than holding up the game.
+   *
+   * @return the publisher
+   */
+  Flow.Publisher<ModelEvent> getEvents();
+
   /**
    * Retrieves a list of provided colors that the grid will use.
    *
@@ -0,0 +1,206 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A change to a game, as published by IViewModel.getEvents. Every event carries the version of
+ * the snapshot that first showed the change (see BoardSnapshot) and a sequence number, one higher
+ * than that of the event before it. Events are immutable.
+ *
+ * <p>A consumer that starts from getSnapshot applies the events of later versions to it. The
+ * model never waits for a consumer: events a consumer has no room for are dropped, so a consumer
+ * that sees a gap in the sequence numbers starts over from getSnapshot.
+ */
+public final class ModelEvent {
+
+  /**
+   * The kinds of changes.
+   */
+  public enum Type {
+    // the game has a new board, and possibly new colors: the snapshot has to be read again
+    BOARD,
+    // cells were recolored
+    RECOLOR,
+    // the status changed
+    STATUS,
+    // the number of clicks changed
+    CLICKS
+  }
+
+  private final Type type;
+  private final long sequence;
+  private final long version;
+  private final long[] cells;
+  private final byte[] colors;
+  private final Status status;
+  private final int curNumClicks;
+
+  /**
+   * Constructs an event; the fields a type doesn't use are null or 0.
+   *
+   * @param type         the type
+   * @param sequence     the sequence number
+   * @param version      the version of the snapshot that showed the change
+   * @param cells        the recolored cells
+   * @param colors       their new colors
+   * @param status       the new status
+   * @param curNumClicks the new number of clicks
+   */
+  private ModelEvent(Type type, long sequence, long version, long[] cells, byte[] colors,
+      Status status, int curNumClicks) {
+    this.type = type;
+    this.sequence = sequence;
+    this.version = version;
+    this.cells = cells;
+    this.colors = colors;
+    this.status = status;
+    this.curNumClicks = curNumClicks;
+  }
+
+  /**
+   * Makes the event of a new board.
+   *
+   * @param sequence the sequence number
+   * @param version  the version of the snapshot of the new board
+   * @return the event
+   */
+  static ModelEvent board(long sequence, long version) {
+    return new ModelEvent(Type.BOARD, sequence, version, null, null, null, 0);
+  }
+
+  /**
+   * Makes the event of a batch of recolored cells.
+   *
+   * @param sequence the sequence number
+   * @param version  the version of the snapshot that showed the colors
+   * @param cells    the cell indices, row * width + col; the event takes the first count
+   * @param colors   the new color indices, in the same order
+   * @param count    the number of cells
+   * @return the event
+   */
+  static ModelEvent recolor(long sequence, long version, long[] cells, byte[] colors,
+      int count) {
+    return new ModelEvent(Type.RECOLOR, sequence, version, Arrays.copyOf(cells, count),
+        Arrays.copyOf(colors, count), null, 0);
+  }
+
+  /**
+   * Makes the event of a status change.
+   *
+   * @param sequence the sequence number
+   * @param version  the version of the snapshot that showed the status
+   * @param status   the new status
+   * @return the event
+   */
+  static ModelEvent status(long sequence, long version, Status status) {
+    return new ModelEvent(Type.STATUS, sequence, version, null, null, status, 0);
+  }
+
+  /**
+   * Makes the event of a change to the number of clicks.
+   *
+   * @param sequence     the sequence number
+   * @param version      the version of the snapshot that showed the number
+   * @param curNumClicks the new number of clicks
+   * @return the event
+   */
+  static ModelEvent clicks(long sequence, long version, int curNumClicks) {
+    return new ModelEvent(Type.CLICKS, sequence, version, null, null, null, curNumClicks);
+  }
+
+  /**
+   * Gets the type of the event.
+   *
+   * @return the type
+   */
+  public Type getType() {
+    return this.type;
+  }
+
+  /**
+   * Gets the sequence number of the event.
+   *
+   * @return the sequence number
+   */
+  public long getSequence() {
+    return this.sequence;
+  }
+
+  /**
+   * Gets the version of the snapshot that first showed the change.
+   *
+   * @return the snapshot version
+   */
+  public long getVersion() {
+    return this.version;
+  }
+
+  /**
+   * Gets the number of cells a recolor event recolored.
+   *
+   * @return the number of cells, 0 for other events
+   */
+  public int getNumCells() {
+    return this.cells == null ? 0 : this.cells.length;
+  }
+
+  /**
+   * Gets a recolored cell.
+   *
+   * @param index the position of the cell in the batch, between 0 and getNumCells() - 1
+   * @return the cell index, row * width + col
+   * @throws IndexOutOfBoundsException if the position is invalid
+   */
+  public long getCell(int index) throws IndexOutOfBoundsException {
+    if (index < 0 || index >= this.getNumCells()) {
+      throw new IndexOutOfBoundsException("invalid batch index!");
+    }
+    return this.cells[index];
+  }
+
+  /**
+   * Gets the new color of a recolored cell.
+   *
+   * @param index the position of the cell in the batch, between 0 and getNumCells() - 1
+   * @return the color index among the provided colors
+   * @throws IndexOutOfBoundsException if the position is invalid
+   */
+  public int getColor(int index) throws IndexOutOfBoundsException {
+    if (index < 0 || index >= this.getNumCells()) {
+      throw new IndexOutOfBoundsException("invalid batch index!");
+    }
+    return this.colors[index];
+  }
+
+  /**
+   * Gets the new status of a status event.
+   *
+   * @return the status, null for other events
+   */
+  public Status getStatus() {
+    return this.status;
+  }
+
+  /**
+   * Gets the new number of clicks of a clicks event.
+   *
+   * @return the number of clicks, 0 for other events
+   */
+  public int getCurNumClicks() {
+    return this.curNumClicks;
+  }
+
+  @Override
+  public String toString() {
+    switch (this.type) {
+      case RECOLOR:
+        return this.sequence + " v" + this.version + " RECOLOR cells=" + this.cells.length;
+      case STATUS:
+        return this.sequence + " v" + this.version + " STATUS " + this.status;
+      case CLICKS:
+        return this.sequence + " v" + this.version + " CLICKS " + this.curNumClicks;
+      default:
+        return this.sequence + " v" + this.version + " " + this.type;
+    }
+  }
+}
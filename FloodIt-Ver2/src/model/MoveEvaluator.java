@@ -0,0 +1,340 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Evaluates moves on a board without playing them. An evaluator captures the flooded region of
+ * the board as it is (the corner's component) and the cells bordering it, grouped by color. Each
+ * evaluation then runs on its own WhatIf overlay, which only records the cells it adds to the
+ * region: after any number of moves a Flood-It board is the base board everywhere except the
+ * region, which has the color of the last move. The base board is only ever read and never
+ * copied.
+ *
+ * <p>An evaluator is immutable once built, so any number of threads can run overlays from it at
+ * once, as long as nothing floods the base board meanwhile. Once the board is flooded again, the
+ * evaluator no longer describes it and a new one must be made.
+ */
+public class MoveEvaluator {
+
+  private final IGrid base;
+  private final NeighborTable neighbors;
+  private final int numColors;
+  private final int color;
+  private final LongSet region;
+  // cells bordering the region, by color
+  private final long[][] frontier;
+
+  /**
+   * Constructs an evaluator for the current state of a board.
+   *
+   * @param base      the board
+   * @param neighbors the board's neighbor table
+   * @param numColors the number of colors
+   * @throws IllegalArgumentException if the board or table is null, their sizes don't match or
+   *                                  the number of colors is not positive
+   */
+  public MoveEvaluator(IGrid base, NeighborTable neighbors, int numColors)
+      throws IllegalArgumentException {
+    if (base == null || neighbors == null || numColors <= 0
+        || base.getWidth() != neighbors.getWidth() || base.getHeight() != neighbors.getHeight()) {
+      throw new IllegalArgumentException("invalid move evaluator arguments!");
+    }
+    this.base = base;
+    this.neighbors = neighbors;
+    this.numColors = numColors;
+    this.color = base.get(0, 0);
+    this.region = new LongSet();
+    LongList[] frontier = new LongList[numColors];
+    for (int i = 0; i < numColors; i++) {
+      frontier[i] = new LongList();
+    }
+    LongSet bordering = new LongSet();
+    LongList queue = new LongList();
+    this.region.add(0);
+    queue.add(0);
+    for (int i = 0; i < queue.size(); i++) {
+      long cell = queue.get(i);
+      int type = this.classOf(cell);
+      for (int k = neighbors.start(type); k < neighbors.end(type); k++) {
+        long next = cell + neighbors.offset(k);
+        int nextColor = this.colorOf(next);
+        if (nextColor == this.color) {
+          if (this.region.add(next)) {
+            queue.add(next);
+          }
+        } else if (bordering.add(next)) {
+          frontier[nextColor].add(next);
+        }
+      }
+    }
+    this.frontier = new long[numColors][];
+    for (int i = 0; i < numColors; i++) {
+      this.frontier[i] = frontier[i].toArray();
+    }
+  }
+
+  /**
+   * Starts a new evaluation from the current board.
+   *
+   * @return an overlay with no moves played yet
+   */
+  public WhatIf newOverlay() {
+    return new WhatIf(this);
+  }
+
+  /**
+   * Evaluates a sequence of moves.
+   *
+   * @param colors the color of each move, as indices into the provided colors
+   * @return the overlay after the moves, with the cells each move gained
+   * @throws IllegalArgumentException if the colors are null or any color is invalid
+   */
+  public WhatIf evaluate(int... colors) throws IllegalArgumentException {
+    if (colors == null) {
+      throw new IllegalArgumentException("colors can't be null!");
+    }
+    WhatIf overlay = this.newOverlay();
+    for (int color : colors) {
+      overlay.play(color);
+    }
+    return overlay;
+  }
+
+  /**
+   * Gets the size of the flooded region before any move.
+   *
+   * @return the number of cells in the region
+   */
+  public long getRegionSize() {
+    return this.region.size();
+  }
+
+  /**
+   * Gets the color of the flooded region before any move.
+   *
+   * @return the color index
+   */
+  public int getColor() {
+    return this.color;
+  }
+
+  /**
+   * Gets the number of colors.
+   *
+   * @return the number of colors
+   */
+  public int getNumColors() {
+    return this.numColors;
+  }
+
+  /**
+   * Gets the base board.
+   *
+   * @return the board
+   */
+  IGrid base() {
+    return this.base;
+  }
+
+  /**
+   * Gets the neighbor table of the base board.
+   *
+   * @return the neighbor table
+   */
+  NeighborTable neighbors() {
+    return this.neighbors;
+  }
+
+  /**
+   * Checks whether a cell is in the region before any move.
+   *
+   * @param cell the cell index
+   * @return true if the cell is in the region, otherwise false
+   */
+  boolean inRegion(long cell) {
+    return this.region.contains(cell);
+  }
+
+  /**
+   * Gets the cells of a color that border the region before any move.
+   *
+   * @param color the color index
+   * @return the cell indices, not to be changed
+   */
+  long[] frontier(int color) {
+    return this.frontier[color];
+  }
+
+  /**
+   * Gets the neighbor class of a cell.
+   *
+   * @param cell the cell index
+   * @return the class
+   */
+  int classOf(long cell) {
+    int width = this.base.getWidth();
+    return this.neighbors.classOf((int) (cell / width), (int) (cell % width));
+  }
+
+  /**
+   * Gets the base color of a cell.
+   *
+   * @param cell the cell index
+   * @return the color index
+   */
+  int colorOf(long cell) {
+    int width = this.base.getWidth();
+    return this.base.get((int) (cell / width), (int) (cell % width));
+  }
+
+  /**
+   * A set of non-negative longs, kept in an open-addressing table.
+   */
+  static class LongSet {
+
+    private static final long EMPTY = -1;
+
+    private long[] slots;
+    private int size;
+
+    /**
+     * Constructs an empty set.
+     */
+    LongSet() {
+      this.slots = new long[16];
+      Arrays.fill(this.slots, EMPTY);
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param value the value, not negative
+     * @return true if it was not in the set yet, otherwise false
+     */
+    boolean add(long value) {
+      if (2 * (this.size + 1) > this.slots.length) {
+        this.grow();
+      }
+      int mask = this.slots.length - 1;
+      for (int i = hash(value) & mask; ; i = (i + 1) & mask) {
+        if (this.slots[i] == value) {
+          return false;
+        }
+        if (this.slots[i] == EMPTY) {
+          this.slots[i] = value;
+          this.size++;
+          return true;
+        }
+      }
+    }
+
+    /**
+     * Checks whether a value is in the set.
+     *
+     * @param value the value
+     * @return true if it is in the set, otherwise false
+     */
+    boolean contains(long value) {
+      int mask = this.slots.length - 1;
+      for (int i = hash(value) & mask; ; i = (i + 1) & mask) {
+        if (this.slots[i] == value) {
+          return true;
+        }
+        if (this.slots[i] == EMPTY) {
+          return false;
+        }
+      }
+    }
+
+    /**
+     * Gets the number of values in the set.
+     *
+     * @return the size
+     */
+    int size() {
+      return this.size;
+    }
+
+    /**
+     * Doubles the table.
+     */
+    private void grow() {
+      long[] old = this.slots;
+      this.slots = new long[old.length * 2];
+      Arrays.fill(this.slots, EMPTY);
+      this.size = 0;
+      for (long value : old) {
+        if (value != EMPTY) {
+          this.add(value);
+        }
+      }
+    }
+
+    /**
+     * Spreads the bits of a value.
+     *
+     * @param value the value
+     * @return the hash
+     */
+    private static int hash(long value) {
+      long z = value * 0x9E3779B97F4A7C15L;
+      return (int) (z ^ (z >>> 32));
+    }
+  }
+
+  /**
+   * A growable list of longs.
+   */
+  static class LongList {
+
+    private long[] values = new long[16];
+    private int size;
+
+    /**
+     * Appends a value.
+     *
+     * @param value the value
+     */
+    void add(long value) {
+      if (this.size == this.values.length) {
+        this.values = Arrays.copyOf(this.values, this.size * 2);
+      }
+      this.values[this.size++] = value;
+    }
+
+    /**
+     * Gets a value.
+     *
+     * @param index the position of the value
+     * @return the value
+     */
+    long get(int index) {
+      return this.values[index];
+    }
+
+    /**
+     * Gets the number of values.
+     *
+     * @return the size
+     */
+    int size() {
+      return this.size;
+    }
+
+    /**
+     * Empties the list.
+     */
+    void clear() {
+      this.size = 0;
+    }
+
+    /**
+     * Copies the values into an array.
+     *
+     * @return the values
+     */
+    long[] toArray() {
+      return Arrays.copyOf(this.values, this.size);
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The neighbors of every cell of a board of one size, as flat index offsets (neighbor index minus
+ * cell index, with cells indexed row * width + col). Cells are sorted into a handful of classes:
+ * the first, a middle or the last row, times the parity of the row, times the first, a middle or
+ * the last column. All cells of a class share their offsets, so the table takes space in the
+ * size of the board's sides, and walking the neighbors of a cell allocates nothing:
+ *
+ * <pre>
+ *   int type = table.classOf(row, col);
+ *   for (int k = table.start(type); k &lt; table.end(type); k++) {
+ *     int neighbor = cell + table.offset(k);
+ *   }
+ * </pre>
+ *
+ * <p>This only works for topologies whose neighbors depend on nothing but that class, which holds
+ * for all of Topology.
+ */
+public class NeighborTable {
+
+  private static final int NUM_CLASSES = 18;
+
+  private final int width;
+  private final int height;
+  // per row, the first of its classes; per column, what to add to it
+  private final int[] rowClasses;
+  private final int[] colClasses;
+  private final int[] starts;
+  private final int[] offsets;
+  private final int maxDegree;
+
+  /**
+   * Builds the table of a board of the given size.
+   *
+   * @param topology the topology
+   * @param width    the number of columns
+   * @param height   the number of rows
+   * @throws IllegalArgumentException if the topology is null or either size is not positive
+   */
+  public NeighborTable(ITopology topology, int width, int height)
+      throws IllegalArgumentException {
+    if (topology == null || width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("invalid neighbor table arguments!");
+    }
+    this.width = width;
+    this.height = height;
+    this.rowClasses = new int[height];
+    this.colClasses = new int[width];
+    // one cell of every class that occurs on the board
+    int[] sampleRows = new int[NUM_CLASSES / 3];
+    int[] sampleCols = new int[3];
+    Arrays.fill(sampleRows, -1);
+    Arrays.fill(sampleCols, -1);
+    for (int row = 0; row < height; row++) {
+      int kind = (row == 0 ? 0 : row == height - 1 ? 2 : 1) + 3 * (row & 1);
+      this.rowClasses[row] = 3 * kind;
+      if (sampleRows[kind] < 0) {
+        sampleRows[kind] = row;
+      }
+    }
+    for (int col = 0; col < width; col++) {
+      int kind = col == 0 ? 0 : col == width - 1 ? 2 : 1;
+      this.colClasses[col] = kind;
+      if (sampleCols[kind] < 0) {
+        sampleCols[kind] = col;
+      }
+    }
+    this.starts = new int[NUM_CLASSES + 1];
+    int[] offsets = new int[0];
+    int size = 0;
+    int maxDegree = 0;
+    for (int type = 0; type < NUM_CLASSES; type++) {
+      this.starts[type] = size;
+      int row = sampleRows[type / 3];
+      int col = sampleCols[type % 3];
+      if (row < 0 || col < 0) {
+        continue;
+      }
+      int[] neighbors = topology.neighbors(row, col, width, height);
+      offsets = Arrays.copyOf(offsets, size + neighbors.length / 2);
+      for (int i = 0; i < neighbors.length; i += 2) {
+        offsets[size++] = (neighbors[i] - row) * width + neighbors[i + 1] - col;
+      }
+      maxDegree = Math.max(maxDegree, neighbors.length / 2);
+    }
+    this.starts[NUM_CLASSES] = size;
+    this.offsets = offsets;
+    this.maxDegree = maxDegree;
+  }
+
+  /**
+   * Gets the width of the board the table was built for.
+   *
+   * @return the number of columns
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Gets the height of the board the table was built for.
+   *
+   * @return the number of rows
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Gets the class of a cell.
+   *
+   * @param row the cell's row
+   * @param col the cell's column
+   * @return the class
+   */
+  public int classOf(int row, int col) {
+    return this.rowClasses[row] + this.colClasses[col];
+  }
+
+  /**
+   * Gets where the offsets of a class start.
+   *
+   * @param type the class
+   * @return the position of its first offset
+   */
+  public int start(int type) {
+    return this.starts[type];
+  }
+
+  /**
+   * Gets where the offsets of a class end.
+   *
+   * @param type the class
+   * @return the position after its last offset
+   */
+  public int end(int type) {
+    return this.starts[type + 1];
+  }
+
+  /**
+   * Gets an offset.
+   *
+   * @param position the position of the offset, between start and end of a class
+   * @return the neighbor index minus the cell index
+   */
+  public int offset(int position) {
+    return this.offsets[position];
+  }
+
+  /**
+   * Gets the largest number of neighbors any cell has.
+   *
+   * @return the largest number of neighbors
+   */
+  public int maxDegree() {
+    return this.maxDegree;
+  }
+}
@@ -0,0 +1,385 @@
+package model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A flood engine for very large boards that runs each wave level-synchronously on a fork-join
+ * pool. The board is cut into stripes of rows and every stripe keeps the region cells that lie in
+ * it. During a wave each stripe scans its own cells, claims matching neighbors with a
+ * compare-and-set on a shared bitset, and drops them into an outbox for the stripe above, its own
+ * stripe or the stripe below. Outboxes are double-buffered by wave parity: at the start of the
+ * next wave each stripe takes in what its neighbors claimed for it while they already fill the
+ * other set of outboxes, so a wave needs a single fork-join pass. Neighbors come from a
+ * NeighborTable and never lie more than one row away; on a torus the first and last stripes are
+ * each other's neighbors.
+ *
+ * <p>Which cells join in a wave doesn't depend on the order cells are scanned in (a cell outside
+ * the region keeps its color for the whole wave), so every wave, and therefore every move, ends
+ * with the same colors and the same region as SequentialFlood. Only the order of the region list
+ * differs.
+ */
+public class ParallelFlood implements IFloodEngine {
+
+  private static final int STRIPES_PER_THREAD = 4;
+
+  private final int width;
+  private final int height;
+  private final NeighborTable neighbors;
+  private final byte[] colors;
+  private final DenseGrid grid;
+  private final ForkJoinPool pool;
+  private final AtomicLongArray claimed;
+  private final Stripe[] stripes;
+  private final int rowsPerStripe;
+  private int lastChosen;
+  private int parity;
+
+  /**
+   * Constructs an engine that floods a grid with four neighbors per cell with the given number of
+   * threads. Engines with the same number of threads share one pool.
+   *
+   * @param grid       the grid, updated in place by every wave
+   * @param numThreads the number of threads
+   * @throws IllegalArgumentException if the grid is null or the number of threads is not positive
+   */
+  public ParallelFlood(DenseGrid grid, int numThreads) throws IllegalArgumentException {
+    this(grid, grid == null ? null : Topology.FOUR.neighborTable(grid.getWidth(),
+        grid.getHeight()), numThreads);
+  }
+
+  /**
+   * Constructs an engine that floods a grid with the given number of threads, taking neighbors
+   * from the given table. Engines with the same number of threads share one pool.
+   *
+   * @param grid       the grid, updated in place by every wave
+   * @param neighbors  the neighbor table, built for the grid's size
+   * @param numThreads the number of threads
+   * @throws IllegalArgumentException if the grid or table is null, the sizes don't match or the
+   *                                  number of threads is not positive
+   */
+  public ParallelFlood(DenseGrid grid, NeighborTable neighbors, int numThreads)
+      throws IllegalArgumentException {
+    if (grid == null || neighbors == null || numThreads <= 0
+        || neighbors.getWidth() != grid.getWidth() || neighbors.getHeight() != grid.getHeight()) {
+      throw new IllegalArgumentException("invalid parallel flood arguments!");
+    }
+    int width = grid.getWidth();
+    int height = grid.getHeight();
+    this.width = width;
+    this.height = height;
+    this.neighbors = neighbors;
+    this.colors = grid.colors();
+    this.grid = grid;
+    this.pool = Pools.withThreads(numThreads);
+    this.claimed = new AtomicLongArray((width * height + 63) >>> 6);
+    int numStripes = Math.min(height, numThreads * STRIPES_PER_THREAD);
+    this.rowsPerStripe = (height + numStripes - 1) / numStripes;
+    this.stripes = new Stripe[(height + this.rowsPerStripe - 1) / this.rowsPerStripe];
+    for (int i = 0; i < this.stripes.length; i++) {
+      this.stripes[i] = new Stripe();
+    }
+    this.lastChosen = -1;
+  }
+
+  @Override
+  public boolean wave(int chosen) {
+    if (this.size() == 0) {
+      this.claim(0);
+      this.stripes[0].append(0);
+    }
+    boolean rescan = chosen != this.lastChosen;
+    this.lastChosen = chosen;
+    this.parity ^= 1;
+    this.pool.invoke(new WaveTask(this.colors, chosen, rescan, 0, this.stripes.length));
+    long pending = 0;
+    for (Stripe stripe : this.stripes) {
+      pending += stripe.pending;
+    }
+    return pending == 0;
+  }
+
+  /**
+   * Claims a cell for the region.
+   *
+   * @param cell the cell
+   * @return true if this call claimed it, false if it was already in the region
+   */
+  private boolean claim(int cell) {
+    int word = cell >>> 6;
+    long bit = 1L << cell;
+    while (true) {
+      long bits = this.claimed.get(word);
+      if ((bits & bit) != 0) {
+        return false;
+      }
+      if (this.claimed.compareAndSet(word, bits, bits | bit)) {
+        return true;
+      }
+    }
+  }
+
+  @Override
+  public void reset() {
+    for (Stripe stripe : this.stripes) {
+      for (int i = 0; i < stripe.size; i++) {
+        this.claimed.set(stripe.cells[i] >>> 6, 0);
+      }
+      for (IntBuffer outbox : stripe.outboxes[this.parity]) {
+        for (int i = 0; i < outbox.size; i++) {
+          this.claimed.set(outbox.values[i] >>> 6, 0);
+        }
+      }
+      stripe.clear();
+    }
+    this.lastChosen = -1;
+  }
+
+  @Override
+  public long size() {
+    long size = 0;
+    for (Stripe stripe : this.stripes) {
+      size += stripe.size;
+      // cells claimed in the last wave wait in the outboxes until the next one
+      for (IntBuffer outbox : stripe.outboxes[this.parity]) {
+        size += outbox.size;
+      }
+    }
+    return size;
+  }
+
+  @Override
+  public long cellAt(long index) throws IllegalArgumentException {
+    if (index >= 0) {
+      for (Stripe stripe : this.stripes) {
+        if (index < stripe.size) {
+          return stripe.cells[(int) index];
+        }
+        index -= stripe.size;
+        for (IntBuffer outbox : stripe.outboxes[this.parity]) {
+          if (index < outbox.size) {
+            return outbox.values[(int) index];
+          }
+          index -= outbox.size;
+        }
+      }
+    }
+    throw new IllegalArgumentException("invalid region index!");
+  }
+
+  @Override
+  public boolean contains(long cell) {
+    return cell >= 0 && cell < this.width * this.height
+        && (this.claimed.get((int) (cell >>> 6)) & (1L << cell)) != 0;
+  }
+
+  /**
+   * The region cells in one stripe of rows, with the outboxes it fills during a wave.
+   */
+  private static class Stripe {
+
+    private int[] cells;
+    private int size;
+    private int prevWaveStart;
+    private int curWaveStart;
+    private long pending;
+    // cells claimed in even and odd waves, for the stripe above, this stripe and the stripe below
+    private final IntBuffer[][] outboxes;
+
+    /**
+     * Constructs an empty stripe.
+     */
+    Stripe() {
+      this.cells = new int[16];
+      this.outboxes = new IntBuffer[2][3];
+      for (IntBuffer[] set : this.outboxes) {
+        for (int i = 0; i < set.length; i++) {
+          set[i] = new IntBuffer();
+        }
+      }
+    }
+
+    /**
+     * Appends a region cell.
+     *
+     * @param cell the cell
+     */
+    void append(int cell) {
+      if (this.size == this.cells.length) {
+        this.cells = Arrays.copyOf(this.cells, this.size * 2);
+      }
+      this.cells[this.size++] = cell;
+    }
+
+    /**
+     * Empties the stripe.
+     */
+    void clear() {
+      this.size = 0;
+      this.prevWaveStart = 0;
+      this.curWaveStart = 0;
+      this.pending = 0;
+      for (IntBuffer[] set : this.outboxes) {
+        for (IntBuffer outbox : set) {
+          outbox.size = 0;
+        }
+      }
+    }
+  }
+
+  /**
+   * A growable list of ints.
+   */
+  private static class IntBuffer {
+
+    private int[] values = new int[16];
+    private int size;
+
+    /**
+     * Appends a value.
+     *
+     * @param value the value
+     */
+    void add(int value) {
+      if (this.size == this.values.length) {
+        this.values = Arrays.copyOf(this.values, this.size * 2);
+      }
+      this.values[this.size++] = value;
+    }
+  }
+
+  /**
+   * Runs one wave over a range of stripes, splitting the range until it is a single stripe.
+   */
+  private class WaveTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final byte[] colors;
+    private final int chosen;
+    private final boolean rescan;
+    private final int from;
+    private final int to;
+
+    /**
+     * Constructs a task over the stripes from (inclusive) to (exclusive).
+     *
+     * @param colors the board colors
+     * @param chosen the chosen color
+     * @param rescan whether the chosen color changed, so every region cell is scanned
+     * @param from   the first stripe
+     * @param to     one past the last stripe
+     */
+    WaveTask(byte[] colors, int chosen, boolean rescan, int from, int to) {
+      this.colors = colors;
+      this.chosen = chosen;
+      this.rescan = rescan;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected void compute() {
+      if (this.to - this.from > 1) {
+        int mid = (this.from + this.to) >>> 1;
+        invokeAll(new WaveTask(this.colors, this.chosen, this.rescan, this.from, mid),
+            new WaveTask(this.colors, this.chosen, this.rescan, mid, this.to));
+      } else {
+        this.merge(this.from);
+        this.scan(ParallelFlood.this.stripes[this.from]);
+      }
+    }
+
+    /**
+     * Scans the cells of a stripe that can still add neighbors, as in SequentialFlood.
+     *
+     * @param stripe the stripe
+     */
+    private void scan(Stripe stripe) {
+      int width = ParallelFlood.this.width;
+      NeighborTable neighbors = ParallelFlood.this.neighbors;
+      int from = stripe.prevWaveStart;
+      if (this.rescan) {
+        stripe.pending = 0;
+        for (int i = 0; i < stripe.size; i++) {
+          if (this.colors[stripe.cells[i]] != this.chosen) {
+            stripe.pending++;
+          }
+        }
+        from = 0;
+        stripe.curWaveStart = 0;
+      }
+      int end = stripe.size;
+      for (int i = from; i < end; i++) {
+        int cell = stripe.cells[i];
+        int prev = this.colors[cell];
+        if (prev != this.chosen) {
+          this.colors[cell] = (byte) this.chosen;
+          ParallelFlood.this.grid.touch(cell);
+          stripe.pending--;
+        }
+        int row = cell / width;
+        int type = neighbors.classOf(row, cell - row * width);
+        for (int k = neighbors.start(type); k < neighbors.end(type); k++) {
+          this.visit(stripe, cell + neighbors.offset(k), prev);
+        }
+      }
+      stripe.prevWaveStart = stripe.curWaveStart;
+      stripe.curWaveStart = end;
+    }
+
+    /**
+     * Claims a neighbor that had the given color and puts it in the right outbox.
+     *
+     * @param stripe the stripe being scanned
+     * @param cell   the neighbor
+     * @param prev   the color the scanned cell had when the wave began
+     */
+    private void visit(Stripe stripe, int cell, int prev) {
+      if (this.colors[cell] != prev || !ParallelFlood.this.claim(cell)) {
+        return;
+      }
+      if (prev != this.chosen) {
+        stripe.pending++;
+      }
+      int numStripes = ParallelFlood.this.stripes.length;
+      int target = cell / ParallelFlood.this.width / ParallelFlood.this.rowsPerStripe;
+      // 1 for this stripe, 2 for the next one and 0 for the previous one, wrapping around
+      int outbox = target == this.from ? 1 : target == (this.from + 1) % numStripes ? 2 : 0;
+      stripe.outboxes[ParallelFlood.this.parity][outbox].add(cell);
+    }
+
+    /**
+     * Moves the cells claimed for a stripe in the previous wave from its own and its neighbors'
+     * outboxes into it.
+     *
+     * @param index the stripe index
+     */
+    private void merge(int index) {
+      Stripe[] stripes = ParallelFlood.this.stripes;
+      Stripe stripe = stripes[index];
+      int previous = ParallelFlood.this.parity ^ 1;
+      // with a single stripe everything is in its own outboxes; slots 0 and 2 just stay empty
+      // when the board doesn't wrap
+      this.drain(stripes[(index + stripes.length - 1) % stripes.length].outboxes[previous][2],
+          stripe);
+      this.drain(stripe.outboxes[previous][1], stripe);
+      this.drain(stripes[(index + 1) % stripes.length].outboxes[previous][0], stripe);
+    }
+
+    /**
+     * Appends the cells of an outbox to a stripe and empties the outbox.
+     *
+     * @param outbox the outbox
+     * @param stripe the stripe
+     */
+    private void drain(IntBuffer outbox, Stripe stripe) {
+      for (int i = 0; i < outbox.size; i++) {
+        stripe.append(outbox.values[i]);
+      }
+      outbox.size = 0;
+    }
+  }
+}
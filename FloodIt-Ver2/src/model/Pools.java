@@ -0,0 +1,50 @@
+package model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The fork-join pools the model's parallel work runs on, one per number of threads, so engines
+ * and estimators with the same number of threads share their threads, and a pool of its own for
+ * generating boards.
+ */
+final class Pools {
+
+  private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+  /**
+   * Prevents instantiation.
+   */
+  private Pools() {
+  }
+
+  /**
+   * Gets the pool with the given number of threads, creating it the first time.
+   *
+   * @param numThreads the number of threads, positive
+   * @return the pool
+   */
+  static ForkJoinPool withThreads(int numThreads) {
+    return POOLS.computeIfAbsent(numThreads, ForkJoinPool::new);
+  }
+
+  /**
+   * Gets the pool boards are generated on, with a thread per processor whatever the number of
+   * threads a model floods with, created the first time.
+   *
+   * @return the pool
+   */
+  static ForkJoinPool forGenerating() {
+    return Generating.POOL;
+  }
+
+  /**
+   * Holds the pool boards are generated on, so that it is only created once it is needed.
+   */
+  private static final class Generating {
+
+    private static final ForkJoinPool POOL =
+        new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+  }
+}
@@ -0,0 +1,299 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A flood engine for a RunLengthGrid that works on stretches of rows instead of single cells. The
+ * region is a list of spans (a row and a range of columns of one color) in the order they joined,
+ * plus, per row, the sorted column ranges it covers. When a cell would join the region, the whole
+ * stretch of its color around it that is not in the region yet joins with it, so a wave costs time
+ * proportional to the runs it looks at and a mostly flooded board takes a few spans per row.
+ *
+ * <p>Because whole stretches join at once, a move may take fewer waves than with SequentialFlood
+ * and the region can differ in which cells of the chosen color it picked up, but the colors every
+ * move ends with are the same.
+ */
+public class RunFlood implements IFloodEngine {
+
+  private final RunLengthGrid grid;
+  private final int width;
+  private final int height;
+  // spans as (row, start, end) triples, and the number of region cells before each span
+  private int[] spans;
+  private int[] offsets;
+  private int numSpans;
+  private int size;
+  // per row, the column ranges in the region as sorted (start, end) pairs
+  private final int[][] rowRanges;
+  private final int[] rowCounts;
+  private int[] touchedRows;
+  private int numTouchedRows;
+  // spans that are about to join, collected before the row ranges change
+  private int[] found;
+  private int numFound;
+  private int prevWaveStart;
+  private int curWaveStart;
+  private int pending;
+  private int lastChosen;
+
+  /**
+   * Constructs an engine that floods a grid.
+   *
+   * @param grid the grid, updated in place by every wave
+   * @throws IllegalArgumentException if the grid is null
+   */
+  public RunFlood(RunLengthGrid grid) throws IllegalArgumentException {
+    if (grid == null) {
+      throw new IllegalArgumentException("grid can't be null!");
+    }
+    this.grid = grid;
+    this.width = grid.getWidth();
+    this.height = grid.getHeight();
+    this.spans = new int[48];
+    this.offsets = new int[16];
+    this.rowRanges = new int[this.height][];
+    this.rowCounts = new int[this.height];
+    this.touchedRows = new int[16];
+    this.found = new int[16];
+    this.reset();
+  }
+
+  @Override
+  public boolean wave(int chosen) {
+    if (this.numSpans == 0) {
+      this.add(0, 0, this.grid.runEnd(0, 0), chosen);
+    }
+    int from = this.prevWaveStart;
+    if (chosen != this.lastChosen) {
+      // a new color: every span may match different neighbors now
+      this.lastChosen = chosen;
+      this.pending = 0;
+      for (int i = 0; i < this.numSpans; i++) {
+        if (this.grid.get(this.spans[3 * i], this.spans[3 * i + 1]) != chosen) {
+          this.pending += this.spans[3 * i + 2] - this.spans[3 * i + 1];
+        }
+      }
+      from = 0;
+      this.curWaveStart = 0;
+    }
+    int end = this.numSpans;
+    for (int i = from; i < end; i++) {
+      int row = this.spans[3 * i];
+      int start = this.spans[3 * i + 1];
+      int stop = this.spans[3 * i + 2];
+      int prev = this.grid.get(row, start);
+      if (prev != chosen) {
+        this.grid.fill(row, start, stop, chosen);
+        this.pending -= stop - start;
+      }
+      // same neighbor order as the cell engines: top, left, bottom, right
+      if (row + 1 < this.height) {
+        this.visit(row + 1, start, stop, prev, chosen);
+      }
+      if (start > 0) {
+        this.visit(row, start - 1, start, prev, chosen);
+      }
+      if (row > 0) {
+        this.visit(row - 1, start, stop, prev, chosen);
+      }
+      if (stop < this.width) {
+        this.visit(row, stop, stop + 1, prev, chosen);
+      }
+    }
+    this.prevWaveStart = this.curWaveStart;
+    this.curWaveStart = end;
+    return this.pending == 0;
+  }
+
+  /**
+   * Adds every stretch of the given color that touches the columns from (inclusive) to
+   * (exclusive) of a row and is not in the region yet. Each stretch reaches as far as the run it
+   * lies in, stopping at region cells.
+   *
+   * @param row    the row
+   * @param from   the first column touched
+   * @param to     the column after the last one touched
+   * @param prev   the color the current span had when the wave began
+   * @param chosen the chosen color
+   */
+  private void visit(int row, int from, int to, int prev, int chosen) {
+    RunLengthGrid grid = this.grid;
+    this.numFound = 0;
+    for (int run = grid.runIndexAt(row, from); run < grid.numRuns(row)
+        && grid.runStart(row, run) < to; run++) {
+      if (grid.runColor(row, run) == prev) {
+        this.findGaps(row, grid.runStart(row, run), grid.runEnd(row, run), from, to);
+      }
+    }
+    for (int i = 0; i < this.numFound; i += 2) {
+      this.add(row, this.found[i], this.found[i + 1], chosen);
+    }
+  }
+
+  /**
+   * Collects the stretches of a run that are not in the region and overlap the touched columns.
+   *
+   * @param row      the row
+   * @param runStart the first column of the run
+   * @param runEnd   the column after the last one of the run
+   * @param from     the first column touched
+   * @param to       the column after the last one touched
+   */
+  private void findGaps(int row, int runStart, int runEnd, int from, int to) {
+    int[] ranges = this.rowRanges[row];
+    int count = this.rowCounts[row];
+    int low = Math.max(runStart, from);
+    int high = Math.min(runEnd, to);
+    int index = this.firstRangeEndingAfter(row, low);
+    int pos = low;
+    while (pos < high) {
+      if (index < count && ranges[2 * index] <= pos) {
+        pos = ranges[2 * index + 1];
+        index++;
+        continue;
+      }
+      int gapStart = index > 0 ? Math.max(runStart, ranges[2 * index - 1]) : runStart;
+      int gapEnd = index < count ? Math.min(runEnd, ranges[2 * index]) : runEnd;
+      if (this.numFound + 2 > this.found.length) {
+        this.found = Arrays.copyOf(this.found, this.found.length * 2);
+      }
+      this.found[this.numFound++] = gapStart;
+      this.found[this.numFound++] = gapEnd;
+      pos = gapEnd;
+    }
+  }
+
+  /**
+   * Finds the first region range of a row that ends after a column.
+   *
+   * @param row the row
+   * @param col the column
+   * @return the index of the range, or the number of ranges if there is none
+   */
+  private int firstRangeEndingAfter(int row, int col) {
+    int[] ranges = this.rowRanges[row];
+    int low = 0;
+    int high = this.rowCounts[row];
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (ranges[2 * mid + 1] > col) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Appends a span to the region.
+   *
+   * @param row    the row
+   * @param start  the first column
+   * @param end    the column after the last one
+   * @param chosen the chosen color
+   */
+  private void add(int row, int start, int end, int chosen) {
+    if (3 * this.numSpans + 3 > this.spans.length) {
+      this.spans = Arrays.copyOf(this.spans, this.spans.length * 2);
+    }
+    if (this.numSpans == this.offsets.length) {
+      this.offsets = Arrays.copyOf(this.offsets, this.offsets.length * 2);
+    }
+    this.spans[3 * this.numSpans] = row;
+    this.spans[3 * this.numSpans + 1] = start;
+    this.spans[3 * this.numSpans + 2] = end;
+    this.offsets[this.numSpans++] = this.size;
+    this.size += end - start;
+    if (this.grid.get(row, start) != chosen) {
+      this.pending += end - start;
+    }
+    this.insertRange(row, start, end);
+  }
+
+  /**
+   * Marks columns of a row as part of the region, merging with the ranges it touches.
+   *
+   * @param row   the row
+   * @param start the first column
+   * @param end   the column after the last one
+   */
+  private void insertRange(int row, int start, int end) {
+    int[] ranges = this.rowRanges[row];
+    int count = this.rowCounts[row];
+    if (ranges == null) {
+      ranges = new int[4];
+      this.rowRanges[row] = ranges;
+    }
+    if (count == 0) {
+      if (this.numTouchedRows == this.touchedRows.length) {
+        this.touchedRows = Arrays.copyOf(this.touchedRows, this.numTouchedRows * 2);
+      }
+      this.touchedRows[this.numTouchedRows++] = row;
+    }
+    int index = this.firstRangeEndingAfter(row, start);
+    boolean joinsPrev = index > 0 && ranges[2 * index - 1] == start;
+    boolean joinsNext = index < count && ranges[2 * index] == end;
+    if (joinsPrev && joinsNext) {
+      ranges[2 * index - 1] = ranges[2 * index + 1];
+      System.arraycopy(ranges, 2 * index + 2, ranges, 2 * index, 2 * (count - index - 1));
+      this.rowCounts[row] = count - 1;
+    } else if (joinsPrev) {
+      ranges[2 * index - 1] = end;
+    } else if (joinsNext) {
+      ranges[2 * index] = start;
+    } else {
+      if (2 * count + 2 > ranges.length) {
+        ranges = Arrays.copyOf(ranges, ranges.length * 2);
+        this.rowRanges[row] = ranges;
+      }
+      System.arraycopy(ranges, 2 * index, ranges, 2 * index + 2, 2 * (count - index));
+      ranges[2 * index] = start;
+      ranges[2 * index + 1] = end;
+      this.rowCounts[row] = count + 1;
+    }
+  }
+
+  @Override
+  public void reset() {
+    for (int i = 0; i < this.numTouchedRows; i++) {
+      this.rowCounts[this.touchedRows[i]] = 0;
+    }
+    this.numTouchedRows = 0;
+    this.numSpans = 0;
+    this.size = 0;
+    this.prevWaveStart = 0;
+    this.curWaveStart = 0;
+    this.pending = 0;
+    this.lastChosen = -1;
+  }
+
+  @Override
+  public long size() {
+    return this.size;
+  }
+
+  @Override
+  public long cellAt(long index) throws IllegalArgumentException {
+    if (index < 0 || index >= this.size) {
+      throw new IllegalArgumentException("invalid region index!");
+    }
+    int span = Arrays.binarySearch(this.offsets, 0, this.numSpans, (int) index);
+    if (span < 0) {
+      span = -span - 2;
+    }
+    return this.spans[3 * span] * this.width + this.spans[3 * span + 1] + index
+        - this.offsets[span];
+  }
+
+  @Override
+  public boolean contains(long cell) {
+    if (cell < 0 || cell >= this.width * this.height) {
+      return false;
+    }
+    int row = (int) (cell / this.width);
+    int col = (int) (cell - (long) row * this.width);
+    int index = this.firstRangeEndingAfter(row, col);
+    return index < this.rowCounts[row] && this.rowRanges[row][2 * index] <= col;
+  }
+}
@@ -0,0 +1,374 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A grid that stores every row as runs: maximal stretches of one color, each kept as the column
+ * it ends at (exclusive) and its color. A board that is mostly flooded has a handful of runs per
+ * row, so a 10000 x 10000 board that takes 100 MB as a DenseGrid fits in a few hundred KB. Reading
+ * a cell is a binary search over the runs of its row, and painting a stretch of a row splits and
+ * merges runs so they always stay maximal.
+ *
+ * <p>A snapshot keeps a trimmed copy of the runs of every row. Rows that haven't been painted
+ * since the previous snapshot share their copy with it.
+ */
+public class RunLengthGrid implements IGrid {
+
+  private static final int ROW_OVERHEAD = 48;
+  private static final int BYTES_PER_RUN = 5;
+
+  private final int width;
+  private final int height;
+  private final int[][] ends;
+  private final byte[][] runColors;
+  private final int[] counts;
+  // scratch space for the at most three runs fill puts in place of the ones it paints over
+  private final int[] newEnds;
+  private final byte[] newColors;
+  private long numRuns;
+  private final boolean[] dirtyRows;
+  private int[][] lastEnds;
+  private byte[][] lastColors;
+
+  /**
+   * Constructs a run-length copy of another grid.
+   *
+   * @param source the grid to copy
+   * @throws IllegalArgumentException if the source is null
+   */
+  public RunLengthGrid(IGrid source) throws IllegalArgumentException {
+    if (source == null) {
+      throw new IllegalArgumentException("grid can't be null!");
+    }
+    this.width = source.getWidth();
+    this.height = source.getHeight();
+    this.ends = new int[this.height][];
+    this.runColors = new byte[this.height][];
+    this.counts = new int[this.height];
+    this.newEnds = new int[3];
+    this.newColors = new byte[3];
+    this.dirtyRows = new boolean[this.height];
+    Arrays.fill(this.dirtyRows, true);
+    this.lastEnds = new int[this.height][];
+    this.lastColors = new byte[this.height][];
+    int[] rowEnds = new int[this.width];
+    byte[] rowColors = new byte[this.width];
+    for (int row = 0; row < this.height; row++) {
+      int count = 0;
+      for (int col = 0; col < this.width; col++) {
+        byte color = (byte) source.get(row, col);
+        if (count > 0 && rowColors[count - 1] == color) {
+          rowEnds[count - 1] = col + 1;
+        } else {
+          rowEnds[count] = col + 1;
+          rowColors[count] = color;
+          count++;
+        }
+      }
+      this.ends[row] = Arrays.copyOf(rowEnds, count);
+      this.runColors[row] = Arrays.copyOf(rowColors, count);
+      this.counts[row] = count;
+      this.numRuns += count;
+    }
+  }
+
+  /**
+   * Estimates how many bytes a grid of the given height with the given number of runs takes up
+   * in run-length form.
+   *
+   * @param height  the number of rows
+   * @param numRuns the number of runs
+   * @return the approximate size in bytes
+   */
+  public static long estimateSize(int height, long numRuns) {
+    return numRuns * BYTES_PER_RUN + (long) height * ROW_OVERHEAD;
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  @Override
+  public int get(int row, int col) {
+    return this.runColors[row][this.runIndexAt(row, col)];
+  }
+
+  @Override
+  public void set(int row, int col, int color) {
+    this.fill(row, col, col + 1, color);
+  }
+
+  @Override
+  public boolean isUniform() {
+    byte first = this.runColors[0][0];
+    for (int row = 0; row < this.height; row++) {
+      if (this.counts[row] != 1 || this.runColors[row][0] != first) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public long countRuns() {
+    return this.numRuns;
+  }
+
+  @Override
+  public long sizeInBytes() {
+    long size = 0;
+    for (int row = 0; row < this.height; row++) {
+      size += (long) this.ends[row].length * BYTES_PER_RUN + ROW_OVERHEAD;
+    }
+    return size;
+  }
+
+  /**
+   * Gets the number of runs in a row.
+   *
+   * @param row the row
+   * @return the number of runs
+   */
+  public int numRuns(int row) {
+    return this.counts[row];
+  }
+
+  /**
+   * Gets the run that covers a cell.
+   *
+   * @param row the row
+   * @param col the column
+   * @return the index of the run within its row
+   */
+  public int runIndexAt(int row, int col) {
+    int[] rowEnds = this.ends[row];
+    int low = 0;
+    int high = this.counts[row] - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (rowEnds[mid] > col) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Gets the first column of a run.
+   *
+   * @param row the row
+   * @param run the index of the run within its row
+   * @return the first column
+   */
+  public int runStart(int row, int run) {
+    return run == 0 ? 0 : this.ends[row][run - 1];
+  }
+
+  /**
+   * Gets the column just past a run.
+   *
+   * @param row the row
+   * @param run the index of the run within its row
+   * @return the column after the last one of the run
+   */
+  public int runEnd(int row, int run) {
+    return this.ends[row][run];
+  }
+
+  /**
+   * Gets the color of a run.
+   *
+   * @param row the row
+   * @param run the index of the run within its row
+   * @return the color index
+   */
+  public int runColor(int row, int run) {
+    return this.runColors[row][run];
+  }
+
+  /**
+   * Paints the columns from start (inclusive) to end (exclusive) of a row in one color, splitting
+   * the runs at both ends and merging with the neighboring runs of the same color.
+   *
+   * @param row   the row
+   * @param start the first column
+   * @param end   the column after the last one
+   * @param color the color index
+   */
+  public void fill(int row, int start, int end, int color) {
+    int first = this.runIndexAt(row, start);
+    int last = this.runIndexAt(row, end - 1);
+    int[] rowEnds = this.ends[row];
+    byte[] rowColors = this.runColors[row];
+    if (first == last && rowColors[first] == color) {
+      return;
+    }
+    // the runs that replace first..last: what's left of the first run, the painted stretch and
+    // what's left of the last run
+    int[] newEnds = this.newEnds;
+    byte[] newColors = this.newColors;
+    int size = 0;
+    if (this.runStart(row, first) < start && rowColors[first] != color) {
+      newEnds[size] = start;
+      newColors[size++] = rowColors[first];
+    } else if (this.runStart(row, first) == start && first > 0
+        && rowColors[first - 1] == color) {
+      first--;
+    }
+    int paintedEnd = end;
+    if (rowEnds[last] > end && rowColors[last] == color) {
+      paintedEnd = rowEnds[last];
+    } else if (rowEnds[last] == end && last + 1 < this.counts[row]
+        && rowColors[last + 1] == color) {
+      last++;
+      paintedEnd = rowEnds[last];
+    }
+    newEnds[size] = paintedEnd;
+    newColors[size++] = (byte) color;
+    if (rowEnds[last] > paintedEnd) {
+      newEnds[size] = rowEnds[last];
+      newColors[size++] = rowColors[last];
+    }
+    this.replace(row, first, last, newEnds, newColors, size);
+  }
+
+  /**
+   * Replaces the runs first..last of a row with new ones.
+   *
+   * @param row       the row
+   * @param first     the first run replaced
+   * @param last      the last run replaced
+   * @param newEnds   the ends of the new runs
+   * @param newColors the colors of the new runs
+   * @param size      the number of new runs
+   */
+  private void replace(int row, int first, int last, int[] newEnds, byte[] newColors, int size) {
+    int count = this.counts[row];
+    int newCount = count - (last - first + 1) + size;
+    if (newCount > this.ends[row].length) {
+      int capacity = Math.min(this.width, Math.max(newCount, count + (count >> 1) + 1));
+      this.ends[row] = Arrays.copyOf(this.ends[row], capacity);
+      this.runColors[row] = Arrays.copyOf(this.runColors[row], capacity);
+    }
+    int[] rowEnds = this.ends[row];
+    byte[] rowColors = this.runColors[row];
+    System.arraycopy(rowEnds, last + 1, rowEnds, first + size, count - last - 1);
+    System.arraycopy(rowColors, last + 1, rowColors, first + size, count - last - 1);
+    System.arraycopy(newEnds, 0, rowEnds, first, size);
+    System.arraycopy(newColors, 0, rowColors, first, size);
+    this.counts[row] = newCount;
+    this.numRuns += newCount - count;
+    this.dirtyRows[row] = true;
+  }
+
+  @Override
+  public IGridSnapshot snapshot() {
+    int[][] ends = this.lastEnds.clone();
+    byte[][] colors = this.lastColors.clone();
+    for (int row = 0; row < this.height; row++) {
+      if (this.dirtyRows[row]) {
+        ends[row] = Arrays.copyOf(this.ends[row], this.counts[row]);
+        colors[row] = Arrays.copyOf(this.runColors[row], this.counts[row]);
+        this.dirtyRows[row] = false;
+      }
+    }
+    this.lastEnds = ends;
+    this.lastColors = colors;
+    return new Snapshot(this.width, ends, colors);
+  }
+
+  /**
+   * An immutable copy of a run-length grid, row by row.
+   */
+  private static class Snapshot implements IGridSnapshot {
+
+    private final int width;
+    private final int[][] ends;
+    private final byte[][] colors;
+
+    /**
+     * Constructs a snapshot.
+     *
+     * @param width  the number of columns
+     * @param ends   the run ends of every row, never changed after this
+     * @param colors the run colors of every row, never changed after this
+     */
+    Snapshot(int width, int[][] ends, byte[][] colors) {
+      this.width = width;
+      this.ends = ends;
+      this.colors = colors;
+    }
+
+    @Override
+    public int getWidth() {
+      return this.width;
+    }
+
+    @Override
+    public int getHeight() {
+      return this.ends.length;
+    }
+
+    @Override
+    public int get(int row, int col) {
+      int[] rowEnds = this.ends[row];
+      int low = 0;
+      int high = rowEnds.length - 1;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (rowEnds[mid] > col) {
+          high = mid;
+        } else {
+          low = mid + 1;
+        }
+      }
+      return this.colors[row][low];
+    }
+
+    @Override
+    public void diff(IGridSnapshot earlier, CellChanges changes)
+        throws IllegalArgumentException {
+      IGridSnapshot.checkDiff(this, earlier, changes);
+      if (!(earlier instanceof Snapshot)) {
+        IGridSnapshot.super.diff(earlier, changes);
+        return;
+      }
+      Snapshot before = (Snapshot) earlier;
+      for (int row = 0; row < this.ends.length; row++) {
+        if (this.ends[row] == before.ends[row] && this.colors[row] == before.colors[row]) {
+          continue;
+        }
+        // walk the runs of both rows side by side
+        int[] ends = this.ends[row];
+        int[] oldEnds = before.ends[row];
+        int run = 0;
+        int oldRun = 0;
+        int col = 0;
+        while (col < this.width) {
+          int end = Math.min(ends[run], oldEnds[oldRun]);
+          int color = this.colors[row][run];
+          if (color != before.colors[row][oldRun]) {
+            for (; col < end; col++) {
+              changes.changed((long) row * this.width + col, color);
+            }
+          }
+          col = end;
+          if (ends[run] == end) {
+            run++;
+          }
+          if (oldEnds[oldRun] == end) {
+            oldRun++;
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,209 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A single-threaded flood engine. The region is kept as a list of cell indices in the order they
+ * joined plus a bitset for membership, so a wave costs time proportional to the cells it looks at
+ * instead of the whole board.
+ *
+ * <p>Neighbors come from a NeighborTable, so any topology floods the same way, without bounds
+ * checks or allocation.
+ *
+ * <p>A cell can only add neighbors in the wave after it joined (matching its old color) and in the
+ * wave after that (matching the chosen color, once it has been recolored). Older cells can't add
+ * anything new, so a wave only scans the cells that joined in the last two waves.
+ *
+ * <p>A wave reads each region cell's color right before recoloring it, and otherwise only the
+ * colors of cells outside the region, which it never changes. So it can stop anywhere in its scan
+ * and carry on later with the same result (see waveUntil).
+ */
+public class SequentialFlood implements IFloodEngine {
+
+  // cells scanned between looks at the clock when running against a deadline
+  private static final int SLICE_MASK = (1 << 12) - 1;
+
+  private final int width;
+  private final int height;
+  private final NeighborTable neighbors;
+  private final byte[] colors;
+  private final DenseGrid grid;
+  private final long[] claimed;
+  private int[] region;
+  private int size;
+  // region positions where the cells added two waves ago and one wave ago start
+  private int prevWaveStart;
+  private int curWaveStart;
+  // region cells that don't have the chosen color yet
+  private int pending;
+  private int lastChosen;
+  // a wave cut short by a deadline: whether there is one and the part of the region left to scan
+  private boolean inWave;
+  private int scanNext;
+  private int scanEnd;
+
+  /**
+   * Constructs an engine that floods a grid with four neighbors per cell.
+   *
+   * @param grid the grid, updated in place by every wave
+   * @throws IllegalArgumentException if the grid is null
+   */
+  public SequentialFlood(DenseGrid grid) throws IllegalArgumentException {
+    this(grid, grid == null ? null : Topology.FOUR.neighborTable(grid.getWidth(),
+        grid.getHeight()));
+  }
+
+  /**
+   * Constructs an engine that floods a grid, taking neighbors from the given table.
+   *
+   * @param grid      the grid, updated in place by every wave
+   * @param neighbors the neighbor table, built for the grid's size
+   * @throws IllegalArgumentException if either argument is null or the sizes don't match
+   */
+  public SequentialFlood(DenseGrid grid, NeighborTable neighbors)
+      throws IllegalArgumentException {
+    if (grid == null || neighbors == null || neighbors.getWidth() != grid.getWidth()
+        || neighbors.getHeight() != grid.getHeight()) {
+      throw new IllegalArgumentException("invalid sequential flood arguments!");
+    }
+    this.width = grid.getWidth();
+    this.height = grid.getHeight();
+    this.neighbors = neighbors;
+    this.colors = grid.colors();
+    this.grid = grid;
+    this.claimed = new long[(width * height + 63) >>> 6];
+    this.region = new int[16];
+    this.reset();
+  }
+
+  @Override
+  public boolean wave(int chosen) {
+    return this.run(chosen, false, 0) == Progress.MOVE_ENDED;
+  }
+
+  @Override
+  public Progress waveUntil(int chosen, long deadline) {
+    return this.run(chosen, true, deadline);
+  }
+
+  /**
+   * Runs the wave in progress, or a new one, until it ends or, if timed, the deadline passes.
+   *
+   * @param chosen   the chosen color
+   * @param timed    whether to stop at the deadline
+   * @param deadline the System.nanoTime() value to stop at
+   * @return how far the wave got
+   */
+  private Progress run(int chosen, boolean timed, long deadline) {
+    byte[] colors = this.colors;
+    if (!this.inWave) {
+      if (this.size == 0) {
+        this.add(0, colors, chosen);
+      }
+      int from = this.prevWaveStart;
+      if (chosen != this.lastChosen) {
+        // a new color: every region cell may match different neighbors now
+        this.lastChosen = chosen;
+        this.pending = 0;
+        for (int i = 0; i < this.size; i++) {
+          if (colors[this.region[i]] != chosen) {
+            this.pending++;
+          }
+        }
+        from = 0;
+        this.curWaveStart = 0;
+      }
+      this.inWave = true;
+      this.scanNext = from;
+      this.scanEnd = this.size;
+    }
+    int start = this.scanNext;
+    int end = this.scanEnd;
+    for (int i = start; i < end; i++) {
+      if (timed && (i & SLICE_MASK) == 0 && i > start && System.nanoTime() - deadline >= 0) {
+        this.scanNext = i;
+        return Progress.CUT;
+      }
+      int cell = this.region[i];
+      int prev = colors[cell];
+      if (prev != chosen) {
+        colors[cell] = (byte) chosen;
+        this.grid.touch(cell);
+        this.pending--;
+      }
+      int row = cell / this.width;
+      int type = this.neighbors.classOf(row, cell - row * this.width);
+      for (int k = this.neighbors.start(type); k < this.neighbors.end(type); k++) {
+        this.visit(cell + this.neighbors.offset(k), prev, colors, chosen);
+      }
+    }
+    this.inWave = false;
+    this.prevWaveStart = this.curWaveStart;
+    this.curWaveStart = end;
+    return this.pending == 0 ? Progress.MOVE_ENDED : Progress.WAVE_ENDED;
+  }
+
+  /**
+   * Adds a neighbor to the region if it is not in it yet and had the given color.
+   *
+   * @param cell   the neighbor
+   * @param prev   the color the current cell had when the wave began
+   * @param colors the board colors
+   * @param chosen the chosen color
+   */
+  private void visit(int cell, int prev, byte[] colors, int chosen) {
+    if (colors[cell] == prev && (this.claimed[cell >>> 6] & (1L << cell)) == 0) {
+      this.add(cell, colors, chosen);
+    }
+  }
+
+  /**
+   * Appends a cell to the region.
+   *
+   * @param cell   the cell
+   * @param colors the board colors
+   * @param chosen the chosen color
+   */
+  private void add(int cell, byte[] colors, int chosen) {
+    if (this.size == this.region.length) {
+      this.region = Arrays.copyOf(this.region, this.size * 2);
+    }
+    this.region[this.size++] = cell;
+    this.claimed[cell >>> 6] |= 1L << cell;
+    if (colors[cell] != chosen) {
+      this.pending++;
+    }
+  }
+
+  @Override
+  public void reset() {
+    for (int i = 0; i < this.size; i++) {
+      this.claimed[this.region[i] >>> 6] = 0;
+    }
+    this.size = 0;
+    this.prevWaveStart = 0;
+    this.curWaveStart = 0;
+    this.pending = 0;
+    this.lastChosen = -1;
+    this.inWave = false;
+  }
+
+  @Override
+  public long size() {
+    return this.size;
+  }
+
+  @Override
+  public long cellAt(long index) throws IllegalArgumentException {
+    if (index < 0 || index >= this.size) {
+      throw new IllegalArgumentException("invalid region index!");
+    }
+    return this.region[(int) index];
+  }
+
+  @Override
+  public boolean contains(long cell) {
+    return cell >= 0 && cell < this.width * this.height
+        && (this.claimed[(int) (cell >>> 6)] & (1L << cell)) != 0;
+  }
+}
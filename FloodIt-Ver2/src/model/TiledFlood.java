@@ -0,0 +1,391 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A flood engine for a TiledGrid that works tile by tile. Every tile the region reaches keeps its
+ * own part of the region: a bitset over the tile and the cells in the order they joined, as
+ * offsets within the tile. A wave scans each tile's recent cells in turn, like SequentialFlood
+ * does for the whole board, and hands neighbors across a tile border straight to the tile they
+ * lie in. Only tiles the region reaches, or borders, are materialized.
+ *
+ * <p>Each tile's window ends where its cells stood when the wave began, so the cells that join in
+ * a wave don't depend on the order tiles are scanned in, and every move ends with the same colors
+ * and region as SequentialFlood.
+ */
+public class TiledFlood implements IFloodEngine {
+
+  private static final int SIZE = TiledGrid.TILE_SIZE;
+
+  private final TiledGrid grid;
+  private final int width;
+  private final int height;
+  // the region of every tile it ever reached; tiles it no longer covers stay for reuse
+  private final Map<Long, TileRegion> regions;
+  // the tiles the region covers, in the order it reached them
+  private final List<TileRegion> order;
+  private long size;
+  // region cells that don't have the chosen color yet
+  private long pending;
+  private int lastChosen;
+  // a wave cut short by a deadline: whether there is one, whether it rescans every cell, the
+  // tiles it scans and the next of them
+  private boolean inWave;
+  private boolean rescan;
+  private int waveTiles;
+  private int nextTile;
+
+  /**
+   * Constructs an engine that floods a grid.
+   *
+   * @param grid the grid, updated in place by every wave
+   * @throws IllegalArgumentException if the grid is null
+   */
+  public TiledFlood(TiledGrid grid) throws IllegalArgumentException {
+    if (grid == null) {
+      throw new IllegalArgumentException("grid can't be null!");
+    }
+    this.grid = grid;
+    this.width = grid.getWidth();
+    this.height = grid.getHeight();
+    this.regions = new HashMap<>();
+    this.order = new ArrayList<>();
+    this.lastChosen = -1;
+  }
+
+  @Override
+  public boolean wave(int chosen) {
+    return this.run(chosen, false, 0) == Progress.MOVE_ENDED;
+  }
+
+  @Override
+  public Progress waveUntil(int chosen, long deadline) {
+    return this.run(chosen, true, deadline);
+  }
+
+  /**
+   * Runs the wave in progress, or a new one, until it ends or, if timed, the deadline passes. A
+   * timed wave stops between tiles, since the cells that join in a wave don't depend on the order
+   * tiles are scanned in.
+   *
+   * @param chosen   the chosen color
+   * @param timed    whether to stop at the deadline
+   * @param deadline the System.nanoTime() value to stop at
+   * @return how far the wave got
+   */
+  private Progress run(int chosen, boolean timed, long deadline) {
+    if (!this.inWave) {
+      if (this.size == 0) {
+        this.add(this.region(0, 0), 0, chosen);
+      }
+      this.rescan = chosen != this.lastChosen;
+      if (this.rescan) {
+        // a new color: every region cell may match different neighbors now
+        this.lastChosen = chosen;
+        this.pending = 0;
+        for (TileRegion tile : this.order) {
+          for (int i = 0; i < tile.size; i++) {
+            if (tile.colors.get(tile.cells[i]) != chosen) {
+              this.pending++;
+            }
+          }
+        }
+      }
+      this.waveTiles = this.order.size();
+      for (int i = 0; i < this.waveTiles; i++) {
+        TileRegion tile = this.order.get(i);
+        tile.waveEnd = tile.size;
+      }
+      this.inWave = true;
+      this.nextTile = 0;
+    }
+    int start = this.nextTile;
+    for (int i = start; i < this.waveTiles; i++) {
+      if (timed && i > start && System.nanoTime() - deadline >= 0) {
+        this.nextTile = i;
+        return Progress.CUT;
+      }
+      this.scan(this.order.get(i), chosen, this.rescan);
+    }
+    this.inWave = false;
+    return this.pending == 0 ? Progress.MOVE_ENDED : Progress.WAVE_ENDED;
+  }
+
+  /**
+   * Scans the cells of a tile that can still add neighbors.
+   *
+   * @param tile   the tile
+   * @param chosen the chosen color
+   * @param rescan whether the chosen color changed, so every cell of the tile is scanned
+   */
+  private void scan(TileRegion tile, int chosen, boolean rescan) {
+    int from = tile.prevWaveStart;
+    if (rescan) {
+      from = 0;
+      tile.curWaveStart = 0;
+    }
+    boolean recolored = false;
+    for (int i = from; i < tile.waveEnd; i++) {
+      int cell = tile.cells[i];
+      int prev = tile.colors.get(cell);
+      if (prev != chosen) {
+        tile.colors.put(cell, (byte) chosen);
+        this.pending--;
+        recolored = true;
+      }
+      int row = cell / SIZE;
+      int col = cell - row * SIZE;
+      int boardRow = tile.firstRow + row;
+      int boardCol = tile.firstCol + col;
+      // same neighbor order as SequentialFlood: top, left, bottom, right
+      if (boardRow + 1 < this.height) {
+        if (row + 1 < SIZE) {
+          this.visit(tile, cell + SIZE, prev, chosen);
+        } else {
+          this.visitAcross(tile, TileRegion.BELOW, col, prev, chosen);
+        }
+      }
+      if (boardCol > 0) {
+        if (col > 0) {
+          this.visit(tile, cell - 1, prev, chosen);
+        } else {
+          this.visitAcross(tile, TileRegion.LEFT, cell + SIZE - 1, prev, chosen);
+        }
+      }
+      if (boardRow > 0) {
+        if (row > 0) {
+          this.visit(tile, cell - SIZE, prev, chosen);
+        } else {
+          this.visitAcross(tile, TileRegion.ABOVE, (SIZE - 1) * SIZE + col, prev, chosen);
+        }
+      }
+      if (boardCol + 1 < this.width) {
+        if (col + 1 < SIZE) {
+          this.visit(tile, cell + 1, prev, chosen);
+        } else {
+          this.visitAcross(tile, TileRegion.RIGHT, cell - SIZE + 1, prev, chosen);
+        }
+      }
+    }
+    if (recolored) {
+      this.grid.markDirty(tile.tileRow, tile.tileCol);
+    }
+    tile.prevWaveStart = tile.curWaveStart;
+    tile.curWaveStart = tile.waveEnd;
+  }
+
+  /**
+   * Adds a neighbor in the same tile to the region if it is not in it yet and had the given color.
+   *
+   * @param tile   the tile
+   * @param cell   the neighbor's offset within the tile
+   * @param prev   the color the current cell had when the wave began
+   * @param chosen the chosen color
+   */
+  private void visit(TileRegion tile, int cell, int prev, int chosen) {
+    if (tile.colors.get(cell) == prev && !tile.contains(cell)) {
+      this.add(tile, cell, chosen);
+    }
+  }
+
+  /**
+   * Adds a neighbor in an adjacent tile to the region if it is not in it yet and had the given
+   * color.
+   *
+   * @param tile      the tile of the current cell
+   * @param direction the side of the tile the neighbor lies on
+   * @param cell      the neighbor's offset within its own tile
+   * @param prev      the color the current cell had when the wave began
+   * @param chosen    the chosen color
+   */
+  private void visitAcross(TileRegion tile, int direction, int cell, int prev, int chosen) {
+    ByteBuffer colors = tile.neighborColors[direction];
+    if (colors == null) {
+      colors = this.grid.tile(tile.tileRow + TileRegion.ROW_STEPS[direction],
+          tile.tileCol + TileRegion.COL_STEPS[direction]);
+      tile.neighborColors[direction] = colors;
+    }
+    if (colors.get(cell) != prev) {
+      return;
+    }
+    TileRegion neighbor = tile.neighbors[direction];
+    if (neighbor == null) {
+      neighbor = this.region(tile.tileRow + TileRegion.ROW_STEPS[direction],
+          tile.tileCol + TileRegion.COL_STEPS[direction]);
+      tile.neighbors[direction] = neighbor;
+    }
+    if (!neighbor.contains(cell)) {
+      this.add(neighbor, cell, chosen);
+    }
+  }
+
+  /**
+   * Gets the region of a tile, creating it the first time the tile is reached.
+   *
+   * @param tileRow the row of the tile
+   * @param tileCol the column of the tile
+   * @return the tile's region
+   */
+  private TileRegion region(int tileRow, int tileCol) {
+    long key = (long) tileRow * this.grid.getTilesAcross() + tileCol;
+    TileRegion tile = this.regions.get(key);
+    if (tile == null) {
+      tile = new TileRegion(tileRow, tileCol, this.grid.tile(tileRow, tileCol));
+      this.regions.put(key, tile);
+    }
+    return tile;
+  }
+
+  /**
+   * Appends a cell to the region of a tile.
+   *
+   * @param tile   the tile
+   * @param cell   the cell's offset within the tile
+   * @param chosen the chosen color
+   */
+  private void add(TileRegion tile, int cell, int chosen) {
+    if (!tile.joined) {
+      tile.joined = true;
+      this.order.add(tile);
+    }
+    tile.append(cell);
+    this.size++;
+    if (tile.colors.get(cell) != chosen) {
+      this.pending++;
+    }
+  }
+
+  @Override
+  public void reset() {
+    for (TileRegion tile : this.order) {
+      tile.clear();
+    }
+    this.order.clear();
+    this.size = 0;
+    this.pending = 0;
+    this.lastChosen = -1;
+    this.inWave = false;
+  }
+
+  @Override
+  public long size() {
+    return this.size;
+  }
+
+  @Override
+  public long cellAt(long index) throws IllegalArgumentException {
+    if (index >= 0) {
+      for (TileRegion tile : this.order) {
+        if (index < tile.size) {
+          int cell = tile.cells[(int) index];
+          return (long) (tile.firstRow + cell / SIZE) * this.width + tile.firstCol + cell % SIZE;
+        }
+        index -= tile.size;
+      }
+    }
+    throw new IllegalArgumentException("invalid region index!");
+  }
+
+  @Override
+  public boolean contains(long cell) {
+    if (cell < 0 || cell >= (long) this.width * this.height) {
+      return false;
+    }
+    int row = (int) (cell / this.width);
+    int col = (int) (cell % this.width);
+    TileRegion tile = this.regions.get((long) (row / SIZE) * this.grid.getTilesAcross()
+        + col / SIZE);
+    return tile != null && tile.joined && tile.contains((row % SIZE) * SIZE + col % SIZE);
+  }
+
+  /**
+   * The part of the region inside one tile.
+   */
+  private static class TileRegion {
+
+    private static final int BELOW = 0;
+    private static final int LEFT = 1;
+    private static final int ABOVE = 2;
+    private static final int RIGHT = 3;
+    private static final int[] ROW_STEPS = {1, 0, -1, 0};
+    private static final int[] COL_STEPS = {0, -1, 0, 1};
+
+    private final int tileRow;
+    private final int tileCol;
+    private final int firstRow;
+    private final int firstCol;
+    private final ByteBuffer colors;
+    private final long[] claimed;
+    // the neighboring tiles' cells and regions, looked up the first time a border is crossed
+    private final ByteBuffer[] neighborColors;
+    private final TileRegion[] neighbors;
+    // offsets within the tile; a tile has 2^16 cells, so a char holds any of them
+    private char[] cells;
+    private int size;
+    private int prevWaveStart;
+    private int curWaveStart;
+    private int waveEnd;
+    private boolean joined;
+
+    /**
+     * Constructs the empty region of a tile.
+     *
+     * @param tileRow the row of the tile
+     * @param tileCol the column of the tile
+     * @param colors  the tile's cells
+     */
+    TileRegion(int tileRow, int tileCol, ByteBuffer colors) {
+      this.tileRow = tileRow;
+      this.tileCol = tileCol;
+      this.firstRow = tileRow * SIZE;
+      this.firstCol = tileCol * SIZE;
+      this.colors = colors;
+      this.claimed = new long[SIZE * SIZE / 64];
+      this.neighborColors = new ByteBuffer[4];
+      this.neighbors = new TileRegion[4];
+      this.cells = new char[16];
+    }
+
+    /**
+     * Checks whether a cell of the tile is in the region.
+     *
+     * @param cell the cell's offset within the tile
+     * @return true if it is in the region, otherwise false
+     */
+    boolean contains(int cell) {
+      return (this.claimed[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Appends a cell to the tile's region.
+     *
+     * @param cell the cell's offset within the tile
+     */
+    void append(int cell) {
+      if (this.size == this.cells.length) {
+        this.cells = Arrays.copyOf(this.cells, this.size * 2);
+      }
+      this.cells[this.size++] = (char) cell;
+      this.claimed[cell >>> 6] |= 1L << cell;
+    }
+
+    /**
+     * Empties the tile's region.
+     */
+    void clear() {
+      for (int i = 0; i < this.size; i++) {
+        this.claimed[this.cells[i] >>> 6] = 0;
+      }
+      this.size = 0;
+      this.prevWaveStart = 0;
+      this.curWaveStart = 0;
+      this.waveEnd = 0;
+      this.joined = false;
+    }
+  }
+}
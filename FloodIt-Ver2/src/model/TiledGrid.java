@@ -0,0 +1,405 @@
+package model;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A grid cut into square tiles of TILE_SIZE x TILE_SIZE cells. A tile is only materialized, in a
+ * direct (off-heap) buffer, the first time one of its cells is written or the flood reaches it;
+ * until then the color of each of its cells is a hash of the seed and the cell's position, so it
+ * can be read without materializing anything. A game only touches the tiles its flooded region
+ * reaches, so the board can be far larger than the heap, or than memory.
+ *
+ * <p>Reads don't change the grid, so any number of threads may read it while no one writes.
+ *
+ * <p>Cells are stored row by row within their tile, so the cell at (row, col) is byte
+ * (row % TILE_SIZE) * TILE_SIZE + col % TILE_SIZE of tile (row / TILE_SIZE, col / TILE_SIZE).
+ *
+ * <p>A snapshot copies the materialized tiles into the heap and reads every other cell from the
+ * seed, like the grid does. Only tiles written since the previous snapshot are copied again; the
+ * others share their copy with it.
+ */
+public class TiledGrid implements IGrid {
+
+  public static final int TILE_SIZE = 256;
+  private static final int TILE_CELLS = TILE_SIZE * TILE_SIZE;
+
+  private final int width;
+  private final int height;
+  private final int numColors;
+  private final long seed;
+  private final int tilesAcross;
+  private final int tilesDown;
+  private final Map<Long, ByteBuffer> tiles;
+  private final Set<Long> dirtyTiles;
+  private Snapshot lastSnapshot;
+  // the last materialized tile that was read or written, since accesses mostly stay within a tile
+  private volatile CachedTile last;
+
+  /**
+   * Constructs a grid whose colors are drawn at random, tile by tile, from the given seed.
+   *
+   * @param width     the number of columns
+   * @param height    the number of rows
+   * @param numColors the number of colors
+   * @param seed      the seed the colors of every tile are derived from
+   * @throws IllegalArgumentException if any size or the number of colors is not positive
+   */
+  public TiledGrid(int width, int height, int numColors, long seed)
+      throws IllegalArgumentException {
+    if (width <= 0 || height <= 0 || numColors <= 0) {
+      throw new IllegalArgumentException("invalid tiled grid arguments!");
+    }
+    this.width = width;
+    this.height = height;
+    this.numColors = numColors;
+    this.seed = seed;
+    this.tilesAcross = (width + TILE_SIZE - 1) / TILE_SIZE;
+    this.tilesDown = (height + TILE_SIZE - 1) / TILE_SIZE;
+    this.tiles = new HashMap<>();
+    this.dirtyTiles = new HashSet<>();
+    this.lastSnapshot = new Snapshot(this, new HashMap<>());
+    this.last = new CachedTile(-1, null);
+  }
+
+  @Override
+  public int getWidth() {
+    return this.width;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Gets the number of tiles in a row of tiles.
+   *
+   * @return the number of tile columns
+   */
+  public int getTilesAcross() {
+    return this.tilesAcross;
+  }
+
+  /**
+   * Gets the number of tiles in a column of tiles.
+   *
+   * @return the number of tile rows
+   */
+  public int getTilesDown() {
+    return this.tilesDown;
+  }
+
+  /**
+   * Gets the number of tiles that have been materialized so far.
+   *
+   * @return the number of materialized tiles
+   */
+  public int materializedTiles() {
+    return this.tiles.size();
+  }
+
+  /**
+   * Gets a tile, materializing it if this is the first time it is touched.
+   *
+   * @param tileRow the row of the tile
+   * @param tileCol the column of the tile
+   * @return the tile's cells
+   */
+  ByteBuffer tile(int tileRow, int tileCol) {
+    ByteBuffer tile = this.find(tileRow, tileCol);
+    if (tile == null) {
+      tile = ByteBuffer.allocateDirect(TILE_CELLS);
+      this.generate(tile, tileRow, tileCol);
+      long key = (long) tileRow * this.tilesAcross + tileCol;
+      this.tiles.put(key, tile);
+      this.dirtyTiles.add(key);
+      this.last = new CachedTile(key, tile);
+    }
+    return tile;
+  }
+
+  /**
+   * Records that cells of a materialized tile were written, for flood engines that write the
+   * tile's buffer directly.
+   *
+   * @param tileRow the row of the tile
+   * @param tileCol the column of the tile
+   */
+  void markDirty(int tileRow, int tileCol) {
+    this.dirtyTiles.add((long) tileRow * this.tilesAcross + tileCol);
+  }
+
+  /**
+   * Finds a tile if it is materialized.
+   *
+   * @param tileRow the row of the tile
+   * @param tileCol the column of the tile
+   * @return the tile's cells, or null if the tile was never materialized
+   */
+  private ByteBuffer find(int tileRow, int tileCol) {
+    long key = (long) tileRow * this.tilesAcross + tileCol;
+    CachedTile last = this.last;
+    if (last.key == key) {
+      return last.tile;
+    }
+    ByteBuffer tile = this.tiles.get(key);
+    if (tile != null) {
+      this.last = new CachedTile(key, tile);
+    }
+    return tile;
+  }
+
+  /**
+   * Writes the seeded colors of a tile into a buffer.
+   *
+   * @param into    the buffer
+   * @param tileRow the row of the tile
+   * @param tileCol the column of the tile
+   */
+  private void generate(ByteBuffer into, int tileRow, int tileCol) {
+    int rows = Math.min(TILE_SIZE, this.height - tileRow * TILE_SIZE);
+    int cols = Math.min(TILE_SIZE, this.width - tileCol * TILE_SIZE);
+    for (int row = 0; row < rows; row++) {
+      for (int col = 0; col < cols; col++) {
+        into.put(row * TILE_SIZE + col,
+            (byte) this.seeded(tileRow * TILE_SIZE + row, tileCol * TILE_SIZE + col));
+      }
+    }
+  }
+
+  /**
+   * Gets the color the seed gives a cell.
+   *
+   * @param row the row
+   * @param col the column
+   * @return the color index
+   */
+  private int seeded(int row, int col) {
+    // the finalizer of SplittableRandom, over the seed and the cell's index
+    long z = this.seed + ((long) row * this.width + col) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    z = z ^ (z >>> 31);
+    return (int) ((z >>> 1) % this.numColors);
+  }
+
+  /**
+   * Gets the cells of a tile without materializing it, generating them into a scratch buffer if
+   * the tile was never touched.
+   *
+   * @param tileRow the row of the tile
+   * @param tileCol the column of the tile
+   * @param scratch the buffer to generate into
+   * @return the tile's cells, or the scratch buffer
+   */
+  private ByteBuffer peek(int tileRow, int tileCol, ByteBuffer scratch) {
+    ByteBuffer tile = this.tiles.get((long) tileRow * this.tilesAcross + tileCol);
+    if (tile == null) {
+      this.generate(scratch, tileRow, tileCol);
+      return scratch;
+    }
+    return tile;
+  }
+
+  @Override
+  public int get(int row, int col) {
+    ByteBuffer tile = this.find(row / TILE_SIZE, col / TILE_SIZE);
+    return tile == null ? this.seeded(row, col)
+        : tile.get((row % TILE_SIZE) * TILE_SIZE + col % TILE_SIZE);
+  }
+
+  @Override
+  public void set(int row, int col, int color) {
+    this.tile(row / TILE_SIZE, col / TILE_SIZE)
+        .put((row % TILE_SIZE) * TILE_SIZE + col % TILE_SIZE, (byte) color);
+    this.markDirty(row / TILE_SIZE, col / TILE_SIZE);
+  }
+
+  /**
+   * Checks the grid tile by tile, stopping at the first cell that isn't the corner's color. The
+   * cells of tiles that were never touched are checked against their seeded colors one by one,
+   * so nothing is generated or allocated. Tiles are looked up without going through the cache of
+   * the last tile, which the flood relies on.
+   *
+   * @return true if the grid has a single color, otherwise false
+   */
+  @Override
+  public boolean isUniform() {
+    int corner = this.get(0, 0);
+    for (int tileRow = 0; tileRow < this.tilesDown; tileRow++) {
+      for (int tileCol = 0; tileCol < this.tilesAcross; tileCol++) {
+        ByteBuffer tile = this.tiles.get((long) tileRow * this.tilesAcross + tileCol);
+        int rows = Math.min(TILE_SIZE, this.height - tileRow * TILE_SIZE);
+        int cols = Math.min(TILE_SIZE, this.width - tileCol * TILE_SIZE);
+        for (int row = 0; row < rows; row++) {
+          for (int col = 0; col < cols; col++) {
+            int color = tile == null
+                ? this.seeded(tileRow * TILE_SIZE + row, tileCol * TILE_SIZE + col)
+                : tile.get(row * TILE_SIZE + col);
+            if (color != corner) {
+              return false;
+            }
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Counts the runs tile by tile, without materializing tiles that were never touched. This
+   * reads the whole board.
+   *
+   * @return the number of runs
+   */
+  @Override
+  public long countRuns() {
+    ByteBuffer scratch = ByteBuffer.allocate(TILE_CELLS);
+    // the last column of the tile to the left, to tell whether a run crosses the tile border
+    byte[] lastColumn = new byte[TILE_SIZE];
+    long runs = 0;
+    for (int tileRow = 0; tileRow < this.tilesDown; tileRow++) {
+      int rows = Math.min(TILE_SIZE, this.height - tileRow * TILE_SIZE);
+      for (int tileCol = 0; tileCol < this.tilesAcross; tileCol++) {
+        ByteBuffer tile = this.peek(tileRow, tileCol, scratch);
+        int cols = Math.min(TILE_SIZE, this.width - tileCol * TILE_SIZE);
+        for (int row = 0; row < rows; row++) {
+          int base = row * TILE_SIZE;
+          if (tileCol == 0 || tile.get(base) != lastColumn[row]) {
+            runs++;
+          }
+          for (int col = 1; col < cols; col++) {
+            if (tile.get(base + col) != tile.get(base + col - 1)) {
+              runs++;
+            }
+          }
+          lastColumn[row] = tile.get(base + cols - 1);
+        }
+      }
+    }
+    return runs;
+  }
+
+  /**
+   * Gets the off-heap memory taken by the materialized tiles.
+   *
+   * @return the size in bytes
+   */
+  @Override
+  public long sizeInBytes() {
+    return (long) this.tiles.size() * TILE_CELLS;
+  }
+
+  @Override
+  public IGridSnapshot snapshot() {
+    if (this.dirtyTiles.isEmpty()) {
+      return this.lastSnapshot;
+    }
+    Map<Long, byte[]> copies = new HashMap<>(this.lastSnapshot.copies);
+    for (long key : this.dirtyTiles) {
+      byte[] copy = new byte[TILE_CELLS];
+      // tiles are only ever accessed at absolute offsets, so a duplicate is at position 0
+      this.tiles.get(key).duplicate().get(copy);
+      copies.put(key, copy);
+    }
+    this.dirtyTiles.clear();
+    this.lastSnapshot = new Snapshot(this, copies);
+    return this.lastSnapshot;
+  }
+
+  /**
+   * An immutable copy of a tiled grid: heap copies of the materialized tiles, and the seed for
+   * the rest.
+   */
+  private static class Snapshot implements IGridSnapshot {
+
+    private final TiledGrid grid;
+    private final Map<Long, byte[]> copies;
+
+    /**
+     * Constructs a snapshot.
+     *
+     * @param grid   the grid, only used for its size and seed, which never change
+     * @param copies the copied tiles by key, never changed after this
+     */
+    Snapshot(TiledGrid grid, Map<Long, byte[]> copies) {
+      this.grid = grid;
+      this.copies = copies;
+    }
+
+    @Override
+    public int getWidth() {
+      return this.grid.width;
+    }
+
+    @Override
+    public int getHeight() {
+      return this.grid.height;
+    }
+
+    @Override
+    public int get(int row, int col) {
+      byte[] copy = this.copies.get(
+          (long) (row / TILE_SIZE) * this.grid.tilesAcross + col / TILE_SIZE);
+      return copy == null ? this.grid.seeded(row, col)
+          : copy[(row % TILE_SIZE) * TILE_SIZE + col % TILE_SIZE];
+    }
+    @Override
+    public void diff(IGridSnapshot earlier, CellChanges changes)
+        throws IllegalArgumentException {
+      IGridSnapshot.checkDiff(this, earlier, changes);
+      if (!(earlier instanceof Snapshot) || ((Snapshot) earlier).grid != this.grid) {
+        IGridSnapshot.super.diff(earlier, changes);
+        return;
+      }
+      // cells outside the copied tiles still have their seeded colors in both snapshots
+      Map<Long, byte[]> before = ((Snapshot) earlier).copies;
+      for (Map.Entry<Long, byte[]> entry : this.copies.entrySet()) {
+        byte[] copy = entry.getValue();
+        byte[] old = before.get(entry.getKey());
+        if (copy == old) {
+          continue;
+        }
+        long key = entry.getKey();
+        int firstRow = (int) (key / this.grid.tilesAcross) * TILE_SIZE;
+        int firstCol = (int) (key % this.grid.tilesAcross) * TILE_SIZE;
+        for (int cell = 0; cell < TILE_CELLS; cell++) {
+          int row = firstRow + cell / TILE_SIZE;
+          int col = firstCol + cell % TILE_SIZE;
+          if (row >= this.grid.height || col >= this.grid.width) {
+            continue;
+          }
+          int color = old == null ? this.grid.seeded(row, col) : old[cell];
+          if (copy[cell] != color) {
+            changes.changed((long) row * this.grid.width + col, copy[cell]);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * A materialized tile with its key, cached as one object so readers never see a key paired
+   * with another tile.
+   */
+  private static class CachedTile {
+
+    private final long key;
+    private final ByteBuffer tile;
+
+    /**
+     * Constructs a cache entry.
+     *
+     * @param key  the tile's key
+     * @param tile the tile's cells
+     */
+    CachedTile(long key, ByteBuffer tile) {
+      this.key = key;
+      this.tile = tile;
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Topology represents the built-in board shapes. Four is the classic Flood-It grid, where a cell
+ * touches the cells above, below, left and right of it. Eight adds the four diagonals. Hex lays
+ * the rows out as hexagons, every odd row shifted half a cell to the right, so a cell touches two
+ * cells in the row above, two in the row below and one on each side. Torus is the classic grid
+ * with its edges wrapped around, so the first and last rows, and the first and last columns,
+ * touch.
+ */
+public enum Topology implements ITopology {
+
+  FOUR {
+    @Override
+    public int[] neighbors(int row, int col, int width, int height) {
+      return inside(row, col, width, height,
+          row + 1, col, row, col - 1, row - 1, col, row, col + 1);
+    }
+  },
+
+  EIGHT {
+    @Override
+    public int[] neighbors(int row, int col, int width, int height) {
+      return inside(row, col, width, height,
+          row + 1, col, row, col - 1, row - 1, col, row, col + 1,
+          row + 1, col - 1, row - 1, col - 1, row - 1, col + 1, row + 1, col + 1);
+    }
+  },
+
+  HEX {
+    @Override
+    public int[] neighbors(int row, int col, int width, int height) {
+      // odd rows are shifted right, so their neighbors above and below lean right too
+      int shift = row & 1;
+      return inside(row, col, width, height,
+          row + 1, col - 1 + shift, row + 1, col + shift, row, col - 1,
+          row - 1, col - 1 + shift, row - 1, col + shift, row, col + 1);
+    }
+
+    @Override
+    public double rowShift(int row) {
+      return (row & 1) * 0.5;
+    }
+  },
+
+  TORUS {
+    @Override
+    public int[] neighbors(int row, int col, int width, int height) {
+      int[] wrapped = {(row + 1) % height, col, row, (col + width - 1) % width,
+          (row + height - 1) % height, col, row, (col + 1) % width};
+      return inside(row, col, width, height, wrapped);
+    }
+  };
+
+  @Override
+  public double rowShift(int row) {
+    return 0;
+  }
+
+  /**
+   * Keeps the (row, col) pairs that lie on the board, leaving out duplicates and the cell itself,
+   * which a wrapped board of width or height 1 or 2 can produce.
+   *
+   * @param row    the cell's row
+   * @param col    the cell's column
+   * @param width  the number of columns
+   * @param height the number of rows
+   * @param pairs  the candidate neighbors as (row, col) pairs
+   * @return the neighbors on the board
+   */
+  private static int[] inside(int row, int col, int width, int height, int... pairs) {
+    int[] kept = new int[pairs.length];
+    int size = 0;
+    for (int i = 0; i < pairs.length; i += 2) {
+      int nextRow = pairs[i];
+      int nextCol = pairs[i + 1];
+      boolean keep = nextRow >= 0 && nextRow < height && nextCol >= 0 && nextCol < width
+          && (nextRow != row || nextCol != col);
+      for (int j = 0; keep && j < size; j += 2) {
+        keep = kept[j] != nextRow || kept[j + 1] != nextCol;
+      }
+      if (keep) {
+        kept[size++] = nextRow;
+        kept[size++] = nextCol;
+      }
+    }
+    return Arrays.copyOf(kept, size);
+  }
+}
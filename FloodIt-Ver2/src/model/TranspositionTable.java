@@ -0,0 +1,200 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size table of what searches learned about board states, keyed by the states' Zobrist
+ * hashes (see FloodSolver). For every state it keeps a lower bound on the moves still needed, the
+ * depth of the search that proved it, the best move found and the age of that search.
+ *
+ * <p>The table never locks. Every entry is two longs, the key xor the data and the data, written
+ * one after the other; a reader only trusts an entry whose two halves xor back to the key it is
+ * looking for, so an entry that is torn by a concurrent write reads as missing instead of wrong.
+ * Any number of threads can share one table, even while searching different boards.
+ *
+ * <p>Entries live in buckets of BUCKET_ENTRIES. A state that is stored again keeps the deeper
+ * search and the higher bound of its two entries; a new state takes the bucket's entry from an
+ * older search, or, if every entry is from the current search, the shallowest one.
+ */
+public class TranspositionTable {
+
+  static final int NONE = -1;
+  // the largest depth, bound, move + 1 or age an entry has room for
+  private static final int MAX_FIELD = 0xFF;
+  private static final int BUCKET_ENTRIES = 2;
+  private static final int MAX_CAPACITY = 1 << 28;
+
+  private final AtomicLongArray slots;
+  private final int bucketMask;
+  private final AtomicInteger age;
+
+  /**
+   * Constructs an empty table with room for at least the given number of entries, rounded up to a
+   * power of two.
+   *
+   * @param capacity the number of entries
+   * @throws IllegalArgumentException if the capacity is not positive or too big
+   */
+  public TranspositionTable(int capacity) throws IllegalArgumentException {
+    if (capacity <= 0 || capacity > MAX_CAPACITY) {
+      throw new IllegalArgumentException("invalid transposition table capacity!");
+    }
+    int needed = (capacity + BUCKET_ENTRIES - 1) / BUCKET_ENTRIES;
+    int buckets = needed == 1 ? 1 : Integer.highestOneBit(needed - 1) << 1;
+    this.slots = new AtomicLongArray(buckets * BUCKET_ENTRIES * 2);
+    this.bucketMask = buckets - 1;
+    this.age = new AtomicInteger();
+  }
+
+  /**
+   * Gets the number of entries the table holds.
+   *
+   * @return the capacity
+   */
+  public int getCapacity() {
+    return this.slots.length() / 2;
+  }
+
+  /**
+   * Empties the table. Searches running meanwhile may still find entries they store themselves.
+   */
+  public void clear() {
+    for (int i = 0; i < this.slots.length(); i++) {
+      this.slots.set(i, 0);
+    }
+  }
+
+  /**
+   * Starts a new age, so the entries of earlier searches are replaced first.
+   *
+   * @return the new age
+   */
+  int newSearch() {
+    return this.age.incrementAndGet() & MAX_FIELD;
+  }
+
+  /**
+   * Looks a state up.
+   *
+   * @param key the state's hash
+   * @return the entry's data, or NONE if the table doesn't hold the state
+   */
+  long probe(long key) {
+    int first = this.bucketOf(key);
+    for (int i = first; i < first + BUCKET_ENTRIES * 2; i += 2) {
+      long data = this.slots.get(i + 1);
+      if ((this.slots.get(i) ^ data) == key && data != 0) {
+        return data;
+      }
+    }
+    return NONE;
+  }
+
+  /**
+   * Stores what a search learned about a state.
+   *
+   * @param key   the state's hash
+   * @param depth the number of moves the search looked ahead, stored as at most MAX_FIELD
+   * @param bound the lower bound on the moves still needed, stored as at most MAX_FIELD
+   * @param move  the best move found, or NONE
+   */
+  void store(long key, int depth, int bound, int move) {
+    // a smaller bound still holds, and a shallower depth only makes the entry give way sooner
+    depth = Math.min(depth, MAX_FIELD);
+    bound = Math.min(bound, MAX_FIELD);
+    int age = this.age.get() & MAX_FIELD;
+    int first = this.bucketOf(key);
+    int victim = -1;
+    int victimScore = Integer.MAX_VALUE;
+    for (int i = first; i < first + BUCKET_ENTRIES * 2; i += 2) {
+      long stored = this.slots.get(i + 1);
+      if ((this.slots.get(i) ^ stored) == key && stored != 0) {
+        if (depth < depthOf(stored) && bound <= boundOf(stored)) {
+          return;
+        }
+        // both bounds hold, so keep the stronger one
+        depth = Math.max(depth, depthOf(stored));
+        bound = Math.max(bound, boundOf(stored));
+        victim = i;
+        break;
+      }
+      // entries of older searches go first, then the shallowest
+      int score = stored == 0 ? -1 : (ageOf(stored) == age ? 256 : 0) + depthOf(stored);
+      if (score < victimScore) {
+        victim = i;
+        victimScore = score;
+      }
+    }
+    long data = pack(depth, bound, move, age);
+    this.slots.set(victim + 1, data);
+    this.slots.set(victim, key ^ data);
+  }
+
+  /**
+   * Gets the first slot of the bucket a key falls in.
+   *
+   * @param key the key
+   * @return the slot index
+   */
+  private int bucketOf(long key) {
+    return ((int) (key ^ (key >>> 32)) & this.bucketMask) * BUCKET_ENTRIES * 2;
+  }
+
+  /**
+   * Packs the fields of an entry; the low bit is always set so data is never 0.
+   *
+   * @param depth the search depth, between 0 and MAX_FIELD
+   * @param bound the lower bound, between 0 and MAX_FIELD
+   * @param move  the best move, or NONE
+   * @param age   the age, between 0 and MAX_FIELD
+   * @return the data
+   */
+  private static long pack(int depth, int bound, int move, int age) {
+    assert depth >= 0 && depth <= MAX_FIELD && bound >= 0 && bound <= MAX_FIELD
+        && move >= NONE && move < MAX_FIELD && age >= 0 && age <= MAX_FIELD
+        : "transposition table field out of range!";
+    return 1L | (long) depth << 8 | (long) bound << 16 | (long) (move + 1 & MAX_FIELD) << 24
+        | (long) age << 32;
+  }
+
+  /**
+   * Gets the search depth of an entry.
+   *
+   * @param data the entry's data
+   * @return the depth
+   */
+  static int depthOf(long data) {
+    return (int) (data >>> 8) & MAX_FIELD;
+  }
+
+  /**
+   * Gets the lower bound of an entry.
+   *
+   * @param data the entry's data
+   * @return the lower bound on the moves still needed
+   */
+  static int boundOf(long data) {
+    return (int) (data >>> 16) & MAX_FIELD;
+  }
+
+  /**
+   * Gets the best move of an entry.
+   *
+   * @param data the entry's data
+   * @return the move, or NONE
+   */
+  static int moveOf(long data) {
+    return ((int) (data >>> 24) & MAX_FIELD) - 1;
+  }
+
+  /**
+   * Gets the age of an entry.
+   *
+   * @param data the entry's data
+   * @return the age
+   */
+  private static int ageOf(long data) {
+    return (int) (data >>> 32) & MAX_FIELD;
+  }
+}
@@ -0,0 +1,187 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A speculative copy of a board, made by a MoveEvaluator. The overlay keeps the cells its moves
+ * added to the flooded region and the cells bordering them, and reads everything else from the
+ * base board, which it never changes. An overlay is meant for one thread at a time.
+ */
+public class WhatIf {
+
+  private final MoveEvaluator evaluator;
+  private final MoveEvaluator.LongSet added;
+  // cells bordering the added cells, by color; they may have joined the region since
+  private final MoveEvaluator.LongList[] frontier;
+  // whether the base frontier of a color was taken in yet
+  private final boolean[] baseFrontierUsed;
+  private final MoveEvaluator.LongList queue;
+  private long[] gained;
+  private int numMoves;
+  private int color;
+
+  /**
+   * Constructs an overlay with no moves played.
+   *
+   * @param evaluator the evaluator of the base board
+   */
+  WhatIf(MoveEvaluator evaluator) {
+    this.evaluator = evaluator;
+    this.added = new MoveEvaluator.LongSet();
+    this.frontier = new MoveEvaluator.LongList[evaluator.getNumColors()];
+    for (int i = 0; i < this.frontier.length; i++) {
+      this.frontier[i] = new MoveEvaluator.LongList();
+    }
+    this.baseFrontierUsed = new boolean[evaluator.getNumColors()];
+    this.queue = new MoveEvaluator.LongList();
+    this.gained = new long[4];
+    this.color = evaluator.getColor();
+  }
+
+  /**
+   * Plays a move on the overlay: the region takes the given color and grows by every cell of
+   * that color it now touches, and so on.
+   *
+   * @param color the color of the move, as an index into the provided colors
+   * @return the number of cells the move added to the region
+   * @throws IllegalArgumentException if the color is invalid
+   */
+  public long play(int color) throws IllegalArgumentException {
+    if (color < 0 || color >= this.frontier.length) {
+      throw new IllegalArgumentException("invalid color index!");
+    }
+    long before = this.added.size();
+    if (color != this.color) {
+      this.color = color;
+      this.queue.clear();
+      if (!this.baseFrontierUsed[color]) {
+        this.baseFrontierUsed[color] = true;
+        for (long cell : this.evaluator.frontier(color)) {
+          this.join(cell);
+        }
+      }
+      MoveEvaluator.LongList bordering = this.frontier[color];
+      for (int i = 0; i < bordering.size(); i++) {
+        this.join(bordering.get(i));
+      }
+      bordering.clear();
+      this.spread();
+    }
+    if (this.numMoves == this.gained.length) {
+      this.gained = Arrays.copyOf(this.gained, this.numMoves * 2);
+    }
+    this.gained[this.numMoves++] = this.added.size() - before;
+    return this.gained[this.numMoves - 1];
+  }
+
+  /**
+   * Adds a cell of the current color to the region, unless it is in it already.
+   *
+   * @param cell the cell index
+   */
+  private void join(long cell) {
+    if (!this.evaluator.inRegion(cell) && this.added.add(cell)) {
+      this.queue.add(cell);
+    }
+  }
+
+  /**
+   * Grows the region from the queued cells through cells of the current color, remembering the
+   * cells of other colors it runs into.
+   */
+  private void spread() {
+    NeighborTable neighbors = this.evaluator.neighbors();
+    for (int i = 0; i < this.queue.size(); i++) {
+      long cell = this.queue.get(i);
+      int type = this.evaluator.classOf(cell);
+      for (int k = neighbors.start(type); k < neighbors.end(type); k++) {
+        long next = cell + neighbors.offset(k);
+        if (this.evaluator.inRegion(next) || this.added.contains(next)) {
+          continue;
+        }
+        int nextColor = this.evaluator.colorOf(next);
+        if (nextColor == this.color) {
+          this.added.add(next);
+          this.queue.add(next);
+        } else {
+          this.frontier[nextColor].add(next);
+        }
+      }
+    }
+    this.queue.clear();
+  }
+
+  /**
+   * Gets the number of moves played on the overlay.
+   *
+   * @return the number of moves
+   */
+  public int getNumMoves() {
+    return this.numMoves;
+  }
+
+  /**
+   * Gets the number of cells a move added to the region.
+   *
+   * @param move the move, counting from 0
+   * @return the number of cells gained
+   * @throws IllegalArgumentException if there is no such move
+   */
+  public long getGainedCells(int move) throws IllegalArgumentException {
+    if (move < 0 || move >= this.numMoves) {
+      throw new IllegalArgumentException("invalid move index!");
+    }
+    return this.gained[move];
+  }
+
+  /**
+   * Gets the number of cells all moves together added to the region.
+   *
+   * @return the number of cells gained
+   */
+  public long getGainedCells() {
+    return this.added.size();
+  }
+
+  /**
+   * Gets the size of the region after the moves.
+   *
+   * @return the number of cells in the region
+   */
+  public long getRegionSize() {
+    return this.evaluator.getRegionSize() + this.added.size();
+  }
+
+  /**
+   * Checks whether every cell of the board is in the region after the moves.
+   *
+   * @return true if the board would be flooded, otherwise false
+   */
+  public boolean isFlooded() {
+    IGrid base = this.evaluator.base();
+    return this.getRegionSize() == (long) base.getWidth() * base.getHeight();
+  }
+
+  /**
+   * Checks whether a cell is in the region after the moves.
+   *
+   * @param row the cell's row
+   * @param col the cell's column
+   * @return true if the cell is in the region, otherwise false
+   */
+  public boolean inRegion(int row, int col) {
+    long cell = (long) row * this.evaluator.base().getWidth() + col;
+    return this.evaluator.inRegion(cell) || this.added.contains(cell);
+  }
+
+  /**
+   * Gets the color of a cell after the moves.
+   *
+   * @param row the cell's row
+   * @param col the cell's column
+   * @return the color index
+   */
+  public int getColor(int row, int col) {
+    return this.inRegion(row, col) ? this.color : this.evaluator.base().get(row, col);
+  }
+}
@@ -0,0 +1,261 @@
+package replay;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Flow;
+import model.BoardSnapshot;
+import model.Difficulty;
+import model.ICell;
+import model.IModel;
+import model.ITopology;
+import model.ModelEvent;
+import model.MoveEvaluator;
+import model.Status;
+import model.Topology;
+
+/**
+ * A model that passes every call on to another model and records the calls that change the game
+ * to a replay log. Every game is started from a fresh seed, which is recorded with it, so a
+ * Replayer can play the log back on a new model exactly as it went.
+ *
+ * <p>Recording only queues records for the log's writer thread (see ReplayWriter), so the game
+ * thread never waits for the file.
+ */
+public class RecordingModel implements IModel {
+
+  private final IModel model;
+  private final ReplayWriter writer;
+  private final Topology topology;
+  private SplittableRandom seeds;
+  // waves flooded by the current move
+  private int waves;
+  // whether a budget cut the current wave short
+  private boolean cut;
+
+  /**
+   * Constructs a model that records the calls to another.
+   *
+   * @param model  the model that plays the game, of one of the Topology topologies
+   * @param writer the log to record to
+   * @throws IllegalArgumentException if either argument is null or the model's topology is not
+   *                                  one of Topology
+   */
+  public RecordingModel(IModel model, ReplayWriter writer) throws IllegalArgumentException {
+    if (model == null || writer == null) {
+      throw new IllegalArgumentException("model and writer can't be null!");
+    }
+    if (!(model.getTopology() instanceof Topology)) {
+      throw new IllegalArgumentException("only boards of a Topology can be recorded!");
+    }
+    this.model = model;
+    this.writer = writer;
+    this.topology = (Topology) model.getTopology();
+    this.seeds = new SplittableRandom();
+  }
+
+  @Override
+  public void setSeed(long seed) {
+    // the seeds of the games that follow are drawn from it
+    this.seeds = new SplittableRandom(seed);
+  }
+
+  @Override
+  public void startGame(int dimensions, int numColors, int maxNumClicks)
+      throws IllegalArgumentException {
+    this.startGame(dimensions, dimensions, numColors, maxNumClicks, null);
+  }
+
+  @Override
+  public void startGame(int numRows, int numCols, int numColors, int maxNumClicks)
+      throws IllegalArgumentException {
+    this.startGame(numRows, numCols, numColors, maxNumClicks, null);
+  }
+
+  @Override
+  public void startGame(int numRows, int numCols, int numColors, int maxNumClicks,
+      Difficulty difficulty) throws IllegalArgumentException, IllegalStateException {
+    long timestamp = System.currentTimeMillis();
+    long seed = this.seeds.nextLong();
+    this.model.setSeed(seed);
+    this.model.startGame(numRows, numCols, numColors, maxNumClicks, difficulty);
+    this.waves = 0;
+    this.cut = false;
+    this.writer.append(ReplayRecord.start(timestamp, seed, this.topology, numRows, numCols,
+        numColors, maxNumClicks, difficulty));
+  }
+
+  @Override
+  public void initializeGame(int numColors) throws IllegalStateException {
+    long timestamp = System.currentTimeMillis();
+    int cutAfter = this.cutAfter();
+    this.model.initializeGame(numColors);
+    this.waves = 0;
+    this.writer.append(ReplayRecord.restart(timestamp, numColors, cutAfter));
+  }
+
+  @Override
+  public void generateCells() throws IllegalStateException {
+    long timestamp = System.currentTimeMillis();
+    // the board is drawn anew, but a move still flooding goes on flooding the new one
+    int cutAfter = this.cutAfter();
+    this.model.generateCells();
+    this.waves = 0;
+    this.writer.append(ReplayRecord.newBoard(timestamp, cutAfter));
+  }
+
+  /**
+   * Finishes the wave a budget cut short and counts how far the current move got.
+   *
+   * @return the number of waves the move flooded if it is still flooding, otherwise -1
+   */
+  private int cutAfter() {
+    this.finishWave();
+    return this.model.getStatus() == Status.FLOODING ? this.waves : -1;
+  }
+
+  @Override
+  public void floodCells() throws IllegalStateException {
+    if (this.model.getStatus() == Status.FLOODING) {
+      this.waves++;
+    }
+    this.model.floodCells();
+    this.cut = false;
+  }
+
+  @Override
+  public boolean floodCells(long budgetNanos) throws IllegalArgumentException,
+      IllegalStateException {
+    boolean flooding = this.model.getStatus() == Status.FLOODING;
+    boolean ended = this.model.floodCells(budgetNanos);
+    if (flooding && ended) {
+      this.waves++;
+    }
+    this.cut = !ended;
+    return ended;
+  }
+
+  /**
+   * Finishes the wave a budget cut short, if there is one, so that it counts as a wave flooded.
+   */
+  private void finishWave() {
+    if (this.cut) {
+      this.floodCells();
+    }
+  }
+
+  @Override
+  public void findMatchingNeighborsForAllCells() throws IllegalStateException {
+    this.model.findMatchingNeighborsForAllCells();
+  }
+
+  @Override
+  public void setClickedCell(ICell cell) throws IllegalArgumentException, IllegalStateException {
+    this.model.setClickedCell(cell);
+  }
+
+  @Override
+  public void setClickedCell(int colorIndex, int row, int col) throws IllegalArgumentException,
+      IllegalStateException {
+    this.model.setClickedCell(colorIndex, row, col);
+  }
+
+  @Override
+  public MoveEvaluator whatIf() throws IllegalStateException {
+    return this.model.whatIf();
+  }
+
+  @Override
+  public List<List<ICell>> getBoard() throws IllegalStateException {
+    return this.model.getBoard();
+  }
+
+  @Override
+  public List<ICell> getFloodedCells() throws IllegalStateException {
+    return this.model.getFloodedCells();
+  }
+
+  @Override
+  public void updateClickCount() throws IllegalStateException {
+    long timestamp = System.currentTimeMillis();
+    int cutAfter = this.cutAfter();
+    this.model.updateClickCount();
+    this.waves = 0;
+    int color = this.model.getProvidedColors().indexOf(this.model.getClickedCell().getColor());
+    // a cell of none of the game's colors floods nothing, so there is nothing to replay
+    if (color >= 0) {
+      this.writer.append(ReplayRecord.click(timestamp, color, cutAfter));
+    }
+  }
+
+  @Override
+  public void setStatus(Status status) throws IllegalArgumentException, IllegalStateException {
+    this.finishWave();
+    this.model.setStatus(status);
+  }
+
+  @Override
+  public int getDimensions() throws IllegalStateException {
+    return this.model.getDimensions();
+  }
+
+  @Override
+  public int getNumRows() throws IllegalStateException {
+    return this.model.getNumRows();
+  }
+
+  @Override
+  public int getNumCols() throws IllegalStateException {
+    return this.model.getNumCols();
+  }
+
+  @Override
+  public ITopology getTopology() {
+    return this.model.getTopology();
+  }
+
+  @Override
+  public BoardSnapshot getSnapshot() throws IllegalStateException {
+    return this.model.getSnapshot();
+  }
+
+  @Override
+  public Flow.Publisher<ModelEvent> getEvents() {
+    return this.model.getEvents();
+  }
+
+  @Override
+  public List<Color> getProvidedColors() throws IllegalStateException {
+    return this.model.getProvidedColors();
+  }
+
+  @Override
+  public int getMaxNumClicks() throws IllegalStateException {
+    return this.model.getMaxNumClicks();
+  }
+
+  @Override
+  public int getCurNumClicks() throws IllegalStateException {
+    return this.model.getCurNumClicks();
+  }
+
+  @Override
+  public ICell getClickedCell() throws IllegalStateException {
+    return this.model.getClickedCell();
+  }
+
+  @Override
+  public Status getStatus() throws IllegalStateException {
+    return this.model.getStatus();
+  }
+
+  @Override
+  public boolean allFlooded() throws IllegalStateException {
+    return this.model.allFlooded();
+  }
+
+  @Override
+  public boolean winGame() throws IllegalStateException {
+    return this.model.winGame();
+  }
+}
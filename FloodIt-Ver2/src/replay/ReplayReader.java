@@ -0,0 +1,125 @@
+package replay;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.Inflater;
+
+/**
+ * Streams the records of a replay log back, one block in memory at a time, so logs of any length
+ * can be read. A last block that was cut short (see BlockLog) ends the log.
+ */
+public class ReplayReader implements Closeable {
+
+  private final InputStream in;
+  private final Inflater inflater;
+  private final RecordBuffer compressed;
+  private final RecordBuffer block;
+  private long previous;
+  private boolean ended;
+  // where the block of the last record starts and where the next block starts
+  private long blockOffset;
+  private long nextOffset;
+
+  /**
+   * Opens a log.
+   *
+   * @param file the log
+   * @throws IOException              if the file can't be opened or is not a replay log
+   * @throws IllegalArgumentException if the file is null
+   */
+  public ReplayReader(Path file) throws IOException, IllegalArgumentException {
+    this(file, 0);
+  }
+
+  /**
+   * Opens a log to read from one of its blocks on.
+   *
+   * @param file   the log
+   * @param offset where the block starts in the file, as getBlockOffset or blockOffsets gives it,
+   *               or 0 for the first block
+   * @throws IOException              if the file can't be opened, is not a replay log or is shorter
+   *                                  than the offset
+   * @throws IllegalArgumentException if the file is null or the offset is negative
+   */
+  public ReplayReader(Path file, long offset) throws IOException, IllegalArgumentException {
+    if (file == null || offset < 0) {
+      throw new IllegalArgumentException("invalid replay reader arguments!");
+    }
+    this.in = new BufferedInputStream(Files.newInputStream(file));
+    this.nextOffset = Math.max(offset, BlockLog.MAGIC.length);
+    try {
+      BlockLog.checkHeader(this.in);
+      BlockLog.skipFully(this.in, this.nextOffset - BlockLog.MAGIC.length);
+    } catch (IOException e) {
+      this.in.close();
+      throw e;
+    }
+    this.blockOffset = this.nextOffset;
+    this.inflater = new Inflater();
+    this.compressed = new RecordBuffer(1 << 12);
+    this.block = new RecordBuffer(1 << 12);
+  }
+
+  /**
+   * Reads the next record.
+   *
+   * @return the record, or null at the end of the log
+   * @throws IOException if the log can't be read or is corrupt
+   */
+  public ReplayRecord next() throws IOException {
+    while (!this.block.hasRemaining()) {
+      int taken = this.ended ? 0
+          : BlockLog.read(this.in, this.inflater, this.compressed, this.block);
+      if (taken == 0) {
+        this.ended = true;
+        return null;
+      }
+      this.blockOffset = this.nextOffset;
+      this.nextOffset += taken;
+      this.previous = 0;
+    }
+    ReplayRecord record = ReplayRecord.decode(this.block, this.previous);
+    this.previous = record.getTimestamp();
+    return record;
+  }
+
+  /**
+   * Gets where the block of the last record read starts, so that a reader can be opened there
+   * later.
+   *
+   * @return the offset of the block in the file
+   */
+  public long getBlockOffset() {
+    return this.blockOffset;
+  }
+
+  /**
+   * Finds where the whole blocks of a log start, so that it can be read in parallel by readers
+   * opened at different blocks.
+   *
+   * @param file the log
+   * @param from the offset of the block to start at, or 0 for the first block
+   * @return the offsets of the blocks from the given one on, followed by the offset where the
+   *         last whole block ends
+   * @throws IOException              if the file can't be read, is not a replay log or is shorter
+   *                                  than the offset
+   * @throws IllegalArgumentException if the file is null or the offset is negative
+   */
+  public static long[] blockOffsets(Path file, long from) throws IOException,
+      IllegalArgumentException {
+    if (file == null || from < 0) {
+      throw new IllegalArgumentException("invalid block offset arguments!");
+    }
+    return BlockLog.blockOffsets(file, from);
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.inflater.end();
+    this.in.close();
+  }
+}
@@ -0,0 +1,354 @@
+package replay;
+
+import java.io.IOException;
+import model.Difficulty;
+import model.Topology;
+
+/**
+ * One entry of a FloodIt replay log: a call that changed the game, with the time it was made.
+ * Together with the seed of the game's start, the calls are all a model needs to play the game
+ * again exactly as it went (see Replayer). Records are immutable.
+ *
+ * <p>In the log a record is its type and the milliseconds since the record before it in the same
+ * block, followed by its fields, all as varints.
+ */
+public final class ReplayRecord {
+
+  /**
+   * The kinds of calls that are recorded. If the move before a restart, a new board or a click
+   * was still flooding, the call cut it short after the number of waves its record holds.
+   */
+  public enum Type {
+    // a game started: startGame after seeding the model
+    START,
+    // the game was set up again with new colors: initializeGame
+    RESTART,
+    // a new board was drawn: generateCells
+    NEW_BOARD,
+    // a color was clicked: updateClickCount after setClickedCell
+    CLICK
+  }
+
+  private static final Type[] TYPES = Type.values();
+  private static final Topology[] TOPOLOGIES = Topology.values();
+  private static final Difficulty[] DIFFICULTIES = Difficulty.values();
+
+  private final Type type;
+  private final long timestamp;
+  private final long seed;
+  private final Topology topology;
+  private final int numRows;
+  private final int numCols;
+  private final int numColors;
+  private final int maxNumClicks;
+  private final Difficulty difficulty;
+  private final int color;
+  private final int cutAfter;
+
+  /**
+   * Constructs a record; the fields a type doesn't use are 0 or null.
+   *
+   * @param type         the type
+   * @param timestamp    the time of the call, in milliseconds since the epoch
+   * @param seed         the seed the model was given
+   * @param topology     the topology of the board
+   * @param numRows      the number of rows
+   * @param numCols      the number of columns
+   * @param numColors    the number of colors
+   * @param maxNumClicks the number of clicks allowed
+   * @param difficulty   the difficulty, or null for uniformly random boards
+   * @param color        the index of the color clicked
+   * @param cutAfter     the waves the move before the call had flooded, or -1 if it had finished
+   */
+  private ReplayRecord(Type type, long timestamp, long seed, Topology topology, int numRows,
+      int numCols, int numColors, int maxNumClicks, Difficulty difficulty, int color,
+      int cutAfter) {
+    this.type = type;
+    this.timestamp = timestamp;
+    this.seed = seed;
+    this.topology = topology;
+    this.numRows = numRows;
+    this.numCols = numCols;
+    this.numColors = numColors;
+    this.maxNumClicks = maxNumClicks;
+    this.difficulty = difficulty;
+    this.color = color;
+    this.cutAfter = cutAfter;
+  }
+
+  /**
+   * Makes the record of a game's start.
+   *
+   * @param timestamp    the time of the call, in milliseconds since the epoch
+   * @param seed         the seed the model was given right before
+   * @param topology     the topology of the board
+   * @param numRows      the number of rows
+   * @param numCols      the number of columns
+   * @param numColors    the number of colors
+   * @param maxNumClicks the number of clicks allowed
+   * @param difficulty   the difficulty, or null for uniformly random boards
+   * @return the record
+   * @throws IllegalArgumentException if the topology is null or any number is not positive
+   */
+  public static ReplayRecord start(long timestamp, long seed, Topology topology, int numRows,
+      int numCols, int numColors, int maxNumClicks, Difficulty difficulty)
+      throws IllegalArgumentException {
+    if (topology == null || numRows <= 0 || numCols <= 0 || numColors <= 0 || maxNumClicks <= 0) {
+      throw new IllegalArgumentException("invalid start record arguments!");
+    }
+    return new ReplayRecord(Type.START, timestamp, seed, topology, numRows, numCols, numColors,
+        maxNumClicks, difficulty, 0, -1);
+  }
+
+  /**
+   * Makes the record of a restart with new colors.
+   *
+   * @param timestamp the time of the call, in milliseconds since the epoch
+   * @param numColors the number of colors
+   * @param cutAfter  the number of waves the move before had flooded if it was still flooding,
+   *                  otherwise -1
+   * @return the record
+   * @throws IllegalArgumentException if the number of colors is not positive or cutAfter is less
+   *                                  than -1
+   */
+  public static ReplayRecord restart(long timestamp, int numColors, int cutAfter)
+      throws IllegalArgumentException {
+    if (numColors <= 0 || cutAfter < -1) {
+      throw new IllegalArgumentException("invalid restart record arguments!");
+    }
+    return new ReplayRecord(Type.RESTART, timestamp, 0, null, 0, 0, numColors, 0, null, 0,
+        cutAfter);
+  }
+
+  /**
+   * Makes the record of a new board.
+   *
+   * @param timestamp the time of the call, in milliseconds since the epoch
+   * @param cutAfter  the number of waves the move before had flooded if it was still flooding,
+   *                  otherwise -1
+   * @return the record
+   * @throws IllegalArgumentException if cutAfter is less than -1
+   */
+  public static ReplayRecord newBoard(long timestamp, int cutAfter)
+      throws IllegalArgumentException {
+    if (cutAfter < -1) {
+      throw new IllegalArgumentException("invalid new board record arguments!");
+    }
+    return new ReplayRecord(Type.NEW_BOARD, timestamp, 0, null, 0, 0, 0, 0, null, 0, cutAfter);
+  }
+
+  /**
+   * Makes the record of a click.
+   *
+   * @param timestamp the time of the call, in milliseconds since the epoch
+   * @param color     the index of the color clicked among the game's colors
+   * @param cutAfter  the number of waves the move before had flooded if it was still flooding,
+   *                  otherwise -1
+   * @return the record
+   * @throws IllegalArgumentException if the color is negative or cutAfter is less than -1
+   */
+  public static ReplayRecord click(long timestamp, int color, int cutAfter)
+      throws IllegalArgumentException {
+    if (color < 0 || cutAfter < -1) {
+      throw new IllegalArgumentException("invalid click record arguments!");
+    }
+    return new ReplayRecord(Type.CLICK, timestamp, 0, null, 0, 0, 0, 0, null, color, cutAfter);
+  }
+
+  /**
+   * Gets the type of the record.
+   *
+   * @return the type
+   */
+  public Type getType() {
+    return this.type;
+  }
+
+  /**
+   * Gets the time of the call.
+   *
+   * @return the time in milliseconds since the epoch
+   */
+  public long getTimestamp() {
+    return this.timestamp;
+  }
+
+  /**
+   * Gets the seed of a started game.
+   *
+   * @return the seed, 0 for other records
+   */
+  public long getSeed() {
+    return this.seed;
+  }
+
+  /**
+   * Gets the topology of a started game.
+   *
+   * @return the topology, null for other records
+   */
+  public Topology getTopology() {
+    return this.topology;
+  }
+
+  /**
+   * Gets the number of rows of a started game.
+   *
+   * @return the number of rows, 0 for other records
+   */
+  public int getNumRows() {
+    return this.numRows;
+  }
+
+  /**
+   * Gets the number of columns of a started game.
+   *
+   * @return the number of columns, 0 for other records
+   */
+  public int getNumCols() {
+    return this.numCols;
+  }
+
+  /**
+   * Gets the number of colors of a started or restarted game.
+   *
+   * @return the number of colors, 0 for other records
+   */
+  public int getNumColors() {
+    return this.numColors;
+  }
+
+  /**
+   * Gets the number of clicks allowed in a started game.
+   *
+   * @return the number of clicks, 0 for other records
+   */
+  public int getMaxNumClicks() {
+    return this.maxNumClicks;
+  }
+
+  /**
+   * Gets the difficulty of a started game.
+   *
+   * @return the difficulty, null for uniformly random boards and other records
+   */
+  public Difficulty getDifficulty() {
+    return this.difficulty;
+  }
+
+  /**
+   * Gets the color of a click.
+   *
+   * @return the index of the color among the game's colors, 0 for other records
+   */
+  public int getColor() {
+    return this.color;
+  }
+
+  /**
+   * Gets how far the move before a restart, a new board or a click had flooded when the call cut
+   * it short.
+   *
+   * @return the number of waves, or -1 if the move had finished or this is a start
+   */
+  public int getCutAfter() {
+    return this.cutAfter;
+  }
+
+  /**
+   * Encodes the record.
+   *
+   * @param out      the buffer to append to
+   * @param previous the time of the record before it in the block
+   */
+  void encode(RecordBuffer out, long previous) {
+    out.writeVarLong(this.type.ordinal());
+    out.writeZigZag(this.timestamp - previous);
+    switch (this.type) {
+      case START:
+        out.writeVarLong(this.seed);
+        out.writeVarLong(this.topology.ordinal());
+        out.writeVarLong(this.numRows);
+        out.writeVarLong(this.numCols);
+        out.writeVarLong(this.numColors);
+        out.writeVarLong(this.maxNumClicks);
+        out.writeVarLong(this.difficulty == null ? 0 : this.difficulty.ordinal() + 1);
+        break;
+      case RESTART:
+        out.writeVarLong(this.numColors);
+        out.writeVarLong(this.cutAfter + 1L);
+        break;
+      case NEW_BOARD:
+        out.writeVarLong(this.cutAfter + 1L);
+        break;
+      default:
+        out.writeVarLong(this.color);
+        out.writeVarLong(this.cutAfter + 1L);
+        break;
+    }
+  }
+
+  /**
+   * Decodes a record.
+   *
+   * @param in       the buffer, positioned at the record
+   * @param previous the time of the record before it in the block
+   * @return the record
+   * @throws IOException if the record is malformed
+   */
+  static ReplayRecord decode(RecordBuffer in, long previous) throws IOException {
+    Type type = TYPES[in.readVarInt(TYPES.length - 1)];
+    long timestamp = previous + in.readZigZag();
+    switch (type) {
+      case START:
+        long seed = in.readVarLong();
+        Topology topology = TOPOLOGIES[in.readVarInt(TOPOLOGIES.length - 1)];
+        int numRows = in.readVarInt(Integer.MAX_VALUE);
+        int numCols = in.readVarInt(Integer.MAX_VALUE);
+        int numColors = in.readVarInt(Integer.MAX_VALUE);
+        int maxNumClicks = in.readVarInt(Integer.MAX_VALUE);
+        int difficulty = in.readVarInt(DIFFICULTIES.length);
+        if (numRows == 0 || numCols == 0 || numColors == 0 || maxNumClicks == 0) {
+          throw new IOException("record field out of range!");
+        }
+        return start(timestamp, seed, topology, numRows, numCols, numColors, maxNumClicks,
+            difficulty == 0 ? null : DIFFICULTIES[difficulty - 1]);
+      case RESTART:
+        int colors = in.readVarInt(Integer.MAX_VALUE);
+        if (colors == 0) {
+          throw new IOException("record field out of range!");
+        }
+        return restart(timestamp, colors, in.readVarInt(Integer.MAX_VALUE) - 1);
+      case NEW_BOARD:
+        return newBoard(timestamp, in.readVarInt(Integer.MAX_VALUE) - 1);
+      default:
+        int color = in.readVarInt(Integer.MAX_VALUE);
+        return click(timestamp, color, in.readVarInt(Integer.MAX_VALUE) - 1);
+    }
+  }
+
+  @Override
+  public String toString() {
+    switch (this.type) {
+      case START:
+        return String.format("%d START seed=%d %s %dx%d colors=%d clicks=%d difficulty=%s",
+            this.timestamp, this.seed, this.topology, this.numRows, this.numCols, this.numColors,
+            this.maxNumClicks, this.difficulty);
+      case RESTART:
+        return this.timestamp + " RESTART colors=" + this.numColors + this.cutAfterString();
+      case NEW_BOARD:
+        return this.timestamp + " NEW_BOARD" + this.cutAfterString();
+      default:
+        return this.timestamp + " CLICK color=" + this.color + this.cutAfterString();
+    }
+  }
+
+  /**
+   * Describes how far the move before the call had flooded, if the call cut it short.
+   *
+   * @return the description, empty if the move had finished
+   */
+  private String cutAfterString() {
+    return this.cutAfter < 0 ? "" : " cutAfter=" + this.cutAfter;
+  }
+}
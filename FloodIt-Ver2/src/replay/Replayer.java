@@ -0,0 +1,180 @@
+package replay;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.List;
+import model.Cell;
+import model.FloodItModel;
+import model.IModel;
+import model.Status;
+
+/**
+ * Plays the games of a replay log again, one FloodItModel per game. Each game's model is seeded
+ * with the recorded seed and sent the recorded calls in the order the window sent them, so it
+ * draws the same colors and boards and ends up in the same state as the game that was recorded.
+ * A move that a click cut short is flooded as far as it got, every other move to its end.
+ */
+public class Replayer {
+
+  private final ReplayReader reader;
+  private final int floodThreads;
+  // the start of the next game, read while reading the end of the one before
+  private ReplayRecord next;
+
+  /**
+   * Constructs a replayer.
+   *
+   * @param reader       the log
+   * @param floodThreads the number of threads the models flood with
+   * @throws IllegalArgumentException if the reader is null or the number of threads is not
+   *                                  positive
+   */
+  public Replayer(ReplayReader reader, int floodThreads) throws IllegalArgumentException {
+    if (reader == null || floodThreads <= 0) {
+      throw new IllegalArgumentException("invalid replayer arguments!");
+    }
+    this.reader = reader;
+    this.floodThreads = floodThreads;
+  }
+
+  /**
+   * Plays the next game of the log up to its last record.
+   *
+   * @return the model, in the state the game was left in, or null if the log has no more games
+   * @throws IOException if the log can't be read, is corrupt or doesn't fit the game it replays
+   */
+  public IModel nextGame() throws IOException {
+    ReplayRecord start = this.next != null ? this.next : this.reader.next();
+    this.next = null;
+    if (start == null) {
+      return null;
+    }
+    IModel model = start(start, this.floodThreads);
+    for (ReplayRecord record = this.reader.next(); record != null;
+        record = this.reader.next()) {
+      if (record.getType() == ReplayRecord.Type.START) {
+        this.next = record;
+        break;
+      }
+      apply(model, record);
+    }
+    finish(model);
+    return model;
+  }
+
+  /**
+   * Starts the game a start record recorded.
+   *
+   * @param start        the record
+   * @param floodThreads the number of threads the model floods with
+   * @return a new model, seeded and started the way the recorded one was
+   * @throws IOException              if the record is not a start
+   * @throws IllegalArgumentException if the record is null or the number of threads is not
+   *                                  positive
+   */
+  public static IModel start(ReplayRecord start, int floodThreads) throws IOException,
+      IllegalArgumentException {
+    if (start == null || floodThreads <= 0) {
+      throw new IllegalArgumentException("invalid replay arguments!");
+    }
+    if (start.getType() != ReplayRecord.Type.START) {
+      throw new IOException("replay log has a " + start.getType() + " record outside a game!");
+    }
+    IModel model = new FloodItModel(floodThreads, start.getTopology());
+    model.setSeed(start.getSeed());
+    model.startGame(start.getNumRows(), start.getNumCols(), start.getNumColors(),
+        start.getMaxNumClicks(), start.getDifficulty());
+    return model;
+  }
+
+  /**
+   * Sends a model the call a record recorded. A restart, a new board or a click first floods the
+   * move in progress as far as the recorded game got with it (see catchUp).
+   *
+   * @param model  the model of the game, as start made it
+   * @param record the next record of the game
+   * @throws IOException              if the record is a start or doesn't fit the game
+   * @throws IllegalArgumentException if either argument is null
+   */
+  public static void apply(IModel model, ReplayRecord record) throws IOException,
+      IllegalArgumentException {
+    catchUp(model, record);
+    call(model, record);
+  }
+
+  /**
+   * Floods the move in progress as far as the recorded game had got with it when it made the call
+   * a record recorded, so that the board is as the recorded game left it.
+   *
+   * @param model  the model of the game
+   * @param record the next record of the game
+   * @throws IllegalArgumentException if either argument is null
+   */
+  public static void catchUp(IModel model, ReplayRecord record) throws IllegalArgumentException {
+    if (model == null || record == null) {
+      throw new IllegalArgumentException("model and record can't be null!");
+    }
+    flood(model, record.getCutAfter());
+  }
+
+  /**
+   * Sends a model the call a record recorded, once catchUp flooded the move in progress.
+   *
+   * @param model  the model of the game
+   * @param record the next record of the game
+   * @throws IOException              if the record is a start or doesn't fit the game
+   * @throws IllegalArgumentException if either argument is null
+   */
+  public static void call(IModel model, ReplayRecord record) throws IOException,
+      IllegalArgumentException {
+    if (model == null || record == null) {
+      throw new IllegalArgumentException("model and record can't be null!");
+    }
+    switch (record.getType()) {
+      case START:
+        throw new IOException("replay log starts a game inside a game!");
+      case RESTART:
+        model.initializeGame(record.getNumColors());
+        break;
+      case NEW_BOARD:
+        model.generateCells();
+        break;
+      default:
+        List<Color> colors = model.getProvidedColors();
+        if (record.getColor() >= colors.size()) {
+          throw new IOException("replay log clicks a color the game doesn't have!");
+        }
+        model.setClickedCell(new Cell(colors.get(record.getColor()), 0, 0));
+        model.updateClickCount();
+        model.getFloodedCells().clear();
+        model.setStatus(Status.FLOODING);
+        break;
+    }
+  }
+
+  /**
+   * Floods the move in progress to its end, as the recorded game did after its last record.
+   *
+   * @param model the model of the game
+   * @throws IllegalArgumentException if the model is null
+   */
+  public static void finish(IModel model) throws IllegalArgumentException {
+    if (model == null) {
+      throw new IllegalArgumentException("model can't be null!");
+    }
+    flood(model, -1);
+  }
+
+  /**
+   * Floods the current move, the way the window does a wave per frame.
+   *
+   * @param model the model
+   * @param waves the number of waves to flood, or -1 to flood until the move ends
+   */
+  private static void flood(IModel model, int waves) {
+    for (int wave = 0; model.getStatus() == Status.FLOODING && wave != waves; wave++) {
+      model.findMatchingNeighborsForAllCells();
+      model.floodCells();
+    }
+  }
+}
@@ -0,0 +1,27 @@
+package userinterface;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for one frame of a FloodIt window, timing how long makeScene took to
+ * build the scene.
+ */
+@Name("floodit.Frame")
+@Label("FloodIt Frame")
+@Category("FloodIt")
+@Description("A scene built for the window")
+@StackTrace(false)
+final class FrameEvent extends Event {
+
+  @Label("Snapshot Version")
+  @Description("The version of the model snapshot the frame was drawn from")
+  long version;
+
+  @Label("Cells Drawn")
+  int cellsDrawn;
+}
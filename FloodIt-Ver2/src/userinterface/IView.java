@@ -21,7 +21,7 @@ public interface IView {
   WorldImage drawCell(ICell cell) throws IllegalArgumentException;
 
   /**
-   * Draws a row of cells.
+   * Draws the visible cells of a row.
    *
    * @param index the row index
    * @return a row image
@@ -30,7 +30,7 @@ public interface IView {
   WorldImage drawRow(int index) throws IllegalArgumentException;
 
   /**
-   * Draws the grid/board of the game.
+   * Draws the visible part of the grid/board of the game.
    *
    * @return a grid image
    */
@@ -65,7 +65,7 @@ public interface IView {
   World onTick();
 
   /**
-   * Handles and responds to key events.
+   * Handles and responds to key events: "r" restarts and the arrow keys scroll the board.
    *
    * @param key the key pressed
    * @return the new world after a key is pressed
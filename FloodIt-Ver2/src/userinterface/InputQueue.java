@@ -0,0 +1,131 @@
+package userinterface;
+
+/**
+ * A bounded first-in first-out queue of clicks on the board, each a cell and the index of the
+ * color it showed when it was clicked. Clicks are kept as plain values in a ring of arrays, so
+ * queueing them allocates nothing.
+ */
+class InputQueue {
+
+  private final int[] rows;
+  private final int[] cols;
+  private final int[] colors;
+  private int head;
+  private int size;
+
+  /**
+   * Constructs an empty queue.
+   *
+   * @param capacity the most clicks it holds
+   * @throws IllegalArgumentException if the capacity is not positive
+   */
+  InputQueue(int capacity) throws IllegalArgumentException {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("input queue capacity must be positive!");
+    }
+    this.rows = new int[capacity];
+    this.cols = new int[capacity];
+    this.colors = new int[capacity];
+  }
+
+  /**
+   * Adds a click at the end of the queue, unless it is full.
+   *
+   * @param row   the row of the clicked cell
+   * @param col   the column of the clicked cell
+   * @param color the index of the color the cell showed
+   * @return true if the click was added, false if the queue is full
+   */
+  boolean offer(int row, int col, int color) {
+    if (this.size == this.rows.length) {
+      return false;
+    }
+    int slot = (this.head + this.size) % this.rows.length;
+    this.rows[slot] = row;
+    this.cols[slot] = col;
+    this.colors[slot] = color;
+    this.size++;
+    return true;
+  }
+
+  /**
+   * Removes the first click.
+   *
+   * @throws IllegalStateException if the queue is empty
+   */
+  void poll() throws IllegalStateException {
+    this.emptyException();
+    this.head = (this.head + 1) % this.rows.length;
+    this.size--;
+  }
+
+  /**
+   * Gets the row of the first click.
+   *
+   * @return the row
+   * @throws IllegalStateException if the queue is empty
+   */
+  int row() throws IllegalStateException {
+    this.emptyException();
+    return this.rows[this.head];
+  }
+
+  /**
+   * Gets the column of the first click.
+   *
+   * @return the column
+   * @throws IllegalStateException if the queue is empty
+   */
+  int col() throws IllegalStateException {
+    this.emptyException();
+    return this.cols[this.head];
+  }
+
+  /**
+   * Gets the color index of the first click.
+   *
+   * @return the color index
+   * @throws IllegalStateException if the queue is empty
+   */
+  int color() throws IllegalStateException {
+    this.emptyException();
+    return this.colors[this.head];
+  }
+
+  /**
+   * Gets the number of clicks in the queue.
+   *
+   * @return the size
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Checks whether the queue is empty.
+   *
+   * @return true if it holds no clicks, otherwise false
+   */
+  boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Removes every click.
+   */
+  void clear() {
+    this.head = 0;
+    this.size = 0;
+  }
+
+  /**
+   * Throws an exception if the queue is empty.
+   *
+   * @throws IllegalStateException if the queue is empty
+   */
+  private void emptyException() throws IllegalStateException {
+    if (this.size == 0) {
+      throw new IllegalStateException("input queue is empty!");
+    }
+  }
+}
@@ -1,7 +1,8 @@
 package userinterface;
 
+import compute.ComputeService;
 import java.awt.Color;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import javalib.funworld.World;
 import javalib.funworld.WorldScene;
 import javalib.worldimages.AboveImage;
@@ -14,29 +15,80 @@ import javalib.worldimages.Posn;
 import javalib.worldimages.RectangleImage;
 import javalib.worldimages.TextImage;
 import javalib.worldimages.WorldImage;
-import model.Cell;
+import model.BoardSnapshot;
+import model.FloodSolver;
 import model.ICell;
 import model.IModel;
+import model.ITopology;
+import model.MoveEvaluator;
 import model.Status;
+import model.TranspositionTable;
 
 /**
  * Represents a WorldUI (an interactive user interface using features from World) for a Flood-It
- * game.
+ * game. Only a viewport of the board is drawn, at most DEFAULT_VIEW_CELLS cells each way by
+ * default; the arrow keys scroll it over bigger boards. On boards whose topology shifts rows (like
+ * hex boards) every row is padded by one cell in total, split between its ends by its shift.
+ * Every frame is drawn from a single snapshot of the model, so it never mixes two waves, and is
+ * reported to Flight Recorder as a floodit.Frame event (see FrameEvent).
+ *
+ * <p>Clicks don't change the game right away: they wait in an InputQueue of at most
+ * INPUT_QUEUE_CAPACITY clicks, and each tick plays the first of them once the flood of the move
+ * before it is over. A click is dropped at once if it floods nothing: if its color is the one the
+ * region has after the clicks ahead of it (which folds repeated clicks of a color into one), or if
+ * the game is over or has no clicks left for it.
+ *
+ * <p>Pressing "h" shows the color of the next click of a shortest win. The win is searched for on
+ * a ComputeService while the game goes on being drawn, and the search is dropped as soon as the
+ * board changes. A search that looks at HINT_NODES states without finding one settles for the
+ * click that floods the most cells right away.
  */
 public class WorldUI extends World implements IView {
 
+  public static final int DEFAULT_VIEW_CELLS = 40;
+  private static final int LABEL_HEIGHT = 45;
+  // the time a tick floods for, half of a tick, so that huge waves run over several ticks
+  private static final long FLOOD_BUDGET_NANOS = 5_000_000L;
+  // boards with more cells take too long to copy for a hint, which happens on this thread
+  private static final int MAX_HINT_CELLS = 1 << 14;
+  // about half a second of searching; many boards of a couple of hundred cells need far more
+  private static final long HINT_NODES = 1 << 18;
+  private static final int HINT_TABLE_CAPACITY = 1 << 20;
+  private static final int HINT_SIZE = 20;
+  private static final int INPUT_QUEUE_CAPACITY = 8;
+
   private final IModel model;
   private final int cellSize;
-  private final List<List<ICell>> board;
-  private final int dimensions;
+  private final int numRows;
+  private final int numCols;
+  private final ITopology topology;
+  private final boolean shifted;
   private final ICell clickedCell;
   private final int maxNumClicks;
+  // the results are drawn once, so that ticks don't allocate
+  private final WorldImage won;
+  private final WorldImage lost;
+  private final WorldImage thinking;
+  private final ComputeService compute;
+  private final InputQueue clicks;
   private int width;
   private int height;
+  private int viewRows;
+  private int viewCols;
+  private int viewRow;
+  private int viewCol;
   private WorldImage result;
+  private WorldImage hint;
+  private CompletableFuture<int[]> hintJob;
+  // shared by the hints of every board, made for the first one
+  private TranspositionTable hintTable;
+  // the color index the region has once every queued click is played
+  private int targetColor;
 
   /**
    * Constructs a WorldUI with 4 parameters. Offers a more flexible and customizable appearance.
+   * The viewport shows as many cells as fit in the given width, and in the given height above the
+   * score and result labels.
    *
    * @param model    the game model
    * @param cellSize the size of each cell
@@ -53,11 +105,24 @@ public class WorldUI extends World implements IView {
     this.cellSize = cellSize;
     this.width = width;
     this.height = height;
-    this.board = model.getBoard();
-    this.dimensions = model.getDimensions();
+    this.numRows = model.getNumRows();
+    this.numCols = model.getNumCols();
+    this.topology = model.getTopology();
+    this.shifted = this.topology.rowShift(0) > 0 || this.topology.rowShift(1) > 0;
     this.clickedCell = model.getClickedCell();
     this.maxNumClicks = model.getMaxNumClicks();
+    this.viewRows = Math.min(this.numRows, Math.max(1, (height - LABEL_HEIGHT) / cellSize));
+    this.viewCols = Math.min(this.numCols,
+        Math.max(1, width / cellSize - (this.shifted ? 1 : 0)));
     this.result = this.emptyResult();
+    this.won = this.drawText("You won!", Color.GREEN);
+    this.lost = this.drawText("You lost!", Color.RED);
+    this.thinking = this.drawText(" Hint: ...", Color.GRAY);
+    this.hint = new EmptyImage();
+    // a board change publishes a new snapshot, which drops the hints of the old board
+    this.compute = new ComputeService(() -> model.getSnapshot().getVersion());
+    this.clicks = new InputQueue(INPUT_QUEUE_CAPACITY);
+    this.targetColor = this.regionColor();
   }
 
   /**
@@ -68,17 +133,29 @@ public class WorldUI extends World implements IView {
    */
   public WorldUI(IModel model) throws IllegalArgumentException {
     this(model, 24, 1, 1);
+    this.viewRows = Math.min(this.numRows, DEFAULT_VIEW_CELLS);
+    this.viewCols = Math.min(this.numCols, DEFAULT_VIEW_CELLS);
     this.width = this.calcWidth();
     this.height = this.calcHeight();
   }
 
   /**
-   * Calculates the width of the board.
+   * Calculates the width of the visible part of the board.
    *
    * @return the width of the board
    */
   private int calcWidth() {
-    return this.dimensions * this.cellSize;
+    return (this.viewCols + (this.shifted ? 1 : 0)) * this.cellSize;
+  }
+
+  /**
+   * Calculates how far a row is drawn to the right of the grid, in pixels.
+   *
+   * @param row the row
+   * @return the shift of the row
+   */
+  private int rowShift(int row) {
+    return (int) Math.round(this.topology.rowShift(row) * this.cellSize);
   }
 
   /**
@@ -87,7 +164,8 @@ public class WorldUI extends World implements IView {
    * @return the height of the board
    */
   private int calcHeight() {
-    return (int) (this.calcWidth() + this.drawScore().getHeight() + this.drawResult().getHeight());
+    return (int) (this.viewRows * this.cellSize + this.drawScore().getHeight()
+        + this.drawResult().getHeight());
   }
 
   @Override
@@ -95,26 +173,67 @@ public class WorldUI extends World implements IView {
     if (cell == null) {
       throw new IllegalArgumentException("cell can't be null!");
     }
-    return new RectangleImage(this.cellSize, this.cellSize, OutlineMode.SOLID, cell.getColor());
+    return this.drawColor(cell.getColor());
+  }
+
+  /**
+   * Draws a cell of the given color.
+   *
+   * @param color the color
+   * @return a cell image
+   */
+  private WorldImage drawColor(Color color) {
+    return new RectangleImage(this.cellSize, this.cellSize, OutlineMode.SOLID, color);
   }
 
   @Override
   public WorldImage drawRow(int index) throws IllegalArgumentException {
-    if (index < 0 || index >= this.dimensions) {
+    return this.drawRow(this.model.getSnapshot(), index);
+  }
+
+  /**
+   * Draws the visible cells of a row as they are in the given snapshot.
+   *
+   * @param snapshot the snapshot
+   * @param index    the row index
+   * @return a row image
+   * @throws IllegalArgumentException if the index is invalid
+   */
+  private WorldImage drawRow(BoardSnapshot snapshot, int index) throws IllegalArgumentException {
+    if (index < 0 || index >= this.numRows) {
       throw new IllegalArgumentException("invalid row index arguments!");
     }
     WorldImage row = new EmptyImage();
-    for (int i = 0; i < this.dimensions; i++) {
-      row = new BesideImage(row, this.drawCell(this.board.get(index).get(i)));
+    int shift = this.rowShift(index);
+    if (this.shifted && shift > 0) {
+      row = new RectangleImage(shift, this.cellSize, OutlineMode.SOLID, Color.WHITE);
+    }
+    for (int i = this.viewCol; i < this.viewCol + this.viewCols; i++) {
+      row = new BesideImage(row, this.drawColor(snapshot.getColor(index, i)));
+    }
+    if (this.shifted && shift < this.cellSize) {
+      row = new BesideImage(row, new RectangleImage(this.cellSize - shift, this.cellSize,
+          OutlineMode.SOLID, Color.WHITE));
     }
     return row;
   }
 
   @Override
   public WorldImage drawGrid() {
+    return this.drawGrid(this.model.getSnapshot());
+  }
+
+  /**
+   * Draws the visible part of the board as it is in the given snapshot, so every row of a frame
+   * shows the same moment of the game.
+   *
+   * @param snapshot the snapshot
+   * @return a grid image
+   */
+  private WorldImage drawGrid(BoardSnapshot snapshot) {
     WorldImage grid = new EmptyImage();
-    for (int i = 0; i < this.dimensions; i++) {
-      grid = new AboveImage(grid, this.drawRow(i));
+    for (int i = this.viewRow; i < this.viewRow + this.viewRows; i++) {
+      grid = new AboveImage(grid, this.drawRow(snapshot, i));
     }
     return grid;
   }
@@ -132,7 +251,17 @@ public class WorldUI extends World implements IView {
 
   @Override
   public WorldImage drawScore() {
-    return this.drawText("Score: " + this.model.getCurNumClicks() + " / " + this.maxNumClicks,
+    return this.drawScore(this.model.getSnapshot());
+  }
+
+  /**
+   * Draws the score as it is in the given snapshot.
+   *
+   * @param snapshot the snapshot
+   * @return a score image
+   */
+  private WorldImage drawScore(BoardSnapshot snapshot) {
+    return this.drawText("Score: " + snapshot.getCurNumClicks() + " / " + this.maxNumClicks,
         Color.BLACK);
   }
 
@@ -152,29 +281,65 @@ public class WorldUI extends World implements IView {
 
   @Override
   public WorldScene makeScene() {
+    FrameEvent frame = new FrameEvent();
+    frame.begin();
     WorldScene ws = this.getEmptyScene();
-    return ws.placeImageXY(
+    BoardSnapshot snapshot = this.model.getSnapshot();
+    WorldScene scene = ws.placeImageXY(
         new AboveImage(
-            this.drawGrid(),
-            new OverlayImage(new AboveImage(this.drawScore(), this.drawResult()),
+            this.drawGrid(snapshot),
+            new OverlayImage(new AboveImage(
+                new BesideImage(this.drawScore(snapshot), this.hint), this.drawResult()),
                 new RectangleImage(this.width, 45, OutlineMode.SOLID, Color.WHITE))),
         this.width / 2, this.height / 2);
+    frame.end();
+    if (frame.shouldCommit()) {
+      frame.version = snapshot.getVersion();
+      frame.cellsDrawn = this.viewRows * this.viewCols;
+      frame.commit();
+    }
+    return scene;
   }
 
   @Override
   public World onTick() {
+    this.compute.deliver();
+    this.playClick();
     this.startFlooding();
     this.determineResult();
     return this;
   }
 
   /**
-   * Finds each cell's matching neighbors and starts the flooding process.
+   * Plays the first queued click once the flood of the move before it is over.
+   */
+  private void playClick() {
+    if (this.clicks.isEmpty() || this.model.getStatus() == Status.FLOODING) {
+      return;
+    }
+    this.model.setClickedCell(this.clicks.color(), this.clicks.row(), this.clicks.col());
+    this.clicks.poll();
+    this.model.updateClickCount();
+    this.model.getFloodedCells().clear();
+    this.model.setStatus(Status.FLOODING);
+  }
+
+  /**
+   * Gets the color index of the region as it is now, which starts at the top left corner.
+   *
+   * @return the color index
+   */
+  private int regionColor() {
+    return this.model.getSnapshot().getColorIndex(0, 0);
+  }
+
+  /**
+   * Finds each cell's matching neighbors and starts the flooding process once a cell was clicked.
    */
   private void startFlooding() {
-    if (!this.clickedCell.equals(new Cell()) && this.model.getStatus() == Status.FLOODING) {
+    if (this.clickedCell.getRow() >= 0 && this.model.getStatus() == Status.FLOODING) {
       this.model.findMatchingNeighborsForAllCells();
-      this.model.floodCells();
+      this.model.floodCells(FLOOD_BUDGET_NANOS);
     }
   }
 
@@ -183,34 +348,139 @@ public class WorldUI extends World implements IView {
    */
   private void determineResult() {
     if (this.model.winGame()) {
-      this.result = this.drawText("You won!", Color.GREEN);
+      this.result = this.won;
     } else if (this.model.getCurNumClicks() == this.maxNumClicks) {
-      this.result = this.drawText("You lost!", Color.RED);
+      this.result = this.lost;
     }
   }
 
   @Override
   public World onKeyEvent(String s) {
+    int rowStep = Math.max(1, this.viewRows / 4);
+    int colStep = Math.max(1, this.viewCols / 4);
     if (s.equals("r")) {
       this.model.initializeGame(this.model.getProvidedColors().size());
       this.result = this.emptyResult();
+      this.hint = new EmptyImage();
+      this.clicks.clear();
+      this.targetColor = this.regionColor();
+    } else if (s.equals("h")) {
+      this.requestHint();
+    } else if (s.equals("up")) {
+      this.scroll(-rowStep, 0);
+    } else if (s.equals("down")) {
+      this.scroll(rowStep, 0);
+    } else if (s.equals("left")) {
+      this.scroll(0, -colStep);
+    } else if (s.equals("right")) {
+      this.scroll(0, colStep);
     }
     return this;
   }
 
+  /**
+   * Starts searching for the next click of a shortest win in the background, unless a search is
+   * running already or the board is flooding, about to change, won, out of clicks or too big to
+   * solve. If the search runs out of states, the greedy click is shown instead.
+   */
+  private void requestHint() {
+    int clicksLeft = this.maxNumClicks - this.model.getCurNumClicks();
+    if ((this.hintJob != null && !this.hintJob.isDone()) || clicksLeft <= 0
+        || !this.clicks.isEmpty() || this.model.getStatus() == Status.FLOODING
+        || this.model.allFlooded()
+        || (long) this.numRows * this.numCols > MAX_HINT_CELLS) {
+      return;
+    }
+    if (this.hintTable == null) {
+      this.hintTable = new TranspositionTable(HINT_TABLE_CAPACITY);
+    }
+    // the solver copies the board while it is built, and the evaluator stops describing it once
+    // it floods, so only the search leaves this thread
+    MoveEvaluator evaluator = this.model.whatIf();
+    FloodSolver solver = new FloodSolver(evaluator, this.hintTable);
+    int[] greedy = {greedyMove(evaluator)};
+    int maxMoves = Math.min(clicksLeft, FloodSolver.MAX_MOVES);
+    this.hint = this.thinking;
+    this.hintJob = this.compute.submit(() -> {
+      int[] moves = solver.solve(maxMoves, HINT_NODES);
+      return solver.isExhausted() ? greedy : moves;
+    });
+    this.hintJob.whenComplete(this::showHint);
+  }
+
+  /**
+   * Picks the click that floods the most cells right away, the lowest color on a tie.
+   *
+   * @param evaluator the evaluator of the board, which is not flooded
+   * @return the color of the click
+   */
+  private static int greedyMove(MoveEvaluator evaluator) {
+    int best = -1;
+    long bestGain = -1;
+    for (int color = 0; color < evaluator.getNumColors(); color++) {
+      if (color == evaluator.getColor()) {
+        continue;
+      }
+      long gain = evaluator.evaluate(color).getGainedCells();
+      if (gain > bestGain) {
+        best = color;
+        bestGain = gain;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Shows how the search for a hint ended.
+   *
+   * @param moves the clicks of a shortest win, just the greedy click if the search ran out of
+   *              states, or null if the board can't be won
+   * @param error why the search failed or was dropped, or null if it finished
+   */
+  private void showHint(int[] moves, Throwable error) {
+    if (error != null || (moves != null && moves.length == 0)) {
+      this.hint = new EmptyImage();
+    } else if (moves == null) {
+      this.hint = this.drawText(" No win left", Color.RED);
+    } else {
+      this.hint = new BesideImage(this.drawText(" Hint: ", Color.BLACK),
+          new RectangleImage(HINT_SIZE, HINT_SIZE, OutlineMode.SOLID,
+              this.model.getProvidedColors().get(moves[0])));
+    }
+  }
+
+  /**
+   * Moves the viewport by the given number of cells, keeping it on the board.
+   *
+   * @param rows the number of rows to move down (up if negative)
+   * @param cols the number of columns to move right (left if negative)
+   */
+  private void scroll(int rows, int cols) {
+    this.viewRow = Math.max(0, Math.min(this.numRows - this.viewRows, this.viewRow + rows));
+    this.viewCol = Math.max(0, Math.min(this.numCols - this.viewCols, this.viewCol + cols));
+  }
+
   @Override
   public World onMouseClicked(Posn mouse) {
-    int x = mouse.x / this.cellSize;
-    int y = mouse.y / this.cellSize;
-    // do nothing if click is out of bounds
-    if (x < 0 || x >= this.dimensions || y < 0 || y >= this.dimensions) {
+    int y = Math.floorDiv(mouse.y, this.cellSize);
+    // do nothing if click is outside the viewport
+    if (y < 0 || y >= this.viewRows) {
       return this;
     }
-    ICell cell = this.board.get(y).get(x);
-    this.model.setClickedCell(cell);
-    this.model.updateClickCount();
-    this.model.getFloodedCells().clear();
-    this.model.setStatus(Status.FLOODING);
+    int x = Math.floorDiv(mouse.x - this.rowShift(this.viewRow + y), this.cellSize);
+    if (x < 0 || x >= this.viewCols) {
+      return this;
+    }
+    int row = this.viewRow + y;
+    int col = this.viewCol + x;
+    int color = this.model.getSnapshot().getColorIndex(row, col);
+    if (color == this.targetColor || this.result == this.won || this.result == this.lost
+        || this.model.getCurNumClicks() + this.clicks.size() >= this.maxNumClicks
+        || !this.clicks.offer(row, col, color)) {
+      return this;
+    }
+    this.targetColor = color;
+    this.hint = new EmptyImage();
     return this;
   }
 }
\ No newline at end of file
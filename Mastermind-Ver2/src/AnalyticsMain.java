@@ -0,0 +1,37 @@
+import analytics.Analytics;
+import analytics.GameStats;
+import analytics.Summary;
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Brings the analytics of a replay log up to date (see Analytics) and prints them. Takes the log
+ * written by Main and the checkpoint file to keep between runs.
+ */
+public class AnalyticsMain {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.out.println("usage: AnalyticsMain log checkpoint");
+      return;
+    }
+    long start = System.nanoTime();
+    Summary summary = new Analytics(Runtime.getRuntime().availableProcessors())
+        .update(Paths.get(args[0]), Paths.get(args[1]));
+    System.out.printf("%d games started, %d played, updated in %.1f s%n", summary.getStarted(),
+        summary.getGames(), (System.nanoTime() - start) / 1e9);
+    for (GameStats stats : summary.getGroups()) {
+      System.out.printf("%d colors, %d pegs%s: %d games, %.1f%% won, %d lost, guesses to win "
+              + "mean %.2f median %d p90 %d, %.0f s median play%n", stats.getNumColors(),
+          stats.getNumColorsInGuess(), stats.isAdversarial() ? ", adversarial" : "",
+          stats.getGames(), 100 * stats.getWinRate(), stats.getLosses(),
+          stats.getGuesses().getMean(), stats.getGuesses().getQuantile(0.5),
+          stats.getGuesses().getQuantile(0.9), stats.getMillis().getQuantile(0.5) / 1000);
+      System.out.print("  guesses to win:");
+      for (int guesses = 1; guesses <= stats.getGuesses().getQuantile(1); guesses++) {
+        System.out.print(" " + guesses + ":" + stats.getGuesses().getCount(guesses));
+      }
+      System.out.println();
+    }
+  }
+}
@@ -1,8 +1,16 @@
 import java.awt.Color;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import leaderboard.Leaderboard;
+import leaderboard.ScoreKeepingModel;
 import model.IModel;
 import model.MastermindModel;
+import replay.RecordingModel;
+import replay.ReplayWriter;
 import userinterface.WorldUI;
 
 /**
@@ -10,9 +18,34 @@ import userinterface.WorldUI;
  */
 public class Main {
 
-  public static void main(String[] args) {
-    // game default
-    IModel game = new MastermindModel();
+  public static void main(String[] args) throws IOException {
+    // game default; "adversarial" as an argument plays against an adversarial codemaker, the first
+    // other argument is a file to record the games played to and the second a directory to keep
+    // the scores of the codes broken in
+    List<String> options = new ArrayList<>(Arrays.asList(args));
+    IModel game = new MastermindModel(options.remove("adversarial"));
+    if (options.size() > 1) {
+      Leaderboard leaderboard = new Leaderboard(Paths.get(options.get(1)));
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          leaderboard.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }));
+      game = new ScoreKeepingModel(game, leaderboard, System.getProperty("user.name"));
+    }
+    if (!options.isEmpty()) {
+      ReplayWriter writer = new ReplayWriter(Paths.get(options.get(0)));
+      Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+        try {
+          writer.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      }));
+      game = new RecordingModel(game, writer);
+    }
     game.startGame(new ArrayList<>(Arrays.asList(Color.CYAN, Color.PINK, Color.BLUE, Color.GREEN)),
         10, 3, false);
     WorldUI view = new WorldUI(game);
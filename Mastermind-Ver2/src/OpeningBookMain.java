@@ -0,0 +1,29 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import solver.OpeningBook;
+
+/**
+ * Precomputes an opening book (no window). Takes "numColors numPegs duplicates depth
+ * [directory]" and writes the book into the directory, "books" by default, where the minimax
+ * strategy looks for it.
+ */
+public class OpeningBookMain {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 4) {
+      System.out.println("usage: OpeningBookMain numColors numPegs duplicates depth [directory]");
+      return;
+    }
+    int numColors = Integer.parseInt(args[0]);
+    int numPegs = Integer.parseInt(args[1]);
+    boolean duplicates = Boolean.parseBoolean(args[2]);
+    int depth = Integer.parseInt(args[3]);
+    Path directory = Paths.get(args.length >= 5 ? args[4] : "books");
+    long start = System.nanoTime();
+    OpeningBook book = OpeningBook.build(numColors, numPegs, duplicates, false, depth);
+    Path file = book.save(directory);
+    System.out.printf("%s: %d positions, depth %d, %.1f s%n", file, book.getNumNodes(),
+        book.getDepth(), (System.nanoTime() - start) / 1e9);
+  }
+}
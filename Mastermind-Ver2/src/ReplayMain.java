@@ -0,0 +1,30 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import model.IModel;
+import replay.ReplayReader;
+import replay.Replayer;
+
+/**
+ * Plays the games of a replay log again (no window), checking every guess gets the feedback it
+ * got when it was recorded, and prints how each one ended. Takes the log written by Main.
+ */
+public class ReplayMain {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.out.println("usage: ReplayMain file");
+      return;
+    }
+    try (ReplayReader reader = new ReplayReader(Paths.get(args[0]))) {
+      Replayer replayer = new Replayer(reader);
+      int game = 0;
+      for (IModel model = replayer.nextGame(); model != null; model = replayer.nextGame()) {
+        game++;
+        System.out.printf("game %d: %d colors, %d pegs, %d of %d guesses, %s%s%n", game,
+            model.getColorBank().size(), model.getNumColorsInGuess(), model.getNumGuessesMade(),
+            model.getNumGuessesAllowed(), model.winGame() ? "won" : "not won",
+            model.isAdversarial() ? ", adversarial" : "");
+      }
+    }
+  }
+}
@@ -0,0 +1,49 @@
+import java.awt.Color;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import model.IModel;
+import model.MastermindModel;
+import solver.ConsistentStrategy;
+import solver.IStrategy;
+import solver.MinimaxStrategy;
+import solver.SamplingStrategy;
+import tournament.Tournament;
+import tournament.TournamentReport;
+
+/**
+ * Runs the strategy tournament (no window). With no arguments it plays the classic 6-color,
+ * 4-peg configuration; with "numColors numPegs [numGames]" it plays the sampling strategy on a
+ * seeded sample of secrets of a large configuration. Minimax uses an opening book from the
+ * "books" directory when OpeningBookMain has written one.
+ */
+public class TournamentMain {
+
+  public static void main(String[] args) {
+    Map<String, Supplier<IStrategy>> strategies = new LinkedHashMap<>();
+    Tournament tournament;
+    if (args.length >= 2) {
+      int numColors = Integer.parseInt(args[0]);
+      int numPegs = Integer.parseInt(args[1]);
+      tournament = new Tournament(numColors, numPegs, true, 1000);
+      tournament.setSampling(args.length >= 3 ? Integer.parseInt(args[2]) : 20, 0);
+      strategies.put("sampling", SamplingStrategy::new);
+    } else {
+      IModel game = new MastermindModel();
+      game.startGame(new ArrayList<>(Arrays.asList(Color.CYAN, Color.PINK, Color.BLUE,
+          Color.GREEN, Color.RED, Color.YELLOW)), 10, 4, true);
+      tournament = new Tournament(game);
+      strategies.put("consistent", ConsistentStrategy::new);
+      strategies.put("minimax", () -> new MinimaxStrategy(Paths.get("books")));
+      strategies.put("sampling", SamplingStrategy::new);
+    }
+    List<TournamentReport> reports = tournament.playAll(strategies);
+    for (TournamentReport report : reports) {
+      System.out.println(report);
+    }
+  }
+}
@@ -0,0 +1,244 @@
+package analytics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import model.Codes;
+import replay.ReplayReader;
+import replay.ReplayRecord;
+
+/**
+ * Keeps a Summary of the games in a replay log up to date. Every run reads only what was
+ * appended since the last one: the summary and the place it got to are kept in a checkpoint file
+ * (see Checkpoint), and a run reads the games from there on and adds them to it.
+ *
+ * <p>The log records the feedback of every guess, so nothing needs to be replayed: a guess with
+ * every peg exact wins, a guess in the last row that doesn't loses, and a guess that goes back to
+ * an earlier row starts the game over. A run splits the new part of the log into chunks of
+ * BLOCKS_PER_CHUNK blocks, which are read in parallel, one reader and one summary per chunk, and
+ * merges the summaries. A chunk counts the games that start in it, reading on into the next chunk
+ * for the end of its last one. The last game of the log may still be going, so an attempt at it
+ * only counts once it is won or lost; the checkpoint points at that game, and the next run reads
+ * it from its start without counting the attempts counted already.
+ */
+public class Analytics {
+
+  public static final int BLOCKS_PER_CHUNK = 16;
+
+  private final int numThreads;
+
+  /**
+   * Constructs an analytics stage.
+   *
+   * @param numThreads the number of threads chunks are read on
+   * @throws IllegalArgumentException if the number of threads is not positive
+   */
+  public Analytics(int numThreads) throws IllegalArgumentException {
+    if (numThreads <= 0) {
+      throw new IllegalArgumentException("number of threads must be positive!");
+    }
+    this.numThreads = numThreads;
+  }
+
+  /**
+   * Adds the games appended to a log since the last run to the summary in a checkpoint file.
+   *
+   * @param log        the replay log
+   * @param checkpoint the checkpoint file, created if it doesn't exist
+   * @return the summary of every game counted so far
+   * @throws IOException              if the log or checkpoint can't be read or written, or is
+   *                                  corrupt
+   * @throws IllegalArgumentException if either path is null
+   */
+  public Summary update(Path log, Path checkpoint) throws IOException, IllegalArgumentException {
+    if (log == null || checkpoint == null) {
+      throw new IllegalArgumentException("log and checkpoint can't be null!");
+    }
+    Checkpoint last = Checkpoint.load(checkpoint);
+    long[] offsets = ReplayReader.blockOffsets(log, last.offset);
+    int numChunks = (offsets.length - 1 + BLOCKS_PER_CHUNK - 1) / BLOCKS_PER_CHUNK;
+    if (numChunks == 0) {
+      return last.summary;
+    }
+    ForkJoinPool pool = new ForkJoinPool(this.numThreads);
+    Chunk result;
+    try {
+      result = pool.submit(() -> IntStream.range(0, numChunks).parallel()
+          .mapToObj(chunk -> read(log, offsets, chunk, last))
+          .reduce(Chunk::then).get()).get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) e.getCause()).getCause();
+      }
+      throw new IllegalStateException("analytics failed!", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("analytics was interrupted!", e);
+    } finally {
+      pool.shutdown();
+    }
+    Summary summary = last.summary;
+    summary.merge(result.summary);
+    Checkpoint next = result.pendingOffset < 0
+        ? new Checkpoint(summary, offsets[offsets.length - 1], 0, 0)
+        : new Checkpoint(summary, result.pendingOffset, result.pendingIndex,
+            result.pendingAttempts);
+    next.save(checkpoint);
+    return summary;
+  }
+
+  /**
+   * Counts the games that start in a chunk of the log.
+   *
+   * @param log     the log
+   * @param offsets the offsets of the blocks to read, and where the last one ends
+   * @param chunk   the index of the chunk
+   * @param last    the checkpoint the run started from
+   * @return the summary of the chunk's games, and the game that may still change if it is one
+   * @throws UncheckedIOException if the log can't be read or is corrupt
+   */
+  private static Chunk read(Path log, long[] offsets, int chunk, Checkpoint last) {
+    int numBlocks = offsets.length - 1;
+    long from = offsets[chunk * BLOCKS_PER_CHUNK];
+    int end = (chunk + 1) * BLOCKS_PER_CHUNK;
+    long to = end < numBlocks ? offsets[end] : Long.MAX_VALUE;
+    Chunk result = new Chunk();
+    try (ReplayReader reader = new ReplayReader(log, from)) {
+      long block = from;
+      int starts = 0;
+      ReplayRecord record = reader.next();
+      while (record != null) {
+        if (reader.getBlockOffset() != block) {
+          block = reader.getBlockOffset();
+          starts = 0;
+        }
+        if (record.getType() != ReplayRecord.Type.START) {
+          // the end of a game that started in the chunk before
+          record = reader.next();
+          continue;
+        }
+        if (block >= to) {
+          break;
+        }
+        int index = starts++;
+        boolean resumed = chunk == 0 && block == from && index == last.startIndex;
+        if (chunk == 0 && block == from && index < last.startIndex) {
+          record = reader.next();
+          continue;
+        }
+        record = readGame(record, reader, block, index, resumed ? last.attempts : 0, result);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return result;
+  }
+
+  /**
+   * Reads a game and counts its attempts.
+   *
+   * @param start   the game's start record
+   * @param reader  the log, positioned after the start
+   * @param block   the offset of the block the game starts in
+   * @param index   the number of games that start before it in that block
+   * @param counted the number of its attempts counted by earlier runs
+   * @param result  where to count the attempts
+   * @return the start of the next game, or null at the end of the log
+   * @throws IOException if the log can't be read or is corrupt
+   */
+  private static ReplayRecord readGame(ReplayRecord start, ReplayReader reader, long block,
+      int index, int counted, Chunk result) throws IOException {
+    int pegs = start.getNumColorsInGuess();
+    int attempt = 0;
+    boolean open = false;
+    int lastRow = -1;
+    long begun = start.getTimestamp();
+    long guessed = begun;
+    ReplayRecord record = reader.next();
+    for (; record != null && record.getType() != ReplayRecord.Type.START;
+        record = reader.next()) {
+      if (open && record.getRow() <= lastRow) {
+        // the player started over, giving up on the attempt
+        if (attempt >= counted) {
+          count(start, attempt, false, false, lastRow + 1, guessed - begun, result.summary);
+        }
+        attempt++;
+        begun = guessed;
+      }
+      open = true;
+      lastRow = record.getRow();
+      guessed = record.getTimestamp();
+      boolean won = Codes.exact(record.getFeedback()) == pegs;
+      if (won || lastRow >= start.getNumGuessesAllowed() - 1) {
+        if (attempt >= counted) {
+          count(start, attempt, won, !won, lastRow + 1, guessed - begun, result.summary);
+        }
+        attempt++;
+        open = false;
+        begun = guessed;
+      }
+    }
+    if (record == null) {
+      result.pendingOffset = block;
+      result.pendingIndex = index;
+      result.pendingAttempts = Math.max(attempt, counted);
+    } else if (open && attempt >= counted) {
+      count(start, attempt, false, false, lastRow + 1, guessed - begun, result.summary);
+    } else if (attempt == 0 && !open) {
+      // a game nobody guessed in was still started
+      result.summary.countStart();
+    }
+    return record;
+  }
+
+  /**
+   * Counts an attempt at a game, and the game with its first attempt.
+   *
+   * @param start   the game's start record
+   * @param attempt the index of the attempt in the game
+   * @param won     whether the attempt was won
+   * @param lost    whether the attempt was lost
+   * @param guesses the guesses it took
+   * @param millis  how long it took
+   * @param summary where to count it
+   */
+  private static void count(ReplayRecord start, int attempt, boolean won, boolean lost,
+      int guesses, long millis, Summary summary) {
+    if (attempt == 0) {
+      summary.countStart();
+    }
+    summary.stats(start.getColorBank().size(), start.getNumColorsInGuess(),
+        start.isAdversarial()).add(won, lost, guesses, Math.max(0, millis));
+  }
+
+  /**
+   * What a chunk came to: the summary of its games and, if the last game of the log starts in
+   * it, where that game starts and how many of its attempts are counted.
+   */
+  private static final class Chunk {
+
+    private final Summary summary = new Summary();
+    private long pendingOffset = -1;
+    private int pendingIndex;
+    private int pendingAttempts;
+
+    /**
+     * Merges the result of the chunk after this one into this one.
+     *
+     * @param later the result of the later chunk
+     * @return this result
+     */
+    private Chunk then(Chunk later) {
+      this.summary.merge(later.summary);
+      if (later.pendingOffset >= 0) {
+        this.pendingOffset = later.pendingOffset;
+        this.pendingIndex = later.pendingIndex;
+        this.pendingAttempts = later.pendingAttempts;
+      }
+      return this;
+    }
+  }
+}
@@ -0,0 +1,227 @@
+package analytics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * What the games of one configuration came to: how many were won, lost or given up on, how many
+ * guesses the won ones took and how long they were played. A player who starts over plays a new
+ * game against the same codemaker, so every attempt counts as a game of its own. Stats of the
+ * same configuration merge, so they can be gathered in parallel and kept between runs.
+ */
+public final class GameStats {
+
+  private final int numColors;
+  private final int numColorsInGuess;
+  private final boolean adversarial;
+  private long games;
+  private long wins;
+  private long losses;
+  private final Histogram guesses;
+  private final QuantileSketch millis;
+
+  /**
+   * Constructs empty stats for a configuration.
+   *
+   * @param numColors        the number of colors in the color bank
+   * @param numColorsInGuess the number of colors in a guess
+   * @param adversarial      whether the codemaker plays adversarially
+   * @throws IllegalArgumentException if either number is not positive
+   */
+  public GameStats(int numColors, int numColorsInGuess, boolean adversarial)
+      throws IllegalArgumentException {
+    if (numColors <= 0 || numColorsInGuess <= 0) {
+      throw new IllegalArgumentException("invalid game stats arguments!");
+    }
+    this.numColors = numColors;
+    this.numColorsInGuess = numColorsInGuess;
+    this.adversarial = adversarial;
+    this.guesses = new Histogram();
+    this.millis = new QuantileSketch();
+  }
+
+  /**
+   * Counts a game that was played.
+   *
+   * @param won     whether the answer key was guessed
+   * @param lost    whether the guesses ran out first
+   * @param guesses the guesses it took
+   * @param millis  how long it was played
+   * @throws IllegalArgumentException if the game is both won and lost, or a number is negative
+   */
+  public void add(boolean won, boolean lost, int guesses, long millis)
+      throws IllegalArgumentException {
+    if ((won && lost) || guesses < 0 || millis < 0) {
+      throw new IllegalArgumentException("invalid game arguments!");
+    }
+    this.games++;
+    this.millis.add(millis);
+    if (lost) {
+      this.losses++;
+    }
+    if (won) {
+      this.wins++;
+      this.guesses.add(guesses);
+    }
+  }
+
+  /**
+   * Adds another's counts to these stats.
+   *
+   * @param other the stats, of the same configuration
+   * @throws IllegalArgumentException if the stats are null or of another configuration
+   */
+  public void merge(GameStats other) throws IllegalArgumentException {
+    if (other == null || other.key() != this.key()) {
+      throw new IllegalArgumentException("stats must be of the same configuration!");
+    }
+    this.games += other.games;
+    this.wins += other.wins;
+    this.losses += other.losses;
+    this.guesses.merge(other.guesses);
+    this.millis.merge(other.millis);
+  }
+
+  /**
+   * Gets the number of colors in the color bank.
+   *
+   * @return the number of colors
+   */
+  public int getNumColors() {
+    return this.numColors;
+  }
+
+  /**
+   * Gets the number of colors in a guess.
+   *
+   * @return the number of colors
+   */
+  public int getNumColorsInGuess() {
+    return this.numColorsInGuess;
+  }
+
+  /**
+   * Checks whether the codemaker played adversarially.
+   *
+   * @return true if it did, otherwise false
+   */
+  public boolean isAdversarial() {
+    return this.adversarial;
+  }
+
+  /**
+   * Gets the number of games played.
+   *
+   * @return the number of games
+   */
+  public long getGames() {
+    return this.games;
+  }
+
+  /**
+   * Gets the number of games won.
+   *
+   * @return the number of wins
+   */
+  public long getWins() {
+    return this.wins;
+  }
+
+  /**
+   * Gets the number of games lost by running out of guesses.
+   *
+   * @return the number of losses
+   */
+  public long getLosses() {
+    return this.losses;
+  }
+
+  /**
+   * Gets the share of games won.
+   *
+   * @return the win rate, or 0 if no games were played
+   */
+  public double getWinRate() {
+    return this.games == 0 ? 0 : (double) this.wins / this.games;
+  }
+
+  /**
+   * Gets the guesses won games took.
+   *
+   * @return the live histogram
+   */
+  public Histogram getGuesses() {
+    return this.guesses;
+  }
+
+  /**
+   * Gets how long games were played, in milliseconds from their start to their last guess.
+   *
+   * @return the live sketch
+   */
+  public QuantileSketch getMillis() {
+    return this.millis;
+  }
+
+  /**
+   * Gets the key the configuration is grouped by.
+   *
+   * @return the key, ordered by colors, then colors in a guess, then adversarial
+   */
+  long key() {
+    return key(this.numColors, this.numColorsInGuess, this.adversarial);
+  }
+
+  /**
+   * Gets the key a configuration is grouped by.
+   *
+   * @param numColors        the number of colors in the color bank
+   * @param numColorsInGuess the number of colors in a guess
+   * @param adversarial      whether the codemaker plays adversarially
+   * @return the key, ordered by colors, then colors in a guess, then adversarial
+   */
+  static long key(int numColors, int numColorsInGuess, boolean adversarial) {
+    return (long) numColors << 32 | (long) numColorsInGuess << 1 | (adversarial ? 1 : 0);
+  }
+
+  /**
+   * Writes the stats.
+   *
+   * @param out where to write them
+   * @throws IOException if they can't be written
+   */
+  void write(DataOutput out) throws IOException {
+    out.writeInt(this.numColors);
+    out.writeInt(this.numColorsInGuess);
+    out.writeBoolean(this.adversarial);
+    out.writeLong(this.games);
+    out.writeLong(this.wins);
+    out.writeLong(this.losses);
+    this.guesses.write(out);
+    this.millis.write(out);
+  }
+
+  /**
+   * Reads stats that write wrote.
+   *
+   * @param in where to read them from
+   * @return the stats
+   * @throws IOException if they can't be read or are malformed
+   */
+  static GameStats read(DataInput in) throws IOException {
+    int numColors = in.readInt();
+    int numColorsInGuess = in.readInt();
+    boolean adversarial = in.readBoolean();
+    if (numColors <= 0 || numColorsInGuess <= 0) {
+      throw new IOException("malformed game stats!");
+    }
+    GameStats stats = new GameStats(numColors, numColorsInGuess, adversarial);
+    stats.games = in.readLong();
+    stats.wins = in.readLong();
+    stats.losses = in.readLong();
+    stats.guesses.merge(Histogram.read(in));
+    stats.millis.merge(QuantileSketch.read(in));
+    return stats;
+  }
+}
@@ -0,0 +1,158 @@
+package analytics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Exact counts of small non-negative whole numbers, such as guesses per game. Values of
+ * MAX_VALUE or more share the last bucket. Histograms of the same quantity from different parts of
+ * the data merge by adding their counts, so they can be built in parallel and kept between runs.
+ */
+public final class Histogram {
+
+  public static final int MAX_VALUE = 1 << 12;
+
+  private long[] counts;
+  private long count;
+  private long sum;
+
+  /**
+   * Constructs an empty histogram.
+   */
+  public Histogram() {
+    this.counts = new long[16];
+  }
+
+  /**
+   * Counts a value.
+   *
+   * @param value the value
+   * @throws IllegalArgumentException if the value is negative
+   */
+  public void add(int value) throws IllegalArgumentException {
+    if (value < 0) {
+      throw new IllegalArgumentException("value can't be negative!");
+    }
+    int bucket = Math.min(value, MAX_VALUE);
+    if (bucket >= this.counts.length) {
+      this.counts = Arrays.copyOf(this.counts, Math.min(MAX_VALUE + 1,
+          Integer.highestOneBit(bucket) << 1));
+    }
+    this.counts[bucket]++;
+    this.count++;
+    this.sum += value;
+  }
+
+  /**
+   * Adds the counts of another histogram to this one.
+   *
+   * @param other the histogram
+   * @throws IllegalArgumentException if the histogram is null
+   */
+  public void merge(Histogram other) throws IllegalArgumentException {
+    if (other == null) {
+      throw new IllegalArgumentException("histogram can't be null!");
+    }
+    if (other.counts.length > this.counts.length) {
+      this.counts = Arrays.copyOf(this.counts, other.counts.length);
+    }
+    for (int i = 0; i < other.counts.length; i++) {
+      this.counts[i] += other.counts[i];
+    }
+    this.count += other.count;
+    this.sum += other.sum;
+  }
+
+  /**
+   * Gets the number of values counted.
+   *
+   * @return the number of values
+   */
+  public long getCount() {
+    return this.count;
+  }
+
+  /**
+   * Gets the number of times a value was counted.
+   *
+   * @param value the value; MAX_VALUE gets the values of MAX_VALUE or more
+   * @return the count
+   */
+  public long getCount(int value) {
+    return value < 0 || value >= this.counts.length ? 0 : this.counts[value];
+  }
+
+  /**
+   * Gets the mean of the values counted.
+   *
+   * @return the mean, or 0 if there are none
+   */
+  public double getMean() {
+    return this.count == 0 ? 0 : (double) this.sum / this.count;
+  }
+
+  /**
+   * Gets the value at a quantile of the values counted.
+   *
+   * @param quantile the quantile, between 0 and 1
+   * @return the smallest value at least that share of the values is at most, or 0 if there are
+   *         none
+   * @throws IllegalArgumentException if the quantile is not between 0 and 1
+   */
+  public int getQuantile(double quantile) throws IllegalArgumentException {
+    if (!(quantile >= 0 && quantile <= 1)) {
+      throw new IllegalArgumentException("quantile must be between 0 and 1!");
+    }
+    long rank = (long) Math.ceil(quantile * this.count);
+    long seen = 0;
+    for (int i = 0; i < this.counts.length; i++) {
+      seen += this.counts[i];
+      if (seen >= Math.max(rank, 1)) {
+        return i;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Writes the histogram.
+   *
+   * @param out where to write it
+   * @throws IOException if it can't be written
+   */
+  void write(DataOutput out) throws IOException {
+    int length = this.counts.length;
+    while (length > 0 && this.counts[length - 1] == 0) {
+      length--;
+    }
+    out.writeInt(length);
+    for (int i = 0; i < length; i++) {
+      out.writeLong(this.counts[i]);
+    }
+    out.writeLong(this.sum);
+  }
+
+  /**
+   * Reads a histogram that write wrote.
+   *
+   * @param in where to read it from
+   * @return the histogram
+   * @throws IOException if it can't be read or is malformed
+   */
+  static Histogram read(DataInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > MAX_VALUE + 1) {
+      throw new IOException("malformed histogram!");
+    }
+    Histogram histogram = new Histogram();
+    histogram.counts = Arrays.copyOf(histogram.counts, Math.max(length, 16));
+    for (int i = 0; i < length; i++) {
+      histogram.counts[i] = in.readLong();
+      histogram.count += histogram.counts[i];
+    }
+    histogram.sum = in.readLong();
+    return histogram;
+  }
+}
@@ -0,0 +1,151 @@
+package analytics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Approximate quantiles of non-negative numbers of any size, such as how long games took. Values
+ * are counted in buckets whose bounds grow geometrically by (1 + ACCURACY) / (1 - ACCURACY), so
+ * every quantile comes back within ACCURACY of a value that really is at that rank, however many
+ * values were counted, in a few kilobytes at most. Sketches merge by adding bucket counts, so they
+ * can be built in parallel and kept between runs.
+ */
+public final class QuantileSketch {
+
+  public static final double ACCURACY = 0.01;
+  private static final double GAMMA = (1 + ACCURACY) / (1 - ACCURACY);
+  private static final double LOG_GAMMA = Math.log(GAMMA);
+
+  // counts[i] counts the values in (GAMMA^(i - 1), GAMMA^i]; values below 1 count as zeros
+  private long[] counts;
+  private long zeros;
+  private long count;
+
+  /**
+   * Constructs an empty sketch.
+   */
+  public QuantileSketch() {
+    this.counts = new long[64];
+  }
+
+  /**
+   * Counts a value.
+   *
+   * @param value the value
+   * @throws IllegalArgumentException if the value is negative or not a number
+   */
+  public void add(double value) throws IllegalArgumentException {
+    if (!(value >= 0)) {
+      throw new IllegalArgumentException("value can't be negative!");
+    }
+    this.count++;
+    if (value < 1) {
+      this.zeros++;
+      return;
+    }
+    int bucket = (int) Math.ceil(Math.log(value) / LOG_GAMMA);
+    if (bucket >= this.counts.length) {
+      this.counts = Arrays.copyOf(this.counts, Integer.highestOneBit(bucket) << 1);
+    }
+    this.counts[bucket]++;
+  }
+
+  /**
+   * Adds the counts of another sketch to this one.
+   *
+   * @param other the sketch
+   * @throws IllegalArgumentException if the sketch is null
+   */
+  public void merge(QuantileSketch other) throws IllegalArgumentException {
+    if (other == null) {
+      throw new IllegalArgumentException("sketch can't be null!");
+    }
+    if (other.counts.length > this.counts.length) {
+      this.counts = Arrays.copyOf(this.counts, other.counts.length);
+    }
+    for (int i = 0; i < other.counts.length; i++) {
+      this.counts[i] += other.counts[i];
+    }
+    this.zeros += other.zeros;
+    this.count += other.count;
+  }
+
+  /**
+   * Gets the number of values counted.
+   *
+   * @return the number of values
+   */
+  public long getCount() {
+    return this.count;
+  }
+
+  /**
+   * Gets the value at a quantile of the values counted.
+   *
+   * @param quantile the quantile, between 0 and 1
+   * @return the value, within ACCURACY of a value at that rank, or 0 if there are none
+   * @throws IllegalArgumentException if the quantile is not between 0 and 1
+   */
+  public double getQuantile(double quantile) throws IllegalArgumentException {
+    if (!(quantile >= 0 && quantile <= 1)) {
+      throw new IllegalArgumentException("quantile must be between 0 and 1!");
+    }
+    long rank = Math.max(1, (long) Math.ceil(quantile * this.count));
+    long seen = this.zeros;
+    if (seen >= rank) {
+      return 0;
+    }
+    for (int i = 0; i < this.counts.length; i++) {
+      seen += this.counts[i];
+      if (seen >= rank) {
+        // the middle of the bucket in relative terms
+        return 2 * Math.pow(GAMMA, i) / (GAMMA + 1);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Writes the sketch.
+   *
+   * @param out where to write it
+   * @throws IOException if it can't be written
+   */
+  void write(DataOutput out) throws IOException {
+    int length = this.counts.length;
+    while (length > 0 && this.counts[length - 1] == 0) {
+      length--;
+    }
+    out.writeLong(this.zeros);
+    out.writeInt(length);
+    for (int i = 0; i < length; i++) {
+      out.writeLong(this.counts[i]);
+    }
+  }
+
+  /**
+   * Reads a sketch that write wrote.
+   *
+   * @param in where to read it from
+   * @return the sketch
+   * @throws IOException if it can't be read or is malformed
+   */
+  static QuantileSketch read(DataInput in) throws IOException {
+    QuantileSketch sketch = new QuantileSketch();
+    sketch.zeros = in.readLong();
+    int length = in.readInt();
+    // no double is above GAMMA^length for a larger length
+    if (length < 0 || length > Math.log(Double.MAX_VALUE) / LOG_GAMMA + 2) {
+      throw new IOException("malformed quantile sketch!");
+    }
+    sketch.counts = Arrays.copyOf(sketch.counts, Math.max(length, 64));
+    sketch.count = sketch.zeros;
+    for (int i = 0; i < length; i++) {
+      sketch.counts[i] = in.readLong();
+      sketch.count += sketch.counts[i];
+    }
+    return sketch;
+  }
+}
@@ -0,0 +1,135 @@
+package analytics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The stats of recorded games, grouped by their configuration (see GameStats). A game that was
+ * started counts once among the games started, and each attempt at it counts as a game played.
+ * Summaries of different parts of a log merge into the summary of the whole.
+ */
+public final class Summary {
+
+  private final Map<Long, GameStats> groups;
+  private long started;
+
+  /**
+   * Constructs an empty summary.
+   */
+  public Summary() {
+    this.groups = new TreeMap<>();
+  }
+
+  /**
+   * Gets the stats of a configuration, adding empty ones if it hasn't been played yet.
+   *
+   * @param numColors        the number of colors in the color bank
+   * @param numColorsInGuess the number of colors in a guess
+   * @param adversarial      whether the codemaker plays adversarially
+   * @return the live stats
+   * @throws IllegalArgumentException if either number is not positive
+   */
+  public GameStats stats(int numColors, int numColorsInGuess, boolean adversarial)
+      throws IllegalArgumentException {
+    if (numColors <= 0 || numColorsInGuess <= 0) {
+      throw new IllegalArgumentException("invalid game stats arguments!");
+    }
+    return this.groups.computeIfAbsent(GameStats.key(numColors, numColorsInGuess, adversarial),
+        key -> new GameStats(numColors, numColorsInGuess, adversarial));
+  }
+
+  /**
+   * Counts a game that was started.
+   */
+  public void countStart() {
+    this.started++;
+  }
+
+  /**
+   * Adds another summary's stats to this one.
+   *
+   * @param other the summary
+   * @throws IllegalArgumentException if the summary is null
+   */
+  public void merge(Summary other) throws IllegalArgumentException {
+    if (other == null) {
+      throw new IllegalArgumentException("summary can't be null!");
+    }
+    for (GameStats stats : other.groups.values()) {
+      this.stats(stats.getNumColors(), stats.getNumColorsInGuess(), stats.isAdversarial())
+          .merge(stats);
+    }
+    this.started += other.started;
+  }
+
+  /**
+   * Gets the number of games started.
+   *
+   * @return the number of games
+   */
+  public long getStarted() {
+    return this.started;
+  }
+
+  /**
+   * Gets the number of games played, counting every attempt.
+   *
+   * @return the number of games
+   */
+  public long getGames() {
+    long games = 0;
+    for (GameStats stats : this.groups.values()) {
+      games += stats.getGames();
+    }
+    return games;
+  }
+
+  /**
+   * Gets the stats of every configuration played.
+   *
+   * @return an unmodifiable view of the stats, by colors, then colors in a guess, then adversarial
+   */
+  public Collection<GameStats> getGroups() {
+    return Collections.unmodifiableCollection(this.groups.values());
+  }
+
+  /**
+   * Writes the summary.
+   *
+   * @param out where to write it
+   * @throws IOException if it can't be written
+   */
+  void write(DataOutput out) throws IOException {
+    out.writeLong(this.started);
+    out.writeInt(this.groups.size());
+    for (GameStats stats : this.groups.values()) {
+      stats.write(out);
+    }
+  }
+
+  /**
+   * Reads a summary that write wrote.
+   *
+   * @param in where to read it from
+   * @return the summary
+   * @throws IOException if it can't be read or is malformed
+   */
+  static Summary read(DataInput in) throws IOException {
+    Summary summary = new Summary();
+    summary.started = in.readLong();
+    int size = in.readInt();
+    if (size < 0) {
+      throw new IOException("malformed summary!");
+    }
+    for (int i = 0; i < size; i++) {
+      GameStats stats = GameStats.read(in);
+      summary.groups.put(stats.key(), stats);
+    }
+    return summary;
+  }
+}
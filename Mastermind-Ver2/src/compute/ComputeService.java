@@ -0,0 +1,177 @@
+package compute;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs expensive jobs, like searching for the next guess, on a pool of its own threads, so that
+ * the thread that draws the game never waits for them. The service belongs to that thread: it
+ * submits the jobs and calls deliver once per frame, which completes the futures submit returned,
+ * on that thread and in the order the jobs were submitted. A job whose result is ready waits for
+ * the jobs submitted before it.
+ *
+ * <p>Every job belongs to the board it was submitted for, as a number that changes whenever the
+ * board does (a count of the rows played, say). Once the number has moved on, the job's future is
+ * cancelled and its thread interrupted; jobs that run for long stop with a CancellationException
+ * once interrupted. A job whose future the caller cancels is stopped the same way.
+ */
+public class ComputeService implements AutoCloseable {
+
+  // leaves a processor to the thread that draws the game
+  public static final int DEFAULT_THREADS =
+      Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+  private final ExecutorService pool;
+  private final LongSupplier board;
+  // jobs whose futures aren't completed yet, in the order they were submitted
+  private final ArrayDeque<Job<?>> jobs;
+  private boolean closed;
+
+  /**
+   * Constructs a service with DEFAULT_THREADS threads.
+   *
+   * @param board gets the number that stands for the current board
+   * @throws IllegalArgumentException if the board is null
+   */
+  public ComputeService(LongSupplier board) throws IllegalArgumentException {
+    this(DEFAULT_THREADS, board);
+  }
+
+  /**
+   * Constructs a service.
+   *
+   * @param threads the number of threads to run jobs on
+   * @param board   gets the number that stands for the current board
+   * @throws IllegalArgumentException if the number of threads is not positive or the board is
+   *                                  null
+   */
+  public ComputeService(int threads, LongSupplier board) throws IllegalArgumentException {
+    if (threads <= 0 || board == null) {
+      throw new IllegalArgumentException("invalid compute service arguments!");
+    }
+    AtomicInteger count = new AtomicInteger();
+    this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "compute-" + count.incrementAndGet());
+      // jobs never keep the game from exiting
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.board = board;
+    this.jobs = new ArrayDeque<>();
+  }
+
+  /**
+   * Starts a job for the current board.
+   *
+   * @param job the job, which must not touch the game or the view
+   * @param <T> the type of the job's result
+   * @return a future that deliver completes with the job's result or failure, or cancels once the
+   *         board changes
+   * @throws IllegalArgumentException if the job is null
+   * @throws IllegalStateException    if the service is closed
+   */
+  public <T> CompletableFuture<T> submit(Callable<T> job) throws IllegalArgumentException,
+      IllegalStateException {
+    if (job == null) {
+      throw new IllegalArgumentException("job can't be null!");
+    }
+    if (this.closed) {
+      throw new IllegalStateException("compute service is closed!");
+    }
+    Job<T> submitted = new Job<>(this.board.getAsLong(), this.pool.submit(job));
+    this.jobs.add(submitted);
+    return submitted.result;
+  }
+
+  /**
+   * Cancels the jobs of boards that changed, and completes the futures of the jobs that are done,
+   * up to the first that is still running.
+   */
+  public void deliver() {
+    if (this.jobs.isEmpty()) {
+      return;
+    }
+    long current = this.board.getAsLong();
+    for (Job<?> job : this.jobs) {
+      if (job.board != current) {
+        job.result.cancel(false);
+      }
+      if (job.result.isDone()) {
+        job.task.cancel(true);
+      }
+    }
+    while (!this.jobs.isEmpty()
+        && (this.jobs.peek().task.isDone() || this.jobs.peek().result.isDone())) {
+      this.jobs.poll().complete();
+    }
+  }
+
+  /**
+   * Gets the number of jobs whose futures aren't completed yet.
+   *
+   * @return the number of jobs
+   */
+  public int pending() {
+    return this.jobs.size();
+  }
+
+  /**
+   * Cancels every job and stops the threads.
+   */
+  @Override
+  public void close() {
+    this.closed = true;
+    this.pool.shutdownNow();
+    while (!this.jobs.isEmpty()) {
+      this.jobs.poll().result.cancel(false);
+    }
+  }
+
+  /**
+   * A job submitted to the pool, with the future the caller waits on.
+   *
+   * @param <T> the type of the job's result
+   */
+  private static class Job<T> {
+
+    private final long board;
+    private final Future<T> task;
+    private final CompletableFuture<T> result;
+
+    /**
+     * Constructs a job.
+     *
+     * @param board the board it was submitted for
+     * @param task  the job in the pool
+     */
+    Job(long board, Future<T> task) {
+      this.board = board;
+      this.task = task;
+      this.result = new CompletableFuture<>();
+    }
+
+    /**
+     * Completes the caller's future the way the job ended, unless it is cancelled already.
+     */
+    void complete() {
+      if (this.result.isDone()) {
+        return;
+      }
+      try {
+        this.result.complete(this.task.get());
+      } catch (ExecutionException e) {
+        this.result.completeExceptionally(e.getCause());
+      } catch (CancellationException | InterruptedException e) {
+        this.result.cancel(false);
+      }
+    }
+  }
+}
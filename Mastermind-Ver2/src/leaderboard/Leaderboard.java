@@ -0,0 +1,700 @@
+package leaderboard;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * An embedded store of every player's best score in every configuration, kept in a directory,
+ * that answers what the best scores of a configuration are.
+ *
+ * <p>A submitted score goes into a sorted in-memory table at once and onto a queue; a writer
+ * thread takes whatever has queued up in one go, appends it to a write-ahead log and syncs the log
+ * once for the lot, so tens of thousands of scores a second cost a few syncs. Once a table has
+ * taken memtableWrites scores it is frozen, a fresh one takes its place, and the writer thread
+ * writes it out as a sorted segment file (see Segment) and deletes the logs it covered. When there
+ * are more than MAX_SEGMENTS segments, the writer thread merges them all into one. A lookup holds
+ * the view it reads (see View), so a segment merged away stays open until the last lookup reading
+ * it is done.
+ *
+ * <p>A player's best score is the best of theirs in any table or segment, so writing the same
+ * score twice changes nothing. That makes recovery simple: opening a store replays every log left
+ * behind, even one whose scores already made it into a segment.
+ *
+ * <p>The best scores of a configuration come from a bounded cache of the top MAX_TOP of the most
+ * recently used configurations. A miss is answered from memory too, since every segment keeps the
+ * top lists of its configurations in memory, and every submitted score updates the cached list of
+ * its configuration, so the cache is never stale.
+ */
+public class Leaderboard implements Closeable {
+
+  public static final int MAX_TOP = 100;
+  public static final int DEFAULT_MEMTABLE_WRITES = 1 << 16;
+  public static final int DEFAULT_CACHED_CONFIGURATIONS = 1 << 10;
+  private static final int MAX_SEGMENTS = 4;
+
+  private final Path dir;
+  private final int memtableWrites;
+  private final AtomicReference<View> view;
+  // submitting shares it; freezing the table takes it alone, so no score is added to a table
+  // after it was queued for writing out, and so does every other change of the view
+  private final ReadWriteLock freeze;
+  private final AtomicInteger writes;
+  private final Map<String, TopList> cache;
+  private final BlockingQueue<Object> queue;
+  private final Thread thread;
+  private volatile IOException failure;
+  private volatile boolean closed;
+  // only used by the writer thread once it runs
+  private WriteAheadLog log;
+  private List<Path> covered;
+  private long nextId;
+
+  /**
+   * Opens a store with the default table size and cache size.
+   *
+   * @param dir the directory, created if it doesn't exist
+   * @throws IOException if the directory can't be read or holds a corrupt segment
+   */
+  public Leaderboard(Path dir) throws IOException {
+    this(dir, DEFAULT_MEMTABLE_WRITES, DEFAULT_CACHED_CONFIGURATIONS);
+  }
+
+  /**
+   * Opens a store.
+   *
+   * @param dir                     the directory, created if it doesn't exist
+   * @param memtableWrites          the number of scores an in-memory table takes before it is
+   *                                written out
+   * @param cachedConfigurations    the number of configurations whose top lists are cached
+   * @throws IOException              if the directory can't be read or holds a corrupt segment
+   * @throws IllegalArgumentException if the directory is null or a number is not positive
+   */
+  public Leaderboard(Path dir, int memtableWrites, int cachedConfigurations)
+      throws IOException, IllegalArgumentException {
+    if (dir == null || memtableWrites <= 0 || cachedConfigurations <= 0) {
+      throw new IllegalArgumentException("invalid leaderboard arguments!");
+    }
+    this.dir = dir;
+    this.memtableWrites = memtableWrites;
+    Files.createDirectories(dir);
+    TreeMap<Long, Path> segmentFiles = new TreeMap<>(Collections.reverseOrder());
+    TreeMap<Long, Path> logFiles = new TreeMap<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+      for (Path file : files) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".tmp")) {
+          Files.delete(file);
+        } else if (name.matches("segment-\\d{16}\\.seg")) {
+          segmentFiles.put(Long.parseLong(name.substring(8, 24)), file);
+        } else if (name.matches("wal-\\d{16}\\.log")) {
+          logFiles.put(Long.parseLong(name.substring(4, 20)), file);
+        }
+      }
+    }
+    List<Segment> segments = new ArrayList<>();
+    try {
+      for (Map.Entry<Long, Path> entry : segmentFiles.entrySet()) {
+        segments.add(new Segment(entry.getValue(), entry.getKey()));
+      }
+      ConcurrentSkipListMap<String, Score> active = new ConcurrentSkipListMap<>();
+      for (Path file : logFiles.values()) {
+        WriteAheadLog.replay(file, score -> active.merge(score.key(), score, Score::better));
+      }
+      this.nextId = Math.max(segmentFiles.isEmpty() ? 0 : segmentFiles.firstKey(),
+          logFiles.isEmpty() ? 0 : logFiles.lastKey()) + 1;
+      this.covered = new ArrayList<>(logFiles.values());
+      this.log = this.newLog();
+      this.view = new AtomicReference<>(new View(active,
+          Collections.<ConcurrentSkipListMap<String, Score>>emptyList(), segments));
+    } catch (IOException e) {
+      for (Segment segment : segments) {
+        segment.close();
+      }
+      throw e;
+    }
+    this.freeze = new ReentrantReadWriteLock();
+    this.writes = new AtomicInteger();
+    this.cache = new LinkedHashMap<String, TopList>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, TopList> eldest) {
+        return this.size() > cachedConfigurations;
+      }
+    };
+    this.queue = new LinkedBlockingQueue<>();
+    this.thread = new Thread(this::run, "leaderboard-writer");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Submits a score made now.
+   *
+   * @param configuration the configuration it was played in
+   * @param player        the player
+   * @param score         the score, lower being better
+   * @throws IllegalArgumentException if the score is invalid (see Score)
+   * @throws IllegalStateException    if the store is closed or failed
+   */
+  public void submit(String configuration, String player, int score)
+      throws IllegalArgumentException, IllegalStateException {
+    this.submit(new Score(configuration, player, score, System.currentTimeMillis()));
+  }
+
+  /**
+   * Submits a score. It counts for reads at once and is on disk once the writer thread gets to it
+   * (see flush).
+   *
+   * @param score the score
+   * @throws IllegalArgumentException if the score is null
+   * @throws IllegalStateException    if the store is closed or failed
+   */
+  public void submit(Score score) throws IllegalArgumentException, IllegalStateException {
+    if (score == null) {
+      throw new IllegalArgumentException("score can't be null!");
+    }
+    if (this.closed || this.failure != null) {
+      throw new IllegalStateException("leaderboard is closed or failed!");
+    }
+    int count;
+    this.freeze.readLock().lock();
+    try {
+      this.view.get().active.merge(score.key(), score, Score::better);
+      this.queue.add(score);
+      count = this.writes.incrementAndGet();
+    } finally {
+      this.freeze.readLock().unlock();
+    }
+    synchronized (this.cache) {
+      TopList top = this.cache.get(score.getConfiguration());
+      if (top != null) {
+        top.offer(score);
+      }
+    }
+    if (count == this.memtableWrites) {
+      this.freezeTable();
+    }
+  }
+
+  /**
+   * Gets the best scores of a configuration.
+   *
+   * @param configuration the configuration
+   * @param count         the most scores to get
+   * @return an unmodifiable list of the best score of each of the best players, best first
+   * @throws IllegalArgumentException if the configuration is invalid (see Score) or the count is
+   *                                  not between 1 and MAX_TOP
+   */
+  public List<Score> top(String configuration, int count) throws IllegalArgumentException {
+    if (!Score.validName(configuration) || count < 1 || count > MAX_TOP) {
+      throw new IllegalArgumentException("invalid top list arguments!");
+    }
+    synchronized (this.cache) {
+      TopList top = this.cache.get(configuration);
+      if (top == null) {
+        top = new TopList(MAX_TOP);
+        View view = this.view.get();
+        String start = Score.start(configuration);
+        String end = Score.end(configuration);
+        for (Score score : view.active.subMap(start, end).values()) {
+          top.offer(score);
+        }
+        for (ConcurrentSkipListMap<String, Score> table : view.frozen) {
+          for (Score score : table.subMap(start, end).values()) {
+            top.offer(score);
+          }
+        }
+        for (Segment segment : view.segments) {
+          for (Score score : segment.top(configuration)) {
+            top.offer(score);
+          }
+        }
+        this.cache.put(configuration, top);
+      }
+      return top.first(count);
+    }
+  }
+
+  /**
+   * Gets a player's best score in a configuration.
+   *
+   * @param configuration the configuration
+   * @param player        the player
+   * @return the score, or null if the player has none there
+   * @throws IOException              if a segment can't be read
+   * @throws IllegalArgumentException if a name is invalid (see Score)
+   * @throws IllegalStateException    if the store is closed
+   */
+  public Score best(String configuration, String player) throws IOException,
+      IllegalArgumentException, IllegalStateException {
+    if (!Score.validName(configuration) || !Score.validName(player)) {
+      throw new IllegalArgumentException("invalid score arguments!");
+    }
+    View view = this.acquire();
+    try {
+      String key = Score.key(configuration, player);
+      Score best = view.active.get(key);
+      for (ConcurrentSkipListMap<String, Score> table : view.frozen) {
+        best = better(best, table.get(key));
+      }
+      for (Segment segment : view.segments) {
+        best = better(best, segment.get(configuration, player));
+      }
+      return best;
+    } finally {
+      view.release();
+    }
+  }
+
+  /**
+   * Gets the current view and holds it, so that its segments stay open until it is released.
+   *
+   * @return the view
+   * @throws IllegalStateException if the store is closed
+   */
+  private View acquire() throws IllegalStateException {
+    while (true) {
+      View view = this.view.get();
+      if (view.retain()) {
+        return view;
+      }
+      // a view is let go of only once it was replaced, except the last one, when closing
+      if (this.closed && view == this.view.get()) {
+        throw new IllegalStateException("leaderboard is closed!");
+      }
+    }
+  }
+
+  /**
+   * Replaces the view and lets go of the old one, whose segments close once no view holds them.
+   *
+   * @param change makes the new view from the old one
+   * @throws IOException if a segment can't be closed
+   */
+  private void replaceView(UnaryOperator<View> change) throws IOException {
+    View view;
+    this.freeze.writeLock().lock();
+    try {
+      view = this.view.get();
+      this.view.set(change.apply(view));
+    } finally {
+      this.freeze.writeLock().unlock();
+    }
+    view.release();
+  }
+
+  /**
+   * Picks the better of two scores of the same player, either of which may be missing.
+   *
+   * @param a a score, or null
+   * @param b another score, or null
+   * @return the better score, or null if both are missing
+   */
+  private static Score better(Score a, Score b) {
+    return a == null ? b : b == null ? a : Score.better(a, b);
+  }
+
+  /**
+   * Waits until every score submitted so far is on disk.
+   *
+   * @throws IOException if writing failed
+   */
+  public void flush() throws IOException {
+    this.await(new Flush(false));
+  }
+
+  /**
+   * Writes every score submitted so far out to a segment, stops the writer thread and closes the
+   * files. Closing a closed store does nothing.
+   *
+   * @throws IOException if writing failed
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    if (!this.view.get().active.isEmpty()) {
+      this.freezeTable();
+    }
+    try {
+      this.await(new Flush(true));
+    } finally {
+      this.log.close();
+      // lookups still reading keep the segments open until they are done
+      this.view.get().release();
+    }
+  }
+
+  /**
+   * Queues a flush and waits for the writer thread to get to it.
+   *
+   * @param flush the flush
+   * @throws IOException if writing failed
+   */
+  private void await(Flush flush) throws IOException {
+    if (this.thread.isAlive()) {
+      this.queue.add(flush);
+      // a writer thread that dies fails first and then lets go of every flush queued, so this one
+      // is let go of unless the writer failed already
+      if (this.failure == null) {
+        try {
+          flush.done.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("interrupted while flushing the leaderboard!", e);
+        }
+      }
+    }
+    if (this.failure != null) {
+      throw this.failure;
+    }
+  }
+
+  /**
+   * Freezes the in-memory table, puts a fresh one in its place and queues the frozen one to be
+   * written out.
+   */
+  private void freezeTable() {
+    View view;
+    this.freeze.writeLock().lock();
+    try {
+      view = this.view.get();
+      this.view.set(view.frozen());
+      this.writes.set(0);
+      this.queue.add(new Freeze(view.active));
+    } finally {
+      this.freeze.writeLock().unlock();
+    }
+    try {
+      view.release();
+    } catch (IOException e) {
+      this.failure = e;
+    }
+  }
+
+  /**
+   * Runs the writer thread until the store is closed.
+   */
+  private void run() {
+    List<Object> batch = new ArrayList<>();
+    try {
+      while (true) {
+        batch.add(this.queue.take());
+        this.queue.drainTo(batch);
+        for (Object item : batch) {
+          if (item instanceof Score) {
+            if (this.failure == null) {
+              this.log.append((Score) item);
+            }
+          } else if (item instanceof Freeze) {
+            this.writeOut(((Freeze) item).table);
+          } else {
+            Flush flush = (Flush) item;
+            this.sync();
+            flush.done.countDown();
+            if (flush.closing) {
+              return;
+            }
+          }
+        }
+        this.sync();
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      this.failure = e;
+    } catch (RuntimeException e) {
+      this.failure = new IOException("leaderboard writer failed!", e);
+      this.queue.drainTo(batch);
+      for (Object item : batch) {
+        if (item instanceof Flush) {
+          ((Flush) item).done.countDown();
+        }
+      }
+    }
+  }
+
+  /**
+   * Syncs the log, unless writing failed already.
+   */
+  private void sync() {
+    if (this.failure == null) {
+      try {
+        this.log.sync();
+      } catch (IOException e) {
+        this.failure = e;
+      }
+    }
+  }
+
+  /**
+   * Writes a frozen table out to a segment, deletes the logs it covers and merges the segments if
+   * there are too many.
+   *
+   * @param table the table; every score queued before it was frozen is in the current log
+   */
+  private void writeOut(ConcurrentSkipListMap<String, Score> table) {
+    if (this.failure != null) {
+      return;
+    }
+    try {
+      this.log.sync();
+      this.log.close();
+      this.covered.add(this.log.getFile());
+      List<Path> covered = this.covered;
+      this.covered = new ArrayList<>();
+      this.log = this.newLog();
+      Iterator<Score> scores = table.values().iterator();
+      Segment segment = Segment.write(this.dir, this.nextId++,
+          () -> scores.hasNext() ? scores.next() : null);
+      this.replaceView(view -> view.writtenOut(table, segment));
+      for (Path file : covered) {
+        Files.delete(file);
+      }
+      List<Segment> segments = this.view.get().segments;
+      if (segments.size() > MAX_SEGMENTS) {
+        this.compact(segments);
+      }
+    } catch (IOException e) {
+      this.failure = e;
+    }
+  }
+
+  /**
+   * Merges segments into one, keeping every player's best score in every configuration.
+   *
+   * @param segments the segments
+   * @throws IOException if a segment can't be read or the merged one can't be written
+   */
+  private void compact(List<Segment> segments) throws IOException {
+    PriorityQueue<Head> heads = new PriorityQueue<>();
+    for (Segment segment : segments) {
+      Segment.Source scores = segment.scan();
+      Score first = scores.next();
+      if (first != null) {
+        heads.add(new Head(first, scores));
+      }
+    }
+    Segment merged = Segment.write(this.dir, this.nextId++, () -> {
+      if (heads.isEmpty()) {
+        return null;
+      }
+      Score best = null;
+      String key = heads.peek().score.key();
+      while (!heads.isEmpty() && heads.peek().score.key().equals(key)) {
+        Head head = heads.poll();
+        best = better(best, head.score);
+        Score next = head.scores.next();
+        if (next != null) {
+          heads.add(new Head(next, head.scores));
+        }
+      }
+      return best;
+    });
+    this.replaceView(view -> view.compacted(segments, merged));
+    // lookups still reading the old segments keep them open, deleted or not
+    for (Segment segment : segments) {
+      Files.delete(segment.getFile());
+    }
+  }
+
+  /**
+   * Creates the next log.
+   *
+   * @return the log
+   * @throws IOException if it can't be created
+   */
+  private WriteAheadLog newLog() throws IOException {
+    return new WriteAheadLog(this.dir.resolve(String.format("wal-%016d.log", this.nextId++)));
+  }
+
+  /**
+   * What reads see: the table scores go into, the frozen tables not yet written out and the
+   * segments, newest first. Views are immutable and replaced whole.
+   *
+   * <p>A view holds a reference to each of its segments. The store holds the current view, and a
+   * lookup holds the view it reads until it is done; a view lets go of its segments once nobody
+   * holds it, so it can no longer be held again.
+   */
+  private static final class View {
+
+    private final ConcurrentSkipListMap<String, Score> active;
+    private final List<ConcurrentSkipListMap<String, Score>> frozen;
+    private final List<Segment> segments;
+    private final AtomicInteger holders;
+
+    /**
+     * Constructs a view, held by the store.
+     *
+     * @param active   the table scores go into
+     * @param frozen   the frozen tables, newest first
+     * @param segments the segments, newest first
+     */
+    private View(ConcurrentSkipListMap<String, Score> active,
+        List<ConcurrentSkipListMap<String, Score>> frozen, List<Segment> segments) {
+      this.active = active;
+      this.frozen = frozen;
+      this.segments = segments;
+      this.holders = new AtomicInteger(1);
+      for (Segment segment : segments) {
+        segment.retain();
+      }
+    }
+
+    /**
+     * Holds the view, unless nobody holds it anymore.
+     *
+     * @return true if it is held, false if its segments were let go of
+     */
+    private boolean retain() {
+      int holders = this.holders.get();
+      while (holders > 0) {
+        if (this.holders.compareAndSet(holders, holders + 1)) {
+          return true;
+        }
+        holders = this.holders.get();
+      }
+      return false;
+    }
+
+    /**
+     * Lets go of the view, and of its segments if nobody else holds it.
+     *
+     * @throws IOException if a segment can't be closed
+     */
+    private void release() throws IOException {
+      if (this.holders.decrementAndGet() == 0) {
+        for (Segment segment : this.segments) {
+          segment.release();
+        }
+      }
+    }
+
+    /**
+     * Gets the view after the table scores go into was frozen.
+     *
+     * @return the view
+     */
+    private View frozen() {
+      List<ConcurrentSkipListMap<String, Score>> frozen = new ArrayList<>();
+      frozen.add(this.active);
+      frozen.addAll(this.frozen);
+      return new View(new ConcurrentSkipListMap<>(), Collections.unmodifiableList(frozen),
+          this.segments);
+    }
+
+    /**
+     * Gets the view after a frozen table was written out.
+     *
+     * @param table   the table
+     * @param segment the segment it was written to
+     * @return the view
+     */
+    private View writtenOut(ConcurrentSkipListMap<String, Score> table, Segment segment) {
+      List<ConcurrentSkipListMap<String, Score>> frozen = new ArrayList<>(this.frozen);
+      frozen.remove(table);
+      List<Segment> segments = new ArrayList<>();
+      segments.add(segment);
+      segments.addAll(this.segments);
+      return new View(this.active, Collections.unmodifiableList(frozen),
+          Collections.unmodifiableList(segments));
+    }
+
+    /**
+     * Gets the view after segments were merged.
+     *
+     * @param inputs the segments that were merged
+     * @param merged the segment they were merged into
+     * @return the view
+     */
+    private View compacted(List<Segment> inputs, Segment merged) {
+      List<Segment> segments = new ArrayList<>(this.segments);
+      segments.removeAll(inputs);
+      segments.add(merged);
+      return new View(this.active, this.frozen, Collections.unmodifiableList(segments));
+    }
+  }
+
+  /**
+   * The next score of a segment being merged.
+   */
+  private static final class Head implements Comparable<Head> {
+
+    private final Score score;
+    private final Segment.Source scores;
+
+    /**
+     * Constructs a head.
+     *
+     * @param score  the score
+     * @param scores the rest of the segment's scores
+     */
+    private Head(Score score, Segment.Source scores) {
+      this.score = score;
+      this.scores = scores;
+    }
+
+    @Override
+    public int compareTo(Head other) {
+      return this.score.key().compareTo(other.score.key());
+    }
+  }
+
+  /**
+   * A request to the writer thread to write out a frozen table.
+   */
+  private static final class Freeze {
+
+    private final ConcurrentSkipListMap<String, Score> table;
+
+    /**
+     * Constructs a request.
+     *
+     * @param table the table
+     */
+    private Freeze(ConcurrentSkipListMap<String, Score> table) {
+      this.table = table;
+    }
+  }
+
+  /**
+   * A request to the writer thread to sync everything queued before it.
+   */
+  private static final class Flush {
+
+    private final boolean closing;
+    private final CountDownLatch done;
+
+    /**
+     * Constructs a flush.
+     *
+     * @param closing whether the writer thread stops after it
+     */
+    private Flush(boolean closing) {
+      this.closing = closing;
+      this.done = new CountDownLatch(1);
+    }
+  }
+}
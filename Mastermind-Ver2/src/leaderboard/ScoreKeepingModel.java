@@ -0,0 +1,198 @@
+package leaderboard;
+
+import java.awt.Color;
+import java.util.List;
+import model.Codes;
+import model.IGuess;
+import model.IModel;
+
+/**
+ * A model that passes every call on to another model and submits the number of guesses a code was
+ * broken in to a leaderboard, once per game. Games count as the same configuration when they have
+ * the same colors, pegs, guesses allowed and rules (see configuration).
+ */
+public class ScoreKeepingModel implements IModel {
+
+  private final IModel model;
+  private final Leaderboard leaderboard;
+  private final String player;
+  // whether the code in play was broken and submitted already
+  private boolean submitted;
+
+  /**
+   * Constructs a model that keeps the scores of another.
+   *
+   * @param model       the model that plays the game
+   * @param leaderboard the leaderboard to submit to
+   * @param player      the name of the player
+   * @throws IllegalArgumentException if an argument is null or the player's name is invalid (see
+   *                                  Score)
+   */
+  public ScoreKeepingModel(IModel model, Leaderboard leaderboard, String player)
+      throws IllegalArgumentException {
+    if (model == null || leaderboard == null || !Score.validName(player)) {
+      throw new IllegalArgumentException("invalid score keeping arguments!");
+    }
+    this.model = model;
+    this.leaderboard = leaderboard;
+    this.player = player;
+  }
+
+  /**
+   * Gets the configuration the game in play counts for.
+   *
+   * @return the configuration, such as "6 colors, 4 pegs, 10 guesses, duplicates, adversarial"
+   * @throws IllegalStateException if the game has not started
+   */
+  public String configuration() throws IllegalStateException {
+    return String.format("%d colors, %d pegs, %d guesses%s%s%s",
+        this.model.getColorBank().size(), this.model.getNumColorsInGuess(),
+        this.model.getNumGuessesAllowed(), this.model.allowsDuplicates() ? ", duplicates" : "",
+        this.model.isExactOnly() ? ", exact only" : "",
+        this.model.isAdversarial() ? ", adversarial" : "");
+  }
+
+  @Override
+  public void setSeed(long seed) {
+    this.model.setSeed(seed);
+  }
+
+  @Override
+  public void startGame(List<Color> providedColorBank, int numGuessesAllowed, int numColorsInGuess,
+      boolean duplicates) throws IllegalArgumentException {
+    this.startGame(providedColorBank, numGuessesAllowed, numColorsInGuess, duplicates, false);
+  }
+
+  @Override
+  public void startGame(List<Color> providedColorBank, int numGuessesAllowed, int numColorsInGuess,
+      boolean duplicates, boolean exactOnly) throws IllegalArgumentException {
+    this.model.startGame(providedColorBank, numGuessesAllowed, numColorsInGuess, duplicates,
+        exactOnly);
+    this.submitted = false;
+  }
+
+  @Override
+  public void generateAnswerKey(boolean duplicates) throws IllegalStateException {
+    this.model.generateAnswerKey(duplicates);
+  }
+
+  @Override
+  public void addColorToGuess(Color color) throws IllegalArgumentException, IllegalStateException {
+    this.model.addColorToGuess(color);
+  }
+
+  @Override
+  public int calcNumExact() throws IllegalStateException {
+    return this.model.calcNumExact();
+  }
+
+  @Override
+  public int calcNumInExact() throws IllegalStateException {
+    return this.model.calcNumInExact();
+  }
+
+  @Override
+  public void setRowIndex(int index) throws IllegalArgumentException, IllegalStateException {
+    this.model.setRowIndex(index);
+    // the rows from there on are guessed again
+    this.submitted = false;
+  }
+
+  @Override
+  public IGuess getCurrentGuess() throws IllegalStateException {
+    return this.model.getCurrentGuess();
+  }
+
+  @Override
+  public void updateGuessMatchInfo() throws IllegalStateException {
+    this.model.updateGuessMatchInfo();
+    // the code is broken when every peg of the guess is exact
+    int feedback = this.model.feedbackAt(this.model.getRowIndex());
+    if (!this.submitted && Codes.exact(feedback) == this.model.getNumColorsInGuess()) {
+      this.submitted = true;
+      this.leaderboard.submit(this.configuration(), this.player, this.model.getNumGuessesMade());
+    }
+  }
+
+  @Override
+  public void setNewCurrentGuessRow() throws IllegalStateException {
+    this.model.setNewCurrentGuessRow();
+  }
+
+  @Override
+  public List<Color> getColorBank() throws IllegalStateException {
+    return this.model.getColorBank();
+  }
+
+  @Override
+  public int getNumGuessesAllowed() throws IllegalStateException {
+    return this.model.getNumGuessesAllowed();
+  }
+
+  @Override
+  public int getNumColorsInGuess() throws IllegalStateException {
+    return this.model.getNumColorsInGuess();
+  }
+
+  @Override
+  public List<Color> getAnswerKey() throws IllegalStateException {
+    return this.model.getAnswerKey();
+  }
+
+  @Override
+  public boolean allowsDuplicates() throws IllegalStateException {
+    return this.model.allowsDuplicates();
+  }
+
+  @Override
+  public boolean isExactOnly() throws IllegalStateException {
+    return this.model.isExactOnly();
+  }
+
+  @Override
+  public boolean isAdversarial() {
+    return this.model.isAdversarial();
+  }
+
+  @Override
+  public int getRowIndex() throws IllegalStateException {
+    return this.model.getRowIndex();
+  }
+
+  @Override
+  public int getNumGuessesMade() throws IllegalStateException {
+    return this.model.getNumGuessesMade();
+  }
+
+  @Override
+  public int colorIndexAt(int row, int peg) throws IllegalArgumentException,
+      IllegalStateException {
+    return this.model.colorIndexAt(row, peg);
+  }
+
+  @Override
+  public void copyGuess(int row, int[] dest) throws IllegalArgumentException,
+      IllegalStateException {
+    this.model.copyGuess(row, dest);
+  }
+
+  @Override
+  public List<Color> getGuess(int row) throws IllegalArgumentException, IllegalStateException {
+    return this.model.getGuess(row);
+  }
+
+  @Override
+  public int feedbackAt(int row) throws IllegalArgumentException, IllegalStateException {
+    return this.model.feedbackAt(row);
+  }
+
+  @Override
+  public boolean isFullRow() throws IllegalStateException {
+    return this.model.isFullRow();
+  }
+
+  @Override
+  public boolean winGame() throws IllegalStateException {
+    return this.model.winGame();
+  }
+}
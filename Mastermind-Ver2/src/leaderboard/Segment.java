@@ -0,0 +1,360 @@
+package leaderboard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An immutable file of best scores, one per configuration and player, sorted by key (see
+ * Score.key):
+ *
+ * <pre>
+ *   scores       the scores, sorted
+ *   index        every INDEX_INTERVAL-th score's key and offset
+ *   top lists    every configuration's best MAX_TOP scores
+ *   long         the number of scores
+ *   long         where the index starts
+ *   int          MAGIC
+ * </pre>
+ *
+ * <p>The index and top lists are read into memory when the segment is opened, so a lookup reads
+ * at most INDEX_INTERVAL scores from the file and a configuration's best scores read none.
+ * Segments are written to a temporary file and renamed into place, so a segment file is always
+ * whole. Every view of the store that lists a segment holds a reference to it, and the segment
+ * closes when the last of them lets go.
+ */
+final class Segment implements Closeable {
+
+  static final int INDEX_INTERVAL = 64;
+  private static final int MAGIC = 0x4C425347;
+  private static final int FOOTER_BYTES = 2 * Long.BYTES + Integer.BYTES;
+
+  /**
+   * Scores in key order.
+   */
+  interface Source {
+
+    /**
+     * Gets the next score.
+     *
+     * @return the score, or null after the last
+     * @throws IOException if the score can't be read
+     */
+    Score next() throws IOException;
+  }
+
+  private final long id;
+  private final Path file;
+  private final FileChannel channel;
+  private final long count;
+  private final long indexStart;
+  private final String[] indexKeys;
+  private final long[] indexOffsets;
+  private final Map<String, List<Score>> tops;
+  private final AtomicInteger references;
+
+  /**
+   * Opens a segment.
+   *
+   * @param file the segment file
+   * @param id   the segment's number; higher numbers are newer
+   * @throws IOException if the file can't be read or is not a segment
+   */
+  Segment(Path file, long id) throws IOException {
+    this.id = id;
+    this.file = file;
+    this.references = new AtomicInteger();
+    this.channel = FileChannel.open(file, StandardOpenOption.READ);
+    try {
+      long size = this.channel.size();
+      if (size < FOOTER_BYTES) {
+        throw new IOException("not a leaderboard segment!");
+      }
+      DataInputStream footer = new DataInputStream(
+          new ChannelInput(this.channel, size - FOOTER_BYTES, size));
+      this.count = footer.readLong();
+      this.indexStart = footer.readLong();
+      if (footer.readInt() != MAGIC || this.count < 0 || this.indexStart < 0
+          || this.indexStart > size - FOOTER_BYTES) {
+        throw new IOException("not a leaderboard segment!");
+      }
+      DataInputStream in = new DataInputStream(new BufferedInputStream(
+          new ChannelInput(this.channel, this.indexStart, size - FOOTER_BYTES)));
+      int indexSize = in.readInt();
+      if (indexSize < 0 || indexSize > this.count / INDEX_INTERVAL + 1) {
+        throw new IOException("not a leaderboard segment!");
+      }
+      this.indexKeys = new String[indexSize];
+      this.indexOffsets = new long[indexSize];
+      for (int i = 0; i < indexSize; i++) {
+        this.indexKeys[i] = Score.readString(in);
+        this.indexOffsets[i] = in.readLong();
+      }
+      this.tops = new HashMap<>();
+      int numConfigurations = in.readInt();
+      for (int i = 0; i < numConfigurations; i++) {
+        String configuration = Score.readString(in);
+        int topSize = in.readInt();
+        if (topSize < 0 || topSize > Leaderboard.MAX_TOP) {
+          throw new IOException("not a leaderboard segment!");
+        }
+        List<Score> top = new ArrayList<>(topSize);
+        for (int j = 0; j < topSize; j++) {
+          top.add(Score.read(in));
+        }
+        this.tops.put(configuration, Collections.unmodifiableList(top));
+      }
+    } catch (IOException e) {
+      this.channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Writes a segment.
+   *
+   * @param dir    the directory to write it to
+   * @param id     the segment's number
+   * @param scores the scores, in key order with one per key
+   * @return the segment, open
+   * @throws IOException if the segment can't be written
+   */
+  static Segment write(Path dir, long id, Source scores) throws IOException {
+    Path temp = dir.resolve(fileName(id) + ".tmp");
+    List<String> indexKeys = new ArrayList<>();
+    List<Long> indexOffsets = new ArrayList<>();
+    Map<String, TopList> tops = new HashMap<>();
+    long count = 0;
+    long offset = 0;
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(Channels.newOutputStream(channel)));
+      TopList top = null;
+      for (Score score = scores.next(); score != null; score = scores.next()) {
+        if (count % INDEX_INTERVAL == 0) {
+          indexKeys.add(score.key());
+          indexOffsets.add(offset);
+        }
+        // scores come by configuration, so each one's top list is done when the next starts
+        if (top == null || !tops.containsKey(score.getConfiguration())) {
+          top = new TopList(Leaderboard.MAX_TOP);
+          tops.put(score.getConfiguration(), top);
+        }
+        top.offer(score);
+        offset += score.write(out);
+        count++;
+      }
+      out.writeInt(indexKeys.size());
+      for (int i = 0; i < indexKeys.size(); i++) {
+        Score.writeString(out, indexKeys.get(i));
+        out.writeLong(indexOffsets.get(i));
+      }
+      out.writeInt(tops.size());
+      for (Map.Entry<String, TopList> entry : tops.entrySet()) {
+        Score.writeString(out, entry.getKey());
+        out.writeInt(entry.getValue().scores().size());
+        for (Score score : entry.getValue().scores()) {
+          score.write(out);
+        }
+      }
+      out.writeLong(count);
+      out.writeLong(offset);
+      out.writeInt(MAGIC);
+      out.flush();
+      channel.force(true);
+    }
+    Path target = dir.resolve(fileName(id));
+    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+    return new Segment(target, id);
+  }
+
+  /**
+   * Gets the name of a segment's file.
+   *
+   * @param id the segment's number
+   * @return the file name
+   */
+  static String fileName(long id) {
+    return String.format("segment-%016d.seg", id);
+  }
+
+  /**
+   * Gets the segment's number.
+   *
+   * @return the number; higher numbers are newer
+   */
+  long getId() {
+    return this.id;
+  }
+
+  /**
+   * Gets the segment's file.
+   *
+   * @return the file
+   */
+  Path getFile() {
+    return this.file;
+  }
+
+  /**
+   * Gets the number of scores in the segment.
+   *
+   * @return the number of scores
+   */
+  long getCount() {
+    return this.count;
+  }
+
+  /**
+   * Gets the best scores of a configuration.
+   *
+   * @param configuration the configuration
+   * @return an unmodifiable list of its best MAX_TOP scores in the segment, best first
+   */
+  List<Score> top(String configuration) {
+    List<Score> top = this.tops.get(configuration);
+    return top == null ? Collections.<Score>emptyList() : top;
+  }
+
+  /**
+   * Gets a player's score in a configuration.
+   *
+   * @param configuration the configuration
+   * @param player        the player
+   * @return the score, or null if the segment has none
+   * @throws IOException if the file can't be read
+   */
+  Score get(String configuration, String player) throws IOException {
+    String key = Score.key(configuration, player);
+    int at = Arrays.binarySearch(this.indexKeys, key);
+    if (at < 0) {
+      at = -at - 2;
+      if (at < 0) {
+        return null;
+      }
+    }
+    Source scores = this.scan(this.indexOffsets[at]);
+    for (int i = 0; i < INDEX_INTERVAL; i++) {
+      Score score = scores.next();
+      if (score == null) {
+        return null;
+      }
+      int order = score.key().compareTo(key);
+      if (order >= 0) {
+        return order == 0 ? score : null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Reads the scores of the segment in order.
+   *
+   * @return the scores
+   */
+  Source scan() {
+    return this.scan(0);
+  }
+
+  /**
+   * Reads the scores of the segment in order from one of them on.
+   *
+   * @param offset where the score starts
+   * @return the scores
+   */
+  private Source scan(long offset) {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(
+        new ChannelInput(this.channel, offset, this.indexStart)));
+    return () -> in.available() > 0 ? Score.read(in) : null;
+  }
+
+  /**
+   * Takes a reference to the segment, which keeps it open.
+   */
+  void retain() {
+    this.references.incrementAndGet();
+  }
+
+  /**
+   * Lets go of a reference to the segment, and closes it if that was the last.
+   *
+   * @throws IOException if the segment can't be closed
+   */
+  void release() throws IOException {
+    if (this.references.decrementAndGet() == 0) {
+      this.close();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.channel.close();
+  }
+
+  /**
+   * A stream of a range of a file that many can read at once, each from its own position.
+   */
+  private static final class ChannelInput extends InputStream {
+
+    private final FileChannel channel;
+    private long position;
+    private final long end;
+
+    /**
+     * Constructs a stream of a range of a file.
+     *
+     * @param channel the file
+     * @param start   where the range starts
+     * @param end     where the range ends
+     */
+    private ChannelInput(FileChannel channel, long start, long end) {
+      this.channel = channel;
+      this.position = start;
+      this.end = end;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] one = new byte[1];
+      return this.read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] dest, int off, int len) throws IOException {
+      if (this.position >= this.end) {
+        return -1;
+      }
+      int n = this.channel.read(ByteBuffer.wrap(dest, off,
+          (int) Math.min(len, this.end - this.position)), this.position);
+      if (n < 0) {
+        return -1;
+      }
+      this.position += n;
+      return n;
+    }
+
+    @Override
+    public int available() {
+      return (int) Math.min(Integer.MAX_VALUE, this.end - this.position);
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package leaderboard;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * A file of the scores written since the scores before them went into a segment, so none are lost
+ * if the program stops before they do. Each score is framed by its length and followed by the
+ * CRC-32 of its bytes:
+ *
+ * <pre>
+ *   int    the length of the score
+ *   bytes  the score (see Score)
+ *   int    the CRC-32 of the score
+ * </pre>
+ *
+ * <p>Scores are gathered in memory by append and written and forced to disk together by sync, so
+ * a batch of writes costs one sync. A log is only ever appended to by the one writer that created
+ * it; a frame that was cut short or doesn't match its CRC can only be the last one written before
+ * a crash, and replay stops there.
+ */
+final class WriteAheadLog implements Closeable {
+
+  // two names of up to three UTF-8 bytes a character, with their lengths, and the numbers
+  private static final int MAX_FRAME_BYTES = 2 * (Short.BYTES + 3 * Score.MAX_NAME_LENGTH)
+      + Integer.BYTES + Long.BYTES;
+
+  private final Path file;
+  private final FileChannel channel;
+  private final ByteArrayOutputStream pending;
+  private final DataOutputStream pendingOut;
+  private final ByteArrayOutputStream frame;
+  private final DataOutputStream frameOut;
+  private final CRC32 crc;
+
+  /**
+   * Creates a log.
+   *
+   * @param file the file, which must not exist yet
+   * @throws IOException if the file can't be created
+   */
+  WriteAheadLog(Path file) throws IOException {
+    this.file = file;
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.WRITE);
+    this.pending = new ByteArrayOutputStream();
+    this.pendingOut = new DataOutputStream(this.pending);
+    this.frame = new ByteArrayOutputStream();
+    this.frameOut = new DataOutputStream(this.frame);
+    this.crc = new CRC32();
+  }
+
+  /**
+   * Gets the file of the log.
+   *
+   * @return the file
+   */
+  Path getFile() {
+    return this.file;
+  }
+
+  /**
+   * Adds a score to the next sync.
+   *
+   * @param score the score
+   * @throws IOException if the score can't be encoded
+   */
+  void append(Score score) throws IOException {
+    this.frame.reset();
+    score.write(this.frameOut);
+    byte[] bytes = this.frame.toByteArray();
+    this.crc.reset();
+    this.crc.update(bytes, 0, bytes.length);
+    this.pendingOut.writeInt(bytes.length);
+    this.pendingOut.write(bytes);
+    this.pendingOut.writeInt((int) this.crc.getValue());
+  }
+
+  /**
+   * Writes the scores appended since the last sync and forces them to disk.
+   *
+   * @throws IOException if they can't be written
+   */
+  void sync() throws IOException {
+    if (this.pending.size() == 0) {
+      return;
+    }
+    ByteBuffer bytes = ByteBuffer.wrap(this.pending.toByteArray());
+    while (bytes.hasRemaining()) {
+      this.channel.write(bytes);
+    }
+    this.pending.reset();
+    this.channel.force(false);
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.channel.close();
+  }
+
+  /**
+   * Reads the scores of a log back.
+   *
+   * @param file the log
+   * @param sink where the scores go, in the order they were appended
+   * @throws IOException if the file can't be read
+   */
+  static void replay(Path file, Consumer<Score> sink) throws IOException {
+    CRC32 crc = new CRC32();
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file)))) {
+      while (true) {
+        byte[] bytes;
+        int checksum;
+        try {
+          int length = in.readInt();
+          if (length <= 0 || length > MAX_FRAME_BYTES) {
+            return;
+          }
+          bytes = new byte[length];
+          in.readFully(bytes);
+          checksum = in.readInt();
+        } catch (EOFException e) {
+          return;
+        }
+        crc.reset();
+        crc.update(bytes, 0, bytes.length);
+        if ((int) crc.getValue() != checksum) {
+          return;
+        }
+        sink.accept(Score.read(new DataInputStream(new ByteArrayInputStream(bytes))));
+      }
+    }
+  }
+}
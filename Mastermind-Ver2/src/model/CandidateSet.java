@@ -0,0 +1,236 @@
+package model;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * Represents the set of secrets that are still consistent with every guess and feedback seen so
+ * far. Codes are kept packed in one byte array (numPegs bytes per code) so filtering and scoring
+ * walk contiguous memory.
+ */
+public class CandidateSet {
+
+  private final int numColors;
+  private final int numPegs;
+  private final boolean exactOnly;
+  private final byte[] codes;
+  private final int[] scratchCounts;
+  private int size;
+
+  /**
+   * Constructs the set of every code for a configuration.
+   *
+   * @param numColors  the number of colors
+   * @param numPegs    the number of colors in a code
+   * @param duplicates whether codes may repeat colors
+   * @throws IllegalArgumentException if the configuration is invalid or too large to enumerate
+   */
+  public CandidateSet(int numColors, int numPegs, boolean duplicates)
+      throws IllegalArgumentException {
+    this(numColors, numPegs, duplicates, false);
+  }
+
+  /**
+   * Constructs the set of every code for a configuration, optionally scoring with exact matches
+   * only.
+   *
+   * @param numColors  the number of colors
+   * @param numPegs    the number of colors in a code
+   * @param duplicates whether codes may repeat colors
+   * @param exactOnly  whether feedback reports exact matches only
+   * @throws IllegalArgumentException if the configuration is invalid or too large to enumerate
+   */
+  public CandidateSet(int numColors, int numPegs, boolean duplicates, boolean exactOnly)
+      throws IllegalArgumentException {
+    if (numColors <= 0 || numColors > 128 || numPegs <= 0
+        || (!duplicates && numPegs > numColors)) {
+      throw new IllegalArgumentException("invalid candidate-set arguments!");
+    }
+    CodeSpace space = new CodeSpace(numColors, numPegs, duplicates);
+    if (!space.isPackable() || space.size() > Integer.MAX_VALUE / numPegs) {
+      throw new IllegalArgumentException("code space is too large to enumerate!");
+    }
+    this.numColors = numColors;
+    this.numPegs = numPegs;
+    this.exactOnly = exactOnly;
+    this.scratchCounts = new int[numColors];
+    int[] code = new int[numPegs];
+    byte[] all = new byte[(int) space.size() * numPegs];
+    int count = 0;
+    for (PrimitiveIterator.OfInt it = space.stream().iterator(); it.hasNext(); count++) {
+      space.decode(it.nextInt(), code);
+      for (int i = 0; i < numPegs; i++) {
+        all[count * numPegs + i] = (byte) code[i];
+      }
+    }
+    this.codes = all;
+    this.size = count;
+  }
+
+  /**
+   * Gets the number of remaining candidates.
+   *
+   * @return the number of remaining candidates
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Gets the number of colors in each code.
+   *
+   * @return the number of pegs
+   */
+  public int getNumPegs() {
+    return this.numPegs;
+  }
+
+  /**
+   * Gets the number of colors in the color bank.
+   *
+   * @return the number of colors
+   */
+  public int getNumColors() {
+    return this.numColors;
+  }
+
+  /**
+   * Copies the candidate at the given index into dest.
+   *
+   * @param index the candidate index
+   * @param dest  destination array, one slot per peg
+   * @throws IllegalArgumentException if the index is invalid
+   */
+  public void codeAt(int index, int[] dest) throws IllegalArgumentException {
+    if (index < 0 || index >= this.size) {
+      throw new IllegalArgumentException("invalid candidate index!");
+    }
+    int base = index * this.numPegs;
+    for (int i = 0; i < this.numPegs; i++) {
+      dest[i] = this.codes[base + i];
+    }
+  }
+
+  /**
+   * Scores a guess against the candidate at the given index.
+   *
+   * @param index the candidate index
+   * @param guess the guess
+   * @return the packed feedback the candidate would give
+   */
+  public int scoreAgainst(int index, int[] guess) {
+    return this.scoreAgainst(index, guess, this.scratchCounts);
+  }
+
+  /**
+   * Scores a guess against the candidate at the given index using caller-owned scratch space, so
+   * several threads can score the same (unchanging) set at once.
+   *
+   * @param index  the candidate index
+   * @param guess  the guess
+   * @param counts a zeroed array with one slot per color; it is zeroed again before returning
+   * @return the packed feedback the candidate would give
+   */
+  public int scoreAgainst(int index, int[] guess, int[] counts) {
+    // same rule as Codes.score, read straight from the packed array
+    int base = index * this.numPegs;
+    int exact = 0;
+    for (int i = 0; i < this.numPegs; i++) {
+      int color = this.codes[base + i];
+      if (color == guess[i]) {
+        exact++;
+      } else {
+        counts[color]++;
+      }
+    }
+    if (this.exactOnly) {
+      for (int i = 0; i < this.numPegs; i++) {
+        counts[this.codes[base + i]] = 0;
+      }
+      return Codes.pack(exact, 0);
+    }
+    int inexact = 0;
+    for (int i = 0; i < this.numPegs; i++) {
+      int color = guess[i];
+      if (this.codes[base + i] != color && counts[color] > 0) {
+        counts[color]--;
+        inexact++;
+      }
+    }
+    for (int i = 0; i < this.numPegs; i++) {
+      counts[this.codes[base + i]] = 0;
+    }
+    return Codes.pack(exact, inexact);
+  }
+
+  /**
+   * Counts how the remaining candidates split by the feedback they would give for a guess.
+   *
+   * @param guess  the guess
+   * @param counts a zeroed array of Codes.numFeedbackIndices(numPegs) slots to fill
+   * @return the size of the largest class
+   */
+  public int partition(int[] guess, int[] counts) {
+    return this.partition(guess, counts, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Counts how the remaining candidates split by feedback, giving up as soon as some class grows
+   * past the cutoff. Minimax searches use this to drop a guess once it is known to be worse than
+   * the best one found so far.
+   *
+   * @param guess  the guess
+   * @param counts a zeroed array of Codes.numFeedbackIndices(numPegs) slots to fill
+   * @param cutoff the largest class size still worth counting
+   * @return the size of the largest class, or a value above the cutoff if the scan stopped early
+   */
+  public int partition(int[] guess, int[] counts, int cutoff) {
+    int worst = 0;
+    for (int i = 0; i < this.size; i++) {
+      int index = Codes.feedbackIndex(this.scoreAgainst(i, guess), this.numPegs);
+      counts[index]++;
+      if (counts[index] > worst) {
+        worst = counts[index];
+        if (worst > cutoff) {
+          return worst;
+        }
+      }
+    }
+    return worst;
+  }
+
+  /**
+   * Removes every candidate that would not have produced the given feedback for the given guess.
+   *
+   * @param guess    the guess
+   * @param feedback the packed feedback received
+   */
+  public void filter(int[] guess, int feedback) {
+    int[] feedbacks = new int[this.size];
+    for (int i = 0; i < this.size; i++) {
+      feedbacks[i] = this.scoreAgainst(i, guess);
+    }
+    this.retain(feedbacks, feedback);
+  }
+
+  /**
+   * Keeps only the candidates whose precomputed feedback equals the given one.
+   *
+   * @param feedbacks the feedback of each current candidate, in index order
+   * @param feedback  the feedback to keep
+   * @throws IllegalArgumentException if feedbacks does not cover every candidate
+   */
+  public void retain(int[] feedbacks, int feedback) throws IllegalArgumentException {
+    if (feedbacks == null || feedbacks.length < this.size) {
+      throw new IllegalArgumentException("feedbacks must cover every candidate!");
+    }
+    int kept = 0;
+    for (int i = 0; i < this.size; i++) {
+      if (feedbacks[i] == feedback) {
+        System.arraycopy(this.codes, i * this.numPegs, this.codes, kept * this.numPegs,
+            this.numPegs);
+        kept++;
+      }
+    }
+    this.size = kept;
+  }
+}
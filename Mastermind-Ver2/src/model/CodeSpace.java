@@ -0,0 +1,391 @@
+package model;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The codes of one configuration, with or without duplicate colors, enumerated lazily. A code is
+ * packed into an int as its base-numColors value (the first peg most significant, as in
+ * Codes.rank), so any configuration with at most Integer.MAX_VALUE codes including duplicates can
+ * be packed.
+ *
+ * <p>Codes are numbered by rank in increasing packed order. With duplicates the rank is the packed
+ * code itself; without, it is the code's index among the ordered selections of distinct colors.
+ * Ranking and unranking only look at the code's own pegs and never search the space, so a parallel
+ * stream can split it into rank ranges and start each range anywhere without materializing it.
+ */
+public class CodeSpace {
+
+  private final int numColors;
+  private final int numPegs;
+  private final boolean duplicates;
+  private final long size;
+  // without duplicates, the number of codes sharing each prefix length
+  private final long[] placeValues;
+  // the weight of each peg in a packed code, when codes can be packed
+  private final int[] powers;
+
+  /**
+   * Constructs the code space of a configuration.
+   *
+   * @param numColors  the number of colors
+   * @param numPegs    the number of colors in a code
+   * @param duplicates whether codes may repeat colors
+   * @throws IllegalArgumentException if the configuration is invalid
+   */
+  public CodeSpace(int numColors, int numPegs, boolean duplicates)
+      throws IllegalArgumentException {
+    if (numColors <= 0 || numPegs <= 0 || (!duplicates && numPegs > numColors)) {
+      throw new IllegalArgumentException("invalid code-space arguments!");
+    }
+    this.numColors = numColors;
+    this.numPegs = numPegs;
+    this.duplicates = duplicates;
+    this.placeValues = new long[numPegs];
+    long size = 1;
+    for (int i = numPegs - 1; i >= 0; i--) {
+      this.placeValues[i] = size;
+      int choices = duplicates ? numColors : numColors - i;
+      size = size > Long.MAX_VALUE / choices ? Long.MAX_VALUE : size * choices;
+    }
+    this.size = size;
+    this.powers = new int[numPegs];
+    if (this.isPackable()) {
+      int power = 1;
+      for (int i = numPegs - 1; i >= 0; i--) {
+        this.powers[i] = power;
+        power *= i > 0 ? numColors : 1;
+      }
+    }
+  }
+
+  /**
+   * Gets the number of colors.
+   *
+   * @return the number of colors
+   */
+  public int getNumColors() {
+    return this.numColors;
+  }
+
+  /**
+   * Gets the number of colors in a code.
+   *
+   * @return the number of pegs
+   */
+  public int getNumPegs() {
+    return this.numPegs;
+  }
+
+  /**
+   * Determines whether codes may repeat colors.
+   *
+   * @return true if duplicates are allowed, otherwise false
+   */
+  public boolean allowsDuplicates() {
+    return this.duplicates;
+  }
+
+  /**
+   * Gets the number of codes. Saturates at Long.MAX_VALUE for spaces that do not fit in a long.
+   *
+   * @return the size of the space
+   */
+  public long size() {
+    return this.size;
+  }
+
+  /**
+   * Determines whether codes of this configuration fit in a packed int.
+   *
+   * @return true if codes can be packed, otherwise false
+   */
+  public boolean isPackable() {
+    return Codes.spaceSize(this.numColors, this.numPegs) <= Integer.MAX_VALUE;
+  }
+
+  /**
+   * Throws an exception if codes of this configuration don't fit in a packed int.
+   *
+   * @throws IllegalStateException if codes can't be packed
+   */
+  private void notPackableException() throws IllegalStateException {
+    if (!this.isPackable()) {
+      throw new IllegalStateException("code space is too large to pack!");
+    }
+  }
+
+  /**
+   * Packs a code into an int.
+   *
+   * @param code the code as color indices
+   * @return the packed code
+   * @throws IllegalArgumentException if the code is null, has the wrong length or is not in the
+   *                                  space
+   * @throws IllegalStateException    if codes of this configuration can't be packed
+   */
+  public int encode(int[] code) throws IllegalArgumentException, IllegalStateException {
+    this.notPackableException();
+    if (code == null || code.length != this.numPegs) {
+      throw new IllegalArgumentException("invalid code!");
+    }
+    int packed = 0;
+    for (int color : code) {
+      if (color < 0 || color >= this.numColors) {
+        throw new IllegalArgumentException("invalid code!");
+      }
+      packed = packed * this.numColors + color;
+    }
+    if (!this.duplicates && Codes.hasDuplicates(code)) {
+      throw new IllegalArgumentException("code repeats a color!");
+    }
+    return packed;
+  }
+
+  /**
+   * Unpacks a code into dest.
+   *
+   * @param packed the packed code
+   * @param dest   destination array, one slot per peg
+   */
+  public void decode(int packed, int[] dest) {
+    Codes.unrank(packed, this.numColors, dest);
+  }
+
+  /**
+   * Gets the rank of a packed code.
+   *
+   * @param packed the packed code
+   * @return the rank, between 0 and size() - 1
+   * @throws IllegalArgumentException if the packed code is not in the space
+   * @throws IllegalStateException    if codes of this configuration can't be packed
+   */
+  public long rank(int packed) throws IllegalArgumentException, IllegalStateException {
+    this.notPackableException();
+    if (packed < 0 || packed >= Codes.spaceSize(this.numColors, this.numPegs)) {
+      throw new IllegalArgumentException("invalid packed code!");
+    }
+    if (this.duplicates) {
+      return packed;
+    }
+    long rank = 0;
+    for (int i = 0; i < this.numPegs; i++) {
+      int color = this.colorAt(packed, i);
+      // smaller colors not used by an earlier peg are the choices that come before this one
+      int choice = color;
+      for (int j = 0; j < i; j++) {
+        int earlier = this.colorAt(packed, j);
+        if (earlier == color) {
+          throw new IllegalArgumentException("code repeats a color!");
+        }
+        if (earlier < color) {
+          choice--;
+        }
+      }
+      rank += choice * this.placeValues[i];
+    }
+    return rank;
+  }
+
+  /**
+   * Gets the packed code with the given rank.
+   *
+   * @param rank the rank, between 0 and size() - 1
+   * @return the packed code
+   * @throws IllegalArgumentException if the rank is out of range
+   * @throws IllegalStateException    if codes of this configuration can't be packed
+   */
+  public int unrank(long rank) throws IllegalArgumentException, IllegalStateException {
+    this.notPackableException();
+    if (rank < 0 || rank >= this.size) {
+      throw new IllegalArgumentException("invalid rank!");
+    }
+    if (this.duplicates) {
+      return (int) rank;
+    }
+    int packed = 0;
+    for (int i = 0; i < this.numPegs; i++) {
+      int choice = (int) (rank / this.placeValues[i]);
+      rank %= this.placeValues[i];
+      // the smallest color with choice unused colors below it: skip past every earlier color at
+      // or below the candidate until none is left (the earlier colors are distinct)
+      int color = choice;
+      int skipped;
+      do {
+        int below = 0;
+        for (int j = 0; j < i; j++) {
+          // packed holds the i colors chosen so far, so earlier peg j sits at offset
+          // numPegs - i + j of a full code
+          if (this.colorAt(packed, this.numPegs - i + j) <= color) {
+            below++;
+          }
+        }
+        skipped = choice + below - color;
+        color += skipped;
+      } while (skipped > 0);
+      packed = packed * this.numColors + color;
+    }
+    return packed;
+  }
+
+  /**
+   * Gets the color of one peg of a packed code.
+   *
+   * @param packed the packed code
+   * @param peg    the peg index, 0 being the most significant peg of a full code
+   * @return the color
+   */
+  private int colorAt(int packed, int peg) {
+    return (packed / this.powers[peg]) % this.numColors;
+  }
+
+  /**
+   * Draws one uniformly random packed code.
+   *
+   * @param random the random source
+   * @return the packed code
+   * @throws IllegalArgumentException if the random source is null
+   * @throws IllegalStateException    if codes of this configuration can't be packed
+   */
+  public int sample(SplittableRandom random) throws IllegalArgumentException,
+      IllegalStateException {
+    if (random == null) {
+      throw new IllegalArgumentException("random source can't be null!");
+    }
+    this.notPackableException();
+    return this.unrank(random.nextLong(this.size));
+  }
+
+  /**
+   * Draws one uniformly random code into dest. Unlike the packed variant this works for any
+   * configuration, however large.
+   *
+   * @param random the random source
+   * @param dest   destination array, one slot per peg
+   * @throws IllegalArgumentException if the random source is null or dest is too short
+   */
+  public void sample(SplittableRandom random, int[] dest) throws IllegalArgumentException {
+    if (random == null || dest == null || dest.length < this.numPegs) {
+      throw new IllegalArgumentException("invalid sampling arguments!");
+    }
+    if (this.duplicates) {
+      for (int i = 0; i < this.numPegs; i++) {
+        dest[i] = random.nextInt(this.numColors);
+      }
+      return;
+    }
+    int[] colors = IntStream.range(0, this.numColors).toArray();
+    for (int i = 0; i < this.numPegs; i++) {
+      int j = i + random.nextInt(this.numColors - i);
+      int tmp = colors[i];
+      colors[i] = colors[j];
+      colors[j] = tmp;
+      dest[i] = colors[i];
+    }
+  }
+
+  /**
+   * Gets a splittable spliterator over every packed code in rank order.
+   *
+   * @return the spliterator
+   * @throws IllegalStateException if codes of this configuration can't be packed
+   */
+  public Spliterator.OfInt spliterator() throws IllegalStateException {
+    this.notPackableException();
+    return new CodeSpliterator(0, this.size);
+  }
+
+  /**
+   * Gets a sequential stream of every packed code in rank order.
+   *
+   * @return the stream
+   * @throws IllegalStateException if codes of this configuration can't be packed
+   */
+  public IntStream stream() throws IllegalStateException {
+    return StreamSupport.intStream(this.spliterator(), false);
+  }
+
+  /**
+   * Gets a parallel stream of every packed code.
+   *
+   * @return the stream
+   * @throws IllegalStateException if codes of this configuration can't be packed
+   */
+  public IntStream parallelStream() throws IllegalStateException {
+    return StreamSupport.intStream(this.spliterator(), true);
+  }
+
+  /**
+   * Walks a range of ranks, splitting in half on demand.
+   */
+  private class CodeSpliterator implements Spliterator.OfInt {
+
+    private long from;
+    private final long to;
+
+    /**
+     * Constructs a spliterator over the ranks from (inclusive) to (exclusive).
+     *
+     * @param from the first rank
+     * @param to   one past the last rank
+     */
+    CodeSpliterator(long from, long to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+      if (this.from >= this.to) {
+        return false;
+      }
+      action.accept(CodeSpace.this.unrank(this.from++));
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+      if (CodeSpace.this.duplicates) {
+        // the packed code is the rank
+        for (long rank = this.from; rank < this.to; rank++) {
+          action.accept((int) rank);
+        }
+      } else {
+        for (long rank = this.from; rank < this.to; rank++) {
+          action.accept(CodeSpace.this.unrank(rank));
+        }
+      }
+      this.from = this.to;
+    }
+
+    @Override
+    public Spliterator.OfInt trySplit() {
+      long mid = (this.from + this.to) >>> 1;
+      if (mid <= this.from) {
+        return null;
+      }
+      Spliterator.OfInt prefix = new CodeSpliterator(this.from, mid);
+      this.from = mid;
+      return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+      return this.to - this.from;
+    }
+
+    @Override
+    public int characteristics() {
+      return ORDERED | SORTED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+
+    @Override
+    public Comparator<? super Integer> getComparator() {
+      return null;
+    }
+  }
+}
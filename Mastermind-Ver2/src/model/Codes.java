@@ -0,0 +1,176 @@
+package model;
+
+/**
+ * Helper operations for codes (guesses and answer keys) represented as arrays of color-bank
+ * indices, and for feedback values packed into a single int. Keeping codes as primitive indices
+ * lets the model, the solvers and the tournament harness share one scoring rule without building
+ * Color lists or Guess objects.
+ */
+public final class Codes {
+
+  private Codes() {
+    // static helpers only
+  }
+
+  /**
+   * Packs an exact/inexact feedback pair into a single int.
+   *
+   * @param exact   number of exact matches
+   * @param inexact number of inexact matches
+   * @return the packed feedback
+   */
+  public static int pack(int exact, int inexact) {
+    return (exact << 16) | inexact;
+  }
+
+  /**
+   * Extracts the number of exact matches from a packed feedback value.
+   *
+   * @param feedback the packed feedback
+   * @return number of exact matches
+   */
+  public static int exact(int feedback) {
+    return feedback >>> 16;
+  }
+
+  /**
+   * Extracts the number of inexact matches from a packed feedback value.
+   *
+   * @param feedback the packed feedback
+   * @return number of inexact matches
+   */
+  public static int inexact(int feedback) {
+    return feedback & 0xFFFF;
+  }
+
+  /**
+   * Drops the inexact part of a packed feedback value, as in the black-peg-only variant where the
+   * codemaker reports exact matches only.
+   *
+   * @param feedback the packed feedback
+   * @return the packed feedback with zero inexact matches
+   */
+  public static int exactOnly(int feedback) {
+    return feedback & ~0xFFFF;
+  }
+
+  /**
+   * Maps a packed feedback value to a dense index, so feedback classes can be counted in a small
+   * array.
+   *
+   * @param feedback the packed feedback
+   * @param numPegs  the number of colors in a guess
+   * @return an index in [0, numFeedbackIndices(numPegs))
+   */
+  public static int feedbackIndex(int feedback, int numPegs) {
+    return exact(feedback) * (numPegs + 1) + inexact(feedback);
+  }
+
+  /**
+   * The number of distinct indices that feedbackIndex can return.
+   *
+   * @param numPegs the number of colors in a guess
+   * @return the size of a feedback-indexed array
+   */
+  public static int numFeedbackIndices(int numPegs) {
+    return (numPegs + 1) * (numPegs + 1);
+  }
+
+  /**
+   * Scores a guess against a secret with the standard Mastermind rule: exact matches are the
+   * positions holding the same color, inexact matches are the remaining colors that appear in both
+   * codes (counted with multiplicity).
+   *
+   * @param secret  the secret code
+   * @param guess   the guessed code, same length as the secret
+   * @param scratch a zeroed array with one slot per color; it is zeroed again before returning
+   * @return the packed feedback
+   */
+  public static int score(int[] secret, int[] guess, int[] scratch) {
+    int exact = 0;
+    for (int i = 0; i < secret.length; i++) {
+      if (secret[i] == guess[i]) {
+        exact++;
+      } else {
+        scratch[secret[i]]++;
+      }
+    }
+    int inexact = 0;
+    for (int i = 0; i < guess.length; i++) {
+      if (secret[i] != guess[i] && scratch[guess[i]] > 0) {
+        scratch[guess[i]]--;
+        inexact++;
+      }
+    }
+    for (int i = 0; i < secret.length; i++) {
+      scratch[secret[i]] = 0;
+    }
+    return pack(exact, inexact);
+  }
+
+  /**
+   * The number of codes of the given length over the given colors, duplicates included. Saturates
+   * at Long.MAX_VALUE for spaces that do not fit in a long.
+   *
+   * @param numColors number of colors
+   * @param numPegs   number of colors in a guess
+   * @return the size of the code space
+   */
+  public static long spaceSize(int numColors, int numPegs) {
+    long size = 1;
+    for (int i = 0; i < numPegs; i++) {
+      if (size > Long.MAX_VALUE / numColors) {
+        return Long.MAX_VALUE;
+      }
+      size *= numColors;
+    }
+    return size;
+  }
+
+  /**
+   * Writes the code with the given rank (its base-numColors value, first peg most significant)
+   * into dest.
+   *
+   * @param rank      the rank of the code
+   * @param numColors number of colors
+   * @param dest      destination array, one slot per peg
+   */
+  public static void unrank(long rank, int numColors, int[] dest) {
+    for (int i = dest.length - 1; i >= 0; i--) {
+      dest[i] = (int) (rank % numColors);
+      rank /= numColors;
+    }
+  }
+
+  /**
+   * Computes the rank of a code, the inverse of unrank.
+   *
+   * @param code      the code
+   * @param numColors number of colors
+   * @return the rank of the code
+   */
+  public static long rank(int[] code, int numColors) {
+    long rank = 0;
+    for (int c : code) {
+      rank = rank * numColors + c;
+    }
+    return rank;
+  }
+
+  /**
+   * Checks whether a code uses any color more than once.
+   *
+   * @param code the code
+   * @return true if some color repeats, otherwise false
+   */
+  public static boolean hasDuplicates(int[] code) {
+    for (int i = 0; i < code.length; i++) {
+      for (int j = i + 1; j < code.length; j++) {
+        if (code[i] == code[j]) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
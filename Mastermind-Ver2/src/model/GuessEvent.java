@@ -0,0 +1,42 @@
+package model;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for one guess of a Mastermind game, timing how long the codemaker took
+ * to score it.
+ */
+@Name("mastermind.Guess")
+@Label("Mastermind Guess")
+@Category("Mastermind")
+@Description("A guess scored by the codemaker")
+@StackTrace(false)
+final class GuessEvent extends Event {
+
+  @Label("Colors")
+  int numColors;
+
+  @Label("Pegs")
+  int numPegs;
+
+  @Label("Row")
+  int row;
+
+  @Label("Exact")
+  int exact;
+
+  @Label("Inexact")
+  int inexact;
+
+  @Label("Adversarial")
+  boolean adversarial;
+
+  @Label("Candidates")
+  @Description("The secrets the adversarial codemaker still keeps after the guess, or -1")
+  int candidates;
+}
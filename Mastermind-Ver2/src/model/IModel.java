@@ -8,6 +8,15 @@ import java.util.List;
  */
 public interface IModel extends IViewModel {
 
+  /**
+   * Seeds the generator the answer keys of the games that follow are drawn from. Two models
+   * seeded alike and then sent the same calls play the same games, which is what replays rely
+   * on. This may be called at any time, even before the game starts.
+   *
+   * @param seed the seed
+   */
+  void setSeed(long seed);
+
   /**
    * Starts the Mastermind game. This must be called before any other method in our model.
    *
@@ -20,6 +29,20 @@ public interface IModel extends IViewModel {
   void startGame(List<Color> providedColorBank, int numGuessesAllowed, int numColorsInGuess,
       boolean duplicates) throws IllegalArgumentException;
 
+  /**
+   * Starts the Mastermind game, optionally in the black-peg-only variant where feedback reports
+   * exact matches only.
+   *
+   * @param providedColorBank the provided color options
+   * @param numGuessesAllowed the number of guesses the user is allowed to take
+   * @param numColorsInGuess  the length of each guess (number of colors)
+   * @param duplicates        whether the answer key contains duplicate colors
+   * @param exactOnly         whether inexact matches are hidden (always reported as 0)
+   * @throws IllegalArgumentException if any of the arguments are invalid
+   */
+  void startGame(List<Color> providedColorBank, int numGuessesAllowed, int numColorsInGuess,
+      boolean duplicates, boolean exactOnly) throws IllegalArgumentException;
+
   /**
    * Generates the answer key (color list).
    *
@@ -32,7 +55,7 @@ public interface IModel extends IViewModel {
    * Adds a color to a guess.
    *
    * @param color the color we are adding
-   * @throws IllegalArgumentException if color is null
+   * @throws IllegalArgumentException if color is null or not in the color bank
    * @throws IllegalStateException    if the game has not started yet
    */
   void addColorToGuess(Color color) throws IllegalArgumentException, IllegalStateException;
@@ -41,6 +41,31 @@ public interface IViewModel {
    */
   List<Color> getAnswerKey() throws IllegalStateException;
 
+  /**
+   * Determines whether the answer key may contain the same color more than once.
+   *
+   * @return true if duplicate colors are allowed, otherwise false
+   * @throws IllegalStateException if game did not start yet
+   */
+  boolean allowsDuplicates() throws IllegalStateException;
+
+  /**
+   * Determines whether this is the black-peg-only variant, where feedback reports exact matches
+   * only and the inexact count is always 0.
+   *
+   * @return true if only exact matches are reported, otherwise false
+   * @throws IllegalStateException if game did not start yet
+   */
+  boolean isExactOnly() throws IllegalStateException;
+
+  /**
+   * Determines whether the codemaker plays adversarially, answering each guess with the feedback
+   * that keeps the most secrets possible instead of scoring against a fixed answer key.
+   *
+   * @return true if the codemaker is adversarial, otherwise false
+   */
+  boolean isAdversarial();
+
   /**
    * Gets the index of the current row.
    *
@@ -49,6 +74,56 @@ public interface IViewModel {
    */
   int getRowIndex() throws IllegalStateException;
 
+  /**
+   * Gets the number of guesses that have been scored so far. Rows 0 to this number minus 1 can be
+   * read back through the history methods below.
+   *
+   * @return the number of scored guesses
+   * @throws IllegalStateException if game did not start yet
+   */
+  int getNumGuessesMade() throws IllegalStateException;
+
+  /**
+   * Gets one color of a scored guess as its index in the color bank, without allocating.
+   *
+   * @param row the row of the guess
+   * @param peg the position within the guess
+   * @return the color-bank index of the color at that position
+   * @throws IllegalArgumentException if the row has not been scored or the peg is invalid
+   * @throws IllegalStateException    if game did not start yet
+   */
+  int colorIndexAt(int row, int peg) throws IllegalArgumentException, IllegalStateException;
+
+  /**
+   * Copies a scored guess, as color-bank indices, into the given array.
+   *
+   * @param row  the row of the guess
+   * @param dest destination array with room for a whole guess
+   * @throws IllegalArgumentException if the row has not been scored or dest is too small
+   * @throws IllegalStateException    if game did not start yet
+   */
+  void copyGuess(int row, int[] dest) throws IllegalArgumentException, IllegalStateException;
+
+  /**
+   * Gets the colors of a scored guess.
+   *
+   * @param row the row of the guess
+   * @return the guessed colors
+   * @throws IllegalArgumentException if the row has not been scored
+   * @throws IllegalStateException    if game did not start yet
+   */
+  List<Color> getGuess(int row) throws IllegalArgumentException, IllegalStateException;
+
+  /**
+   * Gets the feedback of a scored guess, packed as described in Codes.
+   *
+   * @param row the row of the guess
+   * @return the packed feedback
+   * @throws IllegalArgumentException if the row has not been scored
+   * @throws IllegalStateException    if game did not start yet
+   */
+  int feedbackAt(int row) throws IllegalArgumentException, IllegalStateException;
+
   /**
    * Determines whether the user completed a guess by filling in all the circles in a row.
    *
@@ -2,16 +2,19 @@ package model;
 
 import java.awt.Color;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.SplittableRandom;
 
 /**
- * Represents a model for a Mastermind game.
+ * Represents a model for a Mastermind game. Every guess scored is reported to Flight Recorder as
+ * a mastermind.Guess event (see GuessEvent).
  */
 public class MastermindModel implements IModel {
 
+  private static final int MAX_COLORS = 256;
+
   private final List<Color> providedColorBank;
   private final List<Color> answerKey;
   private final IGuess currentGuess;
@@ -19,11 +22,31 @@ public class MastermindModel implements IModel {
   private int numColorsInGuess;
   private Status status;
   private int rowIndex;
+  private boolean allowDuplicates;
+  private boolean exactOnly;
+  // guess history: numColorsInGuess color-bank indices per row, and one packed feedback per row
+  private byte[] historyColors;
+  private int[] historyFeedback;
+  private int numGuessesMade;
+  // adversarial mode: the codemaker keeps every consistent secret instead of an answer key
+  private final boolean adversarial;
+  private PartitionEngine codemaker;
+  private SplittableRandom random;
 
   /**
    * Default constructor to initialize game
    */
   public MastermindModel() {
+    this(false);
+  }
+
+  /**
+   * Constructor to initialize game, optionally with an adversarial codemaker that never commits
+   * to an answer key and always answers so as to keep as many secrets possible as it can.
+   *
+   * @param adversarial whether the codemaker plays adversarially
+   */
+  public MastermindModel(boolean adversarial) {
     this.providedColorBank = new ArrayList<>();
     this.answerKey = new ArrayList<>();
     this.numGuessesAllowed = -1;
@@ -31,11 +54,30 @@ public class MastermindModel implements IModel {
     this.status = Status.NOTSTARTED;
     this.currentGuess = new Guess();
     this.rowIndex = 0;
+    this.allowDuplicates = false;
+    this.exactOnly = false;
+    this.historyColors = new byte[0];
+    this.historyFeedback = new int[0];
+    this.numGuessesMade = 0;
+    this.adversarial = adversarial;
+    this.codemaker = null;
+    this.random = new SplittableRandom();
+  }
+
+  @Override
+  public void setSeed(long seed) {
+    this.random = new SplittableRandom(seed);
   }
 
   @Override
   public void startGame(List<Color> providedColorBank, int numGuessesAllowed, int numColorsInGuess,
       boolean allowDuplicates) throws IllegalArgumentException {
+    this.startGame(providedColorBank, numGuessesAllowed, numColorsInGuess, allowDuplicates, false);
+  }
+
+  @Override
+  public void startGame(List<Color> providedColorBank, int numGuessesAllowed, int numColorsInGuess,
+      boolean allowDuplicates, boolean exactOnly) throws IllegalArgumentException {
     if (providedColorBank == null || providedColorBank.isEmpty()) {
       throw new IllegalArgumentException("color bank can't be null or empty!");
     }
@@ -43,10 +85,22 @@ public class MastermindModel implements IModel {
         (!allowDuplicates && numColorsInGuess > providedColorBank.size())) {
       throw new IllegalArgumentException("invalid guess restrictions!");
     }
+    if (new HashSet<>(providedColorBank).size() > MAX_COLORS) {
+      throw new IllegalArgumentException("color bank can't have more than " + MAX_COLORS
+          + " colors!");
+    }
     this.status = Status.PLAYING;
+    this.providedColorBank.clear();
+    this.answerKey.clear();
     this.removeDuplicateColors(providedColorBank);
     this.numGuessesAllowed = numGuessesAllowed;
     this.numColorsInGuess = numColorsInGuess;
+    this.allowDuplicates = allowDuplicates;
+    this.exactOnly = exactOnly;
+    this.historyColors = new byte[numGuessesAllowed * numColorsInGuess];
+    this.historyFeedback = new int[numGuessesAllowed];
+    this.numGuessesMade = 0;
+    this.rowIndex = 0;
     this.generateAnswerKey(allowDuplicates);
   }
 
@@ -74,15 +128,16 @@ public class MastermindModel implements IModel {
   @Override
   public void generateAnswerKey(boolean allowDuplicates) throws IllegalStateException {
     this.didNotStartException();
-    List<Color> colorSelection = new ArrayList<>();
-    if (allowDuplicates) {
-      colorSelection.addAll(this.duplicateEachColor());
-    } else {
-      colorSelection.addAll(this.providedColorBank);
+    if (this.adversarial) {
+      this.codemaker = new PartitionEngine(this.providedColorBank.size(), this.numColorsInGuess,
+          allowDuplicates, this.exactOnly);
+      return;
     }
-    Collections.shuffle(colorSelection);
-    for (int i = 0; i < this.numColorsInGuess; i++) {
-      this.answerKey.add(colorSelection.get(i));
+    int[] key = new int[this.numColorsInGuess];
+    new CodeSpace(this.providedColorBank.size(), this.numColorsInGuess, allowDuplicates)
+        .sample(this.random, key);
+    for (int index : key) {
+      this.answerKey.add(this.providedColorBank.get(index));
     }
   }
 
@@ -107,23 +162,22 @@ public class MastermindModel implements IModel {
   @Override
   public List<Color> getAnswerKey() throws IllegalStateException {
     this.didNotStartException();
-    return new ArrayList<>(this.answerKey);
+    if (!this.adversarial) {
+      return new ArrayList<>(this.answerKey);
+    }
+    // any secret still consistent with the replies given so far is a valid answer key
+    int[] secret = new int[this.numColorsInGuess];
+    this.codemaker.candidateAt(0, secret);
+    List<Color> colors = new ArrayList<>();
+    for (int index : secret) {
+      colors.add(this.providedColorBank.get(index));
+    }
+    return colors;
   }
 
-  /**
-   * Helper method that creates copies of each color x amount of times, where x is the number of
-   * colors permitted for each guess.
-   *
-   * @return a list of colors containing repeating colors
-   */
-  private List<Color> duplicateEachColor() {
-    List<Color> copy = new ArrayList<>();
-    for (Color c : this.providedColorBank) {
-      for (int i = 0; i < this.numColorsInGuess; i++) {
-        copy.add(c);
-      }
-    }
-    return copy;
+  @Override
+  public boolean isAdversarial() {
+    return this.adversarial;
   }
 
   @Override
@@ -132,36 +186,62 @@ public class MastermindModel implements IModel {
     if (color == null) {
       throw new IllegalArgumentException("color can't be null!");
     }
+    // guesses are scored by their colors' places in the color bank
+    if (!this.providedColorBank.contains(color)) {
+      throw new IllegalArgumentException("color is not in the color bank!");
+    }
     this.currentGuess.addColor(color);
   }
 
+  @Override
+  public boolean allowsDuplicates() throws IllegalStateException {
+    this.didNotStartException();
+    return this.allowDuplicates;
+  }
+
+  @Override
+  public boolean isExactOnly() throws IllegalStateException {
+    this.didNotStartException();
+    return this.exactOnly;
+  }
+
   @Override
   public int calcNumExact() throws IllegalStateException {
     this.didNotStartException();
-    int num = 0;
-    for (int i = 0; i < this.numColorsInGuess; i++) {
-      if (this.answerKey.get(i).toString()
-          .equals(this.currentGuess.getColorList().get(i).toString())) {
-        num = num + 1;
-      }
-    }
-    return num;
+    return Codes.exact(this.scoreCurrentGuess());
   }
 
   @Override
   public int calcNumInExact() throws IllegalStateException {
     this.didNotStartException();
-    int num = 0;
-    List<Color> inexactColorsAlreadySeen = new ArrayList<>();
+    return Codes.inexact(this.scoreCurrentGuess());
+  }
+
+  /**
+   * Scores the current guess against the answer key with the shared rule in Codes, so the game
+   * and any solver or harness agree on feedback.
+   *
+   * @return the packed feedback of the current guess
+   */
+  private int scoreCurrentGuess() {
+    int[] secret = this.toIndices(this.getAnswerKey());
+    int[] guess = this.toIndices(this.currentGuess.getColorList());
+    int feedback = Codes.score(secret, guess, new int[this.providedColorBank.size()]);
+    return this.exactOnly ? Codes.exactOnly(feedback) : feedback;
+  }
+
+  /**
+   * Converts a list of colors into their indices in the color bank.
+   *
+   * @param colors the colors
+   * @return the color-bank index of each color
+   */
+  private int[] toIndices(List<Color> colors) {
+    int[] indices = new int[this.numColorsInGuess];
     for (int i = 0; i < this.numColorsInGuess; i++) {
-      Color curGuessColor = this.currentGuess.getColorList().get(i);
-      if (!this.answerKey.get(i).toString().equals(curGuessColor.toString())
-          && !inexactColorsAlreadySeen.contains(curGuessColor)) {
-        num = num + 1;
-        inexactColorsAlreadySeen.add(curGuessColor);
-      }
+      indices[i] = this.providedColorBank.indexOf(colors.get(i));
     }
-    return num;
+    return indices;
   }
 
   @Override
@@ -177,13 +257,128 @@ public class MastermindModel implements IModel {
       throw new IllegalArgumentException("invalid index!");
     }
     this.rowIndex = index;
+    // rows at or above the new index will be guessed again
+    if (index < this.numGuessesMade && this.adversarial) {
+      this.rebuildCodemaker(index);
+    }
+    this.numGuessesMade = Math.min(this.numGuessesMade, index);
+  }
+
+  /**
+   * Rebuilds the adversarial codemaker from the first rows of the history, so replies given to
+   * rows that are about to be guessed again no longer constrain the secret.
+   *
+   * @param numRows the number of history rows to keep
+   */
+  private void rebuildCodemaker(int numRows) {
+    this.codemaker = new PartitionEngine(this.providedColorBank.size(), this.numColorsInGuess,
+        this.allowDuplicates, this.exactOnly);
+    int[] guess = new int[this.numColorsInGuess];
+    for (int row = 0; row < numRows; row++) {
+      this.copyGuess(row, guess);
+      this.codemaker.replay(guess, this.historyFeedback[row]);
+    }
   }
 
   @Override
   public void updateGuessMatchInfo() throws IllegalStateException {
     this.didNotStartException();
-    this.currentGuess.setExact(this.calcNumExact());
-    this.currentGuess.setInexact(this.calcNumInExact());
+    GuessEvent event = new GuessEvent();
+    event.begin();
+    int feedback = this.adversarial
+        ? this.codemaker.respond(this.toIndices(this.currentGuess.getColorList()))
+        : this.scoreCurrentGuess();
+    event.end();
+    this.currentGuess.setExact(Codes.exact(feedback));
+    this.currentGuess.setInexact(Codes.inexact(feedback));
+    this.recordGuess(this.toIndices(this.currentGuess.getColorList()), feedback);
+    if (event.shouldCommit()) {
+      event.numColors = this.providedColorBank.size();
+      event.numPegs = this.numColorsInGuess;
+      event.row = this.rowIndex;
+      event.exact = Codes.exact(feedback);
+      event.inexact = Codes.inexact(feedback);
+      event.adversarial = this.adversarial;
+      event.candidates = this.adversarial ? this.codemaker.size() : -1;
+      event.commit();
+    }
+  }
+
+  /**
+   * Stores a scored guess in the history at the current row.
+   *
+   * @param guess    the guess as color-bank indices
+   * @param feedback the packed feedback
+   */
+  private void recordGuess(int[] guess, int feedback) {
+    int base = this.rowIndex * this.numColorsInGuess;
+    for (int i = 0; i < this.numColorsInGuess; i++) {
+      this.historyColors[base + i] = (byte) guess[i];
+    }
+    this.historyFeedback[this.rowIndex] = feedback;
+    this.numGuessesMade = this.rowIndex + 1;
+  }
+
+  /**
+   * Throws an exception if the given row has no scored guess in the history.
+   *
+   * @param row the row index
+   * @throws IllegalArgumentException if the row has not been guessed yet
+   */
+  private void invalidHistoryRow(int row) throws IllegalArgumentException {
+    if (row < 0 || row >= this.numGuessesMade) {
+      throw new IllegalArgumentException("no guess recorded at row " + row + "!");
+    }
+  }
+
+  @Override
+  public int getNumGuessesMade() throws IllegalStateException {
+    this.didNotStartException();
+    return this.numGuessesMade;
+  }
+
+  @Override
+  public int colorIndexAt(int row, int peg) throws IllegalArgumentException,
+      IllegalStateException {
+    this.didNotStartException();
+    this.invalidHistoryRow(row);
+    if (peg < 0 || peg >= this.numColorsInGuess) {
+      throw new IllegalArgumentException("invalid peg index!");
+    }
+    return this.historyColors[row * this.numColorsInGuess + peg] & 0xFF;
+  }
+
+  @Override
+  public void copyGuess(int row, int[] dest) throws IllegalArgumentException,
+      IllegalStateException {
+    this.didNotStartException();
+    this.invalidHistoryRow(row);
+    if (dest == null || dest.length < this.numColorsInGuess) {
+      throw new IllegalArgumentException("destination can't hold a guess!");
+    }
+    int base = row * this.numColorsInGuess;
+    for (int i = 0; i < this.numColorsInGuess; i++) {
+      dest[i] = this.historyColors[base + i] & 0xFF;
+    }
+  }
+
+  @Override
+  public List<Color> getGuess(int row) throws IllegalArgumentException, IllegalStateException {
+    this.didNotStartException();
+    this.invalidHistoryRow(row);
+    List<Color> colors = new ArrayList<>();
+    int base = row * this.numColorsInGuess;
+    for (int i = 0; i < this.numColorsInGuess; i++) {
+      colors.add(this.providedColorBank.get(this.historyColors[base + i] & 0xFF));
+    }
+    return colors;
+  }
+
+  @Override
+  public int feedbackAt(int row) throws IllegalArgumentException, IllegalStateException {
+    this.didNotStartException();
+    this.invalidHistoryRow(row);
+    return this.historyFeedback[row];
   }
 
   @Override
@@ -208,8 +403,9 @@ public class MastermindModel implements IModel {
   @Override
   public boolean winGame() throws IllegalStateException {
     this.didNotStartException();
+    List<Color> key = this.getAnswerKey();
     for (int i = 0; i < this.numColorsInGuess; i++) {
-      if (!this.answerKey.get(i).toString()
+      if (!key.get(i).toString()
           .equals(this.currentGuess.getColorList().get(i).toString())) {
         return false;
       }
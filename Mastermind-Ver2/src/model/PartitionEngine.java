@@ -0,0 +1,126 @@
+package model;
+
+import java.util.stream.IntStream;
+
+/**
+ * Plays the codemaker adversarially: it never commits to an answer key. Each guess is scored
+ * against every secret still consistent with the game so far, the secrets are partitioned by the
+ * feedback they would give, and the largest class is kept. Scoring is split into chunks that run
+ * on the common fork-join pool once the candidate set is large enough to benefit.
+ */
+public class PartitionEngine {
+
+  private static final int CHUNK_SIZE = 4096;
+
+  private final CandidateSet candidates;
+  private final int numPegs;
+  private final int numColors;
+
+  /**
+   * Constructs an engine whose candidates are every code of the configuration.
+   *
+   * @param numColors  the number of colors
+   * @param numPegs    the number of colors in a code
+   * @param duplicates whether codes may repeat colors
+   * @param exactOnly  whether feedback reports exact matches only
+   * @throws IllegalArgumentException if the configuration is invalid or too large to enumerate
+   */
+  public PartitionEngine(int numColors, int numPegs, boolean duplicates, boolean exactOnly)
+      throws IllegalArgumentException {
+    this.candidates = new CandidateSet(numColors, numPegs, duplicates, exactOnly);
+    this.numPegs = numPegs;
+    this.numColors = numColors;
+  }
+
+  /**
+   * Gets the number of secrets still consistent with every reply given so far.
+   *
+   * @return the number of remaining candidates
+   */
+  public int size() {
+    return this.candidates.size();
+  }
+
+  /**
+   * Copies one remaining candidate into dest. Any of them is a valid answer key for the game so
+   * far, so this is what is revealed when the game ends.
+   *
+   * @param index the candidate index
+   * @param dest  destination array, one slot per peg
+   * @throws IllegalArgumentException if the index is invalid
+   */
+  public void candidateAt(int index, int[] dest) throws IllegalArgumentException {
+    this.candidates.codeAt(index, dest);
+  }
+
+  /**
+   * Replies to a guess with the feedback shared by the most remaining candidates, and narrows
+   * the candidates to that class. Ties go to the class with fewer exact matches, so the engine
+   * only admits a solved guess when no other reply is left.
+   *
+   * @param guess the guess as color-bank indices
+   * @return the packed feedback
+   * @throws IllegalArgumentException if the guess is null or has the wrong length
+   */
+  public int respond(int[] guess) throws IllegalArgumentException {
+    if (guess == null || guess.length != this.numPegs) {
+      throw new IllegalArgumentException("invalid guess!");
+    }
+    int[] feedbacks = this.scoreAll(guess);
+    int[] classSizes = new int[Codes.numFeedbackIndices(this.numPegs)];
+    for (int i = 0; i < this.candidates.size(); i++) {
+      classSizes[Codes.feedbackIndex(feedbacks[i], this.numPegs)]++;
+    }
+    int best = -1;
+    for (int exact = 0; exact <= this.numPegs; exact++) {
+      for (int inexact = 0; inexact + exact <= this.numPegs; inexact++) {
+        int index = Codes.feedbackIndex(Codes.pack(exact, inexact), this.numPegs);
+        if (best < 0 || classSizes[index] > classSizes[best]) {
+          best = index;
+        }
+      }
+    }
+    int reply = Codes.pack(best / (this.numPegs + 1), best % (this.numPegs + 1));
+    this.candidates.retain(feedbacks, reply);
+    return reply;
+  }
+
+  /**
+   * Narrows the candidates to those consistent with a reply that was already given, e.g. when
+   * rebuilding the engine from a stored history.
+   *
+   * @param guess    the guess as color-bank indices
+   * @param feedback the packed feedback that was given
+   * @throws IllegalArgumentException if the guess is null or has the wrong length
+   */
+  public void replay(int[] guess, int feedback) throws IllegalArgumentException {
+    if (guess == null || guess.length != this.numPegs) {
+      throw new IllegalArgumentException("invalid guess!");
+    }
+    this.candidates.retain(this.scoreAll(guess), feedback);
+  }
+
+  /**
+   * Scores a guess against every candidate, in parallel chunks for large sets.
+   *
+   * @param guess the guess
+   * @return the packed feedback of each candidate, in index order
+   */
+  private int[] scoreAll(int[] guess) {
+    int size = this.candidates.size();
+    int[] feedbacks = new int[size];
+    int numChunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    IntStream chunks = IntStream.range(0, numChunks);
+    if (numChunks > 1) {
+      chunks = chunks.parallel();
+    }
+    chunks.forEach(chunk -> {
+      int[] counts = new int[this.numColors];
+      int end = Math.min(size, (chunk + 1) * CHUNK_SIZE);
+      for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+        feedbacks[i] = this.candidates.scoreAgainst(i, guess, counts);
+      }
+    });
+    return feedbacks;
+  }
+}
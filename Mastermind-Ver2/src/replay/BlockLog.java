@@ -0,0 +1,322 @@
+package replay;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The layout of a replay log file. The file starts with MAGIC and is followed by blocks, each a
+ * run of encoded records compressed on its own:
+ *
+ * <pre>
+ *   varint   the length of the records
+ *   varint   the length of the compressed records
+ *   4 bytes  the CRC-32 of the compressed records
+ *   bytes    the records, deflated
+ * </pre>
+ *
+ * <p>Blocks are only ever appended. A block that was cut short, say by a crash while it was being
+ * written, can only be the last one; readers stop before it and writers cut it off before they
+ * append, so a log always reads back as the records of its whole blocks.
+ */
+final class BlockLog {
+
+  static final byte[] MAGIC = {'M', 'M', 'R', 'L', 1};
+  static final int MAX_BLOCK_BYTES = 1 << 24;
+
+  /**
+   * Prevents instantiation.
+   */
+  private BlockLog() {
+  }
+
+  /**
+   * Compresses a block of records and frames it as it goes into the file.
+   *
+   * @param records    the encoded records
+   * @param deflater   the deflater to compress with
+   * @param compressed scratch space for the compressed records
+   * @param out        where the framed block goes; it is cleared first
+   */
+  static void encode(RecordBuffer records, Deflater deflater, RecordBuffer compressed,
+      RecordBuffer out) {
+    deflater.reset();
+    deflater.setInput(records.bytes(), 0, records.size());
+    deflater.finish();
+    compressed.clear(records.size() / 2 + 64);
+    int length = 0;
+    while (!deflater.finished()) {
+      if (length == compressed.bytes().length) {
+        compressed.grow();
+      }
+      length += deflater.deflate(compressed.bytes(), length, compressed.bytes().length - length);
+    }
+    CRC32 crc = new CRC32();
+    crc.update(compressed.bytes(), 0, length);
+    out.clear(length + 24);
+    out.writeVarLong(records.size());
+    out.writeVarLong(length);
+    out.writeInt((int) crc.getValue());
+    out.write(compressed.bytes(), length);
+  }
+
+  /**
+   * Reads the next block of a log.
+   *
+   * @param in         the log, positioned at a block
+   * @param inflater   the inflater to decompress with
+   * @param compressed scratch space for the compressed records
+   * @param records    where the records go
+   * @return the number of bytes the block took in the file, or 0 if the log ends before a whole
+   *         block
+   * @throws IOException if the log can't be read or the block is corrupt
+   */
+  static int read(InputStream in, Inflater inflater, RecordBuffer compressed,
+      RecordBuffer records) throws IOException {
+    int first = in.read();
+    if (first < 0) {
+      return 0;
+    }
+    int rawLength;
+    int length;
+    int checksum = 0;
+    try {
+      rawLength = readLength(in, first);
+      length = readLength(in, in.read());
+      for (int i = 0; i < 4; i++) {
+        checksum = checksum << 8 | readByte(in);
+      }
+      compressed.clear(length);
+      readFully(in, compressed.bytes(), length);
+    } catch (EOFException e) {
+      return 0;
+    }
+    CRC32 crc = new CRC32();
+    crc.update(compressed.bytes(), 0, length);
+    if ((int) crc.getValue() != checksum) {
+      throw new IOException("corrupt replay log block!");
+    }
+    inflater.reset();
+    inflater.setInput(compressed.bytes(), 0, length);
+    records.clear(rawLength);
+    int inflated = 0;
+    try {
+      while (inflated < rawLength) {
+        int n = inflater.inflate(records.bytes(), inflated, rawLength - inflated);
+        if (n == 0) {
+          break;
+        }
+        inflated += n;
+      }
+    } catch (DataFormatException e) {
+      throw new IOException("corrupt replay log block!", e);
+    }
+    if (inflated != rawLength || !inflater.finished()) {
+      throw new IOException("corrupt replay log block!");
+    }
+    records.fill(rawLength);
+    return varLength(rawLength) + varLength(length) + 4 + length;
+  }
+
+  /**
+   * Checks a log's header and finds where its last whole block ends.
+   *
+   * @param file the log
+   * @return the length of the log without a cut-short last block, or 0 if the file doesn't exist
+   *         or is empty
+   * @throws IOException if the file can't be read, is not a replay log or has a corrupt block
+   */
+  static long validLength(Path file) throws IOException {
+    if (!Files.exists(file) || Files.size(file) == 0) {
+      return 0;
+    }
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+      checkHeader(in);
+      long length = MAGIC.length;
+      Inflater inflater = new Inflater();
+      RecordBuffer compressed = new RecordBuffer(1 << 16);
+      RecordBuffer records = new RecordBuffer(1 << 16);
+      try {
+        for (int taken = read(in, inflater, compressed, records); taken > 0;
+            taken = read(in, inflater, compressed, records)) {
+          length += taken;
+        }
+      } finally {
+        inflater.end();
+      }
+      return length;
+    }
+  }
+
+  /**
+   * Finds where the whole blocks of a log start, without decompressing them.
+   *
+   * @param file the log
+   * @param from the offset of the block to start at, or 0 for the first block
+   * @return the offsets of the blocks from the given one on, followed by the offset where the
+   *         last whole block ends
+   * @throws IOException if the file can't be read, is not a replay log or the offset is past its
+   *                     end
+   */
+  static long[] blockOffsets(Path file, long from) throws IOException {
+    long size = Files.size(file);
+    long offset = Math.max(from, MAGIC.length);
+    if (offset > size) {
+      throw new IOException("offset is past the end of the replay log!");
+    }
+    long[] offsets = new long[16];
+    int count = 0;
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+      checkHeader(in);
+      skipFully(in, offset - MAGIC.length);
+      while (true) {
+        if (count == offsets.length) {
+          offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count++] = offset;
+        int first = in.read();
+        if (first < 0) {
+          break;
+        }
+        long taken;
+        try {
+          int rawLength = readLength(in, first);
+          int length = readLength(in, in.read());
+          taken = varLength(rawLength) + varLength(length) + 4 + length;
+          skipFully(in, 4 + length);
+        } catch (EOFException e) {
+          break;
+        }
+        if (offset + taken > size) {
+          break;
+        }
+        offset += taken;
+      }
+    }
+    return Arrays.copyOf(offsets, count);
+  }
+
+  /**
+   * Skips bytes of a stream.
+   *
+   * @param in     the stream
+   * @param length the number of bytes
+   * @throws IOException if the stream can't be read or ends early
+   */
+  static void skipFully(InputStream in, long length) throws IOException {
+    long left = length;
+    while (left > 0) {
+      long skipped = in.skip(left);
+      if (skipped <= 0) {
+        readByte(in);
+        skipped = 1;
+      }
+      left -= skipped;
+    }
+  }
+
+  /**
+   * Reads a log's header.
+   *
+   * @param in the log, at its start
+   * @throws IOException if the log can't be read or doesn't start with MAGIC
+   */
+  static void checkHeader(InputStream in) throws IOException {
+    byte[] header = new byte[MAGIC.length];
+    try {
+      readFully(in, header, header.length);
+    } catch (EOFException e) {
+      throw new IOException("not a replay log!", e);
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (header[i] != MAGIC[i]) {
+        throw new IOException("not a replay log!");
+      }
+    }
+  }
+
+  /**
+   * Reads the length of a block's records from a stream.
+   *
+   * @param in    the stream
+   * @param first the varint's first byte, already read, or -1 at the end of the stream
+   * @return the length
+   * @throws IOException if the stream can't be read or ends within the length, or the length is
+   *                     more than a block may hold
+   */
+  private static int readLength(InputStream in, int first) throws IOException {
+    long value = 0;
+    int b = first;
+    for (int shift = 0; shift < 35; shift += 7) {
+      if (b < 0) {
+        throw new EOFException();
+      }
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        if (value > MAX_BLOCK_BYTES * 2L) {
+          throw new IOException("corrupt replay log block!");
+        }
+        return (int) value;
+      }
+      b = in.read();
+    }
+    throw new IOException("corrupt replay log block!");
+  }
+
+  /**
+   * Gets the number of bytes a length takes as a varint.
+   *
+   * @param value the length
+   * @return the number of bytes
+   */
+  private static int varLength(int value) {
+    int bytes = 1;
+    while ((value & ~0x7F) != 0) {
+      value >>>= 7;
+      bytes++;
+    }
+    return bytes;
+  }
+
+  /**
+   * Reads one byte from a stream.
+   *
+   * @param in the stream
+   * @return the byte, between 0 and 255
+   * @throws IOException if the stream can't be read or ends
+   */
+  private static int readByte(InputStream in) throws IOException {
+    int b = in.read();
+    if (b < 0) {
+      throw new EOFException();
+    }
+    return b;
+  }
+
+  /**
+   * Reads bytes from a stream until the given number have been read.
+   *
+   * @param in     the stream
+   * @param dest   where the bytes go
+   * @param length the number of bytes
+   * @throws IOException if the stream can't be read or ends early
+   */
+  private static void readFully(InputStream in, byte[] dest, int length) throws IOException {
+    int done = 0;
+    while (done < length) {
+      int n = in.read(dest, done, length - done);
+      if (n < 0) {
+        throw new EOFException();
+      }
+      done += n;
+    }
+  }
+}
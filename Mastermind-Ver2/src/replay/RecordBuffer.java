@@ -0,0 +1,184 @@
+package replay;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A growable byte buffer that records are encoded into and decoded from. Numbers are written as
+ * varints, seven bits per byte with the high bit set on every byte but the last, so the small
+ * numbers records are mostly made of take a byte or two; numbers that may be negative are zigzag
+ * encoded first, so small negative numbers stay small too.
+ */
+final class RecordBuffer {
+
+  private byte[] bytes;
+  private int size;
+  private int position;
+
+  /**
+   * Constructs an empty buffer.
+   *
+   * @param capacity the number of bytes it holds before it has to grow
+   */
+  RecordBuffer(int capacity) {
+    this.bytes = new byte[Math.max(16, capacity)];
+  }
+
+  /**
+   * Gets the bytes written so far; only the first size of them are valid.
+   *
+   * @return the backing array
+   */
+  byte[] bytes() {
+    return this.bytes;
+  }
+
+  /**
+   * Gets the number of bytes written.
+   *
+   * @return the size
+   */
+  int size() {
+    return this.size;
+  }
+
+  /**
+   * Empties the buffer and makes room for the given number of bytes, which the caller may then
+   * fill through bytes() before setting the size with fill.
+   *
+   * @param capacity the number of bytes needed
+   */
+  void clear(int capacity) {
+    if (capacity > this.bytes.length) {
+      this.bytes = new byte[Math.max(capacity, this.bytes.length * 2)];
+    }
+    this.size = 0;
+    this.position = 0;
+  }
+
+  /**
+   * Marks the first bytes of the backing array as written, to be read from the start.
+   *
+   * @param size the number of valid bytes
+   */
+  void fill(int size) {
+    this.size = size;
+    this.position = 0;
+  }
+
+  /**
+   * Checks whether any bytes are left to read.
+   *
+   * @return true if the read position is before the end, otherwise false
+   */
+  boolean hasRemaining() {
+    return this.position < this.size;
+  }
+
+  /**
+   * Doubles the room of the buffer, keeping what was written to it.
+   */
+  void grow() {
+    this.bytes = Arrays.copyOf(this.bytes, this.bytes.length * 2);
+  }
+
+  /**
+   * Writes raw bytes.
+   *
+   * @param src    the bytes
+   * @param length the number of bytes, from the start of src
+   */
+  void write(byte[] src, int length) {
+    while (this.size + length > this.bytes.length) {
+      this.grow();
+    }
+    System.arraycopy(src, 0, this.bytes, this.size, length);
+    this.size += length;
+  }
+
+  /**
+   * Writes an int as four bytes, the most significant first.
+   *
+   * @param value the int
+   */
+  void writeInt(int value) {
+    if (this.size + 4 > this.bytes.length) {
+      this.grow();
+    }
+    for (int shift = 24; shift >= 0; shift -= 8) {
+      this.bytes[this.size++] = (byte) (value >>> shift);
+    }
+  }
+
+  /**
+   * Writes a number that is never negative.
+   *
+   * @param value the number
+   */
+  void writeVarLong(long value) {
+    if (this.size + 10 > this.bytes.length) {
+      this.grow();
+    }
+    while ((value & ~0x7FL) != 0) {
+      this.bytes[this.size++] = (byte) (value | 0x80);
+      value >>>= 7;
+    }
+    this.bytes[this.size++] = (byte) value;
+  }
+
+  /**
+   * Writes a number that may be negative.
+   *
+   * @param value the number
+   */
+  void writeZigZag(long value) {
+    this.writeVarLong((value << 1) ^ (value >> 63));
+  }
+
+  /**
+   * Reads a number written by writeVarLong.
+   *
+   * @return the number
+   * @throws IOException if the buffer ends within the number or it is longer than ten bytes
+   */
+  long readVarLong() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      if (this.position >= this.size) {
+        throw new IOException("record ends early!");
+      }
+      byte b = this.bytes[this.position++];
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+    throw new IOException("malformed varint!");
+  }
+
+  /**
+   * Reads a number written by writeVarLong that has to fit an int between 0 and the given bound.
+   *
+   * @param bound the largest value allowed
+   * @return the number
+   * @throws IOException if the number can't be read or is out of range
+   */
+  int readVarInt(int bound) throws IOException {
+    long value = this.readVarLong();
+    if (value < 0 || value > bound) {
+      throw new IOException("record field out of range!");
+    }
+    return (int) value;
+  }
+
+  /**
+   * Reads a number written by writeZigZag.
+   *
+   * @return the number
+   * @throws IOException if the number can't be read
+   */
+  long readZigZag() throws IOException {
+    long value = this.readVarLong();
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
@@ -0,0 +1,194 @@
+package replay;
+
+import java.awt.Color;
+import java.util.List;
+import java.util.SplittableRandom;
+import model.IGuess;
+import model.IModel;
+
+/**
+ * A model that passes every call on to another model and records each game to a replay log: its
+ * configuration, seed and answer key when it starts and every guess with its feedback once it is
+ * scored. Every game is started from a fresh seed, so a Replayer can play the log back on a new
+ * model and check that it answers every guess the same way.
+ *
+ * <p>Recording only queues records for the log's writer thread (see ReplayWriter), so the game
+ * thread never waits for the file.
+ */
+public class RecordingModel implements IModel {
+
+  private final IModel model;
+  private final ReplayWriter writer;
+  private SplittableRandom seeds;
+
+  /**
+   * Constructs a model that records the games of another.
+   *
+   * @param model  the model that plays the games
+   * @param writer the log to record to
+   * @throws IllegalArgumentException if either argument is null
+   */
+  public RecordingModel(IModel model, ReplayWriter writer) throws IllegalArgumentException {
+    if (model == null || writer == null) {
+      throw new IllegalArgumentException("model and writer can't be null!");
+    }
+    this.model = model;
+    this.writer = writer;
+    this.seeds = new SplittableRandom();
+  }
+
+  @Override
+  public void setSeed(long seed) {
+    // the seeds of the games that follow are drawn from it
+    this.seeds = new SplittableRandom(seed);
+  }
+
+  @Override
+  public void startGame(List<Color> providedColorBank, int numGuessesAllowed, int numColorsInGuess,
+      boolean duplicates) throws IllegalArgumentException {
+    this.startGame(providedColorBank, numGuessesAllowed, numColorsInGuess, duplicates, false);
+  }
+
+  @Override
+  public void startGame(List<Color> providedColorBank, int numGuessesAllowed, int numColorsInGuess,
+      boolean duplicates, boolean exactOnly) throws IllegalArgumentException {
+    long timestamp = System.currentTimeMillis();
+    long seed = this.seeds.nextLong();
+    this.model.setSeed(seed);
+    this.model.startGame(providedColorBank, numGuessesAllowed, numColorsInGuess, duplicates,
+        exactOnly);
+    int[] key = new int[0];
+    if (!this.model.isAdversarial()) {
+      List<Color> bank = this.model.getColorBank();
+      List<Color> answer = this.model.getAnswerKey();
+      key = new int[answer.size()];
+      for (int i = 0; i < key.length; i++) {
+        key[i] = bank.indexOf(answer.get(i));
+      }
+    }
+    this.writer.append(ReplayRecord.start(timestamp, seed, providedColorBank, numGuessesAllowed,
+        numColorsInGuess, duplicates, exactOnly, this.model.isAdversarial(), key));
+  }
+
+  @Override
+  public void generateAnswerKey(boolean duplicates) throws IllegalStateException {
+    this.model.generateAnswerKey(duplicates);
+  }
+
+  @Override
+  public void addColorToGuess(Color color) throws IllegalArgumentException, IllegalStateException {
+    this.model.addColorToGuess(color);
+  }
+
+  @Override
+  public int calcNumExact() throws IllegalStateException {
+    return this.model.calcNumExact();
+  }
+
+  @Override
+  public int calcNumInExact() throws IllegalStateException {
+    return this.model.calcNumInExact();
+  }
+
+  @Override
+  public void setRowIndex(int index) throws IllegalArgumentException, IllegalStateException {
+    this.model.setRowIndex(index);
+  }
+
+  @Override
+  public IGuess getCurrentGuess() throws IllegalStateException {
+    return this.model.getCurrentGuess();
+  }
+
+  @Override
+  public void updateGuessMatchInfo() throws IllegalStateException {
+    long timestamp = System.currentTimeMillis();
+    this.model.updateGuessMatchInfo();
+    int row = this.model.getRowIndex();
+    int[] guess = new int[this.model.getNumColorsInGuess()];
+    this.model.copyGuess(row, guess);
+    this.writer.append(ReplayRecord.guess(timestamp, row, guess, this.model.feedbackAt(row)));
+  }
+
+  @Override
+  public void setNewCurrentGuessRow() throws IllegalStateException {
+    this.model.setNewCurrentGuessRow();
+  }
+
+  @Override
+  public List<Color> getColorBank() throws IllegalStateException {
+    return this.model.getColorBank();
+  }
+
+  @Override
+  public int getNumGuessesAllowed() throws IllegalStateException {
+    return this.model.getNumGuessesAllowed();
+  }
+
+  @Override
+  public int getNumColorsInGuess() throws IllegalStateException {
+    return this.model.getNumColorsInGuess();
+  }
+
+  @Override
+  public List<Color> getAnswerKey() throws IllegalStateException {
+    return this.model.getAnswerKey();
+  }
+
+  @Override
+  public boolean allowsDuplicates() throws IllegalStateException {
+    return this.model.allowsDuplicates();
+  }
+
+  @Override
+  public boolean isExactOnly() throws IllegalStateException {
+    return this.model.isExactOnly();
+  }
+
+  @Override
+  public boolean isAdversarial() {
+    return this.model.isAdversarial();
+  }
+
+  @Override
+  public int getRowIndex() throws IllegalStateException {
+    return this.model.getRowIndex();
+  }
+
+  @Override
+  public int getNumGuessesMade() throws IllegalStateException {
+    return this.model.getNumGuessesMade();
+  }
+
+  @Override
+  public int colorIndexAt(int row, int peg) throws IllegalArgumentException,
+      IllegalStateException {
+    return this.model.colorIndexAt(row, peg);
+  }
+
+  @Override
+  public void copyGuess(int row, int[] dest) throws IllegalArgumentException,
+      IllegalStateException {
+    this.model.copyGuess(row, dest);
+  }
+
+  @Override
+  public List<Color> getGuess(int row) throws IllegalArgumentException, IllegalStateException {
+    return this.model.getGuess(row);
+  }
+
+  @Override
+  public int feedbackAt(int row) throws IllegalArgumentException, IllegalStateException {
+    return this.model.feedbackAt(row);
+  }
+
+  @Override
+  public boolean isFullRow() throws IllegalStateException {
+    return this.model.isFullRow();
+  }
+
+  @Override
+  public boolean winGame() throws IllegalStateException {
+    return this.model.winGame();
+  }
+}
@@ -0,0 +1,349 @@
+package replay;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One entry of a Mastermind replay log: a game's configuration and answer key, or a scored guess,
+ * with the time it was made. Replaying the guesses of a game on a model seeded with the game's
+ * seed gives the same feedback (see Replayer). Records are immutable.
+ *
+ * <p>In the log a record is its type and the milliseconds since the record before it in the same
+ * block, followed by its fields, all as varints; colors are indices into the game's color bank.
+ */
+public final class ReplayRecord {
+
+  /**
+   * The kinds of records.
+   */
+  public enum Type {
+    // a game started: startGame after seeding the model
+    START,
+    // a guess was scored: updateGuessMatchInfo
+    GUESS
+  }
+
+  private static final Type[] TYPES = Type.values();
+  private static final int MAX_PEGS = 1 << 16;
+
+  private final Type type;
+  private final long timestamp;
+  private final long seed;
+  private final List<Color> colorBank;
+  private final int numGuessesAllowed;
+  private final boolean duplicates;
+  private final boolean exactOnly;
+  private final boolean adversarial;
+  private final boolean keyed;
+  private final int row;
+  private final int[] pegs;
+  private final int feedback;
+
+  /**
+   * Constructs a record; the fields a type doesn't use are 0, false or null.
+   *
+   * @param type              the type
+   * @param timestamp         the time of the call, in milliseconds since the epoch
+   * @param seed              the seed the model was given
+   * @param colorBank         the colors the game was started with
+   * @param numGuessesAllowed the number of guesses allowed
+   * @param duplicates        whether codes may repeat colors
+   * @param exactOnly         whether feedback only counts exact matches
+   * @param adversarial       whether the codemaker plays adversarially
+   * @param keyed             whether the pegs of a start are the answer key
+   * @param row               the row of a guess
+   * @param pegs              the answer key, or the guess
+   * @param feedback          the packed feedback of a guess
+   */
+  private ReplayRecord(Type type, long timestamp, long seed, List<Color> colorBank,
+      int numGuessesAllowed, boolean duplicates, boolean exactOnly, boolean adversarial,
+      boolean keyed, int row, int[] pegs, int feedback) {
+    this.type = type;
+    this.timestamp = timestamp;
+    this.seed = seed;
+    this.colorBank = colorBank;
+    this.numGuessesAllowed = numGuessesAllowed;
+    this.duplicates = duplicates;
+    this.exactOnly = exactOnly;
+    this.adversarial = adversarial;
+    this.keyed = keyed;
+    this.row = row;
+    this.pegs = pegs;
+    this.feedback = feedback;
+  }
+
+  /**
+   * Makes the record of a game's start.
+   *
+   * @param timestamp         the time of the call, in milliseconds since the epoch
+   * @param seed              the seed the model was given right before
+   * @param colorBank         the colors the game was started with
+   * @param numGuessesAllowed the number of guesses allowed
+   * @param numColorsInGuess  the number of colors in a guess
+   * @param duplicates        whether codes may repeat colors
+   * @param exactOnly         whether feedback only counts exact matches
+   * @param adversarial       whether the codemaker plays adversarially
+   * @param answerKey         the answer key as color-bank indices, empty for an adversarial
+   *                          codemaker, who has none
+   * @return the record
+   * @throws IllegalArgumentException if the bank or key is null or holds null or negative
+   *                                  entries, a number is not positive or the key is neither
+   *                                  empty nor numColorsInGuess long
+   */
+  public static ReplayRecord start(long timestamp, long seed, List<Color> colorBank,
+      int numGuessesAllowed, int numColorsInGuess, boolean duplicates, boolean exactOnly,
+      boolean adversarial, int[] answerKey) throws IllegalArgumentException {
+    if (colorBank == null || colorBank.isEmpty() || colorBank.contains(null)
+        || numGuessesAllowed <= 0 || numColorsInGuess <= 0 || numColorsInGuess > MAX_PEGS
+        || answerKey == null || !validPegs(answerKey)
+        || (answerKey.length != 0 && answerKey.length != numColorsInGuess)) {
+      throw new IllegalArgumentException("invalid start record arguments!");
+    }
+    int[] key = answerKey.length == 0 ? new int[numColorsInGuess] : answerKey.clone();
+    return new ReplayRecord(Type.START, timestamp, seed,
+        Collections.unmodifiableList(new ArrayList<>(colorBank)), numGuessesAllowed, duplicates,
+        exactOnly, adversarial, answerKey.length > 0, 0, key, 0);
+  }
+
+  /**
+   * Makes the record of a scored guess.
+   *
+   * @param timestamp the time of the call, in milliseconds since the epoch
+   * @param row       the row the guess was made in
+   * @param guess     the guess as color-bank indices
+   * @param feedback  the packed feedback it got
+   * @return the record
+   * @throws IllegalArgumentException if the row or feedback is negative, or the guess is null or
+   *                                  empty or holds negative indices
+   */
+  public static ReplayRecord guess(long timestamp, int row, int[] guess, int feedback)
+      throws IllegalArgumentException {
+    if (row < 0 || feedback < 0 || guess == null || guess.length == 0
+        || guess.length > MAX_PEGS || !validPegs(guess)) {
+      throw new IllegalArgumentException("invalid guess record arguments!");
+    }
+    return new ReplayRecord(Type.GUESS, timestamp, 0, null, 0, false, false, false, false, row,
+        guess.clone(), feedback);
+  }
+
+  /**
+   * Checks that no peg is negative.
+   *
+   * @param pegs the pegs
+   * @return true if every peg is a color-bank index, otherwise false
+   */
+  private static boolean validPegs(int[] pegs) {
+    for (int peg : pegs) {
+      if (peg < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Gets the type of the record.
+   *
+   * @return the type
+   */
+  public Type getType() {
+    return this.type;
+  }
+
+  /**
+   * Gets the time of the call.
+   *
+   * @return the time in milliseconds since the epoch
+   */
+  public long getTimestamp() {
+    return this.timestamp;
+  }
+
+  /**
+   * Gets the seed of a started game.
+   *
+   * @return the seed, 0 for guesses
+   */
+  public long getSeed() {
+    return this.seed;
+  }
+
+  /**
+   * Gets the colors a game was started with.
+   *
+   * @return an unmodifiable list of the colors, null for guesses
+   */
+  public List<Color> getColorBank() {
+    return this.colorBank;
+  }
+
+  /**
+   * Gets the number of guesses allowed in a started game.
+   *
+   * @return the number of guesses, 0 for guesses
+   */
+  public int getNumGuessesAllowed() {
+    return this.numGuessesAllowed;
+  }
+
+  /**
+   * Gets the number of colors in a guess.
+   *
+   * @return the number of colors
+   */
+  public int getNumColorsInGuess() {
+    return this.pegs.length;
+  }
+
+  /**
+   * Checks whether a started game allows codes with repeated colors.
+   *
+   * @return true if it does, otherwise false
+   */
+  public boolean allowsDuplicates() {
+    return this.duplicates;
+  }
+
+  /**
+   * Checks whether a started game only reports exact matches.
+   *
+   * @return true if it does, otherwise false
+   */
+  public boolean isExactOnly() {
+    return this.exactOnly;
+  }
+
+  /**
+   * Checks whether a started game had an adversarial codemaker.
+   *
+   * @return true if it had, otherwise false
+   */
+  public boolean isAdversarial() {
+    return this.adversarial;
+  }
+
+  /**
+   * Checks whether a started game recorded its answer key; an adversarial codemaker has none.
+   *
+   * @return true if getPegs is the answer key, otherwise false
+   */
+  public boolean hasAnswerKey() {
+    return this.keyed;
+  }
+
+  /**
+   * Gets the row of a guess.
+   *
+   * @return the row index, 0 for starts
+   */
+  public int getRow() {
+    return this.row;
+  }
+
+  /**
+   * Gets the answer key of a started game or the colors of a guess.
+   *
+   * @return a copy of the color-bank indices
+   */
+  public int[] getPegs() {
+    return this.pegs.clone();
+  }
+
+  /**
+   * Gets the feedback of a guess.
+   *
+   * @return the packed feedback (see Codes), 0 for starts
+   */
+  public int getFeedback() {
+    return this.feedback;
+  }
+
+  /**
+   * Encodes the record.
+   *
+   * @param out      the buffer to append to
+   * @param previous the time of the record before it in the block
+   */
+  void encode(RecordBuffer out, long previous) {
+    out.writeVarLong(this.type.ordinal());
+    out.writeZigZag(this.timestamp - previous);
+    if (this.type == Type.START) {
+      out.writeVarLong(this.seed);
+      out.writeVarLong(this.colorBank.size());
+      for (Color color : this.colorBank) {
+        out.writeVarLong(color.getRGB() & 0xFFFFFFFFL);
+      }
+      out.writeVarLong(this.numGuessesAllowed);
+      out.writeVarLong((this.duplicates ? 1 : 0) | (this.exactOnly ? 2 : 0)
+          | (this.adversarial ? 4 : 0) | (this.hasAnswerKey() ? 8 : 0));
+    } else {
+      out.writeVarLong(this.row);
+      out.writeVarLong(this.feedback);
+    }
+    out.writeVarLong(this.pegs.length);
+    for (int peg : this.pegs) {
+      out.writeVarLong(peg);
+    }
+  }
+
+  /**
+   * Decodes a record.
+   *
+   * @param in       the buffer, positioned at the record
+   * @param previous the time of the record before it in the block
+   * @return the record
+   * @throws IOException if the record is malformed
+   */
+  static ReplayRecord decode(RecordBuffer in, long previous) throws IOException {
+    Type type = TYPES[in.readVarInt(TYPES.length - 1)];
+    long timestamp = previous + in.readZigZag();
+    long seed = 0;
+    List<Color> colorBank = new ArrayList<>();
+    int numGuessesAllowed = 0;
+    int flags = 0;
+    int row = 0;
+    int feedback = 0;
+    if (type == Type.START) {
+      seed = in.readVarLong();
+      int numColors = in.readVarInt(MAX_PEGS);
+      for (int i = 0; i < numColors; i++) {
+        colorBank.add(new Color((int) in.readVarLong(), true));
+      }
+      numGuessesAllowed = in.readVarInt(Integer.MAX_VALUE);
+      flags = in.readVarInt(15);
+    } else {
+      row = in.readVarInt(Integer.MAX_VALUE);
+      feedback = in.readVarInt(Integer.MAX_VALUE);
+    }
+    int[] pegs = new int[in.readVarInt(MAX_PEGS)];
+    for (int i = 0; i < pegs.length; i++) {
+      pegs[i] = in.readVarInt(Integer.MAX_VALUE);
+    }
+    try {
+      return type == Type.START
+          ? start(timestamp, seed, colorBank, numGuessesAllowed, pegs.length, (flags & 1) != 0,
+              (flags & 2) != 0, (flags & 4) != 0, (flags & 8) != 0 ? pegs : new int[0])
+          : guess(timestamp, row, pegs, feedback);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("record field out of range!", e);
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder pegs = new StringBuilder();
+    for (int peg : this.pegs) {
+      pegs.append(pegs.length() == 0 ? "" : ",").append(peg);
+    }
+    return this.type == Type.START
+        ? String.format("%d START seed=%d colors=%d guesses=%d duplicates=%b exactOnly=%b "
+            + "adversarial=%b key=%s", this.timestamp, this.seed, this.colorBank.size(),
+            this.numGuessesAllowed, this.duplicates, this.exactOnly, this.adversarial,
+            this.hasAnswerKey() ? pegs : "none")
+        : String.format("%d GUESS row=%d pegs=%s feedback=%d", this.timestamp, this.row, pegs,
+            this.feedback);
+  }
+}
@@ -0,0 +1,289 @@
+package replay;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Appends records to a replay log (see BlockLog) without holding up the game. append only puts
+ * the record on a queue; a writer thread takes whatever has queued up in one go, encodes it into
+ * the current block and, once the block holds blockBytes of records or its oldest record has
+ * waited flushMillis, compresses the block and appends it to the file. So a tournament that plays
+ * thousands of games costs the file one write per block, not one per guess.
+ *
+ * <p>An existing log is appended to; if its last block was cut short, that block is cut off
+ * first. If writing fails, the writer stops and later calls report the failure; so does a writer
+ * thread that dies of an unexpected exception, after letting go of every flush waiting on it.
+ */
+public class ReplayWriter implements Closeable {
+
+  public static final int DEFAULT_BLOCK_BYTES = 1 << 16;
+  public static final long DEFAULT_FLUSH_MILLIS = 1000;
+
+  private final BlockingQueue<Object> queue;
+  private final FileChannel channel;
+  private final int blockBytes;
+  private final long flushMillis;
+  private final Thread thread;
+  private volatile IOException failure;
+  private volatile boolean closed;
+
+  /**
+   * Opens a log with the default block size and flush interval.
+   *
+   * @param file the log, created if it doesn't exist
+   * @throws IOException if the file can't be opened or is not a valid replay log
+   */
+  public ReplayWriter(Path file) throws IOException {
+    this(file, DEFAULT_BLOCK_BYTES, DEFAULT_FLUSH_MILLIS);
+  }
+
+  /**
+   * Opens a log.
+   *
+   * @param file        the log, created if it doesn't exist
+   * @param blockBytes  the size of the records a block holds before it is written
+   * @param flushMillis the longest a record waits before its block is written anyway
+   * @throws IOException              if the file can't be opened or is not a valid replay log
+   * @throws IllegalArgumentException if the file is null, the block size is not positive or more
+   *                                  than BlockLog.MAX_BLOCK_BYTES, or the interval is not
+   *                                  positive
+   */
+  public ReplayWriter(Path file, int blockBytes, long flushMillis)
+      throws IOException, IllegalArgumentException {
+    if (file == null || blockBytes <= 0 || blockBytes > BlockLog.MAX_BLOCK_BYTES
+        || flushMillis <= 0) {
+      throw new IllegalArgumentException("invalid replay writer arguments!");
+    }
+    long length = BlockLog.validLength(file);
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    try {
+      this.channel.truncate(length);
+      this.channel.position(length);
+      if (length == 0) {
+        writeFully(this.channel, ByteBuffer.wrap(BlockLog.MAGIC));
+      }
+    } catch (IOException e) {
+      this.channel.close();
+      throw e;
+    }
+    this.queue = new LinkedBlockingQueue<>();
+    this.blockBytes = blockBytes;
+    this.flushMillis = flushMillis;
+    this.thread = new Thread(this::run, "replay-writer");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Queues a record to be appended.
+   *
+   * @param record the record
+   * @throws IllegalArgumentException if the record is null
+   * @throws IllegalStateException    if the writer is closed or failed
+   */
+  public void append(ReplayRecord record) throws IllegalArgumentException, IllegalStateException {
+    if (record == null) {
+      throw new IllegalArgumentException("record can't be null!");
+    }
+    if (this.closed || this.failure != null) {
+      throw new IllegalStateException("replay writer is closed or failed!");
+    }
+    this.queue.add(record);
+  }
+
+  /**
+   * Waits until every record appended so far is in the file and on disk.
+   *
+   * @throws IOException if writing failed
+   */
+  public void flush() throws IOException {
+    this.await(new Flush(false));
+  }
+
+  /**
+   * Writes every record appended so far, stops the writer thread and closes the file. Closing a
+   * closed writer does nothing.
+   *
+   * @throws IOException if writing failed
+   */
+  @Override
+  public void close() throws IOException {
+    if (this.closed) {
+      return;
+    }
+    this.closed = true;
+    try {
+      this.await(new Flush(true));
+    } finally {
+      this.channel.close();
+    }
+  }
+
+  /**
+   * Queues a flush and waits for the writer thread to get to it.
+   *
+   * @param flush the flush
+   * @throws IOException if writing failed
+   */
+  private void await(Flush flush) throws IOException {
+    if (this.thread.isAlive()) {
+      this.queue.add(flush);
+      // a writer thread that dies fails first and then lets go of every flush queued, so this one
+      // is let go of unless the writer failed already
+      if (this.failure == null) {
+        try {
+          flush.done.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("interrupted while flushing the replay log!", e);
+        }
+      }
+    }
+    if (this.failure != null) {
+      throw this.failure;
+    }
+  }
+
+  /**
+   * Runs the writer thread until the writer is closed.
+   */
+  private void run() {
+    RecordBuffer block = new RecordBuffer(this.blockBytes + 64);
+    RecordBuffer compressed = new RecordBuffer(this.blockBytes / 2);
+    RecordBuffer frame = new RecordBuffer(this.blockBytes / 2);
+    Deflater deflater = new Deflater();
+    List<Object> batch = new ArrayList<>();
+    long previous = 0;
+    long deadline = 0;
+    try {
+      while (true) {
+        Object first = block.size() == 0 ? this.queue.take()
+            : this.queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (first == null) {
+          this.writeBlock(block, deflater, compressed, frame);
+          continue;
+        }
+        batch.add(first);
+        this.queue.drainTo(batch);
+        for (Object item : batch) {
+          if (item instanceof ReplayRecord) {
+            ReplayRecord record = (ReplayRecord) item;
+            if (block.size() == 0) {
+              previous = 0;
+              deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(this.flushMillis);
+            }
+            if (this.failure == null) {
+              record.encode(block, previous);
+            }
+            previous = record.getTimestamp();
+            if (block.size() >= this.blockBytes) {
+              this.writeBlock(block, deflater, compressed, frame);
+            }
+          } else {
+            Flush flush = (Flush) item;
+            this.writeBlock(block, deflater, compressed, frame);
+            this.force();
+            flush.done.countDown();
+            if (flush.closing) {
+              return;
+            }
+          }
+        }
+        batch.clear();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (RuntimeException e) {
+      this.failure = new IOException("replay writer failed!", e);
+      this.queue.drainTo(batch);
+      for (Object item : batch) {
+        if (item instanceof Flush) {
+          ((Flush) item).done.countDown();
+        }
+      }
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Compresses the current block, if it holds anything, and appends it to the file. After a
+   * failure records are dropped.
+   *
+   * @param block      the records of the block, emptied afterwards
+   * @param deflater   the deflater
+   * @param compressed scratch space for the compressed records
+   * @param frame      scratch space for the framed block
+   */
+  private void writeBlock(RecordBuffer block, Deflater deflater, RecordBuffer compressed,
+      RecordBuffer frame) {
+    if (block.size() == 0) {
+      return;
+    }
+    if (this.failure == null) {
+      BlockLog.encode(block, deflater, compressed, frame);
+      try {
+        writeFully(this.channel, ByteBuffer.wrap(frame.bytes(), 0, frame.size()));
+      } catch (IOException e) {
+        this.failure = e;
+      }
+    }
+    block.clear(0);
+  }
+
+  /**
+   * Forces what was written to disk, unless writing failed already.
+   */
+  private void force() {
+    if (this.failure == null) {
+      try {
+        this.channel.force(false);
+      } catch (IOException e) {
+        this.failure = e;
+      }
+    }
+  }
+
+  /**
+   * Writes a whole buffer to a channel.
+   *
+   * @param channel the channel
+   * @param bytes   the buffer
+   * @throws IOException if the channel can't be written
+   */
+  private static void writeFully(FileChannel channel, ByteBuffer bytes) throws IOException {
+    while (bytes.hasRemaining()) {
+      channel.write(bytes);
+    }
+  }
+
+  /**
+   * A request to the writer thread to write everything queued before it.
+   */
+  private static class Flush {
+
+    private final boolean closing;
+    private final CountDownLatch done;
+
+    /**
+     * Constructs a request.
+     *
+     * @param closing whether the writer thread should stop afterwards
+     */
+    Flush(boolean closing) {
+      this.closing = closing;
+      this.done = new CountDownLatch(1);
+    }
+  }
+}
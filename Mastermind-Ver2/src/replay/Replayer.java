@@ -0,0 +1,91 @@
+package replay;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.util.List;
+import model.Guess;
+import model.IModel;
+import model.MastermindModel;
+
+/**
+ * Plays the games of a replay log again, one MastermindModel per game. Each game's model is
+ * seeded with the recorded seed, so it draws the recorded answer key, and is then sent every
+ * recorded guess in its row; a key or feedback that differs from the log means the log doesn't
+ * belong to this version of the game and is reported as such.
+ */
+public class Replayer {
+
+  private final ReplayReader reader;
+  // the start of the next game, read while reading the end of the one before
+  private ReplayRecord next;
+
+  /**
+   * Constructs a replayer.
+   *
+   * @param reader the log
+   * @throws IllegalArgumentException if the reader is null
+   */
+  public Replayer(ReplayReader reader) throws IllegalArgumentException {
+    if (reader == null) {
+      throw new IllegalArgumentException("reader can't be null!");
+    }
+    this.reader = reader;
+  }
+
+  /**
+   * Plays the next game of the log up to its last guess.
+   *
+   * @return the model, in the state the game was left in, or null if the log has no more games
+   * @throws IOException if the log can't be read, is corrupt or doesn't fit the game it replays
+   */
+  public IModel nextGame() throws IOException {
+    ReplayRecord start = this.next != null ? this.next : this.reader.next();
+    this.next = null;
+    if (start == null) {
+      return null;
+    }
+    if (start.getType() != ReplayRecord.Type.START) {
+      throw new IOException("replay log has a guess outside a game!");
+    }
+    IModel model = new MastermindModel(start.isAdversarial());
+    model.setSeed(start.getSeed());
+    model.startGame(start.getColorBank(), start.getNumGuessesAllowed(),
+        start.getNumColorsInGuess(), start.allowsDuplicates(), start.isExactOnly());
+    List<Color> bank = model.getColorBank();
+    if (start.hasAnswerKey()) {
+      int[] key = start.getPegs();
+      List<Color> answer = model.getAnswerKey();
+      for (int i = 0; i < key.length; i++) {
+        if (key[i] >= bank.size() || !bank.get(key[i]).equals(answer.get(i))) {
+          throw new IOException("replayed answer key differs from the log!");
+        }
+      }
+    }
+    for (ReplayRecord record = this.reader.next(); record != null;
+        record = this.reader.next()) {
+      if (record.getType() == ReplayRecord.Type.START) {
+        this.next = record;
+        return model;
+      }
+      int[] pegs = record.getPegs();
+      if (record.getRow() >= model.getNumGuessesAllowed()
+          || pegs.length != model.getNumColorsInGuess()) {
+        throw new IOException("replay log has a guess the game doesn't allow!");
+      }
+      model.setRowIndex(record.getRow());
+      model.getCurrentGuess().setGuess(new Guess());
+      for (int peg : pegs) {
+        if (peg >= bank.size()) {
+          throw new IOException("replay log has a guess the game doesn't allow!");
+        }
+        model.addColorToGuess(bank.get(peg));
+      }
+      model.updateGuessMatchInfo();
+      if (model.feedbackAt(record.getRow()) != record.getFeedback()) {
+        throw new IOException("replayed feedback differs from the log in row "
+            + record.getRow() + "!");
+      }
+    }
+    return model;
+  }
+}
@@ -0,0 +1,38 @@
+package solver;
+
+import model.CandidateSet;
+
+/**
+ * A simple strategy that always plays the first code (in rank order) that is still consistent
+ * with the feedback received so far.
+ */
+public class ConsistentStrategy implements IStrategy {
+
+  private CandidateSet candidates;
+  private int[] guess;
+
+  @Override
+  public void startGame(int numColors, int numPegs, boolean duplicates, boolean exactOnly)
+      throws IllegalArgumentException {
+    this.candidates = new CandidateSet(numColors, numPegs, duplicates, exactOnly);
+    this.guess = new int[numPegs];
+  }
+
+  @Override
+  public int[] nextGuess() throws IllegalStateException {
+    if (this.candidates == null || this.candidates.size() == 0) {
+      throw new IllegalStateException("no consistent code left!");
+    }
+    this.candidates.codeAt(0, this.guess);
+    return this.guess;
+  }
+
+  @Override
+  public void addFeedback(int[] guess, int feedback) throws IllegalArgumentException {
+    if (guess == null || this.candidates == null
+        || guess.length != this.candidates.getNumPegs()) {
+      throw new IllegalArgumentException("invalid guess!");
+    }
+    this.candidates.filter(guess, feedback);
+  }
+}
@@ -0,0 +1,38 @@
+package solver;
+
+/**
+ * Represents a code-breaking strategy that plays one Mastermind game at a time. Codes are arrays
+ * of color-bank indices (see model.Codes), so a strategy never touches the view or Color objects.
+ */
+public interface IStrategy {
+
+  /**
+   * Starts a new game, discarding anything learned in a previous game.
+   *
+   * @param numColors  the number of colors in the color bank
+   * @param numPegs    the number of colors in a guess
+   * @param duplicates whether the answer key may repeat colors
+   * @param exactOnly  whether feedback reports exact matches only (inexact is always 0)
+   * @throws IllegalArgumentException if the configuration is invalid for this strategy
+   */
+  void startGame(int numColors, int numPegs, boolean duplicates, boolean exactOnly)
+      throws IllegalArgumentException;
+
+  /**
+   * Picks the next guess to play.
+   *
+   * @return the guess as color-bank indices; the caller must not modify it
+   * @throws IllegalStateException if no game was started or no code is consistent with the
+   *                               feedback received so far
+   */
+  int[] nextGuess() throws IllegalStateException;
+
+  /**
+   * Records the feedback the codemaker gave for a guess.
+   *
+   * @param guess    the guess that was played
+   * @param feedback the packed feedback (see model.Codes.pack)
+   * @throws IllegalArgumentException if the guess is null or has the wrong length
+   */
+  void addFeedback(int[] guess, int feedback) throws IllegalArgumentException;
+}
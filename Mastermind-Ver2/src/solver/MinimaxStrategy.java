@@ -0,0 +1,159 @@
+package solver;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import model.CandidateSet;
+import model.Codes;
+
+/**
+ * Knuth's minimax strategy: every guess is chosen from the whole code space so that the largest
+ * class of candidates sharing the same feedback is as small as possible. Ties prefer guesses that
+ * could still be the answer, then the lowest rank. Guesses that a color renaming or position
+ * permutation preserving the history maps onto each other split the candidates alike, so only one
+ * canonical guess per class is evaluated (see SymmetryReducer). Early guesses come from an
+ * opening book when one is available for the configuration. A search gives up with a
+ * CancellationException once its thread is interrupted.
+ */
+public class MinimaxStrategy implements IStrategy {
+
+  private final Path bookDirectory;
+  private OpeningBook book;
+  private int bookNode;
+  private CandidateSet candidates;
+  private SymmetryReducer symmetry;
+  private int numPegs;
+  private int numColors;
+  private boolean duplicates;
+  private boolean exactOnly;
+  private int[] guess;
+  private int[] bestGuess;
+  private int[] counts;
+
+  /**
+   * Constructs a strategy that computes every guess.
+   */
+  public MinimaxStrategy() {
+    this.bookDirectory = null;
+  }
+
+  /**
+   * Constructs a strategy that takes its early guesses from the opening book for the game's
+   * configuration in the given directory, if there is one. The book is read the first time a
+   * guess is asked for, and shared by every strategy using the same file.
+   *
+   * @param bookDirectory the directory holding opening book files
+   * @throws IllegalArgumentException if the directory is null
+   */
+  public MinimaxStrategy(Path bookDirectory) throws IllegalArgumentException {
+    if (bookDirectory == null) {
+      throw new IllegalArgumentException("book directory can't be null!");
+    }
+    this.bookDirectory = bookDirectory;
+  }
+
+  @Override
+  public void startGame(int numColors, int numPegs, boolean duplicates, boolean exactOnly)
+      throws IllegalArgumentException {
+    this.candidates = new CandidateSet(numColors, numPegs, duplicates, exactOnly);
+    this.symmetry = new SymmetryReducer(numColors, numPegs);
+    this.numColors = numColors;
+    this.numPegs = numPegs;
+    this.duplicates = duplicates;
+    this.exactOnly = exactOnly;
+    this.book = null;
+    this.bookNode = this.bookDirectory == null ? -1 : 0;
+    this.guess = new int[numPegs];
+    this.bestGuess = new int[numPegs];
+    this.counts = new int[Codes.numFeedbackIndices(numPegs)];
+  }
+
+  @Override
+  public int[] nextGuess() throws IllegalStateException {
+    if (this.candidates == null || this.candidates.size() == 0) {
+      throw new IllegalStateException("no consistent code left!");
+    }
+    this.openBook();
+    if (this.bookNode >= 0) {
+      this.book.guessAt(this.bookNode, this.bestGuess);
+    } else if (this.candidates.size() <= 2) {
+      this.candidates.codeAt(0, this.bestGuess);
+    } else {
+      this.searchGuessSpace();
+    }
+    return this.bestGuess;
+  }
+
+  /**
+   * Reads the opening book for this game's configuration the first time it is needed, and stops
+   * using books if there is none.
+   */
+  private void openBook() {
+    if (this.bookNode >= 0 && this.book == null) {
+      this.book = OpeningBook.lookup(this.bookDirectory, this.numColors, this.numPegs,
+          this.duplicates, this.exactOnly).orElse(null);
+      this.bookNode = this.book == null ? -1 : 0;
+    }
+  }
+
+  /**
+   * Scans the canonical guesses of the whole code space (duplicates allowed) for the guess with
+   * the smallest worst-case partition.
+   *
+   * @throws CancellationException if the thread is interrupted
+   */
+  private void searchGuessSpace() throws CancellationException {
+    int solvedIndex = Codes.feedbackIndex(Codes.pack(this.numPegs, 0), this.numPegs);
+    int bestWorst = Integer.MAX_VALUE;
+    boolean bestIsCandidate = false;
+    Arrays.fill(this.guess, 0);
+    do {
+      if (!this.symmetry.isCanonical(this.guess)) {
+        continue;
+      }
+      if (Thread.currentThread().isInterrupted()) {
+        throw new CancellationException("guess search was interrupted!");
+      }
+      Arrays.fill(this.counts, 0);
+      int worst = this.candidates.partition(this.guess, this.counts, bestWorst);
+      boolean isCandidate = this.counts[solvedIndex] > 0;
+      if (worst < bestWorst || (worst == bestWorst && isCandidate && !bestIsCandidate)) {
+        bestWorst = worst;
+        bestIsCandidate = isCandidate;
+        System.arraycopy(this.guess, 0, this.bestGuess, 0, this.numPegs);
+      }
+    } while (this.nextCode(this.guess));
+  }
+
+  /**
+   * Advances a code to the next one in rank order, in place.
+   *
+   * @param code the code
+   * @return false if the code wrapped around past the last one, otherwise true
+   */
+  private boolean nextCode(int[] code) {
+    for (int i = this.numPegs - 1; i >= 0; i--) {
+      if (++code[i] < this.numColors) {
+        return true;
+      }
+      code[i] = 0;
+    }
+    return false;
+  }
+
+  @Override
+  public void addFeedback(int[] guess, int feedback) throws IllegalArgumentException {
+    if (guess == null || this.candidates == null || guess.length != this.numPegs) {
+      throw new IllegalArgumentException("invalid guess!");
+    }
+    this.candidates.filter(guess, feedback);
+    this.symmetry.addGuess(guess);
+    this.openBook();
+    if (this.bookNode >= 0) {
+      // leave the book if the guess played was not the one it suggested
+      this.book.guessAt(this.bookNode, this.guess);
+      this.bookNode = Arrays.equals(this.guess, guess)
+          ? this.book.child(this.bookNode, feedback) : -1;
+    }
+  }
+}
@@ -0,0 +1,469 @@
+package solver;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import model.CandidateSet;
+import model.Codes;
+
+/**
+ * The first few levels of a strategy's guess tree for one configuration, precomputed so early
+ * guesses become a table lookup. Node 0 holds the opening guess; each node's children are keyed
+ * by the feedback its guess received.
+ *
+ * <p>Nodes are stored in preorder in flat arrays. On disk a book is a small header followed by
+ * the nodes in the same order, each as its guess (one byte per peg), its number of children, and
+ * for each child the feedback index (one byte) followed by the child node.
+ */
+public class OpeningBook {
+
+  private static final int MAGIC = 0x4D4D4F42;
+  private static final int VERSION = 1;
+  private static final Map<Path, Optional<OpeningBook>> LOADED = new ConcurrentHashMap<>();
+
+  private final int numColors;
+  private final int numPegs;
+  private final boolean duplicates;
+  private final boolean exactOnly;
+  private final int depth;
+  private final byte[] guesses;
+  private final int[] firstChild;
+  private final int[] numChildren;
+  private final byte[] childFeedback;
+  private final int[] childNode;
+
+  /**
+   * Constructs a book from its flattened tree.
+   *
+   * @param numColors     the number of colors
+   * @param numPegs       the number of colors in a code
+   * @param duplicates    whether codes may repeat colors
+   * @param exactOnly     whether feedback reports exact matches only
+   * @param depth         the number of guess levels in the tree
+   * @param guesses       the guess of each node, numPegs bytes per node
+   * @param firstChild    the index of each node's first child edge
+   * @param numChildren   the number of child edges of each node
+   * @param childFeedback the feedback index of each child edge
+   * @param childNode     the node each child edge leads to
+   */
+  private OpeningBook(int numColors, int numPegs, boolean duplicates, boolean exactOnly,
+      int depth, byte[] guesses, int[] firstChild, int[] numChildren, byte[] childFeedback,
+      int[] childNode) {
+    this.numColors = numColors;
+    this.numPegs = numPegs;
+    this.duplicates = duplicates;
+    this.exactOnly = exactOnly;
+    this.depth = depth;
+    this.guesses = guesses;
+    this.firstChild = firstChild;
+    this.numChildren = numChildren;
+    this.childFeedback = childFeedback;
+    this.childNode = childNode;
+  }
+
+  /**
+   * Precomputes the guess tree of MinimaxStrategy down to the given depth. Every branch is played
+   * by a fresh strategy replaying the guesses and feedback that lead to it, so the book gives
+   * exactly the guesses the strategy would compute.
+   *
+   * @param numColors  the number of colors
+   * @param numPegs    the number of colors in a code
+   * @param duplicates whether codes may repeat colors
+   * @param exactOnly  whether feedback reports exact matches only
+   * @param depth      the number of guess levels to precompute
+   * @return the opening book
+   * @throws IllegalArgumentException if the configuration is invalid or the depth is not positive
+   */
+  public static OpeningBook build(int numColors, int numPegs, boolean duplicates,
+      boolean exactOnly, int depth) throws IllegalArgumentException {
+    if (depth <= 0 || depth > 255) {
+      throw new IllegalArgumentException("depth must be between 1 and 255!");
+    }
+    Builder builder = new Builder(numColors, numPegs, duplicates, exactOnly);
+    builder.expand(new int[0][], new int[0], depth);
+    return builder.toBook(depth);
+  }
+
+  /**
+   * Gets the book for a configuration from a directory of book files, reading it the first time
+   * it is asked for. Later calls for the same file share the loaded book.
+   *
+   * @param directory  the directory holding the book files
+   * @param numColors  the number of colors
+   * @param numPegs    the number of colors in a code
+   * @param duplicates whether codes may repeat colors
+   * @param exactOnly  whether feedback reports exact matches only
+   * @return the book, or empty if the directory has no book for the configuration
+   * @throws IllegalArgumentException if the directory is null
+   * @throws UncheckedIOException     if the book file exists but cannot be read
+   */
+  public static Optional<OpeningBook> lookup(Path directory, int numColors, int numPegs,
+      boolean duplicates, boolean exactOnly) throws IllegalArgumentException,
+      UncheckedIOException {
+    if (directory == null) {
+      throw new IllegalArgumentException("directory can't be null!");
+    }
+    Path file = directory.resolve(fileName(numColors, numPegs, duplicates, exactOnly));
+    return LOADED.computeIfAbsent(file.toAbsolutePath(), path -> {
+      if (!Files.isRegularFile(path)) {
+        return Optional.empty();
+      }
+      try {
+        return Optional.of(load(path));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  /**
+   * Gets the file name a book for the given configuration is stored under.
+   *
+   * @param numColors  the number of colors
+   * @param numPegs    the number of colors in a code
+   * @param duplicates whether codes may repeat colors
+   * @param exactOnly  whether feedback reports exact matches only
+   * @return the file name
+   */
+  public static String fileName(int numColors, int numPegs, boolean duplicates,
+      boolean exactOnly) {
+    return "mastermind-" + numColors + "x" + numPegs + (duplicates ? "-dup" : "")
+        + (exactOnly ? "-exact" : "") + ".book";
+  }
+
+  /**
+   * Reads a book file.
+   *
+   * @param file the file
+   * @return the book
+   * @throws IOException if the file cannot be read or is not a valid book
+   */
+  public static OpeningBook load(Path file) throws IOException {
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC || in.readUnsignedByte() != VERSION) {
+        throw new IOException("not an opening book: " + file);
+      }
+      int numColors = in.readUnsignedByte() + 1;
+      int numPegs = in.readUnsignedByte();
+      int flags = in.readUnsignedByte();
+      int depth = in.readUnsignedByte();
+      int numNodes = in.readInt();
+      byte[] guesses = new byte[numNodes * numPegs];
+      int[] firstChild = new int[numNodes];
+      int[] numChildren = new int[numNodes];
+      byte[] childFeedback = new byte[Math.max(0, numNodes - 1)];
+      int[] childNode = new int[Math.max(0, numNodes - 1)];
+      int[] next = new int[2];
+      readNode(in, numPegs, guesses, firstChild, numChildren, childFeedback, childNode, next);
+      if (next[0] != numNodes) {
+        throw new IOException("corrupt opening book: " + file);
+      }
+      return new OpeningBook(numColors, numPegs, (flags & 1) != 0, (flags & 2) != 0, depth,
+          guesses, firstChild, numChildren, childFeedback, childNode);
+    }
+  }
+
+  /**
+   * Reads one node and its subtree in preorder.
+   *
+   * @param in            the input
+   * @param numPegs       the number of colors in a code
+   * @param guesses       the guess of each node
+   * @param firstChild    the first child edge of each node
+   * @param numChildren   the number of child edges of each node
+   * @param childFeedback the feedback index of each edge
+   * @param childNode     the node each edge leads to
+   * @param next          the next free node index and the next free edge index
+   * @return the index of the node read
+   * @throws IOException if the input ends early or has more nodes than its header says
+   */
+  private static int readNode(DataInputStream in, int numPegs, byte[] guesses, int[] firstChild,
+      int[] numChildren, byte[] childFeedback, int[] childNode, int[] next) throws IOException {
+    int node = next[0]++;
+    if (node >= firstChild.length) {
+      throw new IOException("corrupt opening book!");
+    }
+    in.readFully(guesses, node * numPegs, numPegs);
+    int count = in.readUnsignedByte();
+    int edge = next[1];
+    next[1] += count;
+    if (next[1] > childNode.length) {
+      throw new IOException("corrupt opening book!");
+    }
+    firstChild[node] = edge;
+    numChildren[node] = count;
+    for (int i = 0; i < count; i++) {
+      childFeedback[edge + i] = in.readByte();
+      childNode[edge + i] = readNode(in, numPegs, guesses, firstChild, numChildren,
+          childFeedback, childNode, next);
+    }
+    return node;
+  }
+
+  /**
+   * Writes this book into a directory under its configuration's file name.
+   *
+   * @param directory the directory
+   * @return the file written
+   * @throws IOException if the file cannot be written
+   */
+  public Path save(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    Path file = directory.resolve(fileName(this.numColors, this.numPegs, this.duplicates,
+        this.exactOnly));
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeByte(VERSION);
+      out.writeByte(this.numColors - 1);
+      out.writeByte(this.numPegs);
+      out.writeByte((this.duplicates ? 1 : 0) | (this.exactOnly ? 2 : 0));
+      out.writeByte(this.depth);
+      out.writeInt(this.numChildren.length);
+      this.writeNode(out, 0);
+    }
+    return file;
+  }
+
+  /**
+   * Writes one node and its subtree in preorder.
+   *
+   * @param out  the output
+   * @param node the node index
+   * @throws IOException if the output cannot be written
+   */
+  private void writeNode(DataOutputStream out, int node) throws IOException {
+    out.write(this.guesses, node * this.numPegs, this.numPegs);
+    out.writeByte(this.numChildren[node]);
+    for (int i = 0; i < this.numChildren[node]; i++) {
+      int edge = this.firstChild[node] + i;
+      out.writeByte(this.childFeedback[edge]);
+      this.writeNode(out, this.childNode[edge]);
+    }
+  }
+
+  /**
+   * Determines whether this book was built for the given configuration.
+   *
+   * @param numColors  the number of colors
+   * @param numPegs    the number of colors in a code
+   * @param duplicates whether codes may repeat colors
+   * @param exactOnly  whether feedback reports exact matches only
+   * @return true if the configuration matches, otherwise false
+   */
+  public boolean matches(int numColors, int numPegs, boolean duplicates, boolean exactOnly) {
+    return this.numColors == numColors && this.numPegs == numPegs
+        && this.duplicates == duplicates && this.exactOnly == exactOnly;
+  }
+
+  /**
+   * Gets the number of guess levels in the book.
+   *
+   * @return the depth
+   */
+  public int getDepth() {
+    return this.depth;
+  }
+
+  /**
+   * Gets the number of positions stored in the book.
+   *
+   * @return the number of nodes
+   */
+  public int getNumNodes() {
+    return this.numChildren.length;
+  }
+
+  /**
+   * Copies the guess stored at a node into dest.
+   *
+   * @param node the node index; 0 is the opening
+   * @param dest destination array, one slot per peg
+   * @throws IllegalArgumentException if the node index is invalid
+   */
+  public void guessAt(int node, int[] dest) throws IllegalArgumentException {
+    if (node < 0 || node >= this.numChildren.length) {
+      throw new IllegalArgumentException("invalid book node!");
+    }
+    for (int i = 0; i < this.numPegs; i++) {
+      dest[i] = this.guesses[node * this.numPegs + i] & 0xFF;
+    }
+  }
+
+  /**
+   * Follows the edge for a feedback from a node.
+   *
+   * @param node     the node index
+   * @param feedback the packed feedback its guess received
+   * @return the child node, or -1 if the book does not go further along that feedback
+   * @throws IllegalArgumentException if the node index is invalid
+   */
+  public int child(int node, int feedback) throws IllegalArgumentException {
+    if (node < 0 || node >= this.numChildren.length) {
+      throw new IllegalArgumentException("invalid book node!");
+    }
+    int index = Codes.feedbackIndex(feedback, this.numPegs);
+    for (int i = 0; i < this.numChildren[node]; i++) {
+      int edge = this.firstChild[node] + i;
+      if ((this.childFeedback[edge] & 0xFF) == index) {
+        return this.childNode[edge];
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Collects the nodes of a book while it is being built.
+   */
+  private static class Builder {
+
+    private final int numColors;
+    private final int numPegs;
+    private final boolean duplicates;
+    private final boolean exactOnly;
+    private byte[] guesses;
+    private int[] firstChild;
+    private int[] numChildren;
+    private byte[] childFeedback;
+    private int[] childNode;
+    private int numNodes;
+    private int numEdges;
+
+    /**
+     * Constructs an empty builder.
+     *
+     * @param numColors  the number of colors
+     * @param numPegs    the number of colors in a code
+     * @param duplicates whether codes may repeat colors
+     * @param exactOnly  whether feedback reports exact matches only
+     * @throws IllegalArgumentException if the configuration does not fit the book format
+     */
+    Builder(int numColors, int numPegs, boolean duplicates, boolean exactOnly)
+        throws IllegalArgumentException {
+      if (numColors <= 0 || numColors > 128 || numPegs <= 0 || numPegs > 14) {
+        throw new IllegalArgumentException("configuration doesn't fit an opening book!");
+      }
+      this.numColors = numColors;
+      this.numPegs = numPegs;
+      this.duplicates = duplicates;
+      this.exactOnly = exactOnly;
+      this.guesses = new byte[16 * numPegs];
+      this.firstChild = new int[16];
+      this.numChildren = new int[16];
+      this.childFeedback = new byte[16];
+      this.childNode = new int[16];
+    }
+
+    /**
+     * Adds the node reached by a path of guesses and feedback, then its subtree.
+     *
+     * @param path      the guesses played so far
+     * @param feedbacks the feedback each of them received
+     * @param levels    the number of levels still to add, this one included
+     * @return the index of the added node
+     */
+    int expand(int[][] path, int[] feedbacks, int levels) {
+      MinimaxStrategy strategy = new MinimaxStrategy();
+      strategy.startGame(this.numColors, this.numPegs, this.duplicates, this.exactOnly);
+      CandidateSet candidates = new CandidateSet(this.numColors, this.numPegs, this.duplicates,
+          this.exactOnly);
+      for (int i = 0; i < path.length; i++) {
+        strategy.addFeedback(path[i], feedbacks[i]);
+        candidates.filter(path[i], feedbacks[i]);
+      }
+      int[] guess = strategy.nextGuess().clone();
+      int node = this.addNode(guess);
+      if (levels == 1) {
+        return node;
+      }
+      int[] classSizes = new int[Codes.numFeedbackIndices(this.numPegs)];
+      candidates.partition(guess, classSizes);
+      int solved = Codes.feedbackIndex(Codes.pack(this.numPegs, 0), this.numPegs);
+      int[][] childPath = Arrays.copyOf(path, path.length + 1);
+      childPath[path.length] = guess;
+      int[] childFeedbacks = Arrays.copyOf(feedbacks, feedbacks.length + 1);
+      // children are added after their parent, so collect them first and link the edges after
+      int count = 0;
+      int[] indices = new int[classSizes.length];
+      int[] nodes = new int[classSizes.length];
+      for (int index = 0; index < classSizes.length; index++) {
+        if (index == solved || classSizes[index] == 0) {
+          continue;
+        }
+        childFeedbacks[feedbacks.length] = Codes.pack(index / (this.numPegs + 1),
+            index % (this.numPegs + 1));
+        indices[count] = index;
+        nodes[count] = this.expand(childPath, childFeedbacks, levels - 1);
+        count++;
+      }
+      this.linkChildren(node, indices, nodes, count);
+      return node;
+    }
+
+    /**
+     * Appends a node without children.
+     *
+     * @param guess the node's guess
+     * @return the node index
+     */
+    private int addNode(int[] guess) {
+      if (this.numNodes == this.numChildren.length) {
+        int capacity = this.numNodes * 2;
+        this.guesses = Arrays.copyOf(this.guesses, capacity * this.numPegs);
+        this.firstChild = Arrays.copyOf(this.firstChild, capacity);
+        this.numChildren = Arrays.copyOf(this.numChildren, capacity);
+      }
+      for (int i = 0; i < this.numPegs; i++) {
+        this.guesses[this.numNodes * this.numPegs + i] = (byte) guess[i];
+      }
+      return this.numNodes++;
+    }
+
+    /**
+     * Gives a node its child edges.
+     *
+     * @param node    the node index
+     * @param indices the feedback index of each child
+     * @param nodes   the child node indices
+     * @param count   the number of children
+     */
+    private void linkChildren(int node, int[] indices, int[] nodes, int count) {
+      while (this.numEdges + count > this.childNode.length) {
+        this.childFeedback = Arrays.copyOf(this.childFeedback, this.childNode.length * 2);
+        this.childNode = Arrays.copyOf(this.childNode, this.childNode.length * 2);
+      }
+      this.firstChild[node] = this.numEdges;
+      this.numChildren[node] = count;
+      for (int i = 0; i < count; i++) {
+        this.childFeedback[this.numEdges] = (byte) indices[i];
+        this.childNode[this.numEdges] = nodes[i];
+        this.numEdges++;
+      }
+    }
+
+    /**
+     * Finishes the book.
+     *
+     * @param depth the number of guess levels
+     * @return the book
+     */
+    OpeningBook toBook(int depth) {
+      return new OpeningBook(this.numColors, this.numPegs, this.duplicates, this.exactOnly,
+          depth, Arrays.copyOf(this.guesses, this.numNodes * this.numPegs),
+          Arrays.copyOf(this.firstChild, this.numNodes),
+          Arrays.copyOf(this.numChildren, this.numNodes),
+          Arrays.copyOf(this.childFeedback, this.numEdges),
+          Arrays.copyOf(this.childNode, this.numEdges));
+    }
+  }
+}
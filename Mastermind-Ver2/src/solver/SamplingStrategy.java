@@ -0,0 +1,481 @@
+package solver;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import model.Codes;
+
+/**
+ * A strategy for configurations whose code space is far too large to enumerate, such as 20 pegs
+ * over 30 colors. Instead of a candidate list it keeps per-peg color domains pruned by simple
+ * constraint propagation, and searches for codes consistent with the history with a stochastic
+ * local search (recolor and swap moves whose cost change is computed incrementally from per-guess
+ * color counts). At most sampleSize consistent codes are kept and the one that splits the others
+ * into the most feedback classes is played. Memory is bounded by the history and the sample size,
+ * and every guess returns within the configured time budget; if the budget runs out before a
+ * consistent code is found, the closest code found is played instead.
+ */
+public class SamplingStrategy implements IStrategy {
+
+  private static final double WALK_PROBABILITY = 0.05;
+  private static final int RESTART_MOVES = 50_000;
+  private static final int CHECK_DEADLINE_MOVES = 1024;
+
+  private final long timeBudgetNanos;
+  private final int sampleSize;
+  private final long seed;
+  private int numColors;
+  private int numPegs;
+  private boolean duplicates;
+  private boolean exactOnly;
+  private boolean[] allowed;
+  private List<int[]> guesses;
+  private List<Integer> feedbacks;
+  private SplittableRandom random;
+  private int[] scratch;
+  private int[] guess;
+  private int[] warmStart;
+  // search state, rebuilt for each guess: the history flattened, and the current code's matches
+  private int numHistory;
+  private int[] history;
+  private int[] historyCounts;
+  private int[] targetExact;
+  private int[] targetTotal;
+  private int[] code;
+  private int[] codeCounts;
+  private int[] exact;
+  private int[] total;
+  private int cost;
+
+  /**
+   * Constructs a sampling strategy with a 100 ms budget and up to 60 sampled consistent codes per
+   * guess.
+   */
+  public SamplingStrategy() {
+    this(100, 60, 0);
+  }
+
+  /**
+   * Constructs a sampling strategy.
+   *
+   * @param timeBudgetMillis the time each call to nextGuess may take
+   * @param sampleSize       the maximum number of consistent codes kept per guess
+   * @param seed             the random seed, so games can be replayed
+   * @throws IllegalArgumentException if the budget or the sample size are not positive
+   */
+  public SamplingStrategy(long timeBudgetMillis, int sampleSize, long seed)
+      throws IllegalArgumentException {
+    if (timeBudgetMillis <= 0 || sampleSize <= 0) {
+      throw new IllegalArgumentException("invalid sampling-strategy arguments!");
+    }
+    this.timeBudgetNanos = timeBudgetMillis * 1_000_000L;
+    this.sampleSize = sampleSize;
+    this.seed = seed;
+  }
+
+  @Override
+  public void startGame(int numColors, int numPegs, boolean duplicates, boolean exactOnly)
+      throws IllegalArgumentException {
+    if (numColors <= 0 || numPegs <= 0 || (!duplicates && numPegs > numColors)) {
+      throw new IllegalArgumentException("invalid configuration!");
+    }
+    this.numColors = numColors;
+    this.numPegs = numPegs;
+    this.duplicates = duplicates;
+    this.exactOnly = exactOnly;
+    this.allowed = new boolean[numPegs * numColors];
+    Arrays.fill(this.allowed, true);
+    this.guesses = new ArrayList<>();
+    this.feedbacks = new ArrayList<>();
+    this.random = new SplittableRandom(this.seed);
+    this.scratch = new int[numColors];
+    this.guess = new int[numPegs];
+    this.warmStart = null;
+    this.code = new int[numPegs];
+    this.codeCounts = new int[numColors];
+  }
+
+  @Override
+  public int[] nextGuess() throws IllegalStateException {
+    if (this.guesses == null) {
+      throw new IllegalStateException("game did not start yet!");
+    }
+    if (this.guesses.isEmpty()) {
+      this.randomCode(this.guess);
+      return this.guess;
+    }
+    long deadline = System.nanoTime() + this.timeBudgetNanos;
+    List<int[]> sample = new ArrayList<>();
+    int[] closest = this.search(deadline, sample);
+    int[] chosen = sample.isEmpty() ? closest : this.mostInformative(sample);
+    System.arraycopy(chosen, 0, this.guess, 0, this.numPegs);
+    return this.guess;
+  }
+
+  @Override
+  public void addFeedback(int[] guess, int feedback) throws IllegalArgumentException {
+    if (guess == null || this.guesses == null || guess.length != this.numPegs) {
+      throw new IllegalArgumentException("invalid guess!");
+    }
+    this.guesses.add(guess.clone());
+    this.feedbacks.add(feedback);
+    this.propagate(guess, feedback);
+  }
+
+  /**
+   * Prunes the per-peg color domains with what a single feedback proves: no exact matches rules
+   * out each guessed color at its own peg, and no matches at all rules out every guessed color.
+   * A ban that would empty a domain is skipped, so the domains never become contradictory.
+   *
+   * @param guess    the guess
+   * @param feedback the packed feedback
+   */
+  private void propagate(int[] guess, int feedback) {
+    if (Codes.exact(feedback) != 0) {
+      return;
+    }
+    boolean noMatches = !this.exactOnly && Codes.inexact(feedback) == 0;
+    for (int i = 0; i < this.numPegs; i++) {
+      if (noMatches) {
+        for (int peg = 0; peg < this.numPegs; peg++) {
+          this.ban(peg, guess[i]);
+        }
+      } else {
+        this.ban(i, guess[i]);
+      }
+    }
+  }
+
+  /**
+   * Removes a color from a peg's domain unless it is the last color left.
+   *
+   * @param peg   the peg
+   * @param color the color
+   */
+  private void ban(int peg, int color) {
+    int left = 0;
+    for (int c = 0; c < this.numColors; c++) {
+      if (this.allowed[peg * this.numColors + c]) {
+        left++;
+      }
+    }
+    if (left > 1) {
+      this.allowed[peg * this.numColors + color] = false;
+    }
+  }
+
+  /**
+   * Flattens the history into primitive arrays: each guess, its color counts and the exact and
+   * total (exact plus inexact) matches it received.
+   */
+  private void loadHistory() {
+    this.numHistory = this.guesses.size();
+    this.history = new int[this.numHistory * this.numPegs];
+    this.historyCounts = new int[this.numHistory * this.numColors];
+    this.targetExact = new int[this.numHistory];
+    this.targetTotal = new int[this.numHistory];
+    this.exact = new int[this.numHistory];
+    this.total = new int[this.numHistory];
+    for (int h = 0; h < this.numHistory; h++) {
+      int[] g = this.guesses.get(h);
+      for (int i = 0; i < this.numPegs; i++) {
+        this.history[h * this.numPegs + i] = g[i];
+        this.historyCounts[h * this.numColors + g[i]]++;
+      }
+      int feedback = this.feedbacks.get(h);
+      this.targetExact[h] = Codes.exact(feedback);
+      this.targetTotal[h] = Codes.exact(feedback) + Codes.inexact(feedback);
+    }
+  }
+
+  /**
+   * Runs the local search until the deadline passes or the sample is full.
+   *
+   * @param deadline the System.nanoTime deadline
+   * @param sample   receives distinct consistent codes, at most sampleSize of them
+   * @return the code with the lowest cost seen during the search
+   */
+  private int[] search(long deadline, List<int[]> sample) {
+    this.loadHistory();
+    if (this.warmStart != null) {
+      this.setCode(this.warmStart);
+    } else {
+      this.randomCode(this.code);
+      this.setCode(this.code);
+    }
+    Set<Long> seen = new HashSet<>();
+    int[] closest = this.code.clone();
+    int closestCost = this.cost;
+    int bestInRun = this.cost;
+    int sinceImprovement = 0;
+    long moves = 0;
+    long lastFound = 0;
+    while (sample.size() < this.sampleSize) {
+      if (++moves % CHECK_DEADLINE_MOVES == 0 && System.nanoTime() >= deadline) {
+        break;
+      }
+      if (!sample.isEmpty() && moves - lastFound > RESTART_MOVES) {
+        // few consistent codes are left and they have probably all been found
+        break;
+      }
+      if (this.cost == 0) {
+        if (seen.add(this.fingerprint(this.code))) {
+          sample.add(this.code.clone());
+          this.warmStart = this.code.clone();
+          lastFound = moves;
+        }
+        // walk away from this solution to look for a different one
+        for (int n = 0; n < 1 + this.numPegs / 4; n++) {
+          this.tryMove(true);
+        }
+      } else {
+        this.tryMove(false);
+      }
+      if (this.cost < closestCost) {
+        closestCost = this.cost;
+        System.arraycopy(this.code, 0, closest, 0, this.numPegs);
+      }
+      if (this.cost < bestInRun) {
+        bestInRun = this.cost;
+        sinceImprovement = 0;
+      } else if (++sinceImprovement > RESTART_MOVES) {
+        this.randomCode(this.code);
+        this.setCode(this.code);
+        bestInRun = this.cost;
+        sinceImprovement = 0;
+      }
+    }
+    return closest;
+  }
+
+  /**
+   * Makes the given code the current search state and recomputes its matches and cost.
+   *
+   * @param source the code
+   */
+  private void setCode(int[] source) {
+    System.arraycopy(source, 0, this.code, 0, this.numPegs);
+    Arrays.fill(this.codeCounts, 0);
+    for (int c : this.code) {
+      this.codeCounts[c]++;
+    }
+    this.cost = 0;
+    for (int h = 0; h < this.numHistory; h++) {
+      int e = 0;
+      for (int i = 0; i < this.numPegs; i++) {
+        if (this.history[h * this.numPegs + i] == this.code[i]) {
+          e++;
+        }
+      }
+      int t = 0;
+      for (int c = 0; c < this.numColors; c++) {
+        t += Math.min(this.codeCounts[c], this.historyCounts[h * this.numColors + c]);
+      }
+      this.exact[h] = e;
+      this.total[h] = t;
+      this.cost += this.cost(h, e, t);
+    }
+  }
+
+  /**
+   * The cost contributed by one past guess: how far the matches the current code would produce
+   * are from the feedback actually received.
+   *
+   * @param h the history index
+   * @param e the exact matches
+   * @param t the total matches
+   * @return the cost
+   */
+  private int cost(int h, int e, int t) {
+    int c = Math.abs(e - this.targetExact[h]);
+    return this.exactOnly ? c : c + Math.abs(t - this.targetTotal[h]);
+  }
+
+  /**
+   * Proposes one random move (recolor a peg, or swap two pegs) and applies it if it does not
+   * increase the cost, or with a small probability anyway so the search can leave local minima.
+   *
+   * @param force whether to apply the move regardless of its cost
+   */
+  private void tryMove(boolean force) {
+    int i = this.random.nextInt(this.numPegs);
+    if (this.numPegs > 1 && this.random.nextBoolean()) {
+      int j = this.random.nextInt(this.numPegs);
+      int a = this.code[i];
+      int b = this.code[j];
+      if (a == b || !this.allowed[i * this.numColors + b] || !this.allowed[j * this.numColors + a]) {
+        return;
+      }
+      int delta = 0;
+      for (int h = 0; h < this.numHistory; h++) {
+        int gi = this.history[h * this.numPegs + i];
+        int gj = this.history[h * this.numPegs + j];
+        int e = this.exact[h] + (gi == b ? 1 : 0) + (gj == a ? 1 : 0)
+            - (gi == a ? 1 : 0) - (gj == b ? 1 : 0);
+        delta += this.cost(h, e, this.total[h]) - this.cost(h, this.exact[h], this.total[h]);
+      }
+      if (this.accept(delta, force)) {
+        for (int h = 0; h < this.numHistory; h++) {
+          int gi = this.history[h * this.numPegs + i];
+          int gj = this.history[h * this.numPegs + j];
+          this.exact[h] += (gi == b ? 1 : 0) + (gj == a ? 1 : 0)
+              - (gi == a ? 1 : 0) - (gj == b ? 1 : 0);
+        }
+        this.code[i] = b;
+        this.code[j] = a;
+        this.cost += delta;
+      }
+      return;
+    }
+    int a = this.code[i];
+    int b = this.randomColor(i);
+    if (a == b || (!this.duplicates && this.codeCounts[b] > 0)) {
+      return;
+    }
+    int delta = 0;
+    for (int h = 0; h < this.numHistory; h++) {
+      int g = this.history[h * this.numPegs + i];
+      int e = this.exact[h] + (g == b ? 1 : 0) - (g == a ? 1 : 0);
+      int t = this.total[h] - (this.codeCounts[a] <= this.historyCounts[h * this.numColors + a]
+          ? 1 : 0) + (this.codeCounts[b] < this.historyCounts[h * this.numColors + b] ? 1 : 0);
+      delta += this.cost(h, e, t) - this.cost(h, this.exact[h], this.total[h]);
+    }
+    if (this.accept(delta, force)) {
+      for (int h = 0; h < this.numHistory; h++) {
+        int g = this.history[h * this.numPegs + i];
+        this.exact[h] += (g == b ? 1 : 0) - (g == a ? 1 : 0);
+        this.total[h] += (this.codeCounts[b] < this.historyCounts[h * this.numColors + b] ? 1 : 0)
+            - (this.codeCounts[a] <= this.historyCounts[h * this.numColors + a] ? 1 : 0);
+      }
+      this.codeCounts[a]--;
+      this.codeCounts[b]++;
+      this.code[i] = b;
+      this.cost += delta;
+    }
+  }
+
+  /**
+   * Decides whether to apply a move.
+   *
+   * @param delta the change in cost
+   * @param force whether the move must be applied
+   * @return true if the move should be applied
+   */
+  private boolean accept(int delta, boolean force) {
+    return force || delta <= 0 || this.random.nextDouble() < WALK_PROBABILITY / delta;
+  }
+
+  /**
+   * Replaces repeated colors with unused ones, preferring colors allowed at that peg.
+   *
+   * @param code the code to repair in place
+   */
+  private void repair(int[] code) {
+    boolean[] used = new boolean[this.numColors];
+    for (int i = 0; i < this.numPegs; i++) {
+      if (!used[code[i]]) {
+        used[code[i]] = true;
+        continue;
+      }
+      int replacement = -1;
+      int start = this.random.nextInt(this.numColors);
+      for (int k = 0; k < this.numColors && replacement < 0; k++) {
+        int c = (start + k) % this.numColors;
+        if (!used[c] && this.allowed[i * this.numColors + c]) {
+          replacement = c;
+        }
+      }
+      for (int k = 0; k < this.numColors && replacement < 0; k++) {
+        int c = (start + k) % this.numColors;
+        if (!used[c]) {
+          replacement = c;
+        }
+      }
+      code[i] = replacement;
+      used[replacement] = true;
+    }
+  }
+
+  /**
+   * Fills a code with random colors drawn from each peg's domain.
+   *
+   * @param dest destination array
+   */
+  private void randomCode(int[] dest) {
+    for (int i = 0; i < this.numPegs; i++) {
+      dest[i] = this.randomColor(i);
+    }
+    if (!this.duplicates) {
+      this.repair(dest);
+    }
+  }
+
+  /**
+   * Draws a random color allowed at the given peg.
+   *
+   * @param peg the peg
+   * @return a color index
+   */
+  private int randomColor(int peg) {
+    int start = this.random.nextInt(this.numColors);
+    for (int k = 0; k < this.numColors; k++) {
+      int c = (start + k) % this.numColors;
+      if (this.allowed[peg * this.numColors + c]) {
+        return c;
+      }
+    }
+    return start;
+  }
+
+  /**
+   * Scores two codes, honoring the black-peg-only variant.
+   *
+   * @param secret the secret
+   * @param guess  the guess
+   * @return the packed feedback
+   */
+  private int score(int[] secret, int[] guess) {
+    int feedback = Codes.score(secret, guess, this.scratch);
+    return this.exactOnly ? Codes.exactOnly(feedback) : feedback;
+  }
+
+  /**
+   * Picks the sampled code that splits the rest of the sample into the most feedback classes.
+   *
+   * @param sample the consistent codes found
+   * @return the chosen code
+   */
+  private int[] mostInformative(List<int[]> sample) {
+    int[] best = sample.get(0);
+    int bestClasses = -1;
+    Set<Integer> classes = new HashSet<>();
+    for (int[] candidate : sample) {
+      classes.clear();
+      for (int[] other : sample) {
+        classes.add(this.score(other, candidate));
+      }
+      if (classes.size() > bestClasses) {
+        bestClasses = classes.size();
+        best = candidate;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Hashes a code to 64 bits so duplicates in the sample can be skipped cheaply.
+   *
+   * @param code the code
+   * @return the fingerprint
+   */
+  private long fingerprint(int[] code) {
+    long h = 1125899906842597L;
+    for (int c : code) {
+      h = Long.rotateLeft((h ^ c) * 0x9E3779B97F4A7C15L, 29);
+    }
+    return h;
+  }
+}
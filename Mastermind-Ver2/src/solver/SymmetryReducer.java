@@ -0,0 +1,209 @@
+package solver;
+
+import java.util.Arrays;
+
+/**
+ * Tracks which colors and positions are still interchangeable given the guesses played so far,
+ * so a guess search only needs to evaluate one canonical guess per equivalence class.
+ *
+ * <p>A color is free while no guess has used it; free colors can be renamed among themselves.
+ * Two positions share a class while every guess so far has the same color at both; positions in
+ * a class can be permuted. Every such renaming and permutation maps the history, and therefore
+ * the set of consistent secrets, onto itself, so equivalent guesses split the candidates into
+ * classes of the same sizes. Before the first guess this leaves a handful of canonical guesses
+ * (one per integer partition of the number of pegs) out of the whole code space.
+ *
+ * <p>Not thread-safe: canonicalization uses scratch arrays owned by the reducer.
+ */
+public class SymmetryReducer {
+
+  private final int numColors;
+  private final int numPegs;
+  private final boolean[] usedColors;
+  private final int[] positionClasses;
+  private int numClasses;
+  // scratch for canonicalize
+  private final int[] freeColorsSeen;
+  private final int[][] classCounts;
+  private final int[] order;
+  private final int[] colorMap;
+  private final int[] classValues;
+  private final int[] canonical;
+
+  /**
+   * Constructs a reducer for a game where nothing has been guessed yet.
+   *
+   * @param numColors the number of colors
+   * @param numPegs   the number of colors in a code
+   * @throws IllegalArgumentException if either argument is not positive
+   */
+  public SymmetryReducer(int numColors, int numPegs) throws IllegalArgumentException {
+    if (numColors <= 0 || numPegs <= 0) {
+      throw new IllegalArgumentException("invalid symmetry arguments!");
+    }
+    this.numColors = numColors;
+    this.numPegs = numPegs;
+    this.usedColors = new boolean[numColors];
+    this.positionClasses = new int[numPegs];
+    this.numClasses = 1;
+    this.freeColorsSeen = new int[numPegs];
+    this.classCounts = new int[numPegs][numPegs];
+    this.order = new int[numPegs];
+    this.colorMap = new int[numColors];
+    this.classValues = new int[numPegs];
+    this.canonical = new int[numPegs];
+  }
+
+  /**
+   * Gets the number of colors no guess has used yet.
+   *
+   * @return the number of free colors
+   */
+  public int getNumFreeColors() {
+    int free = 0;
+    for (boolean used : this.usedColors) {
+      if (!used) {
+        free++;
+      }
+    }
+    return free;
+  }
+
+  /**
+   * Gets the number of classes of interchangeable positions.
+   *
+   * @return the number of position classes
+   */
+  public int getNumPositionClasses() {
+    return this.numClasses;
+  }
+
+  /**
+   * Breaks the symmetries a played guess distinguishes: its colors stop being free, and positions
+   * stay in a class only with positions that got the same color.
+   *
+   * @param guess the guess as color indices
+   * @throws IllegalArgumentException if the guess is null or has the wrong length
+   */
+  public void addGuess(int[] guess) throws IllegalArgumentException {
+    if (guess == null || guess.length != this.numPegs) {
+      throw new IllegalArgumentException("invalid guess!");
+    }
+    int[] refined = new int[this.numPegs];
+    int count = 0;
+    for (int p = 0; p < this.numPegs; p++) {
+      this.usedColors[guess[p]] = true;
+      refined[p] = -1;
+      for (int q = 0; q < p; q++) {
+        if (this.positionClasses[q] == this.positionClasses[p] && guess[q] == guess[p]) {
+          refined[p] = refined[q];
+          break;
+        }
+      }
+      if (refined[p] < 0) {
+        refined[p] = count++;
+      }
+    }
+    System.arraycopy(refined, 0, this.positionClasses, 0, this.numPegs);
+    this.numClasses = count;
+  }
+
+  /**
+   * Determines whether a guess is the canonical representative of its equivalence class.
+   *
+   * @param guess the guess as color indices
+   * @return true if the guess is canonical, otherwise false
+   */
+  public boolean isCanonical(int[] guess) {
+    this.canonicalize(guess, this.canonical);
+    for (int i = 0; i < this.numPegs; i++) {
+      if (this.canonical[i] != guess[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes the canonical representative of a guess's equivalence class into dest. The free
+   * colors the guess uses are ordered by how often they appear in each position class and renamed
+   * to the lowest free colors in that order; then the colors within each position class are
+   * sorted in ascending order.
+   *
+   * @param guess the guess as color indices
+   * @param dest  destination array, one slot per peg; may be the guess itself
+   */
+  public void canonicalize(int[] guess, int[] dest) {
+    int numSeen = 0;
+    for (int p = 0; p < this.numPegs; p++) {
+      int color = guess[p];
+      if (this.usedColors[color]) {
+        continue;
+      }
+      int seen = 0;
+      while (seen < numSeen && this.freeColorsSeen[seen] != color) {
+        seen++;
+      }
+      if (seen == numSeen) {
+        this.freeColorsSeen[numSeen] = color;
+        Arrays.fill(this.classCounts[numSeen], 0, this.numClasses, 0);
+        numSeen++;
+      }
+      this.classCounts[seen][this.positionClasses[p]]++;
+    }
+    // insertion sort of the free colors seen, most frequent count vector first
+    for (int i = 0; i < numSeen; i++) {
+      int j = i;
+      while (j > 0 && this.compareCounts(this.order[j - 1], i) < 0) {
+        this.order[j] = this.order[j - 1];
+        j--;
+      }
+      this.order[j] = i;
+    }
+    int next = 0;
+    for (int i = 0; i < numSeen; i++) {
+      while (this.usedColors[next]) {
+        next++;
+      }
+      this.colorMap[this.freeColorsSeen[this.order[i]]] = next++;
+    }
+    for (int p = 0; p < this.numPegs; p++) {
+      this.classValues[p] = this.usedColors[guess[p]] ? guess[p] : this.colorMap[guess[p]];
+    }
+    // sort the values of each position class into its positions in ascending order
+    for (int c = 0; c < this.numClasses; c++) {
+      for (int p = 0; p < this.numPegs; p++) {
+        if (this.positionClasses[p] != c) {
+          continue;
+        }
+        int smallest = p;
+        for (int q = p + 1; q < this.numPegs; q++) {
+          if (this.positionClasses[q] == c && this.classValues[q] < this.classValues[smallest]) {
+            smallest = q;
+          }
+        }
+        int tmp = this.classValues[p];
+        this.classValues[p] = this.classValues[smallest];
+        this.classValues[smallest] = tmp;
+      }
+    }
+    System.arraycopy(this.classValues, 0, dest, 0, this.numPegs);
+  }
+
+  /**
+   * Compares the per-class counts of two free colors seen during canonicalization.
+   *
+   * @param a index of the first color among those seen
+   * @param b index of the second color among those seen
+   * @return a negative number, zero or a positive number as a's counts are lexicographically less
+   *         than, equal to or greater than b's
+   */
+  private int compareCounts(int a, int b) {
+    for (int c = 0; c < this.numClasses; c++) {
+      if (this.classCounts[a][c] != this.classCounts[b][c]) {
+        return Integer.compare(this.classCounts[a][c], this.classCounts[b][c]);
+      }
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,237 @@
+package tournament;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import model.CodeSpace;
+import model.Codes;
+import model.IViewModel;
+import solver.IStrategy;
+
+/**
+ * A headless harness that plays code-breaking strategies against every possible secret of a
+ * Mastermind configuration (or a seeded sample of secrets when the code space is too large) and
+ * reports how many guesses they need. Games are spread over all cores through a parallel stream;
+ * nothing here depends on the view.
+ */
+public class Tournament {
+
+  private static final int MAX_TURNS = 64;
+
+  private final int numColors;
+  private final int numPegs;
+  private final boolean duplicates;
+  private final boolean exactOnly;
+  private final int numGuessesAllowed;
+  private int sampleLimit;
+  private long seed;
+
+  /**
+   * Constructs a tournament for an explicit configuration.
+   *
+   * @param numColors         the number of colors in the color bank
+   * @param numPegs           the number of colors in a guess
+   * @param duplicates        whether the answer key may repeat colors
+   * @param numGuessesAllowed the number of guesses allowed before a game counts as lost
+   * @throws IllegalArgumentException if any of the arguments are invalid
+   */
+  public Tournament(int numColors, int numPegs, boolean duplicates, int numGuessesAllowed)
+      throws IllegalArgumentException {
+    this(numColors, numPegs, duplicates, false, numGuessesAllowed);
+  }
+
+  /**
+   * Constructs a tournament for an explicit configuration, optionally in the black-peg-only
+   * variant.
+   *
+   * @param numColors         the number of colors in the color bank
+   * @param numPegs           the number of colors in a guess
+   * @param duplicates        whether the answer key may repeat colors
+   * @param exactOnly         whether feedback reports exact matches only
+   * @param numGuessesAllowed the number of guesses allowed before a game counts as lost
+   * @throws IllegalArgumentException if any of the arguments are invalid
+   */
+  public Tournament(int numColors, int numPegs, boolean duplicates, boolean exactOnly,
+      int numGuessesAllowed) throws IllegalArgumentException {
+    if (numColors <= 0 || numPegs <= 0 || numGuessesAllowed <= 0
+        || (!duplicates && numPegs > numColors)) {
+      throw new IllegalArgumentException("invalid tournament arguments!");
+    }
+    this.numColors = numColors;
+    this.numPegs = numPegs;
+    this.duplicates = duplicates;
+    this.exactOnly = exactOnly;
+    this.numGuessesAllowed = numGuessesAllowed;
+    this.sampleLimit = 1_000_000;
+    this.seed = 0;
+  }
+
+  /**
+   * Constructs a tournament with the configuration of a started game.
+   *
+   * @param model the game model
+   * @throws IllegalArgumentException if the model is null
+   * @throws IllegalStateException    if the game has not started yet
+   */
+  public Tournament(IViewModel model) throws IllegalArgumentException, IllegalStateException {
+    this(nonNull(model).getColorBank().size(), model.getNumColorsInGuess(),
+        model.allowsDuplicates(), model.isExactOnly(), model.getNumGuessesAllowed());
+  }
+
+  /**
+   * Guards the model constructor against null before it is dereferenced.
+   *
+   * @param model the given model
+   * @return the model
+   * @throws IllegalArgumentException if the model is null
+   */
+  private static IViewModel nonNull(IViewModel model) throws IllegalArgumentException {
+    if (model == null) {
+      throw new IllegalArgumentException("model can't be null!");
+    }
+    return model;
+  }
+
+  /**
+   * Sets how many secrets are played at most. Spaces larger than the limit are sampled uniformly
+   * with the given seed, so repeated runs play the same secrets.
+   *
+   * @param sampleLimit the maximum number of secrets to play
+   * @param seed        the seed used for sampling
+   * @throws IllegalArgumentException if the limit is not positive
+   */
+  public void setSampling(int sampleLimit, long seed) throws IllegalArgumentException {
+    if (sampleLimit <= 0) {
+      throw new IllegalArgumentException("sample limit must be positive!");
+    }
+    this.sampleLimit = sampleLimit;
+    this.seed = seed;
+  }
+
+  /**
+   * Plays every named strategy in turn.
+   *
+   * @param strategies strategy factories keyed by name
+   * @return one report per strategy, in iteration order
+   * @throws IllegalArgumentException if the map is null or empty
+   */
+  public List<TournamentReport> playAll(Map<String, Supplier<IStrategy>> strategies)
+      throws IllegalArgumentException {
+    if (strategies == null || strategies.isEmpty()) {
+      throw new IllegalArgumentException("strategies can't be null or empty!");
+    }
+    List<TournamentReport> reports = new ArrayList<>();
+    for (Map.Entry<String, Supplier<IStrategy>> entry : strategies.entrySet()) {
+      reports.add(this.play(entry.getKey(), entry.getValue()));
+    }
+    return reports;
+  }
+
+  /**
+   * Plays one strategy against every selected secret. The factory is called once per game, from
+   * any worker thread.
+   *
+   * @param name     the strategy name used in the report
+   * @param strategy a factory for fresh strategy instances
+   * @return the tournament report
+   * @throws IllegalArgumentException if any of the arguments are null
+   * @throws IllegalStateException    if the strategy fails to solve a secret
+   */
+  public TournamentReport play(String name, Supplier<IStrategy> strategy)
+      throws IllegalArgumentException, IllegalStateException {
+    if (name == null || strategy == null) {
+      throw new IllegalArgumentException("name and strategy can't be null!");
+    }
+    byte[] secrets = this.selectSecrets();
+    int numGames = secrets.length / this.numPegs;
+    int[] guesses = new int[numGames];
+    long[] nanos = new long[numGames];
+    long start = System.nanoTime();
+    IntStream.range(0, numGames).parallel().forEach(game -> {
+      long gameStart = System.nanoTime();
+      guesses[game] = this.playGame(strategy.get(), secrets, game);
+      nanos[game] = System.nanoTime() - gameStart;
+    });
+    return new TournamentReport(name, guesses, nanos, this.numGuessesAllowed,
+        System.nanoTime() - start);
+  }
+
+  /**
+   * Plays a single game.
+   *
+   * @param strategy a fresh strategy
+   * @param secrets  the packed secrets
+   * @param game     the index of the secret to play
+   * @return the number of guesses the strategy needed
+   * @throws IllegalStateException if the strategy does not solve the secret in MAX_TURNS guesses
+   *                               (or the model's guess limit, if larger)
+   */
+  private int playGame(IStrategy strategy, byte[] secrets, int game)
+      throws IllegalStateException {
+    int[] secret = new int[this.numPegs];
+    for (int i = 0; i < this.numPegs; i++) {
+      secret[i] = secrets[game * this.numPegs + i];
+    }
+    int[] scratch = new int[this.numColors];
+    int solved = Codes.pack(this.numPegs, 0);
+    strategy.startGame(this.numColors, this.numPegs, this.duplicates, this.exactOnly);
+    int maxTurns = Math.max(MAX_TURNS, this.numGuessesAllowed);
+    for (int turn = 1; turn <= maxTurns; turn++) {
+      int[] guess = strategy.nextGuess();
+      int feedback = Codes.score(secret, guess, scratch);
+      if (this.exactOnly) {
+        feedback = Codes.exactOnly(feedback);
+      }
+      if (feedback == solved) {
+        return turn;
+      }
+      strategy.addFeedback(guess, feedback);
+    }
+    throw new IllegalStateException("strategy did not solve a secret in " + maxTurns
+        + " guesses!");
+  }
+
+  /**
+   * Selects the secrets to play: the whole space when it fits under the sample limit, otherwise
+   * a seeded uniform sample.
+   *
+   * @return the secrets packed numPegs bytes per code
+   */
+  private byte[] selectSecrets() {
+    CodeSpace space = new CodeSpace(this.numColors, this.numPegs, this.duplicates);
+    if (space.size() <= this.sampleLimit && space.isPackable()) {
+      int[] packed = space.stream().toArray();
+      byte[] secrets = new byte[packed.length * this.numPegs];
+      int[] code = new int[this.numPegs];
+      for (int i = 0; i < packed.length; i++) {
+        space.decode(packed[i], code);
+        this.packInto(secrets, i, code);
+      }
+      return secrets;
+    }
+    SplittableRandom random = new SplittableRandom(this.seed);
+    byte[] secrets = new byte[this.sampleLimit * this.numPegs];
+    int[] code = new int[this.numPegs];
+    for (int n = 0; n < this.sampleLimit; n++) {
+      space.sample(random, code);
+      this.packInto(secrets, n, code);
+    }
+    return secrets;
+  }
+
+  /**
+   * Stores one code into a byte array of codes, numPegs bytes per code.
+   *
+   * @param secrets the packed codes
+   * @param index   the index of the code to store
+   * @param code    the code
+   */
+  private void packInto(byte[] secrets, int index, int[] code) {
+    for (int j = 0; j < this.numPegs; j++) {
+      secrets[index * this.numPegs + j] = (byte) code[j];
+    }
+  }
+}
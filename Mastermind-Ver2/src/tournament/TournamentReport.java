@@ -0,0 +1,145 @@
+package tournament;
+
+import java.util.Arrays;
+
+/**
+ * The result of playing one strategy against every secret (or a sample of secrets) in a
+ * tournament.
+ */
+public class TournamentReport {
+
+  private final String strategyName;
+  private final int[] histogram;
+  private final int numGames;
+  private final long totalGuesses;
+  private final int worstCase;
+  private final int numLosses;
+  private final long totalGameNanos;
+  private final long wallNanos;
+
+  /**
+   * Constructs a report from the per-game results of a tournament.
+   *
+   * @param strategyName      the name of the strategy that was played
+   * @param guessesPerGame    the number of guesses each game took
+   * @param nanosPerGame      the time each game took
+   * @param numGuessesAllowed the number of guesses the model allows before the game is lost
+   * @param wallNanos         the wall-clock time of the whole tournament
+   * @throws IllegalArgumentException if any of the arguments are invalid
+   */
+  public TournamentReport(String strategyName, int[] guessesPerGame, long[] nanosPerGame,
+      int numGuessesAllowed, long wallNanos) throws IllegalArgumentException {
+    if (strategyName == null || guessesPerGame == null || nanosPerGame == null
+        || guessesPerGame.length == 0 || guessesPerGame.length != nanosPerGame.length) {
+      throw new IllegalArgumentException("invalid report arguments!");
+    }
+    int worst = 0;
+    long total = 0;
+    long nanos = 0;
+    int losses = 0;
+    for (int i = 0; i < guessesPerGame.length; i++) {
+      worst = Math.max(worst, guessesPerGame[i]);
+      total += guessesPerGame[i];
+      nanos += nanosPerGame[i];
+      if (guessesPerGame[i] > numGuessesAllowed) {
+        losses++;
+      }
+    }
+    int[] counts = new int[worst + 1];
+    for (int guesses : guessesPerGame) {
+      counts[guesses]++;
+    }
+    this.strategyName = strategyName;
+    this.histogram = counts;
+    this.numGames = guessesPerGame.length;
+    this.totalGuesses = total;
+    this.worstCase = worst;
+    this.numLosses = losses;
+    this.totalGameNanos = nanos;
+    this.wallNanos = wallNanos;
+  }
+
+  /**
+   * Gets the name of the strategy.
+   *
+   * @return the strategy name
+   */
+  public String getStrategyName() {
+    return this.strategyName;
+  }
+
+  /**
+   * Gets the number of games played.
+   *
+   * @return the number of games
+   */
+  public int getNumGames() {
+    return this.numGames;
+  }
+
+  /**
+   * Gets the average number of guesses per game.
+   *
+   * @return the average number of guesses
+   */
+  public double getAverageGuesses() {
+    return (double) this.totalGuesses / this.numGames;
+  }
+
+  /**
+   * Gets the largest number of guesses any game took.
+   *
+   * @return the worst-case number of guesses
+   */
+  public int getWorstCase() {
+    return this.worstCase;
+  }
+
+  /**
+   * Gets the number of games that took more guesses than the model allows.
+   *
+   * @return the number of lost games
+   */
+  public int getNumLosses() {
+    return this.numLosses;
+  }
+
+  /**
+   * Gets the histogram of guesses: index i holds the number of games solved in exactly i guesses.
+   *
+   * @return a copy of the histogram
+   */
+  public int[] getHistogram() {
+    return Arrays.copyOf(this.histogram, this.histogram.length);
+  }
+
+  /**
+   * Gets the average time spent inside a single game.
+   *
+   * @return the mean game time in nanoseconds
+   */
+  public double getNanosPerGame() {
+    return (double) this.totalGameNanos / this.numGames;
+  }
+
+  /**
+   * Gets the wall-clock time of the whole tournament.
+   *
+   * @return the wall-clock time in nanoseconds
+   */
+  public long getWallNanos() {
+    return this.wallNanos;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append(String.format("%s: %d games, avg %.4f, worst %d, lost %d, %.1f us/game, %.2f s%n",
+        this.strategyName, this.numGames, this.getAverageGuesses(), this.worstCase,
+        this.numLosses, this.getNanosPerGame() / 1e3, this.wallNanos / 1e9));
+    for (int i = 1; i < this.histogram.length; i++) {
+      sb.append(String.format("  %2d guesses: %d%n", i, this.histogram[i]));
+    }
+    return sb.toString();
+  }
+}
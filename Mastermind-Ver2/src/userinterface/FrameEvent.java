@@ -0,0 +1,26 @@
+package userinterface;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Flight Recorder event for one frame of a Mastermind window, timing how long makeScene took to
+ * build the scene.
+ */
+@Name("mastermind.Frame")
+@Label("Mastermind Frame")
+@Category("Mastermind")
+@Description("A scene built for the window")
+@StackTrace(false)
+final class FrameEvent extends Event {
+
+  @Label("Rows Drawn")
+  int rowsDrawn;
+
+  @Label("Pegs")
+  int numPegs;
+}
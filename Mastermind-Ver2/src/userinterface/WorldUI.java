@@ -1,8 +1,12 @@
 package userinterface;
 
+import compute.ComputeService;
 import java.awt.Color;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import javalib.funworld.World;
 import javalib.funworld.WorldScene;
 import javalib.worldimages.AboveAlignImage;
@@ -16,18 +20,33 @@ import javalib.worldimages.OverlayImage;
 import javalib.worldimages.RectangleImage;
 import javalib.worldimages.TextImage;
 import javalib.worldimages.WorldImage;
+import model.Codes;
 import model.Guess;
 import model.IGuess;
 import model.IModel;
+import solver.IStrategy;
+import solver.MinimaxStrategy;
+import solver.SamplingStrategy;
 
 /**
  * Represents a WorldUI (an interactive user interface using features from World) for a Mastermind
- * game.
+ * game. Every frame is reported to Flight Recorder as a mastermind.Frame event (see FrameEvent).
+ *
+ * <p>Pressing "h" shows a good next guess beside the answer: the minimax guess for code spaces of
+ * up to MAX_MINIMAX_CODES codes, taken from the opening book in the books directory while the game
+ * is still in it, a sampled one for larger ones. The guess is searched for on a ComputeService
+ * while the game goes on being drawn, and the search is dropped as soon as a row is played or the
+ * game is reset.
  */
 public class WorldUI extends World implements IView {
 
+  public static final long MAX_MINIMAX_CODES = 1 << 12;
+  // where the minimax hints look for opening books, as the tournament does
+  private static final Path BOOK_DIRECTORY = Paths.get("books");
+
   private final IModel model;
   private final int radius;
+  private final ComputeService compute;
   private int width;
   private int height;
   private List<WorldImage> rowList;
@@ -40,6 +59,12 @@ public class WorldUI extends World implements IView {
   private int numGuessesAllowed;
   private List<Color> colorBank;
   private List<Color> answerKey;
+  // digits typed so far when the color bank has more than 9 colors (0 if none)
+  private int pendingColorNumber;
+  private WorldImage hintImg;
+  private CompletableFuture<int[]> hintJob;
+  // rows played and resets so far, which stands for the board the hints are searched for
+  private long boardChanges;
 
   /**
    * Constructs a WorldUI with 4 parameters. Offers a more flexible and customizable appearance.
@@ -60,6 +85,7 @@ public class WorldUI extends World implements IView {
     this.width = width;
     this.height = height;
     this.initializeView();
+    this.compute = new ComputeService(() -> this.boardChanges);
   }
 
   /**
@@ -84,10 +110,12 @@ public class WorldUI extends World implements IView {
     this.numGuessesAllowed = this.model.getNumGuessesAllowed();
     this.colorBank = this.model.getColorBank();
     this.answerKey = this.model.getAnswerKey();
+    this.pendingColorNumber = 0;
     this.setEmptyCircleOutlines();
     this.rowList = this.generateRowList();
     this.answerImg = this.drawAnswerBlock();
     this.resultImg = this.drawResultBlock();
+    this.hintImg = new EmptyImage();
   }
 
   /**
@@ -288,6 +316,9 @@ public class WorldUI extends World implements IView {
     if (msg == null || msg.isEmpty()) {
       throw new IllegalArgumentException("message can't be null or empty!");
     }
+    this.hintImg = new EmptyImage();
+    // an adversarial codemaker only settles on a secret once the game is over
+    this.answerKey = this.model.getAnswerKey();
     this.answerImg = new OverlayImage(
         this.drawCircleRow(this.buildSolidOutlineList(this.answerKey.size()), this.answerKey),
         new RectangleImage(this.numColorsInGuess * this.radius * 2, this.radius * 2,
@@ -299,13 +330,28 @@ public class WorldUI extends World implements IView {
 
   @Override
   public WorldScene makeScene() {
+    FrameEvent frame = new FrameEvent();
+    frame.begin();
     WorldScene ws = this.getEmptyScene();
-    return ws.placeImageXY(
+    WorldScene scene = ws.placeImageXY(
         new AboveAlignImage(AlignModeX.LEFT,
-            new BesideImage(this.answerImg, this.resultImg),
+            new BesideImage(this.answerImg, new OverlayImage(this.hintImg, this.resultImg)),
             this.stackRows(this.rowList),
             this.displayColorBank(this.colorBank)),
         this.width / 2, this.height / 2);
+    frame.end();
+    if (frame.shouldCommit()) {
+      frame.rowsDrawn = this.rowList.size();
+      frame.numPegs = this.numColorsInGuess;
+      frame.commit();
+    }
+    return scene;
+  }
+
+  @Override
+  public World onTick() {
+    this.compute.deliver();
+    return this;
   }
 
   @Override
@@ -317,28 +363,62 @@ public class WorldUI extends World implements IView {
       this.integerKey(key, numCurrentColorsInGuess, rowIndex);
     } catch (NumberFormatException e) {
       this.backspaceKey(key, listCurrentColorsInGuess, numCurrentColorsInGuess, rowIndex);
+      this.spaceKey(key, rowIndex);
       this.enterKey(key, rowIndex);
       this.resetKey(key);
+      this.hintKey(key);
     }
     return this;
   }
 
   /**
-   * Colors in the next circle if an integer between 1-9 is pressed
+   * Colors in the next circle when a color number is typed. With up to 9 colors a single digit
+   * picks the color right away. With larger color banks digits are collected until no further
+   * digit could name a valid color (e.g. "2", "5" picks color 25 of 30), or until space is pressed.
    *
    * @param key                     key pressed
    * @param numCurrentColorsInGuess number of current colors in the current guess row
    * @param rowIndex                the row index of the current guess
    */
   private void integerKey(String key, int numCurrentColorsInGuess, int rowIndex) {
-    int index = Integer.parseInt(key);
-    if (index >= 1 && index <= 9 && index <= this.colorBank.size()
-        && numCurrentColorsInGuess < this.numColorsInGuess) {
-      this.model.addColorToGuess(this.model.getColorBank().get(index - 1));
-      this.fillInCircles(rowIndex);
+    int digit = Integer.parseInt(key);
+    if (digit < 0 || digit > 9 || numCurrentColorsInGuess >= this.numColorsInGuess) {
+      return;
+    }
+    int number = this.pendingColorNumber * 10 + digit;
+    if (number == 0 || number > this.colorBank.size()) {
+      this.pendingColorNumber = 0;
+    } else if (number * 10 > this.colorBank.size()) {
+      this.addColorNumber(number, rowIndex);
+    } else {
+      this.pendingColorNumber = number;
     }
   }
 
+  /**
+   * Commits the color number typed so far when space is pressed.
+   *
+   * @param key      key pressed
+   * @param rowIndex the row index of the current guess
+   */
+  private void spaceKey(String key, int rowIndex) {
+    if (key.equals(" ") && this.pendingColorNumber > 0) {
+      this.addColorNumber(this.pendingColorNumber, rowIndex);
+    }
+  }
+
+  /**
+   * Adds the color with the given 1-based number in the color bank to the current guess.
+   *
+   * @param number   the color number
+   * @param rowIndex the row index of the current guess
+   */
+  private void addColorNumber(int number, int rowIndex) {
+    this.pendingColorNumber = 0;
+    this.model.addColorToGuess(this.colorBank.get(number - 1));
+    this.fillInCircles(rowIndex);
+  }
+
   /**
    * Deletes the left color in the row if the backspace button is pressed
    *
@@ -349,7 +429,9 @@ public class WorldUI extends World implements IView {
    */
   private void backspaceKey(String key, List<Color> listCurrentColorsInGuess,
       int numCurrentColorsInGuess, int rowIndex) {
-    if (key.equals("backspace") && !listCurrentColorsInGuess.isEmpty()) {
+    if (key.equals("backspace") && this.pendingColorNumber > 0) {
+      this.pendingColorNumber = 0;
+    } else if (key.equals("backspace") && !listCurrentColorsInGuess.isEmpty()) {
       listCurrentColorsInGuess.remove(numCurrentColorsInGuess - 1);
       this.fillInCircles(rowIndex);
     }
@@ -364,6 +446,8 @@ public class WorldUI extends World implements IView {
   private void enterKey(String key, int rowIndex) {
     if (key.equals("enter") && this.model.isFullRow() && rowIndex < this.numGuessesAllowed) {
       this.model.updateGuessMatchInfo();
+      this.boardChanges++;
+      this.hintImg = new EmptyImage();
       this.fillInCircles(rowIndex);
       if (this.model.winGame()) {
         this.setLastScene("Win!");
@@ -382,9 +466,66 @@ public class WorldUI extends World implements IView {
    */
   private void resetKey(String key) {
     if (key.equals("r")) {
+      this.boardChanges++;
       this.currentGuess.setGuess(new Guess());
       this.initializeView();
       this.model.setRowIndex(0);
     }
   }
+
+  /**
+   * Starts searching for a good next guess in the background if "h" is pressed, unless a search
+   * is running already or the game is over.
+   *
+   * @param key key pressed
+   */
+  private void hintKey(String key) {
+    int rows = this.model.getNumGuessesMade();
+    if (!key.equals("h") || (this.hintJob != null && !this.hintJob.isDone())
+        || rows >= this.numGuessesAllowed
+        || (rows > 0 && Codes.exact(this.model.feedbackAt(rows - 1)) == this.numColorsInGuess)) {
+      return;
+    }
+    // the search only gets a copy of the history, never the game
+    int numColors = this.colorBank.size();
+    int numPegs = this.numColorsInGuess;
+    boolean duplicates = this.model.allowsDuplicates();
+    boolean exactOnly = this.model.isExactOnly();
+    int[][] guesses = new int[rows][numPegs];
+    int[] feedbacks = new int[rows];
+    for (int row = 0; row < rows; row++) {
+      this.model.copyGuess(row, guesses[row]);
+      feedbacks[row] = this.model.feedbackAt(row);
+    }
+    this.hintImg = new TextImage("...", 24, FontStyle.REGULAR, Color.GRAY);
+    this.hintJob = this.compute.submit(() -> {
+      IStrategy strategy = Codes.spaceSize(numColors, numPegs) <= MAX_MINIMAX_CODES
+          ? new MinimaxStrategy(BOOK_DIRECTORY) : new SamplingStrategy();
+      strategy.startGame(numColors, numPegs, duplicates, exactOnly);
+      for (int row = 0; row < rows; row++) {
+        strategy.addFeedback(guesses[row], feedbacks[row]);
+      }
+      return strategy.nextGuess();
+    });
+    this.hintJob.whenComplete(this::showHint);
+  }
+
+  /**
+   * Shows how the search for a hint ended.
+   *
+   * @param guess the guess found, as color-bank indices
+   * @param error why the search failed or was dropped, or null if it finished
+   */
+  private void showHint(int[] guess, Throwable error) {
+    if (error != null) {
+      this.hintImg = new EmptyImage();
+      return;
+    }
+    WorldImage hint = new EmptyImage();
+    for (int color : guess) {
+      hint = new BesideImage(hint, this.drawCircle(Math.max(1, this.radius / 2),
+          OutlineMode.SOLID, this.colorBank.get(color)));
+    }
+    this.hintImg = hint;
+  }
 }